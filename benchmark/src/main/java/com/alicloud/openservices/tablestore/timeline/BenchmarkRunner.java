@@ -0,0 +1,21 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行所有微基准，默认打开GC Profiler，输出每次操作分配的内存（gc.alloc.rate.norm）。
+ * 支持JMH的所有命令行参数，例如只运行某个基准：java -jar target/benchmarks.jar RowCodecBenchmark -p messageSize=1024
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
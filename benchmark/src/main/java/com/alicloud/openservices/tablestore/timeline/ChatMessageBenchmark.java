@@ -0,0 +1,152 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天消息的三种编码方式对比：BinaryMessage、用Jackson序列化的JSON消息，以及把JSON字符串放进StringMessage（业务中常见的做法）。
+ * 消息包含会话ID、发送者、发送时间、消息类型、客户端消息ID和中英文混合的正文，正文长度由textLength控制。
+ * 每次操作的编码字节数通过辅助计数器bytes输出。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChatMessageBenchmark {
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    private final static MessageSchema CHAT_SCHEMA = MessageSchemaBuilder.newSchema("chat")
+            .addField(1, "conversationID", MessageFieldType.STRING)
+            .addField(2, "sender", MessageFieldType.STRING)
+            .addField(3, "sentAt", MessageFieldType.INT64)
+            .addField(4, "type", MessageFieldType.INT64)
+            .addField(5, "clientMessageID", MessageFieldType.STRING)
+            .addField(6, "text", MessageFieldType.STRING)
+            .build();
+
+    private final static String TEXT = "今晚7点开会讨论Q3 roadmap，记得带上上周的benchmark结果 :) ";
+
+    /**
+     * JSON编码使用的消息体。
+     */
+    public static class ChatPayload {
+        public String conversationID;
+        public String sender;
+        public long sentAt;
+        public int type;
+        public String clientMessageID;
+        public String text;
+    }
+
+    /**
+     * 业务中常见的JSON消息实现。
+     */
+    public static class JsonChatMessage extends DistinctMessage {
+        private ChatPayload payload = new ChatPayload();
+
+        @Override
+        public IMessage newInstance() {
+            return new JsonChatMessage();
+        }
+
+        @Override
+        public byte[] serialize() {
+            try {
+                return MAPPER.writeValueAsBytes(payload);
+            } catch (IOException ex) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, ex.getMessage(), ex);
+            }
+        }
+
+        @Override
+        public void deserialize(byte[] input) {
+            try {
+                payload = MAPPER.readValue(input, ChatPayload.class);
+            } catch (IOException ex) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Size {
+        public long bytes;
+    }
+
+    @Param({"binary", "json", "string"})
+    public String codec;
+
+    @Param({"20", "200", "2000"})
+    public int textLength;
+
+    private String text;
+    private long sentAt;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < textLength) {
+            builder.append(TEXT);
+        }
+        text = builder.substring(0, textLength);
+        sentAt = System.currentTimeMillis();
+        encoded = encode().serialize();
+    }
+
+    @Benchmark
+    public byte[] serialize(Size size) throws IOException {
+        byte[] result = encode().serialize();
+        size.bytes += result.length;
+        return result;
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        if (codec.equals("binary")) {
+            BinaryMessage message = new BinaryMessage(null, CHAT_SCHEMA);
+            message.deserialize(encoded);
+            return message.getString("text");
+        } else if (codec.equals("json")) {
+            JsonChatMessage message = new JsonChatMessage();
+            message.deserialize(encoded);
+            return message.payload.text;
+        } else {
+            StringMessage message = new StringMessage();
+            message.deserialize(encoded);
+            return MAPPER.readValue(message.getContent(), ChatPayload.class).text;
+        }
+    }
+
+    private IMessage encode() throws IOException {
+        if (codec.equals("binary")) {
+            return new BinaryMessage("1", CHAT_SCHEMA)
+                    .setString("conversationID", "group_20190312_8831")
+                    .setString("sender", "user_1029384")
+                    .setLong("sentAt", sentAt)
+                    .setLong("type", 1)
+                    .setString("clientMessageID", "c7d1f0e2-5b1a-4e0a-9d61-2f0e8a3c6b11")
+                    .setString("text", text);
+        }
+
+        ChatPayload payload = new ChatPayload();
+        payload.conversationID = "group_20190312_8831";
+        payload.sender = "user_1029384";
+        payload.sentAt = sentAt;
+        payload.type = 1;
+        payload.clientMessageID = "c7d1f0e2-5b1a-4e0a-9d61-2f0e8a3c6b11";
+        payload.text = text;
+        if (codec.equals("json")) {
+            JsonChatMessage message = new JsonChatMessage();
+            message.payload = payload;
+            return message;
+        }
+        return new StringMessage("1", MAPPER.writeValueAsString(payload));
+    }
+}
@@ -0,0 +1,332 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开环压测工具：按固定速率发起请求，不等待前一个请求完成，延时从计划发起时间开始计算，避免协同遗漏（coordinated omission）。
+ * 支持混合负载（单写、扇出写、最新消息范围读、单条读、批量写），Timeline的访问热度服从Zipf分布，
+ * 每种操作分别用HdrHistogram统计延时分位数，预热阶段的请求不计入结果，结果以JSON输出便于不同版本之间比较。
+ *
+ * 参数格式是--name=value，例如：
+ * java -cp target/benchmarks.jar com.alicloud.openservices.tablestore.timeline.LoadGenerator --store=standin --rate=5000 --duration=60
+ */
+public class LoadGenerator {
+    private final static String[] OPERATIONS = {"write", "fanout", "scan", "read", "batch"};
+
+    private final Map<String, String> options = new LinkedHashMap<String, String>();
+
+    private final Map<String, Recorder> recorders = new HashMap<String, Recorder>();
+    private final Map<String, AtomicLong> errorCounts = new HashMap<String, AtomicLong>();
+    private final Map<String, AtomicLong> skippedCounts = new HashMap<String, AtomicLong>();
+    private final AtomicLong outstanding = new AtomicLong();
+
+    private IStore store;
+    private LocalTableStoreServer server;
+    private AtomicLongArray lastSequenceIDs;
+    private String content;
+    private long measureStart;
+
+    LoadGenerator(String[] args) {
+        options.put("store", "standin");
+        options.put("endpoint", "");
+        options.put("accessKeyID", "");
+        options.put("accessKeySecret", "");
+        options.put("instanceName", "");
+        options.put("tableName", "__timeline_load");
+        options.put("directory", System.getProperty("java.io.tmpdir") + "/__timeline_load");
+        options.put("rate", "1000");
+        options.put("warmup", "10");
+        options.put("duration", "60");
+        options.put("threads", "64");
+        options.put("timelines", "100000");
+        options.put("zipfTheta", "0.99");
+        options.put("messageSize", "256");
+        options.put("mix", "write:30,fanout:5,scan:50,read:10,batch:5");
+        options.put("fanoutSize", "100");
+        options.put("scanSize", "20");
+        options.put("seed", "0");
+        options.put("standinLatencyMicros", "1000");
+        options.put("standinLatencySigma", "0.5");
+        options.put("standinErrorRate", "0");
+        options.put("output", "-");
+
+        for (String arg : args) {
+            int pos = arg.indexOf('=');
+            if (!arg.startsWith("--") || pos < 0 || !options.containsKey(arg.substring(2, pos))) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Unknown argument:" + arg + ", supported:" + options.keySet());
+            }
+            options.put(arg.substring(2, pos), arg.substring(pos + 1));
+        }
+
+        for (String operation : OPERATIONS) {
+            recorders.put(operation, new Recorder(3));
+            errorCounts.put(operation, new AtomicLong());
+            skippedCounts.put(operation, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(args).run();
+    }
+
+    void run() throws Exception {
+        store = createStore();
+        if (!store.exist()) {
+            store.create();
+        }
+
+        int timelineCount = getInt("timelines");
+        lastSequenceIDs = new AtomicLongArray(timelineCount);
+        char[] chars = new char[getInt("messageSize")];
+        Arrays.fill(chars, 'x');
+        content = new String(chars);
+
+        Random random = new Random(Long.parseLong(options.get("seed")));
+        ZipfianGenerator popularity = new ZipfianGenerator(timelineCount, Double.parseDouble(options.get("zipfTheta")), random);
+        String[] mix = parseMix(options.get("mix"));
+        int fanoutSize = getInt("fanoutSize");
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(getInt("threads"), getInt("threads"),
+                0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / Double.parseDouble(options.get("rate")));
+        long start = System.nanoTime();
+        measureStart = start + TimeUnit.SECONDS.toNanos(getInt("warmup"));
+        long end = measureStart + TimeUnit.SECONDS.toNanos(getInt("duration"));
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended >= end) {
+                break;
+            }
+
+            String operation = mix[random.nextInt(mix.length)];
+            long[] timelines = new long[operation.equals("fanout") ? fanoutSize : 1];
+            for (int j = 0; j < timelines.length; j++) {
+                timelines[j] = popularity.next();
+            }
+
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            outstanding.incrementAndGet();
+            executor.execute(new Task(operation, timelines, intended));
+        }
+        long scheduleEnd = System.nanoTime();
+
+        executor.shutdown();
+        executor.awaitTermination(60, TimeUnit.SECONDS);
+        executor.shutdownNow();
+
+        report((scheduleEnd - measureStart) / 1e9);
+        store.close();
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    private IStore createStore() {
+        String type = options.get("store");
+        if (type.equals("local")) {
+            LocalTimelineConfig config = new LocalTimelineConfig(options.get("directory"));
+            config.setMessageInstance(new StringMessage());
+            return new LocalTimelineStore(config);
+        }
+
+        DistributeTimelineConfig config = new DistributeTimelineConfig(options.get("endpoint"),
+                options.get("accessKeyID"), options.get("accessKeySecret"),
+                options.get("instanceName"), options.get("tableName"));
+        config.setMessageInstance(new StringMessage());
+        if (type.equals("distribute")) {
+            return new DistributeTimelineStore(config);
+        } else if (type.equals("standin")) {
+            server = new LocalTableStoreServer(getInt("threads"), Long.parseLong(options.get("seed")));
+            server.setLatency(LocalTableStoreServer.logNormalLatency(Long.parseLong(options.get("standinLatencyMicros")),
+                    Double.parseDouble(options.get("standinLatencySigma"))));
+            double errorRate = Double.parseDouble(options.get("standinErrorRate"));
+            if (errorRate > 0) {
+                server.setErrors(LocalTableStoreServer.errorRate(errorRate, "OTSServerBusy", 503));
+            }
+            return new DistributeTimelineStore(config, server.asyncClient());
+        }
+        throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                "Unknown store:" + type + ", supported:standin,local,distribute");
+    }
+
+    /**
+     * 把"write:30,scan:70"展开成按权重重复的操作数组，随机选一个下标就是按权重抽样。
+     */
+    private static String[] parseMix(String mix) {
+        List<String> result = new ArrayList<String>();
+        for (String item : mix.split(",")) {
+            String[] pair = item.trim().split(":");
+            if (pair.length != 2 || !Arrays.asList(OPERATIONS).contains(pair[0])) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Invalid mix:" + item + ", supported operations:" + Arrays.toString(OPERATIONS));
+            }
+            for (int i = 0; i < Integer.parseInt(pair[1]); i++) {
+                result.add(pair[0]);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, "Mix is empty");
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    private int getInt(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private static String timelineID(long index) {
+        return "timeline_" + index;
+    }
+
+    private class Task implements Runnable {
+        private final String operation;
+        private final long[] timelines;
+        private final long intended;
+
+        Task(String operation, long[] timelines, long intended) {
+            this.operation = operation;
+            this.timelines = timelines;
+            this.intended = intended;
+        }
+
+        @Override
+        public void run() {
+            boolean succeeded = false;
+            try {
+                succeeded = execute();
+            } catch (Exception ex) {
+                errorCounts.get(operation).incrementAndGet();
+            } finally {
+                outstanding.decrementAndGet();
+            }
+
+            if (succeeded && intended >= measureStart) {
+                long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+                recorders.get(operation).recordValue(Math.max(1, latency));
+            }
+        }
+
+        /**
+         * @return  请求是否成功执行，没有可读数据而跳过的请求返回false。
+         */
+        private boolean execute() throws Exception {
+            if (operation.equals("write")) {
+                TimelineEntry entry = store.write(timelineID(timelines[0]), new StringMessage(content));
+                lastSequenceIDs.set((int) timelines[0], entry.getSequenceID());
+            } else if (operation.equals("batch")) {
+                store.batch(timelineID(timelines[0]), new StringMessage(content));
+            } else if (operation.equals("fanout")) {
+                fanout();
+            } else if (operation.equals("scan")) {
+                ScanParameter parameter = ScanParameterBuilder.scanBackward()
+                        .from(Long.MAX_VALUE).to(0).maxCount(getInt("scanSize")).build();
+                Iterator<TimelineEntry> iterator = store.scan(timelineID(timelines[0]), parameter);
+                while (iterator.hasNext()) {
+                    iterator.next();
+                }
+            } else if (operation.equals("read")) {
+                long sequenceID = lastSequenceIDs.get((int) timelines[0]);
+                if (sequenceID == 0) {
+                    skippedCounts.get(operation).incrementAndGet();
+                    return false;
+                }
+                store.read(timelineID(timelines[0]), sequenceID);
+            }
+            return true;
+        }
+
+        private void fanout() throws Exception {
+            final CountDownLatch latch = new CountDownLatch(timelines.length);
+            final AtomicLong failed = new AtomicLong();
+            IMessage message = new EncodedMessage(new StringMessage(content));
+            for (final long timeline : timelines) {
+                store.writeAsync(timelineID(timeline), message, new TimelineCallback<IMessage>() {
+                    @Override
+                    public void onCompleted(String timelineID, IMessage request, TimelineEntry timelineEntry) {
+                        lastSequenceIDs.set((int) timeline, timelineEntry.getSequenceID());
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onFailed(String timelineID, IMessage request, Exception ex) {
+                        failed.incrementAndGet();
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+            if (failed.get() > 0) {
+                throw new TimelineException(TimelineExceptionType.TET_RETRY,
+                        "Fan out write failed, failed count:" + failed.get());
+            }
+        }
+    }
+
+    private void report(double elapsedSeconds) throws Exception {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"options\":{");
+        boolean first = true;
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            if (option.getKey().equals("accessKeySecret")) {
+                continue;
+            }
+            json.append(first ? "" : ",").append(quote(option.getKey())).append(':').append(quote(option.getValue()));
+            first = false;
+        }
+        json.append("},\"elapsedSeconds\":").append(String.format("%.3f", elapsedSeconds));
+        json.append(",\"outstanding\":").append(outstanding.get());
+        json.append(",\"operations\":[");
+
+        first = true;
+        for (String operation : OPERATIONS) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            json.append(first ? "" : ",").append('{');
+            json.append("\"name\":").append(quote(operation));
+            json.append(",\"count\":").append(histogram.getTotalCount());
+            json.append(",\"errors\":").append(errorCounts.get(operation).get());
+            json.append(",\"skipped\":").append(skippedCounts.get(operation).get());
+            json.append(",\"throughput\":").append(String.format("%.1f", histogram.getTotalCount() / elapsedSeconds));
+            json.append(",\"meanMicros\":").append(String.format("%.1f", histogram.getMean()));
+            json.append(",\"p50Micros\":").append(histogram.getValueAtPercentile(50));
+            json.append(",\"p90Micros\":").append(histogram.getValueAtPercentile(90));
+            json.append(",\"p99Micros\":").append(histogram.getValueAtPercentile(99));
+            json.append(",\"p999Micros\":").append(histogram.getValueAtPercentile(99.9));
+            json.append(",\"maxMicros\":").append(histogram.getMaxValue());
+            json.append('}');
+            first = false;
+        }
+        json.append("]}");
+
+        String output = options.get("output");
+        if (output.equals("-")) {
+            System.out.println(json);
+        } else {
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output, true), "UTF-8"));
+            try {
+                writer.println(json);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,71 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息本身的开销：crc32校验、StringMessage的序列化和反序列化、DistinctMessage生成消息ID。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+    @Param({"64", "1024", "65536", "1048576"})
+    public int messageSize;
+
+    private StringMessage message;
+    private byte[] content;
+
+    @Setup
+    public void setUp() {
+        char[] chars = new char[messageSize];
+        Arrays.fill(chars, 'x');
+        message = new StringMessage(new String(chars));
+        content = message.serialize();
+    }
+
+    @Benchmark
+    public long crc32() {
+        return Utils.crc32(content);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return message.serialize();
+    }
+
+    @Benchmark
+    public IMessage deserialize() {
+        IMessage result = message.newInstance();
+        result.deserialize(content);
+        return result;
+    }
+
+    /**
+     * 每次新建消息，测量的是第一次调用getMessageID时生成消息ID的开销。
+     */
+    @Benchmark
+    @Threads(4)
+    public String distinctMessageID() {
+        return new DistinctMessage() {
+            @Override
+            public IMessage newInstance() {
+                return null;
+            }
+
+            @Override
+            public byte[] serialize() {
+                return null;
+            }
+
+            @Override
+            public void deserialize(byte[] input) {
+            }
+        }.getMessageID();
+    }
+}
@@ -0,0 +1,65 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 消息ID生成的开销和竞争：MessageIDGenerator（无锁64位ID）和旧版DistinctMessage的“进程ID@IP:计数器”字符串ID对比。
+ * 每种方式分别用单线程和Threads.MAX（每个CPU一个线程）共享同一个生成器运行，后者反映多线程同时发消息时的CAS竞争。
+ * 只比较生成本身时用nextID，DistinctMessage得到的是字符串，所以也测了nextIDString。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageIDBenchmark {
+    private final static String MACHINE_ID = Utils.getProcessID() + "@" + Utils.getLocalIP() + ":";
+
+    private final MessageIDGenerator generator = new MessageIDGenerator(1);
+    private final AtomicInteger baseID = new AtomicInteger(0);
+
+    @Benchmark
+    @Threads(1)
+    public long nextID() {
+        return generator.nextID();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long nextIDContended() {
+        return generator.nextID();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String nextIDString() {
+        return String.valueOf(generator.nextID());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String nextIDStringContended() {
+        return String.valueOf(generator.nextID());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String legacy() {
+        return legacyID();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String legacyContended() {
+        return legacyID();
+    }
+
+    private String legacyID() {
+        baseID.compareAndSet(Integer.MAX_VALUE, 0);
+        return String.valueOf(MACHINE_ID + String.valueOf(baseID.addAndGet(1)));
+    }
+}
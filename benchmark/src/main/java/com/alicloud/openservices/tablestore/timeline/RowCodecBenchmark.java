@@ -0,0 +1,99 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.AsyncClient;
+import com.alicloud.openservices.tablestore.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息和表格存储行之间的编解码：写入时createPutRowRequest把消息按列长度切分成多列，读取时Utils.toTimelineEntry把多列拼回消息。
+ * 列数由messageSize和columnCount共同决定，columnMaxLength = ceil(messageSize / columnCount)。
+ * createPutRowRequestEncoded是扇出写时每个接收者的开销：EncodedMessage已经编码过，只需要构造主键。
+ * 带Raw后缀的是转发已编码消息的路径：写入RawMessage，读取时不反序列化。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowCodecBenchmark {
+    @Param({"64", "1024", "65536", "1048576"})
+    public int messageSize;
+
+    @Param({"1", "4", "16"})
+    public int columnCount;
+
+    @Param({"crc32", ""})
+    public String crc32Column;
+
+    private DistributeTimelineConfig config;
+    private DistributeTimelineStore store;
+    private StringMessage message;
+    private EncodedMessage encoded;
+    private RawMessage raw;
+    private Row row;
+
+    @Setup
+    public void setUp() {
+        config = new DistributeTimelineConfig("http://127.0.0.1", "benchmark", "benchmark", "benchmark", "benchmark");
+        config.setMessageInstance(new StringMessage());
+        config.setColumnMaxLength(Math.max(1, (messageSize + columnCount - 1) / columnCount));
+        config.setColumnNameOfMessageCrc32(crc32Column);
+
+        // 客户端不会发出请求，只是构造DistributeTimelineStore需要。
+        store = new DistributeTimelineStore(config, new AsyncClient("http://127.0.0.1", "benchmark",
+                "benchmark", "benchmark"));
+
+        char[] content = new char[messageSize];
+        Arrays.fill(content, 'x');
+        message = new StringMessage(new String(content));
+        encoded = new EncodedMessage(message);
+        raw = new RawMessage(message.getMessageID(), message.serialize());
+
+        RowPutChange change = store.createPutRowRequest("00001", message).getRowChange();
+        List<Column> columns = new ArrayList<Column>();
+        for (Column column : change.getColumnsToPut()) {
+            columns.add(new Column(column.getName(), column.getValue(), System.currentTimeMillis()));
+        }
+        PrimaryKey pk = PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                .addPrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString("00001"))
+                .addPrimaryKeyColumn(config.getSecondPKName(), PrimaryKeyValue.fromLong(System.currentTimeMillis() * 1000))
+                .build();
+        row = new Row(pk, columns);
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public PutRowRequest createPutRowRequest() {
+        return store.createPutRowRequest("00001", message);
+    }
+
+    @Benchmark
+    public PutRowRequest createPutRowRequestEncoded() {
+        return store.createPutRowRequest("00001", encoded);
+    }
+
+    @Benchmark
+    public PutRowRequest createPutRowRequestRaw() {
+        return store.createPutRowRequest("00001", raw);
+    }
+
+    @Benchmark
+    public TimelineEntry toTimelineEntry() {
+        return Utils.toTimelineEntry(row, config);
+    }
+
+    @Benchmark
+    public TimelineEntry toTimelineEntryRaw() {
+        return Utils.toTimelineEntry(row, config, true);
+    }
+}
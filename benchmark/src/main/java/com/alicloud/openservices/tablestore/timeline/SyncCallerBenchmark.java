@@ -0,0 +1,178 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 同步接口的并发调用压测：启动大量调用方线程，每个线程循环调用同步的write或scan（读取最新一条），统计总吞吐和延时分位数。
+ * 用于比较平台线程和虚拟线程（--threadType=virtual，需要Java 21）在一万个以上并发调用方时的表现。
+ * 默认使用进程内的Table Store替身，延时由--standinLatencyMicros控制。
+ *
+ * 参数格式是--name=value，例如：
+ * java -cp target/benchmarks.jar com.alicloud.openservices.tablestore.timeline.SyncCallerBenchmark --callers=10000 --threadType=virtual
+ */
+public class SyncCallerBenchmark {
+    private final Map<String, String> options = new LinkedHashMap<String, String>();
+    private final Recorder recorder = new Recorder(3);
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private volatile boolean measuring = false;
+    private volatile boolean stopped = false;
+
+    SyncCallerBenchmark(String[] args) {
+        options.put("callers", "10000");
+        options.put("threadType", "virtual");
+        options.put("operation", "write");
+        options.put("warmup", "5");
+        options.put("duration", "30");
+        options.put("timelines", "100000");
+        options.put("messageSize", "256");
+        options.put("standinThreads", "16");
+        options.put("standinLatencyMicros", "1000");
+        options.put("standinLatencySigma", "0.5");
+        options.put("output", "-");
+
+        for (String arg : args) {
+            int pos = arg.indexOf('=');
+            if (!arg.startsWith("--") || pos < 0 || !options.containsKey(arg.substring(2, pos))) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Unknown argument:" + arg + ", supported:" + options.keySet());
+            }
+            options.put(arg.substring(2, pos), arg.substring(pos + 1));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new SyncCallerBenchmark(args).run();
+    }
+
+    void run() throws Exception {
+        LocalTableStoreServer server = new LocalTableStoreServer(getInt("standinThreads"), 0);
+        server.setLatency(LocalTableStoreServer.logNormalLatency(Long.parseLong(options.get("standinLatencyMicros")),
+                Double.parseDouble(options.get("standinLatencySigma"))));
+        DistributeTimelineConfig config = new DistributeTimelineConfig("", "", "", "", "__timeline_sync_callers");
+        config.setMessageInstance(new StringMessage());
+        final DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+
+        char[] chars = new char[getInt("messageSize")];
+        Arrays.fill(chars, 'x');
+        final String content = new String(chars);
+        final int timelineCount = getInt("timelines");
+        final boolean write = options.get("operation").equals("write");
+        if (!write) {
+            for (int i = 0; i < timelineCount; i++) {
+                store.write("timeline_" + i, new StringMessage(content));
+            }
+        }
+
+        int callers = getInt("callers");
+        ExecutorService executor = createExecutor(options.get("threadType"), callers);
+        for (int i = 0; i < callers; i++) {
+            final int caller = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long count = 0;
+                    while (!stopped) {
+                        String timelineID = "timeline_" + ((caller + count++ * 7919) % timelineCount);
+                        long start = System.nanoTime();
+                        try {
+                            if (write) {
+                                store.write(timelineID, new StringMessage(content));
+                            } else {
+                                store.scan(timelineID, ScanParameterBuilder.scanBackward()
+                                        .from(Long.MAX_VALUE).to(0).maxCount(1).build()).hasNext();
+                            }
+                        } catch (RuntimeException ex) {
+                            errorCount.incrementAndGet();
+                            continue;
+                        }
+                        if (measuring) {
+                            recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                        }
+                    }
+                }
+            });
+        }
+
+        TimeUnit.SECONDS.sleep(getInt("warmup"));
+        recorder.reset();
+        errorCount.set(0);
+        measuring = true;
+        long measureStart = System.nanoTime();
+        TimeUnit.SECONDS.sleep(getInt("duration"));
+        measuring = false;
+        Histogram histogram = recorder.getIntervalHistogram();
+        double elapsedSeconds = (System.nanoTime() - measureStart) / 1e9;
+
+        stopped = true;
+        executor.shutdown();
+        executor.awaitTermination(60, TimeUnit.SECONDS);
+        report(histogram, elapsedSeconds);
+        store.close();
+        server.shutdown();
+    }
+
+    private static ExecutorService createExecutor(String threadType, int callers) {
+        if (threadType.equals("virtual")) {
+            return VirtualThreads.newExecutor("sync-caller");
+        } else if (threadType.equals("platform")) {
+            return Executors.newFixedThreadPool(callers);
+        }
+        throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                "Unknown threadType:" + threadType + ", supported:virtual,platform");
+    }
+
+    private int getInt(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private void report(Histogram histogram, double elapsedSeconds) throws Exception {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"options\":{");
+        boolean first = true;
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            json.append(first ? "" : ",").append(quote(option.getKey())).append(':').append(quote(option.getValue()));
+            first = false;
+        }
+        json.append("},\"javaVersion\":").append(quote(System.getProperty("java.version")));
+        json.append(",\"elapsedSeconds\":").append(String.format("%.3f", elapsedSeconds));
+        json.append(",\"count\":").append(histogram.getTotalCount());
+        json.append(",\"errors\":").append(errorCount.get());
+        json.append(",\"throughput\":").append(String.format("%.1f", histogram.getTotalCount() / elapsedSeconds));
+        json.append(",\"meanMicros\":").append(String.format("%.1f", histogram.getMean()));
+        json.append(",\"p50Micros\":").append(histogram.getValueAtPercentile(50));
+        json.append(",\"p99Micros\":").append(histogram.getValueAtPercentile(99));
+        json.append(",\"p999Micros\":").append(histogram.getValueAtPercentile(99.9));
+        json.append(",\"maxMicros\":").append(histogram.getMaxValue());
+        json.append('}');
+
+        String output = options.get("output");
+        if (output.equals("-")) {
+            System.out.println(json);
+        } else {
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output, true), "UTF-8"));
+            try {
+                writer.println(json);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,59 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.Random;
+
+/**
+ * Zipf分布的整数生成器，返回[0, itemCount)，0最热门。
+ * 使用Gray等人在"Quickly Generating Billion-Record Synthetic Databases"中的算法，初始化时计算一次zeta，之后每次生成是O(1)。
+ * 非线程安全，每个线程应该使用自己的实例，或者由调用方加锁。
+ */
+class ZipfianGenerator {
+    private final long itemCount;
+    private final double theta;
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+    private final Random random;
+
+    /**
+     * ZipfianGenerator的构造函数。
+     * @param itemCount 元素个数。
+     * @param theta     倾斜程度，取值范围(0, 1)，越大越集中，YCSB默认0.99。
+     * @param random    随机数生成器。
+     */
+    ZipfianGenerator(long itemCount, double theta, Random random) {
+        if (itemCount <= 0 || theta <= 0 || theta >= 1) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "ZipfianGenerator itemCount must more than 0 and theta must in (0, 1)");
+        }
+
+        this.itemCount = itemCount;
+        this.theta = theta;
+        this.random = random;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetaN = zeta(itemCount, theta);
+        double zeta2 = zeta(2, theta);
+        this.eta = (1 - Math.pow(2.0 / itemCount, 1 - theta)) / (1 - zeta2 / zetaN);
+    }
+
+    long next() {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, itemCount - 1);
+        }
+        long value = (long) (itemCount * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(value, itemCount - 1);
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
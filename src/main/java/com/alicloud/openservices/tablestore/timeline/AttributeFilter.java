@@ -0,0 +1,144 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+import com.alicloud.openservices.tablestore.model.filter.ColumnValueFilter;
+import com.alicloud.openservices.tablestore.model.filter.CompositeColumnValueFilter;
+import com.alicloud.openservices.tablestore.model.filter.SingleColumnValueFilter;
+
+/**
+ * 范围读取时按消息属性（AttributedMessage）过滤的条件，会转换成表格存储的列值过滤器，在服务端过滤，不满足条件的消息不会传输到客户端。
+ * 比较时属性值的类型需要和写入时相同，没有这个属性的消息不满足条件。例如：
+ * AttributeFilter.and(AttributeFilter.equal("type", "system"), AttributeFilter.greaterEqual("priority", 3L))
+ * 过滤条件构造后不可修改，可以被多个线程共享。
+ */
+public class AttributeFilter {
+    private final ColumnValueFilter filter;
+
+    private AttributeFilter(ColumnValueFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * 属性值等于value。
+     * @param name      属性名。
+     * @param value     属性值。
+     * @return          过滤条件。
+     */
+    public static AttributeFilter equal(String name, Object value) {
+        return single(name, SingleColumnValueFilter.CompareOperator.EQUAL, value);
+    }
+
+    /**
+     * 属性值不等于value。
+     * @param name      属性名。
+     * @param value     属性值。
+     * @return          过滤条件。
+     */
+    public static AttributeFilter notEqual(String name, Object value) {
+        return single(name, SingleColumnValueFilter.CompareOperator.NOT_EQUAL, value);
+    }
+
+    /**
+     * 属性值大于value。
+     * @param name      属性名。
+     * @param value     属性值。
+     * @return          过滤条件。
+     */
+    public static AttributeFilter greaterThan(String name, Object value) {
+        return single(name, SingleColumnValueFilter.CompareOperator.GREATER_THAN, value);
+    }
+
+    /**
+     * 属性值大于等于value。
+     * @param name      属性名。
+     * @param value     属性值。
+     * @return          过滤条件。
+     */
+    public static AttributeFilter greaterEqual(String name, Object value) {
+        return single(name, SingleColumnValueFilter.CompareOperator.GREATER_EQUAL, value);
+    }
+
+    /**
+     * 属性值小于value。
+     * @param name      属性名。
+     * @param value     属性值。
+     * @return          过滤条件。
+     */
+    public static AttributeFilter lessThan(String name, Object value) {
+        return single(name, SingleColumnValueFilter.CompareOperator.LESS_THAN, value);
+    }
+
+    /**
+     * 属性值小于等于value。
+     * @param name      属性名。
+     * @param value     属性值。
+     * @return          过滤条件。
+     */
+    public static AttributeFilter lessEqual(String name, Object value) {
+        return single(name, SingleColumnValueFilter.CompareOperator.LESS_EQUAL, value);
+    }
+
+    /**
+     * 同时满足所有条件。
+     * @param filters   过滤条件，至少两个。
+     * @return          过滤条件。
+     */
+    public static AttributeFilter and(AttributeFilter... filters) {
+        return composite(CompositeColumnValueFilter.LogicOperator.AND, filters);
+    }
+
+    /**
+     * 满足任意一个条件。
+     * @param filters   过滤条件，至少两个。
+     * @return          过滤条件。
+     */
+    public static AttributeFilter or(AttributeFilter... filters) {
+        return composite(CompositeColumnValueFilter.LogicOperator.OR, filters);
+    }
+
+    /**
+     * 不满足条件。
+     * @param filter    过滤条件。
+     * @return          过滤条件。
+     */
+    public static AttributeFilter not(AttributeFilter filter) {
+        if (filter == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, "AttributeFilter is null");
+        }
+        CompositeColumnValueFilter composite = new CompositeColumnValueFilter(CompositeColumnValueFilter.LogicOperator.NOT);
+        composite.addFilter(filter.filter);
+        return new AttributeFilter(composite);
+    }
+
+    /**
+     * 转换成表格存储的列值过滤器。
+     */
+    ColumnValueFilter toFilter() {
+        return filter;
+    }
+
+    private static AttributeFilter single(String name, SingleColumnValueFilter.CompareOperator operator, Object value) {
+        if (name == null || name.length() == 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Attribute name is null or empty");
+        }
+        ColumnValue columnValue = AttributedMessage.toColumnValue(name, value);
+        return new AttributeFilter(new SingleColumnValueFilter(name, operator, columnValue)
+                .setPassIfMissing(false).setLatestVersionsOnly(true));
+    }
+
+    private static AttributeFilter composite(CompositeColumnValueFilter.LogicOperator operator, AttributeFilter[] filters) {
+        if (filters == null || filters.length < 2) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "AttributeFilter " + operator + " needs at least two filters");
+        }
+        CompositeColumnValueFilter composite = new CompositeColumnValueFilter(operator);
+        for (AttributeFilter filter : filters) {
+            if (filter == null) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, "AttributeFilter is null");
+            }
+            composite.addFilter(filter.filter);
+        }
+        return new AttributeFilter(composite);
+    }
+}
@@ -0,0 +1,132 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+
+import java.util.*;
+
+/**
+ * 带属性的消息信封，属性和消息内容存在同一行的独立属性列中，范围读取时可以用AttributeFilter在服务端按属性过滤，
+ * 比如只读取收件箱中的系统通知。属性不是消息内容的一部分，读取到的消息中不包含属性。
+ * 属性值支持String、Long（以及Integer、Short、Byte）、Boolean、Double（以及Float）和byte[]。
+ * 属性名不能和表的主键列、消息ID列、crc32列、写入时间列相同，也不能以消息内容列的前缀开头。
+ * 需要把同一个带属性的消息写入多个Timeline时，用EncodedMessage包装AttributedMessage，内容只编码一次。
+ * 只有DistributeTimelineStore会写入属性，LocalTimelineStore只写入消息内容。
+ */
+public class AttributedMessage implements IMessage {
+    private final IMessage message;
+    private final Map<String, ColumnValue> attributes = new LinkedHashMap<String, ColumnValue>();
+
+    /**
+     * 带属性的消息信封的构造函数。
+     * @param message   原始消息。
+     */
+    public AttributedMessage(IMessage message) {
+        if (message == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "AttributedMessage parameter message is null");
+        }
+        this.message = message;
+    }
+
+    /**
+     * 获取原始消息。
+     * @return  原始消息。
+     */
+    public IMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * 设置一个属性，同名属性会被覆盖。
+     * @param name      属性名。
+     * @param value     属性值。
+     * @return          当前对象，用于串行设置多个属性。
+     */
+    public AttributedMessage setAttribute(String name, Object value) {
+        if (name == null || name.length() == 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Attribute name is null or empty");
+        }
+        attributes.put(name, toColumnValue(name, value));
+        return this;
+    }
+
+    /**
+     * 获取所有属性名。
+     * @return  属性名，按设置的顺序排列。
+     */
+    public Set<String> getAttributeNames() {
+        return Collections.unmodifiableSet(attributes.keySet());
+    }
+
+    @Override
+    public String getMessageID() {
+        return message.getMessageID();
+    }
+
+    @Override
+    public void setMessageID(String messageID) {
+        message.setMessageID(messageID);
+    }
+
+    @Override
+    public IMessage newInstance() {
+        return message.newInstance();
+    }
+
+    @Override
+    public byte[] serialize() {
+        return message.serialize();
+    }
+
+    @Override
+    public void deserialize(byte[] input) {
+        message.deserialize(input);
+    }
+
+    /**
+     * 属性对应的属性列，属性名和保留的列名冲突时抛出TET_INVALID_USE异常。
+     */
+    List<Column> getColumns(DistributeTimelineConfig config) {
+        List<Column> columns = new ArrayList<Column>(attributes.size());
+        for (Map.Entry<String, ColumnValue> entry : attributes.entrySet()) {
+            String name = entry.getKey();
+            if (name.equals(config.getFirstPKName()) || name.equals(config.getSecondPKName())
+                    || name.equals(config.getMessageIDColumnName()) || name.equals(config.getColumnNameOfMessageCrc32())
+                    || name.equals(config.getTimestampColumnName()) || name.startsWith(config.getMessageContentPrefix())) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Attribute name " + name + " conflicts with reserved columns");
+            }
+            columns.add(new Column(name, entry.getValue()));
+        }
+        return columns;
+    }
+
+    /**
+     * 找到消息中的属性，消息本身或者消息信封中的原始消息是AttributedMessage时返回它，否则返回null。
+     */
+    static AttributedMessage of(IMessage message) {
+        IMessage unwrapped = EncodedMessage.unwrap(message);
+        if (unwrapped instanceof AttributedMessage) {
+            return (AttributedMessage) unwrapped;
+        }
+        return null;
+    }
+
+    static ColumnValue toColumnValue(String name, Object value) {
+        if (value instanceof String) {
+            return ColumnValue.fromString((String) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ColumnValue.fromLong(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            return ColumnValue.fromBoolean((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            return ColumnValue.fromDouble(((Number) value).doubleValue());
+        } else if (value instanceof byte[]) {
+            return ColumnValue.fromBinary((byte[]) value);
+        }
+        throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                "Unsupported value of attribute " + name + ": " + value);
+    }
+}
@@ -0,0 +1,194 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * BinaryMessage的底层编码：varint、zigzag、小端序定长整数，以及直接在目标数组上进行的UTF-8编解码。
+ * 每个字段以tag开头，tag = (字段编号 &lt;&lt; 3) | wire type，wire type的取值和Protocol Buffers一致。
+ */
+final class BinaryCodec {
+    final static int WIRE_VARINT = 0;
+    final static int WIRE_FIXED64 = 1;
+    final static int WIRE_LENGTH_DELIMITED = 2;
+    final static int WIRE_FIXED32 = 5;
+
+    final static int MAX_FIELD_NUMBER = (1 << 29) - 1;
+
+    private BinaryCodec() {
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int writeVarint(byte[] output, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output[position++] = (byte) value;
+        return position;
+    }
+
+    static int writeFixed64(byte[] output, int position, long value) {
+        for (int i = 0; i < 8; i++) {
+            output[position++] = (byte) (value >>> (i * 8));
+        }
+        return position;
+    }
+
+    /**
+     * 字符串的UTF-8编码长度，不成对的代理字符按'?'计算，和String.getBytes("UTF-8")一致。
+     */
+    static int utf8Length(String value) {
+        int length = value.length();
+        int size = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            } else if (c < 0x800) {
+                size += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                size += 2;
+                i++;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                continue;
+            } else {
+                size += 2;
+            }
+        }
+        return size;
+    }
+
+    static int writeUtf8(byte[] output, int position, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                output[position++] = (byte) c;
+            } else if (c < 0x800) {
+                output[position++] = (byte) (0xC0 | (c >>> 6));
+                output[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                output[position++] = (byte) (0xF0 | (codePoint >>> 18));
+                output[position++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+                output[position++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+                output[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                output[position++] = (byte) '?';
+            } else {
+                output[position++] = (byte) (0xE0 | (c >>> 12));
+                output[position++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+                output[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    /**
+     * 从字节数组中顺序读取的游标，越界时抛出TET_INVALID_USE异常。
+     */
+    static class Reader {
+        private final byte[] input;
+        private int position;
+
+        Reader(byte[] input) {
+            this.input = input;
+            this.position = 0;
+        }
+
+        boolean hasRemaining() {
+            return position < input.length;
+        }
+
+        int getPosition() {
+            return position;
+        }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = input[require(1)];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw malformed("varint is too long");
+        }
+
+        long readFixed64() {
+            int start = require(8);
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result |= (long) (input[start + i] & 0xFF) << (i * 8);
+            }
+            return result;
+        }
+
+        String readString(int length) {
+            int start = require(length);
+            try {
+                return new String(input, start, length, "UTF-8");
+            } catch (java.io.UnsupportedEncodingException ex) {
+                throw new TimelineException(TimelineExceptionType.TET_ABORT, "UTF-8 is not supported", ex);
+            }
+        }
+
+        byte[] readBytes(int length) {
+            int start = require(length);
+            byte[] result = new byte[length];
+            System.arraycopy(input, start, result, 0, length);
+            return result;
+        }
+
+        int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > input.length - position) {
+                throw malformed("length " + length + " exceeds remaining " + (input.length - position));
+            }
+            return (int) length;
+        }
+
+        void skip(int wireType) {
+            if (wireType == WIRE_VARINT) {
+                readVarint();
+            } else if (wireType == WIRE_FIXED64) {
+                require(8);
+            } else if (wireType == WIRE_LENGTH_DELIMITED) {
+                require(readLength());
+            } else if (wireType == WIRE_FIXED32) {
+                require(4);
+            } else {
+                throw malformed("unknown wire type " + wireType);
+            }
+        }
+
+        private int require(int length) {
+            if (length > input.length - position) {
+                throw malformed("unexpected end of input");
+            }
+            int start = position;
+            position += length;
+            return start;
+        }
+
+        private TimelineException malformed(String reason) {
+            return new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Invalid binary message at position " + position + ", reason:" + reason);
+        }
+    }
+}
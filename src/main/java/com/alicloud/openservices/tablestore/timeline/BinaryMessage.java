@@ -0,0 +1,318 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.Arrays;
+
+/**
+ * 按MessageSchema编码的二进制消息，编码紧凑，不使用反射，编解码不经过中间缓冲区。
+ * 编码格式和Protocol Buffers兼容：每个字段是tag + 值，整数使用zigzag + varint，字符串使用UTF-8。
+ * 只编码已经设置的字段，未设置的字段读取时返回默认值，可以用has判断；
+ * 读取时遇到结构中没有的字段编号（新版本写入的字段）会原样保留，再次序列化时写回，所以新旧版本可以混合读写。
+ * 同一个消息对象不是线程安全的。
+ */
+public class BinaryMessage extends DistinctMessage {
+    private final MessageSchema schema;
+    private final boolean[] present;
+    private final long[] numbers;
+    private final Object[] objects;
+    private byte[] unknownFields = null;
+    private String messageID = null;
+
+    /**
+     * 二进制消息的构造函数，自动生成消息ID。
+     * @param schema    消息结构。
+     */
+    public BinaryMessage(MessageSchema schema) {
+        this(null, schema);
+        this.messageID = super.getMessageID();
+    }
+
+    /**
+     * 二进制消息的构造函数。
+     * @param messageID 消息ID，需要保证同一个会话一段时间内唯一。
+     * @param schema    消息结构。
+     */
+    public BinaryMessage(String messageID, MessageSchema schema) {
+        if (schema == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "BinaryMessage parameter schema is null");
+        }
+
+        this.messageID = messageID;
+        this.schema = schema;
+        this.present = new boolean[schema.getFieldCount()];
+        this.numbers = new long[schema.getFieldCount()];
+        this.objects = new Object[schema.getFieldCount()];
+    }
+
+    /**
+     * 获取消息结构。
+     * @return  消息结构。
+     */
+    public MessageSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * 判断字段是否已经设置。
+     * @param name  字段名。
+     * @return      true/false
+     */
+    public boolean has(String name) {
+        return present[schema.field(name).index];
+    }
+
+    /**
+     * 清除字段，清除后不会被编码。
+     * @param name  字段名。
+     * @return      当前消息，用于串行调用。
+     */
+    public BinaryMessage clear(String name) {
+        MessageSchema.Field field = schema.field(name);
+        present[field.index] = false;
+        numbers[field.index] = 0;
+        objects[field.index] = null;
+        return this;
+    }
+
+    /**
+     * 设置BOOL字段。
+     */
+    public BinaryMessage setBool(String name, boolean value) {
+        return setNumber(name, MessageFieldType.BOOL, value ? 1 : 0);
+    }
+
+    /**
+     * 获取BOOL字段，未设置时返回false。
+     */
+    public boolean getBool(String name) {
+        return getNumber(name, MessageFieldType.BOOL) != 0;
+    }
+
+    /**
+     * 设置INT64字段。
+     */
+    public BinaryMessage setLong(String name, long value) {
+        return setNumber(name, MessageFieldType.INT64, value);
+    }
+
+    /**
+     * 获取INT64字段，未设置时返回0。
+     */
+    public long getLong(String name) {
+        return getNumber(name, MessageFieldType.INT64);
+    }
+
+    /**
+     * 设置DOUBLE字段。
+     */
+    public BinaryMessage setDouble(String name, double value) {
+        return setNumber(name, MessageFieldType.DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * 获取DOUBLE字段，未设置时返回0。
+     */
+    public double getDouble(String name) {
+        return Double.longBitsToDouble(getNumber(name, MessageFieldType.DOUBLE));
+    }
+
+    /**
+     * 设置字符串字段，value为null时等同于clear。
+     */
+    public BinaryMessage setString(String name, String value) {
+        return setObject(name, MessageFieldType.STRING, value);
+    }
+
+    /**
+     * 获取字符串字段，未设置时返回null。
+     */
+    public String getString(String name) {
+        return (String) getObject(name, MessageFieldType.STRING);
+    }
+
+    /**
+     * 设置字节数组字段，不会复制数组，value为null时等同于clear。
+     */
+    public BinaryMessage setBytes(String name, byte[] value) {
+        return setObject(name, MessageFieldType.BYTES, value);
+    }
+
+    /**
+     * 获取字节数组字段，未设置时返回null。
+     */
+    public byte[] getBytes(String name) {
+        return (byte[]) getObject(name, MessageFieldType.BYTES);
+    }
+
+    @Override
+    public IMessage newInstance() {
+        return new BinaryMessage(null, schema);
+    }
+
+    @Override
+    public byte[] serialize() {
+        int size = unknownFields == null ? 0 : unknownFields.length;
+        for (int i = 0; i < present.length; i++) {
+            if (present[i]) {
+                size += fieldSize(schema.fieldAt(i), i);
+            }
+        }
+
+        byte[] output = new byte[size];
+        int position = 0;
+        for (int i = 0; i < present.length; i++) {
+            if (!present[i]) {
+                continue;
+            }
+
+            MessageSchema.Field field = schema.fieldAt(i);
+            position = BinaryCodec.writeVarint(output, position, field.tag);
+            switch (field.type) {
+                case BOOL:
+                    output[position++] = (byte) numbers[i];
+                    break;
+                case INT64:
+                    position = BinaryCodec.writeVarint(output, position, BinaryCodec.zigzag(numbers[i]));
+                    break;
+                case DOUBLE:
+                    position = BinaryCodec.writeFixed64(output, position, numbers[i]);
+                    break;
+                case STRING:
+                    String value = (String) objects[i];
+                    position = BinaryCodec.writeVarint(output, position, BinaryCodec.utf8Length(value));
+                    position = BinaryCodec.writeUtf8(output, position, value);
+                    break;
+                case BYTES:
+                    byte[] bytes = (byte[]) objects[i];
+                    position = BinaryCodec.writeVarint(output, position, bytes.length);
+                    System.arraycopy(bytes, 0, output, position, bytes.length);
+                    position += bytes.length;
+                    break;
+            }
+        }
+
+        if (unknownFields != null) {
+            System.arraycopy(unknownFields, 0, output, position, unknownFields.length);
+        }
+        return output;
+    }
+
+    @Override
+    public void deserialize(byte[] input) {
+        Arrays.fill(present, false);
+        Arrays.fill(numbers, 0);
+        Arrays.fill(objects, null);
+        unknownFields = null;
+
+        BinaryCodec.Reader reader = new BinaryCodec.Reader(input);
+        int unknownSize = 0;
+        while (reader.hasRemaining()) {
+            int start = reader.getPosition();
+            long tag = reader.readVarint();
+            int wireType = (int) (tag & 0x7);
+            MessageSchema.Field field = tag >>> 3 > BinaryCodec.MAX_FIELD_NUMBER ? null : schema.fieldOf((int) (tag >>> 3));
+
+            if (field == null || field.type.getWireType() != wireType) {
+                reader.skip(wireType);
+                unknownSize = appendUnknown(input, start, reader.getPosition(), unknownSize);
+                continue;
+            }
+
+            int i = field.index;
+            present[i] = true;
+            switch (field.type) {
+                case BOOL:
+                    numbers[i] = reader.readVarint() != 0 ? 1 : 0;
+                    break;
+                case INT64:
+                    numbers[i] = BinaryCodec.unzigzag(reader.readVarint());
+                    break;
+                case DOUBLE:
+                    numbers[i] = reader.readFixed64();
+                    break;
+                case STRING:
+                    objects[i] = reader.readString(reader.readLength());
+                    break;
+                case BYTES:
+                    objects[i] = reader.readBytes(reader.readLength());
+                    break;
+            }
+        }
+
+        if (unknownFields != null && unknownSize < unknownFields.length) {
+            unknownFields = Arrays.copyOf(unknownFields, unknownSize);
+        }
+    }
+
+    @Override
+    public String getMessageID() {
+        return messageID;
+    }
+
+    @Override
+    public void setMessageID(String messageID) {
+        this.messageID = messageID;
+    }
+
+    private int fieldSize(MessageSchema.Field field, int i) {
+        int size = BinaryCodec.varintSize(field.tag);
+        switch (field.type) {
+            case BOOL:
+                return size + 1;
+            case INT64:
+                return size + BinaryCodec.varintSize(BinaryCodec.zigzag(numbers[i]));
+            case DOUBLE:
+                return size + 8;
+            case STRING:
+                int length = BinaryCodec.utf8Length((String) objects[i]);
+                return size + BinaryCodec.varintSize(length) + length;
+            default:
+                int bytesLength = ((byte[]) objects[i]).length;
+                return size + BinaryCodec.varintSize(bytesLength) + bytesLength;
+        }
+    }
+
+    /**
+     * 保留不认识的字段，包括tag，按原顺序拼接。
+     */
+    private int appendUnknown(byte[] input, int start, int end, int size) {
+        if (unknownFields == null) {
+            unknownFields = new byte[Math.max(end - start, 16)];
+        } else if (size + end - start > unknownFields.length) {
+            unknownFields = Arrays.copyOf(unknownFields, Math.max(size + end - start, unknownFields.length * 2));
+        }
+        System.arraycopy(input, start, unknownFields, size, end - start);
+        return size + end - start;
+    }
+
+    private BinaryMessage setNumber(String name, MessageFieldType type, long value) {
+        MessageSchema.Field field = checkType(name, type);
+        present[field.index] = true;
+        numbers[field.index] = value;
+        return this;
+    }
+
+    private long getNumber(String name, MessageFieldType type) {
+        return numbers[checkType(name, type).index];
+    }
+
+    private BinaryMessage setObject(String name, MessageFieldType type, Object value) {
+        MessageSchema.Field field = checkType(name, type);
+        present[field.index] = value != null;
+        objects[field.index] = value;
+        return this;
+    }
+
+    private Object getObject(String name, MessageFieldType type) {
+        return objects[checkType(name, type).index];
+    }
+
+    private MessageSchema.Field checkType(String name, MessageFieldType type) {
+        MessageSchema.Field field = schema.field(name);
+        if (field.type != type) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Field " + name + " is " + field.type + ", not " + type);
+        }
+        return field;
+    }
+}
@@ -0,0 +1,156 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 把用户回调和解码从SDK的IO线程转到回调线程池中执行，慢回调不会阻塞网络IO。
+ * 线程池由DistributeTimelineConfig.callbackExecutor指定，没有指定时由Store创建并在关闭时关闭。
+ * 回调被丢弃时（ABORT策略、BLOCK策略下线程池已关闭或等待被中断），Future以TET_ABORT异常结束，
+ * 用户回调的onFailed在单独的通知线程中调用，所以等待回调的调用方不会一直等下去，IO线程也不执行用户代码。
+ * 只设置Future结果的任务（只使用Future时的解码）被拒绝时直接在当前线程执行，已经成功的请求不会因为回调线程池满了而失败。
+ */
+class CallbackDispatcher {
+    private static Logger logger = LoggerFactory.getLogger(CallbackDispatcher.class);
+
+    private final Executor executor;
+    private final boolean owned;
+    private final CallbackRejectionPolicy rejectionPolicy;
+    private final TimelineMetrics metrics;
+
+    /**
+     * 通知回调被丢弃的线程，空闲时线程退出，不需要关闭。
+     * 队列长度和回调线程池相同，队列也满时在当前线程中通知，保证onFailed一定会被调用，内存不会无限增长。
+     */
+    private final ThreadPoolExecutor rejectedNotifier;
+
+    CallbackDispatcher(DistributeTimelineConfig config, TimelineMetrics metrics) {
+        if (config.getCallbackExecutor() != null) {
+            this.executor = config.getCallbackExecutor();
+            this.owned = false;
+        } else if (config.isVirtualThreadEnabled()) {
+            this.executor = VirtualThreads.newExecutor("timeline-callback");
+            this.owned = true;
+        } else {
+            this.executor = new ThreadPoolExecutor(config.getCallbackThreadCount(), config.getCallbackThreadCount(),
+                    0, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(config.getCallbackQueueSize()),
+                    new CallbackThreadFactory());
+            this.owned = true;
+        }
+        this.rejectionPolicy = config.getCallbackRejectionPolicy();
+        if (rejectionPolicy == CallbackRejectionPolicy.BLOCK && !owned && !(executor instanceof ThreadPoolExecutor)) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "CallbackRejectionPolicy.BLOCK requires callbackExecutor to be a ThreadPoolExecutor");
+        }
+        this.metrics = metrics;
+
+        this.rejectedNotifier = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(config.getCallbackQueueSize()), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "timeline-callback-rejected");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.rejectedNotifier.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 在回调线程池中执行只设置Future结果、没有用户回调的任务，线程池拒绝时不管什么策略都直接在当前线程执行。
+     * @param task      回调任务，任务中的异常会被记录并忽略。
+     */
+    void dispatchOrRun(Runnable task) {
+        Runnable wrapped = wrap(task);
+        try {
+            executor.execute(wrapped);
+        } catch (RejectedExecutionException ex) {
+            wrapped.run();
+        }
+    }
+
+    /**
+     * 在回调线程池中执行任务。
+     * @param task      回调任务，任务中的异常会被记录并忽略。
+     * @param future    任务被丢弃时，以TET_ABORT异常结束的Future。
+     * @param rejected  任务被丢弃时在通知线程中执行，一般是调用用户回调的onFailed，可以为null。
+     */
+    void dispatch(Runnable task, TimelineEntryFuture future, Runnable rejected) {
+        Runnable wrapped = wrap(task);
+        try {
+            executor.execute(wrapped);
+        } catch (RejectedExecutionException ex) {
+            reject(wrapped, future, rejected);
+        }
+    }
+
+    void shutdown() {
+        if (owned) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private Runnable wrap(final Runnable task) {
+        final long submitNanos = System.nanoTime();
+        metrics.recordCallbackQueued();
+        return new Runnable() {
+            @Override
+            public void run() {
+                metrics.recordCallbackStarted(submitNanos);
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    logger.warn("Callback failed.", ex);
+                }
+            }
+        };
+    }
+
+    private void reject(Runnable task, TimelineEntryFuture future, final Runnable rejected) {
+        if (rejectionPolicy == CallbackRejectionPolicy.BLOCK) {
+            if (executor instanceof ThreadPoolExecutor && !((ThreadPoolExecutor) executor).isShutdown()) {
+                try {
+                    ((ThreadPoolExecutor) executor).getQueue().put(task);
+                    return;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } else if (rejectionPolicy == CallbackRejectionPolicy.CALLER_RUNS) {
+            task.run();
+            return;
+        }
+
+        // 任务没有执行，排队时记录的队列深度需要减掉。
+        metrics.recordCallbackRejected();
+        logger.warn("Callback executor rejected the callback, discard it.");
+        future.fail(new TimelineException(TimelineExceptionType.TET_ABORT,
+                "Callback executor rejected the callback"));
+        if (rejected != null) {
+            rejectedNotifier.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rejected.run();
+                    } catch (RuntimeException ex) {
+                        logger.warn("Callback failed.", ex);
+                    }
+                }
+            });
+        }
+    }
+
+    private static class CallbackThreadFactory implements ThreadFactory {
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "timeline-callback-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
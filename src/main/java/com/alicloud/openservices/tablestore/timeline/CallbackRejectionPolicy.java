@@ -0,0 +1,25 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * 回调线程池拒绝任务时的处理策略。
+ * 回调被丢弃时Future以TET_ABORT异常结束，用户回调的onFailed在单独的通知线程中调用：
+ * 成功的请求收到TET_ABORT异常（请求本身可能已经成功），失败的请求收到原来的异常。
+ */
+public enum CallbackRejectionPolicy {
+    /**
+     * SDK的IO线程等待队列有空位，相当于对请求方的反压。等待期间IO线程不能处理其他请求，
+     * 回调中再调用同步接口会死锁，只适合回调很快、不调用Store的场景。
+     * 外部传入的callbackExecutor必须是ThreadPoolExecutor，否则创建Store时抛出TET_INVALID_USE异常；线程池已关闭或等待被中断时按ABORT处理。
+     */
+    BLOCK,
+
+    /**
+     * 在SDK的IO线程中直接执行回调，慢回调会阻塞IO，回调中调用同步接口会死锁。
+     */
+    CALLER_RUNS,
+
+    /**
+     * 丢弃回调，默认策略。IO线程不会阻塞，也不执行用户代码。
+     */
+    ABORT
+}
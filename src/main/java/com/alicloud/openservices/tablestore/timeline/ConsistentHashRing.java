@@ -0,0 +1,109 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.io.UnsupportedEncodingException;
+import java.util.*;
+
+/**
+ * 带虚拟节点的一致性哈希环，用于把Timeline ID路由到分片。
+ * 每个分片在环上有virtualNodeCount个虚拟节点，增加或删除一个分片时，只有大约1/N的Timeline需要迁移。
+ * 哈希函数是固定的64位FNV-1a加混合，和JVM及进程无关，同样的分片名称在任何进程中都会得到同样的路由结果。
+ */
+public class ConsistentHashRing {
+    private final TreeMap<Long, String> ring = new TreeMap<Long, String>();
+    private final Set<String> nodes = new LinkedHashSet<String>();
+    private final int virtualNodeCount;
+
+    /**
+     * ConsistentHashRing的构造函数。
+     * @param nodes             分片名称，分片名称决定了路由结果，需要保持稳定。
+     * @param virtualNodeCount  每个分片的虚拟节点个数。
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodeCount) {
+        if (virtualNodeCount <= 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "virtualNodeCount must more than 0");
+        }
+
+        this.virtualNodeCount = virtualNodeCount;
+        for (String node : nodes) {
+            addNode(node);
+        }
+    }
+
+    /**
+     * 返回一个新增了分片的哈希环，当前哈希环不变。
+     * @param node  新分片的名称。
+     * @return      新的哈希环。
+     */
+    public ConsistentHashRing withNode(String node) {
+        ConsistentHashRing result = new ConsistentHashRing(nodes, virtualNodeCount);
+        result.addNode(node);
+        return result;
+    }
+
+    /**
+     * 查找key所属的分片。
+     * @param key   一般是Timeline ID。
+     * @return      分片名称。
+     */
+    public String locate(String key) {
+        if (ring.isEmpty()) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "ConsistentHashRing has no node");
+        }
+
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * 获取所有分片名称。
+     * @return  分片名称。
+     */
+    public Set<String> getNodes() {
+        return Collections.unmodifiableSet(nodes);
+    }
+
+    private void addNode(String node) {
+        if (node == null || node.isEmpty()) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "ConsistentHashRing node is null or empty");
+        }
+
+        if (!nodes.add(node)) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "ConsistentHashRing node is duplicated:" + node);
+        }
+
+        for (int i = 0; i < virtualNodeCount; i++) {
+            long point = hash(node + "#" + String.valueOf(i));
+            // 哈希冲突时保留名称较小的节点，保证结果和添加顺序无关。
+            String exist = ring.get(point);
+            if (exist == null || node.compareTo(exist) < 0) {
+                ring.put(point, node);
+            }
+        }
+    }
+
+    static long hash(String key) {
+        byte[] bytes;
+        try {
+            bytes = key.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_ABORT, "UTF-8 is not supported", ex);
+        }
+
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -3,6 +3,11 @@ package com.alicloud.openservices.tablestore.timeline;
 import com.alicloud.openservices.tablestore.ClientConfiguration;
 import com.alicloud.openservices.tablestore.writer.WriterConfig;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
 /**
  * 分布式Store系统的配置文件。
  * 这里的分布式Store使用阿里云的表格存储（Table Store）。
@@ -34,7 +39,7 @@ public class DistributeTimelineConfig {
     private String tableName = null;
 
     /**
-     * 阿里云Table Store中单次范围扫描最大返回个数。
+     * 阿里云Table Store中单次范围扫描最大返回个数。开启retentionEnabled时，也是每个Timeline保留的最新消息条数。
      */
     private int limit = 100;
 
@@ -88,6 +93,124 @@ public class DistributeTimelineConfig {
      */
     private int columnMaxLength = 1024 * 1024;
 
+    /**
+     * 第一列PK（Timeline ID）的哈希前缀长度，取值范围0~8，单位是十六进制字符。默认0，表示不加前缀。
+     * 写入、读取和范围读取时会自动在Timeline ID前加上由Timeline ID计算得到的哈希前缀，读取结果中会去掉前缀，
+     * 这样顺序递增的Timeline ID也能均匀分布到所有分区上。已经有数据的表不能修改这个配置，否则会读不到已有数据。
+     */
+    private int timelineIDSaltLength = 0;
+
+    /**
+     * 开启哈希前缀时，创建表时按前缀预分区的分区个数，不超过前缀所能表示的个数。默认16。
+     */
+    private int saltPartitionCount = 16;
+
+    /**
+     * 指标注册接口，Store创建时注册自己的指标，关闭时注销。默认null，表示不导出指标，指标仍然会被记录，可以通过Store获取。
+     */
+    private TimelineMetricsRegistry metricsRegistry = null;
+
+    /**
+     * Store操作的拦截器，按添加顺序调用。默认没有拦截器，此时没有额外开销。
+     */
+    private List<TimelineInterceptor> interceptors = new ArrayList<TimelineInterceptor>();
+
+    /**
+     * batch接口Writer发送请求和回调使用的线程池。默认null，表示按virtualThreadEnabled创建，Store关闭时关闭；
+     * 外部传入的线程池不会被Store关闭。
+     */
+    private ExecutorService writerExecutor = null;
+
+    /**
+     * 是否使用虚拟线程，只在Java 21及以上版本运行时支持。默认false。
+     * 开启后batch接口Writer默认使用每个任务一个虚拟线程的线程池，代替IO线程数大小的平台线程池。
+     */
+    private boolean virtualThreadEnabled = false;
+
+    /**
+     * 执行异步接口回调的线程池，SDK的IO线程不执行用户代码。默认null，表示由Store创建，Store关闭时关闭：
+     * 开启虚拟线程时每个回调一个虚拟线程，否则是callbackThreadCount个线程、队列长度为callbackQueueSize的线程池。
+     */
+    private Executor callbackExecutor = null;
+
+    /**
+     * Store创建的回调线程池的线程数，默认为CPU个数。
+     */
+    private int callbackThreadCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Store创建的回调线程池的队列长度，默认10000。
+     */
+    private int callbackQueueSize = 10000;
+
+    /**
+     * 回调线程池拒绝任务时的处理策略，默认ABORT，IO线程不会阻塞，也不执行用户代码。
+     */
+    private CallbackRejectionPolicy callbackRejectionPolicy = CallbackRejectionPolicy.ABORT;
+
+    /**
+     * 只使用Future时，是否在回调线程池中解码读取结果。默认true；设为false时在IO线程中解码，少一次线程切换，
+     * 但是消息类的deserialize会在IO线程中执行。回调线程池拒绝解码任务时也在IO线程中解码，读取不会因此失败。
+     * 使用TimelineCallback时解码总是在回调线程池中进行。
+     */
+    private boolean decodeOnCallbackExecutor = true;
+
+    /**
+     * 是否只保留每个Timeline最新的limit条消息，默认false。开启后更早的消息由后台线程增量删除，不影响写入。
+     */
+    private boolean retentionEnabled = false;
+
+    /**
+     * 后台清理的执行间隔，单位毫秒，默认1000。
+     */
+    private int retentionInterval = 1000;
+
+    /**
+     * 后台清理时单次BatchWriteRow删除的行数，最大200，默认200。
+     */
+    private int retentionBatchSize = 200;
+
+    /**
+     * 后台清理每秒最多删除的行数，用于限制清理对表的压力，默认1000。
+     */
+    private int retentionMaxDeletesPerSecond = 1000;
+
+    /**
+     * delete和deleteTimeline同时进行中的BatchWriteRow请求数，默认4。
+     */
+    private int deleteConcurrency = 4;
+
+    /**
+     * 是否维护消息ID索引表，默认false。开启后write写入成功时同时写入(Timeline ID, 消息ID) → 顺序ID的索引，
+     * 可以用readByMessageID按消息ID读取消息。batch接口拿不到顺序ID，不写索引。
+     */
+    private boolean messageIDIndexEnabled = false;
+
+    /**
+     * 消息ID索引表的表名，默认是表名加"_message_index"。索引表的TTL和消息表相同。
+     */
+    private String messageIDIndexTableName = null;
+
+    /**
+     * 是否记录写入时间并维护稀疏的时间索引表，默认false。开启后每条消息写入timestampColumnName列（毫秒），
+     * 每个Timeline每个时间桶（timeIndexInterval）写入一行(Timeline ID, 时间桶) → 顺序ID的索引，范围读取可以指定时间范围。
+     */
+    private boolean timeIndexEnabled = false;
+
+    /**
+     * 时间索引的时间桶大小，单位毫秒，默认60000。按时间范围读取时顺序ID边界会多留一个时间桶，需要大于写入端之间的时钟偏差。
+     */
+    private int timeIndexInterval = 60000;
+
+    /**
+     * 时间索引表的表名，默认是表名加"_time_index"。索引表的TTL和消息表相同。
+     */
+    private String timeIndexTableName = null;
+
+    /**
+     * 写入时间的属性列名称，值是写入时客户端的毫秒时间戳。
+     */
+    private String timestampColumnName = "write_time";
 
     /**
      * DistributeTimelineConfig的构造函数，构造函数里面的5个参数是必选项，其他参数都有默认值，属于可选项。
@@ -188,7 +311,7 @@ public class DistributeTimelineConfig {
     }
 
     /**
-     * 返回每次Scan操作的最大返回个数。
+     * 返回每次Scan操作的最大返回个数，开启retentionEnabled时也是每个Timeline保留的消息条数。
      * @return  最大返回个数。
      */
     public int getLimit() {
@@ -196,7 +319,7 @@ public class DistributeTimelineConfig {
     }
 
     /**
-     * 设置每次Scan操作的最大返回个数。
+     * 设置每次Scan操作的最大返回个数，开启retentionEnabled时也是每个Timeline保留的消息条数。
      * @param limit 最大返回个数。
      */
     public void setLimit(int limit) {
@@ -350,6 +473,42 @@ public class DistributeTimelineConfig {
         this.columnMaxLength = columnMaxLength;
     }
 
+    /**
+     * 获取Timeline ID哈希前缀的长度。
+     * @return  哈希前缀的长度，0表示不加前缀。
+     */
+    public int getTimelineIDSaltLength() {
+        return timelineIDSaltLength;
+    }
+
+    /**
+     * 设置Timeline ID哈希前缀的长度。
+     * @param timelineIDSaltLength  哈希前缀的长度，取值范围0~8，0表示不加前缀。
+     */
+    public void setTimelineIDSaltLength(int timelineIDSaltLength) {
+        if (timelineIDSaltLength < 0 || timelineIDSaltLength > 8) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "timelineIDSaltLength must between 0 and 8");
+        }
+        this.timelineIDSaltLength = timelineIDSaltLength;
+    }
+
+    /**
+     * 获取按哈希前缀预分区的分区个数。
+     * @return  分区个数。
+     */
+    public int getSaltPartitionCount() {
+        return saltPartitionCount;
+    }
+
+    /**
+     * 设置按哈希前缀预分区的分区个数。
+     * @param saltPartitionCount    分区个数。
+     */
+    public void setSaltPartitionCount(int saltPartitionCount) {
+        this.saltPartitionCount = saltPartitionCount;
+    }
+
     /**
      * 获取WriterConfig配置。
      * @return  WriterConfig配置。
@@ -365,4 +524,338 @@ public class DistributeTimelineConfig {
     public void setWriterConfig(WriterConfig writerConfig) {
         this.writerConfig = writerConfig;
     }
+
+    /**
+     * 获取指标注册接口。
+     * @return  指标注册接口，null表示不导出指标。
+     */
+    public TimelineMetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * 设置指标注册接口，例如JmxTimelineMetricsRegistry。
+     * @param metricsRegistry   指标注册接口。
+     */
+    public void setMetricsRegistry(TimelineMetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * 获取Store操作的拦截器。
+     * @return  拦截器列表。
+     */
+    public List<TimelineInterceptor> getInterceptors() {
+        return interceptors;
+    }
+
+    /**
+     * 添加一个Store操作的拦截器，需要在创建Store之前添加。
+     * @param interceptor   拦截器。
+     */
+    public void addInterceptor(TimelineInterceptor interceptor) {
+        this.interceptors.add(interceptor);
+    }
+
+    /**
+     * 设置Store操作的拦截器，需要在创建Store之前设置。
+     * @param interceptors  拦截器列表。
+     */
+    public void setInterceptors(List<TimelineInterceptor> interceptors) {
+        this.interceptors = interceptors;
+    }
+
+    /**
+     * 获取batch接口Writer使用的线程池。
+     * @return  线程池，null表示由Store创建。
+     */
+    public ExecutorService getWriterExecutor() {
+        return writerExecutor;
+    }
+
+    /**
+     * 设置batch接口Writer使用的线程池，Store关闭时不会关闭此线程池。
+     * @param writerExecutor    线程池。
+     */
+    public void setWriterExecutor(ExecutorService writerExecutor) {
+        this.writerExecutor = writerExecutor;
+    }
+
+    /**
+     * 是否使用虚拟线程。
+     * @return  true/false
+     */
+    public boolean isVirtualThreadEnabled() {
+        return virtualThreadEnabled;
+    }
+
+    /**
+     * 设置是否使用虚拟线程，只在Java 21及以上版本运行时支持，低版本创建Writer时会抛出TET_INVALID_USE异常。
+     * @param virtualThreadEnabled  true/false
+     */
+    public void setVirtualThreadEnabled(boolean virtualThreadEnabled) {
+        this.virtualThreadEnabled = virtualThreadEnabled;
+    }
+
+    /**
+     * 获取执行异步接口回调的线程池。
+     * @return  线程池，null表示由Store创建。
+     */
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * 设置执行异步接口回调的线程池，Store关闭时不会关闭此线程池。
+     * @param callbackExecutor  线程池。
+     */
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * 获取Store创建的回调线程池的线程数。
+     * @return  线程数。
+     */
+    public int getCallbackThreadCount() {
+        return callbackThreadCount;
+    }
+
+    /**
+     * 设置Store创建的回调线程池的线程数。
+     * @param callbackThreadCount   线程数。
+     */
+    public void setCallbackThreadCount(int callbackThreadCount) {
+        this.callbackThreadCount = callbackThreadCount;
+    }
+
+    /**
+     * 获取Store创建的回调线程池的队列长度。
+     * @return  队列长度。
+     */
+    public int getCallbackQueueSize() {
+        return callbackQueueSize;
+    }
+
+    /**
+     * 设置Store创建的回调线程池的队列长度。
+     * @param callbackQueueSize     队列长度。
+     */
+    public void setCallbackQueueSize(int callbackQueueSize) {
+        this.callbackQueueSize = callbackQueueSize;
+    }
+
+    /**
+     * 获取回调线程池拒绝任务时的处理策略。
+     * @return  处理策略。
+     */
+    public CallbackRejectionPolicy getCallbackRejectionPolicy() {
+        return callbackRejectionPolicy;
+    }
+
+    /**
+     * 设置回调线程池拒绝任务时的处理策略。
+     * @param callbackRejectionPolicy   处理策略。
+     */
+    public void setCallbackRejectionPolicy(CallbackRejectionPolicy callbackRejectionPolicy) {
+        this.callbackRejectionPolicy = callbackRejectionPolicy;
+    }
+
+    /**
+     * 只使用Future时，是否在回调线程池中解码读取结果。
+     * @return  true/false
+     */
+    public boolean isDecodeOnCallbackExecutor() {
+        return decodeOnCallbackExecutor;
+    }
+
+    /**
+     * 设置只使用Future时，是否在回调线程池中解码读取结果。
+     * @param decodeOnCallbackExecutor  true/false
+     */
+    public void setDecodeOnCallbackExecutor(boolean decodeOnCallbackExecutor) {
+        this.decodeOnCallbackExecutor = decodeOnCallbackExecutor;
+    }
+
+    /**
+     * 是否只保留每个Timeline最新的limit条消息。
+     * @return  true/false
+     */
+    public boolean isRetentionEnabled() {
+        return retentionEnabled;
+    }
+
+    /**
+     * 设置是否只保留每个Timeline最新的limit条消息，需要在构造Store之前设置。
+     * @param retentionEnabled  true/false
+     */
+    public void setRetentionEnabled(boolean retentionEnabled) {
+        this.retentionEnabled = retentionEnabled;
+    }
+
+    /**
+     * 获取后台清理的执行间隔。
+     * @return  执行间隔，单位毫秒。
+     */
+    public int getRetentionInterval() {
+        return retentionInterval;
+    }
+
+    /**
+     * 设置后台清理的执行间隔。
+     * @param retentionInterval 执行间隔，单位毫秒。
+     */
+    public void setRetentionInterval(int retentionInterval) {
+        this.retentionInterval = retentionInterval;
+    }
+
+    /**
+     * 获取后台清理时单次BatchWriteRow删除的行数。
+     * @return  行数。
+     */
+    public int getRetentionBatchSize() {
+        return retentionBatchSize;
+    }
+
+    /**
+     * 设置后台清理时单次BatchWriteRow删除的行数，最大200。
+     * @param retentionBatchSize    行数。
+     */
+    public void setRetentionBatchSize(int retentionBatchSize) {
+        this.retentionBatchSize = retentionBatchSize;
+    }
+
+    /**
+     * 获取后台清理每秒最多删除的行数。
+     * @return  行数。
+     */
+    public int getRetentionMaxDeletesPerSecond() {
+        return retentionMaxDeletesPerSecond;
+    }
+
+    /**
+     * 设置后台清理每秒最多删除的行数。
+     * @param retentionMaxDeletesPerSecond  行数。
+     */
+    public void setRetentionMaxDeletesPerSecond(int retentionMaxDeletesPerSecond) {
+        this.retentionMaxDeletesPerSecond = retentionMaxDeletesPerSecond;
+    }
+
+    /**
+     * 获取删除任务同时进行中的BatchWriteRow请求数。
+     * @return  请求数。
+     */
+    public int getDeleteConcurrency() {
+        return deleteConcurrency;
+    }
+
+    /**
+     * 设置删除任务同时进行中的BatchWriteRow请求数，用于限制删除对表的压力。
+     * @param deleteConcurrency 请求数。
+     */
+    public void setDeleteConcurrency(int deleteConcurrency) {
+        this.deleteConcurrency = deleteConcurrency;
+    }
+
+    /**
+     * 是否维护消息ID索引表。
+     * @return  true/false
+     */
+    public boolean isMessageIDIndexEnabled() {
+        return messageIDIndexEnabled;
+    }
+
+    /**
+     * 设置是否维护消息ID索引表，需要在create和构造Store之前设置。
+     * @param messageIDIndexEnabled true/false
+     */
+    public void setMessageIDIndexEnabled(boolean messageIDIndexEnabled) {
+        this.messageIDIndexEnabled = messageIDIndexEnabled;
+    }
+
+    /**
+     * 获取消息ID索引表的表名。
+     * @return  表名，没有设置时是表名加"_message_index"。
+     */
+    public String getMessageIDIndexTableName() {
+        if (messageIDIndexTableName == null) {
+            return tableName + "_message_index";
+        }
+        return messageIDIndexTableName;
+    }
+
+    /**
+     * 设置消息ID索引表的表名。
+     * @param messageIDIndexTableName   表名。
+     */
+    public void setMessageIDIndexTableName(String messageIDIndexTableName) {
+        this.messageIDIndexTableName = messageIDIndexTableName;
+    }
+
+    /**
+     * 是否记录写入时间并维护时间索引表。
+     * @return  true/false
+     */
+    public boolean isTimeIndexEnabled() {
+        return timeIndexEnabled;
+    }
+
+    /**
+     * 设置是否记录写入时间并维护时间索引表，需要在create和构造Store之前设置。
+     * @param timeIndexEnabled  true/false
+     */
+    public void setTimeIndexEnabled(boolean timeIndexEnabled) {
+        this.timeIndexEnabled = timeIndexEnabled;
+    }
+
+    /**
+     * 获取时间索引的时间桶大小。
+     * @return  时间桶大小，单位毫秒。
+     */
+    public int getTimeIndexInterval() {
+        return timeIndexInterval;
+    }
+
+    /**
+     * 设置时间索引的时间桶大小，已经有索引数据时不能修改。
+     * @param timeIndexInterval 时间桶大小，单位毫秒。
+     */
+    public void setTimeIndexInterval(int timeIndexInterval) {
+        this.timeIndexInterval = timeIndexInterval;
+    }
+
+    /**
+     * 获取时间索引表的表名。
+     * @return  表名，没有设置时是表名加"_time_index"。
+     */
+    public String getTimeIndexTableName() {
+        if (timeIndexTableName == null) {
+            return tableName + "_time_index";
+        }
+        return timeIndexTableName;
+    }
+
+    /**
+     * 设置时间索引表的表名。
+     * @param timeIndexTableName    表名。
+     */
+    public void setTimeIndexTableName(String timeIndexTableName) {
+        this.timeIndexTableName = timeIndexTableName;
+    }
+
+    /**
+     * 获取写入时间的属性列名称。
+     * @return  列名。
+     */
+    public String getTimestampColumnName() {
+        return timestampColumnName;
+    }
+
+    /**
+     * 设置写入时间的属性列名称。
+     * @param timestampColumnName   列名。
+     */
+    public void setTimestampColumnName(String timestampColumnName) {
+        this.timestampColumnName = timestampColumnName;
+    }
 }
@@ -1,21 +1,62 @@
 package com.alicloud.openservices.tablestore.timeline;
 
-import com.alicloud.openservices.tablestore.AsyncClient;
-import com.alicloud.openservices.tablestore.model.RangeIteratorParameter;
-import com.alicloud.openservices.tablestore.model.RowIterator;
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.ClientException;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
 
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * DistributeTimeline的迭代器，用于逐个遍历读取消息。
+ * 按页调用GetRange，当前页读完后再读下一页，直到读完maxCount条消息或者范围内没有更多数据。
+ * 构造时会同步读取第一页，第一页的异常由调用方处理。
+ * 提前结束读取时应调用close：释放当前页，已经读取但没有消费的字节数记录在scan.unconsumedBytes指标中。
+ * close可以在其他线程中调用：正在等待GetRange的读取线程立即返回，之后hasNext返回false；SDK不支持取消请求，已经发出的GetRange仍会执行，结果被丢弃。
  */
-class DistributeTimelineIterator implements Iterator<TimelineEntry>{
-    private RowIterator rowIterator = null;
-    private DistributeTimelineConfig config = null;
+class DistributeTimelineIterator implements Iterator<TimelineEntry>, Closeable {
+    /**
+     * 单次GetRange最多返回的行数。
+     */
+    private final static int MAX_PAGE_SIZE = 5000;
+
+    private final AsyncClientInterface client;
+    private final RangeRowQueryCriteria criteria;
+    private final DistributeTimelineConfig config;
+    private final DistributeTimelineStore store;
+    private final TimelineMetrics metrics;
+    private final TimelineInterceptorChain interceptors;
+    private final String timelineID;
+    private final boolean raw;
+
+    private int remaining;
+    private boolean finished = false;
+    private volatile List<Row> page = Collections.emptyList();
+    private volatile int position = 0;
+    private volatile Future<GetRangeResponse> pending = null;
+    private volatile boolean closed = false;
 
-    DistributeTimelineIterator(AsyncClient client, RangeIteratorParameter iteratorParameter, DistributeTimelineConfig config) {
-        rowIterator = new RowIterator(client.asSyncClient(), iteratorParameter);
-        this.config = config;
+    DistributeTimelineIterator(AsyncClientInterface client, RangeRowQueryCriteria criteria, int maxCount,
+                               boolean raw, DistributeTimelineStore store, String timelineID) {
+        this.client = client;
+        this.criteria = criteria;
+        this.config = store.getConfig();
+        this.store = store;
+        this.metrics = store.getMetrics();
+        this.interceptors = store.getInterceptors();
+        this.timelineID = timelineID;
+        this.remaining = maxCount;
+        this.raw = raw;
+
+        fetchPage();
     }
 
     /**
@@ -24,7 +65,17 @@ class DistributeTimelineIterator implements Iterator<TimelineEntry>{
      */
     @Override
     public boolean hasNext() {
-        return rowIterator.hasNext();
+        while (!closed && position >= page.size() && !finished && remaining > 0) {
+            try {
+                fetchPage();
+            } catch (TableStoreException ex) {
+                throw store.handleTableStoreException(ex, timelineID, "scan");
+            } catch (ClientException ex) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Parameter is invalid, reason:" + ex.getMessage(), ex);
+            }
+        }
+        return !closed && remaining > 0 && position < page.size();
     }
 
     /**
@@ -36,7 +87,58 @@ class DistributeTimelineIterator implements Iterator<TimelineEntry>{
      */
     @Override
     public TimelineEntry next() {
-        return Utils.toTimelineEntry(rowIterator.next(), this.config);
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return decode(nextRow());
+    }
+
+    /**
+     * 结束读取，可以重复调用。
+     */
+    @Override
+    public void close() {
+        List<Row> rows;
+        int from;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            rows = page;
+            from = position;
+            page = Collections.emptyList();
+        }
+
+        Future<GetRangeResponse> future = pending;
+        if (future != null) {
+            future.cancel(true);
+        }
+        recordUnconsumed(rows, from);
+    }
+
+    /**
+     * 读取最多maxRows行原始数据，不转换成TimelineEntry，需要时会读取下一页。
+     * 返回的行由调用方通过decode转换，可以分批交给其他线程并行转换。
+     * @param maxRows   最多返回的行数。
+     * @return          原始行，没有更多数据时返回空列表。
+     */
+    List<Row> nextRows(int maxRows) {
+        List<Row> rows = new ArrayList<Row>(Math.min(maxRows, MAX_PAGE_SIZE));
+        while (rows.size() < maxRows && hasNext()) {
+            rows.add(nextRow());
+        }
+        return rows;
+    }
+
+    /**
+     * 把nextRows返回的一行转换成TimelineEntry，包括拼接消息列、校验crc32和反序列化，可以在任意线程中调用。
+     * @param row   nextRows返回的行。
+     * @return      TimelineEntry。
+     */
+    TimelineEntry decode(Row row) {
+        return Utils.toTimelineEntry(row, this.config, raw);
     }
 
     /**
@@ -45,6 +147,91 @@ class DistributeTimelineIterator implements Iterator<TimelineEntry>{
      */
     @Override
     public void remove() {
-        rowIterator.remove();
+        throw new UnsupportedOperationException("DistributeTimelineIterator does not support remove");
+    }
+
+    private Row nextRow() {
+        Row row = page.get(position++);
+        remaining--;
+        metrics.recordBytesRead(Utils.dataSize(row));
+        return row;
+    }
+
+    private void fetchPage() {
+        criteria.setLimit(Math.min(remaining, MAX_PAGE_SIZE));
+        long start = System.nanoTime();
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.SCAN_PAGE, timelineID, -1);
+        GetRangeResponse response;
+        try {
+            TableStoreFuture<GetRangeRequest, GetRangeResponse> future = new TableStoreFuture<GetRangeRequest, GetRangeResponse>();
+            pending = future;
+            if (closed) {
+                future.cancel(true);
+            } else {
+                client.getRange(new GetRangeRequest(criteria), future);
+            }
+            response = future.get();
+        } catch (CancellationException ex) {
+            // 在其他线程中调用了close。
+            finished = true;
+            interceptors.complete(call, new TimelineException(TimelineExceptionType.TET_ABORT,
+                    "Scan timeline " + timelineID + " was closed", ex));
+            return;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            TimelineException exception = new TimelineException(TimelineExceptionType.TET_ABORT,
+                    "Scan timeline " + timelineID + " was interrupted", ex);
+            recordFailure(call, exception);
+            throw exception;
+        } catch (ExecutionException ex) {
+            TimelineException exception = new TimelineException(TimelineExceptionType.TET_UNKNOWN,
+                    "Scan timeline " + timelineID + " failed, reason:" + ex.getCause().getMessage(), ex.getCause());
+            recordFailure(call, exception);
+            throw exception;
+        } catch (RuntimeException ex) {
+            recordFailure(call, ex instanceof TableStoreException ?
+                    store.handleTableStoreException((TableStoreException) ex, timelineID, "scan") : ex);
+            throw ex;
+        } finally {
+            pending = null;
+        }
+        metrics.scan.recordSuccess(start);
+        metrics.recordScanPage(response.getRows().size());
+        if (call != null) {
+            long size = 0;
+            for (Row row : response.getRows()) {
+                size += Utils.dataSize(row);
+            }
+            interceptors.complete(call, size, null);
+        }
+
+        if (response.getNextStartPrimaryKey() == null) {
+            finished = true;
+        } else {
+            criteria.setInclusiveStartPrimaryKey(response.getNextStartPrimaryKey());
+        }
+        synchronized (this) {
+            if (!closed) {
+                position = 0;
+                page = response.getRows();
+                return;
+            }
+        }
+        recordUnconsumed(response.getRows(), 0);
+    }
+
+    private void recordUnconsumed(List<Row> rows, int from) {
+        long size = 0;
+        for (int i = from; i < rows.size(); i++) {
+            size += Utils.dataSize(rows.get(i));
+        }
+        if (size > 0) {
+            metrics.recordBytesUnconsumed(size);
+        }
+    }
+
+    private void recordFailure(TimelineInterceptorChain.Call call, Exception ex) {
+        metrics.scan.recordFailure(ex);
+        interceptors.complete(call, ex);
     }
 }
@@ -2,12 +2,16 @@ package com.alicloud.openservices.tablestore.timeline;
 
 import com.alicloud.openservices.tablestore.*;
 import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.model.filter.ColumnValueFilter;
+import com.alicloud.openservices.tablestore.model.filter.CompositeColumnValueFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 基于表格存储（Table Store）的分布式存储层实现.
@@ -17,8 +21,26 @@ public class DistributeTimelineStore implements IStore {
     private Logger logger = LoggerFactory.getLogger(DistributeTimelineStore.class);
 
     private DistributeTimelineConfig config = null;
-    private AsyncClient tableStore = null;
-    private TableStoreWriter tableStoreWriter = null;
+    private AsyncClientInterface tableStore = null;
+    private volatile TableStoreWriter tableStoreWriter = null;
+    private ExecutorService writerExecutor = null;
+    private final Lock writerLock = new ReentrantLock();
+    private TimelineMetrics metrics = null;
+    private TimelineInterceptorChain interceptors = null;
+    private CallbackDispatcher callbacks = null;
+    private TimelineRetention retention = null;
+    private MessageIDIndex messageIndex = null;
+    private TimelineTimeIndex timeIndex = null;
+
+    /**
+     * 单次BatchWriteRow最多包含的行数，和服务端的限制一致。
+     */
+    final static int MAX_BATCH_WRITE_ROWS = 200;
+
+    /**
+     * 单次BatchGetRow最多包含的行数，和服务端的限制一致。
+     */
+    final static int MAX_BATCH_GET_ROWS = 100;
 
     /**
      * TableStoreStore的构造函数。
@@ -29,6 +51,95 @@ public class DistributeTimelineStore implements IStore {
 
         tableStore = new AsyncClient(config.getEndpoint(), config.getAccessKeyID(), config.getAccessKeySecret(),
                 config.getInstanceName(), config.getClientConfiguration());
+        initMetrics();
+        initRetention();
+        initMessageIndex();
+        initTimeIndex();
+    }
+
+    /**
+     * TableStoreStore的构造函数，使用外部传入的客户端，endpoint和AccessKey等连接参数会被忽略。
+     * 可用于复用已有的客户端，或者在测试和压测中传入不需要网络的本地替身。
+     * @param config    TableStore的配置参数。
+     * @param client    TableStore的异步客户端，Store关闭时会一起关闭。
+     */
+    public DistributeTimelineStore(DistributeTimelineConfig config, AsyncClientInterface client) {
+        if (client == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "DistributeTimelineStore parameter client is null");
+        }
+
+        this.config = config;
+        this.tableStore = client;
+        initMetrics();
+        initRetention();
+        initMessageIndex();
+        initTimeIndex();
+    }
+
+    /**
+     * 获取当前Store的运行指标。
+     * @return  运行指标。
+     */
+    public TimelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    DistributeTimelineConfig getConfig() {
+        return config;
+    }
+
+    AsyncClientInterface getClient() {
+        return tableStore;
+    }
+
+    /**
+     * 消息ID索引，没有开启messageIDIndexEnabled时返回null。
+     */
+    MessageIDIndex getMessageIndex() {
+        return messageIndex;
+    }
+
+    /**
+     * 时间索引，没有开启timeIndexEnabled时返回null。
+     */
+    TimelineTimeIndex getTimeIndex() {
+        return timeIndex;
+    }
+
+    TimelineInterceptorChain getInterceptors() {
+        return interceptors;
+    }
+
+    TimelineRetention getRetention() {
+        return retention;
+    }
+
+    private void initMetrics() {
+        interceptors = new TimelineInterceptorChain(config.getInterceptors());
+        metrics = new TimelineMetrics(config.getInstanceName() + "/" + config.getTableName());
+        callbacks = new CallbackDispatcher(config, metrics);
+        if (config.getMetricsRegistry() != null) {
+            config.getMetricsRegistry().register(metrics);
+        }
+    }
+
+    private void initRetention() {
+        if (config.isRetentionEnabled()) {
+            retention = new TimelineRetention(this, tableStore);
+        }
+    }
+
+    private void initMessageIndex() {
+        if (config.isMessageIDIndexEnabled()) {
+            messageIndex = new MessageIDIndex(this, tableStore);
+        }
+    }
+
+    private void initTimeIndex() {
+        if (config.isTimeIndexEnabled()) {
+            timeIndex = new TimelineTimeIndex(this, tableStore);
+        }
     }
 
     @Override
@@ -46,27 +157,72 @@ public class DistributeTimelineStore implements IStore {
 
     @Override
     public void batch(String timelineID, IMessage message) {
-        if (tableStoreWriter == null) {
-            ExecutorService executor = Executors.newFixedThreadPool(config.getClientConfiguration().getIoThreadCount());
-            tableStoreWriter = new DefaultTableStoreWriter(tableStore, config.getTableName(),
-                    config.getWriterConfig(), null, executor);
+        long start = System.nanoTime();
+        TableStoreWriter writer = tableStoreWriter;
+        if (writer == null) {
+            writer = createWriter();
+        }
+
+        TimelineInterceptorChain.Call call = null;
+        try {
+            RowPutChange change = createPutRowRequest(timelineID, message).getRowChange();
+            if (!interceptors.isEmpty()) {
+                call = interceptors.start(TimelineOperation.BATCH, timelineID, Utils.dataSize(change.getColumnsToPut()));
+            }
+            writer.addRowChange(change);
+        } catch (RuntimeException ex) {
+            metrics.batch.recordFailure(ex);
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+        metrics.recordWriterAdded();
+        metrics.batch.recordSuccess(start);
+        if (retention != null) {
+            retention.touch(timelineID);
         }
+        interceptors.complete(call, null);
+    }
 
-        tableStoreWriter.addRowChange(createPutRowRequest(timelineID, message).getRowChange());
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, byte[] content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, ByteBuffer content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, byte[] content) {
+        batch(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, ByteBuffer content) {
+        batch(timelineID, new RawMessage(messageID, content));
     }
 
     @Override
     public Future<TimelineEntry> writeAsync(final String timelineID,
                                             final IMessage message,
                                             final TimelineCallback<IMessage> callback) {
+        long start = System.nanoTime();
+        TimelineInterceptorChain.Call call = null;
         try {
             PutRowRequest request = createPutRowRequest(timelineID, message);
-            return doWriteAsync(timelineID, message, callback, request);
+            if (!interceptors.isEmpty()) {
+                call = interceptors.start(TimelineOperation.WRITE, timelineID,
+                        Utils.dataSize(request.getRowChange().getColumnsToPut()));
+            }
+            return doWriteAsync(timelineID, message, callback, request, start, call);
         } catch (TableStoreException ex) {
-            throw handleTableStoreException(ex, timelineID, "write");
+            throw recordFailure(metrics.write, call, handleTableStoreException(ex, timelineID, "write"));
         } catch (ClientException ex) {
-            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
-                    "Parameter is invalid, reason:" + ex.getMessage(), ex);
+            throw recordFailure(metrics.write, call, new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Parameter is invalid, reason:" + ex.getMessage(), ex));
+        } catch (TimelineException ex) {
+            throw recordFailure(metrics.write, call, ex);
         }
     }
 
@@ -87,22 +243,96 @@ public class DistributeTimelineStore implements IStore {
     public Future<TimelineEntry> readAsync(final String timelineID,
                                            final Long sequenceID,
                                            final TimelineCallback<Long> callback) {
+        long start = System.nanoTime();
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.READ, timelineID, -1);
         try {
             GetRowRequest request = createGetRowRequest(timelineID, sequenceID);
-            return doReadAsync(timelineID, callback, request);
+            return doReadAsync(timelineID, callback, request, start, call);
         } catch (TableStoreException ex) {
-            throw handleTableStoreException(ex, timelineID, "read");
+            throw recordFailure(metrics.read, call, handleTableStoreException(ex, timelineID, "read"));
         } catch (ClientException ex) {
+            throw recordFailure(metrics.read, call, new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Parameter is invalid, reason:" + ex.getMessage(), ex));
+        }
+    }
+
+    /**
+     * 先在消息ID索引表中点查顺序ID，再读取消息。需要开启messageIDIndexEnabled。
+     * 只有write、writeAsync和TimelineImporter写入的消息有索引，batch写入的消息读取时返回null。
+     */
+    @Override
+    public TimelineEntry readByMessageID(String timelineID, String messageID) {
+        Long sequenceID = checkMessageIndex().lookup(timelineID, messageID);
+        if (sequenceID == null) {
+            return null;
+        }
+
+        TimelineEntry entry = read(timelineID, sequenceID);
+        if (entry == null || !messageID.equals(entry.getMessage().getMessageID())) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 用BatchGetRow批量读取索引表和消息表，每批最多100行，各批并发发出。需要开启messageIDIndexEnabled。
+     * 只有write、writeAsync和TimelineImporter写入的消息有索引，batch写入的消息不会出现在结果中。
+     */
+    @Override
+    public Map<String, TimelineEntry> readByMessageIDs(String timelineID, Collection<String> messageIDs) {
+        Map<String, Long> sequenceIDs = checkMessageIndex().lookup(timelineID, messageIDs);
+
+        String firstPKValue = Utils.saltTimelineID(timelineID, config.getTimelineIDSaltLength());
+        List<PrimaryKey> primaryKeys = new ArrayList<PrimaryKey>();
+        for (Long sequenceID : new HashSet<Long>(sequenceIDs.values())) {
+            primaryKeys.add(PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                    .addPrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(firstPKValue))
+                    .addPrimaryKeyColumn(config.getSecondPKName(), PrimaryKeyValue.fromLong(sequenceID))
+                    .build());
+        }
+
+        Map<Long, TimelineEntry> entries = new HashMap<Long, TimelineEntry>();
+        for (Row row : batchGetRows(timelineID, config.getTableName(), primaryKeys)) {
+            metrics.recordBytesRead(Utils.dataSize(row));
+            TimelineEntry entry = Utils.toTimelineEntry(row, config);
+            entries.put(entry.getSequenceID(), entry);
+        }
+
+        Map<String, TimelineEntry> result = new LinkedHashMap<String, TimelineEntry>();
+        for (String messageID : messageIDs) {
+            Long sequenceID = sequenceIDs.get(messageID);
+            TimelineEntry entry = sequenceID == null ? null : entries.get(sequenceID);
+            if (entry != null && messageID.equals(entry.getMessage().getMessageID())) {
+                result.put(messageID, entry);
+            }
+        }
+        return result;
+    }
+
+    private MessageIDIndex checkMessageIndex() {
+        if (messageIndex == null) {
             throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
-                    "Parameter is invalid, reason:" + ex.getMessage(), ex);
+                    "Message ID index is not enabled, please set messageIDIndexEnabled in DistributeTimelineConfig");
         }
+        return messageIndex;
     }
 
+    /**
+     * 指定了写入时间范围时，先用时间索引把时间范围换算成顺序ID范围，再由服务端按写入时间过滤。需要开启timeIndexEnabled。
+     */
     @Override
     public Iterator<TimelineEntry> scan(String timelineID, ScanParameter parameter) {
+        if (parameter.hasTimeRange()) {
+            parameter = resolveTimeRange(timelineID, parameter);
+            if (parameter == null) {
+                return Collections.<TimelineEntry>emptyList().iterator();
+            }
+        }
+
         try {
-            RangeIteratorParameter iteratorParameter = createIteratorParameter(timelineID, parameter);
-            return new DistributeTimelineIterator(tableStore, iteratorParameter, this.config);
+            RangeRowQueryCriteria criteria = createRangeCriteria(timelineID, parameter);
+            return new DistributeTimelineIterator(tableStore, criteria, parameter.getMaxCount(), parameter.isRaw(),
+                    this, timelineID);
         } catch (TableStoreException ex) {
             throw handleTableStoreException(ex, timelineID, "scan");
         } catch (ClientException ex) {
@@ -111,8 +341,62 @@ public class DistributeTimelineStore implements IStore {
         }
     }
 
+    /**
+     * 和时间索引换算出的顺序ID范围取交集。
+     * @return  新的ScanParameter，交集为空时返回null。
+     */
+    ScanParameter resolveTimeRange(String timelineID, ScanParameter parameter) {
+        if (timeIndex == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Time index is not enabled, please set timeIndexEnabled in DistributeTimelineConfig");
+        }
+
+        long[] range = timeIndex.resolve(timelineID, parameter.getStartTime(), parameter.getEndTime());
+        if (parameter.isForward()) {
+            long from = Math.max(parameter.getFrom(), range[0]);
+            long to = Math.min(parameter.getTo(), range[1]);
+            return from < to ? parameter.withSequenceRange(from, to) : null;
+        } else {
+            long from = Math.min(parameter.getFrom(), range[1]);
+            long to = Math.max(parameter.getTo(), range[0]);
+            return from > to ? parameter.withSequenceRange(from, to) : null;
+        }
+    }
+
+    /**
+     * 在后台线程中扫描主键并发删除，同时进行中的BatchWriteRow请求数由deleteConcurrency限制。
+     */
+    @Override
+    public TimelineDeleteJob delete(String timelineID, long fromSequenceID, long toSequenceID) {
+        if (fromSequenceID > toSequenceID) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Delete parameter fromSequenceID is larger than toSequenceID");
+        }
+
+        TimelineDeleteJob job = new TimelineDeleteJob(timelineID, fromSequenceID, toSequenceID);
+        new TimelineDeleter(this, tableStore, job).start();
+        return job;
+    }
+
+    @Override
+    public TimelineDeleteJob deleteTimeline(String timelineID) {
+        return delete(timelineID, 0, Long.MAX_VALUE);
+    }
+
     @Override
     public void create() {
+        long start = System.nanoTime();
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.CREATE, null, -1);
+        try {
+            doCreate();
+        } catch (TimelineException ex) {
+            throw recordFailure(metrics.create, call, ex);
+        }
+        metrics.create.recordSuccess(start);
+        interceptors.complete(call, null);
+    }
+
+    private void doCreate() {
         TableMeta tableMeta = new TableMeta(config.getTableName());
         tableMeta.addPrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyType.STRING);
         tableMeta.addPrimaryKeyColumn(config.getSecondPKName(), PrimaryKeyType.INTEGER, PrimaryKeyOption.AUTO_INCREMENT);
@@ -121,8 +405,21 @@ public class DistributeTimelineStore implements IStore {
         tableOptions.setTimeToLive(this.config.getTtl());
         tableOptions.setMaxVersions(1);
         CreateTableRequest request = new CreateTableRequest(tableMeta, tableOptions);
+
+        List<String> saltSplitPoints = Utils.saltSplitPoints(config.getTimelineIDSaltLength(), config.getSaltPartitionCount());
+        if (!saltSplitPoints.isEmpty()) {
+            // 按哈希前缀预分区，新表从一开始就能把写入分散到多个分区。
+            List<PrimaryKey> splitPoints = new ArrayList<PrimaryKey>();
+            for (String point : saltSplitPoints) {
+                splitPoints.add(PrimaryKeyBuilder.createPrimaryKeyBuilder().
+                        addPrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(point)).build());
+            }
+            request.setSplitPoints(splitPoints);
+        }
         try {
-            Future<CreateTableResponse> res = tableStore.createTable(request, null);
+            TableStoreFuture<CreateTableRequest, CreateTableResponse> res =
+                    new TableStoreFuture<CreateTableRequest, CreateTableResponse>();
+            tableStore.createTable(request, res);
             Utils.waitForFuture(res);
             logger.info("Create store {} succeeded.", config.getTableName());
         } catch (TableStoreException ex) {
@@ -142,13 +439,35 @@ public class DistributeTimelineStore implements IStore {
             throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
                     "Create store failed, reason:" + ex.getMessage(), ex);
         }
+
+        // 主表已经存在时索引表可能还没有创建（比如之后才开启索引），索引表单独创建，已经存在的错误由索引自己忽略。
+        if (messageIndex != null) {
+            messageIndex.create();
+        }
+        if (timeIndex != null) {
+            timeIndex.create();
+        }
     }
 
     @Override
     public void drop() {
+        long start = System.nanoTime();
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.DROP, null, -1);
+        try {
+            doDrop();
+        } catch (TimelineException ex) {
+            throw recordFailure(metrics.drop, call, ex);
+        }
+        metrics.drop.recordSuccess(start);
+        interceptors.complete(call, null);
+    }
+
+    private void doDrop() {
         DeleteTableRequest request = new DeleteTableRequest(config.getTableName());
         try {
-            Future<DeleteTableResponse> response = tableStore.deleteTable(request, null);
+            TableStoreFuture<DeleteTableRequest, DeleteTableResponse> response =
+                    new TableStoreFuture<DeleteTableRequest, DeleteTableResponse>();
+            tableStore.deleteTable(request, response);
             Utils.waitForFuture(response);
             logger.info("Drop store {} succeeded.", config.getTableName());
         } catch (TableStoreException ex) {
@@ -168,13 +487,37 @@ public class DistributeTimelineStore implements IStore {
             throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
                     "Drop store failed, reason:" + ex.getMessage(), ex);
         }
+
+        // 主表已经不存在时索引表可能还在，索引表单独删除，不存在的错误由索引自己忽略。
+        if (messageIndex != null) {
+            messageIndex.drop();
+        }
+        if (timeIndex != null) {
+            timeIndex.drop();
+        }
     }
 
     @Override
     public boolean exist() {
+        long start = System.nanoTime();
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.EXIST, null, -1);
+        boolean exist;
+        try {
+            exist = doExist();
+        } catch (TimelineException ex) {
+            throw recordFailure(metrics.exist, call, ex);
+        }
+        metrics.exist.recordSuccess(start);
+        interceptors.complete(call, null);
+        return exist;
+    }
+
+    private boolean doExist() {
         DescribeTableRequest request = new DescribeTableRequest(config.getTableName());
         try {
-            Future<DescribeTableResponse> response = tableStore.describeTable(request, null);
+            TableStoreFuture<DescribeTableRequest, DescribeTableResponse> response =
+                    new TableStoreFuture<DescribeTableRequest, DescribeTableResponse>();
+            tableStore.describeTable(request, response);
             Utils.waitForFuture(response);
             return true;
         } catch (TableStoreException ex) {
@@ -198,77 +541,208 @@ public class DistributeTimelineStore implements IStore {
 
     @Override
     public void close() {
+        if (retention != null) {
+            retention.shutdown();
+        }
         if (tableStoreWriter != null) {
             tableStoreWriter.close();
         }
+        if (writerExecutor != null) {
+            writerExecutor.shutdown();
+        }
         tableStore.shutdown();
+        callbacks.shutdown();
+        if (config.getMetricsRegistry() != null) {
+            config.getMetricsRegistry().unregister(metrics);
+        }
     }
 
-    private RangeIteratorParameter createIteratorParameter(String timelineID, ScanParameter parameter) {
-        RangeIteratorParameter iteratorParameter = new RangeIteratorParameter(config.getTableName());
-        iteratorParameter.setDirection(parameter.isForward() ? Direction.FORWARD : Direction.BACKWARD);
-        PrimaryKeyColumn beginFirstPK = new PrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(timelineID));
+    /**
+     * 第一次调用batch时创建Writer。用ReentrantLock而不是synchronized，虚拟线程等待时不会占住载体线程。
+     */
+    private TableStoreWriter createWriter() {
+        writerLock.lock();
+        try {
+            if (tableStoreWriter == null) {
+                ExecutorService executor = config.getWriterExecutor();
+                if (executor == null) {
+                    if (config.isVirtualThreadEnabled()) {
+                        executor = VirtualThreads.newExecutor("timeline-writer");
+                    } else {
+                        executor = Executors.newFixedThreadPool(config.getClientConfiguration().getIoThreadCount());
+                    }
+                    writerExecutor = executor;
+                }
+                tableStoreWriter = new DefaultTableStoreWriter(tableStore, config.getTableName(),
+                        config.getWriterConfig(), null, executor);
+                metrics.setWriter(tableStoreWriter);
+            }
+            return tableStoreWriter;
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    RangeRowQueryCriteria createRangeCriteria(String timelineID, ScanParameter parameter) {
+        String firstPKValue = Utils.saltTimelineID(timelineID, config.getTimelineIDSaltLength());
+        RangeRowQueryCriteria criteria = new RangeRowQueryCriteria(config.getTableName());
+        criteria.setDirection(parameter.isForward() ? Direction.FORWARD : Direction.BACKWARD);
+        PrimaryKeyColumn beginFirstPK = new PrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(firstPKValue));
         PrimaryKeyColumn beginSecondPK = new PrimaryKeyColumn(config.getSecondPKName(), PrimaryKeyValue.fromLong(parameter.getFrom()));
         PrimaryKey beginPK = PrimaryKeyBuilder.createPrimaryKeyBuilder().
                 addPrimaryKeyColumn(beginFirstPK).addPrimaryKeyColumn(beginSecondPK).build();
-        iteratorParameter.setInclusiveStartPrimaryKey(beginPK);
+        criteria.setInclusiveStartPrimaryKey(beginPK);
 
-        PrimaryKeyColumn endFirstPK = new PrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(timelineID));
+        PrimaryKeyColumn endFirstPK = new PrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(firstPKValue));
         PrimaryKeyColumn endSecondPK = new PrimaryKeyColumn(config.getSecondPKName(), PrimaryKeyValue.fromLong(parameter.getTo()));
         PrimaryKey endPK = PrimaryKeyBuilder.createPrimaryKeyBuilder().
                 addPrimaryKeyColumn(endFirstPK).addPrimaryKeyColumn(endSecondPK).build();
-        iteratorParameter.setExclusiveEndPrimaryKey(endPK);
+        criteria.setExclusiveEndPrimaryKey(endPK);
+
+        criteria.setMaxVersions(1);
+        ColumnValueFilter filter = parameter.getFilter() == null ? null : parameter.getFilter().toFilter();
+        if (parameter.hasTimeRange() && timeIndex != null) {
+            CompositeColumnValueFilter timeFilter = timeIndex.createFilter(parameter.getStartTime(), parameter.getEndTime());
+            if (filter != null) {
+                timeFilter.addFilter(filter);
+            }
+            filter = timeFilter;
+        }
+        if (filter != null) {
+            criteria.setFilter(filter);
+        }
+        return criteria;
+    }
+
+    /**
+     * 按主键批量删除行，每批最多batchSize行（不超过200），同步等待完成。
+     * @return  删除成功的行数，有删除失败的行时抛出TET_RETRY异常。
+     */
+    int deleteRows(String timelineID, List<PrimaryKey> primaryKeys, int batchSize) {
+        int size = Math.max(1, Math.min(batchSize, MAX_BATCH_WRITE_ROWS));
+        int deleted = 0;
+        int failed = 0;
+        String reason = null;
+        for (int pos = 0; pos < primaryKeys.size(); pos += size) {
+            BatchWriteRowRequest request = new BatchWriteRowRequest();
+            for (PrimaryKey primaryKey : primaryKeys.subList(pos, Math.min(pos + size, primaryKeys.size()))) {
+                request.addRowChange(new RowDeleteChange(config.getTableName(), primaryKey));
+            }
+
+            BatchWriteRowResponse response;
+            try {
+                TableStoreFuture<BatchWriteRowRequest, BatchWriteRowResponse> future =
+                        new TableStoreFuture<BatchWriteRowRequest, BatchWriteRowResponse>();
+                tableStore.batchWriteRow(request, future);
+                response = Utils.await(future, "Delete timeline " + timelineID);
+            } catch (TableStoreException ex) {
+                throw handleTableStoreException(ex, timelineID, "delete");
+            } catch (ClientException ex) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Parameter is invalid, reason:" + ex.getMessage(), ex);
+            }
+            deleted += response.getSucceedRows().size();
+            failed += response.getFailedRows().size();
+            if (reason == null && !response.getFailedRows().isEmpty()) {
+                reason = response.getFailedRows().get(0).getError().getMessage();
+            }
+        }
+
+        if (failed > 0) {
+            throw new TimelineException(TimelineExceptionType.TET_RETRY,
+                    String.format("Delete timeline %s failed, deleted:%d, failed:%d, reason:%s",
+                            timelineID, deleted, failed, reason));
+        }
+        return deleted;
+    }
+
+    /**
+     * 按主键批量读取，每批最多100行，所有批次同时发出后再等待。
+     * @return  读取到的行，不存在的行不会返回，有读取失败的行时抛出TET_RETRY异常。
+     */
+    List<Row> batchGetRows(String timelineID, String tableName, List<PrimaryKey> primaryKeys) {
+        List<TableStoreFuture<BatchGetRowRequest, BatchGetRowResponse>> futures =
+                new ArrayList<TableStoreFuture<BatchGetRowRequest, BatchGetRowResponse>>();
+        try {
+            for (int pos = 0; pos < primaryKeys.size(); pos += MAX_BATCH_GET_ROWS) {
+                MultiRowQueryCriteria criteria = new MultiRowQueryCriteria(tableName);
+                criteria.setMaxVersions(1);
+                for (PrimaryKey primaryKey : primaryKeys.subList(pos, Math.min(pos + MAX_BATCH_GET_ROWS, primaryKeys.size()))) {
+                    criteria.addRow(primaryKey);
+                }
+                BatchGetRowRequest request = new BatchGetRowRequest();
+                request.addMultiRowQueryCriteria(criteria);
+                TableStoreFuture<BatchGetRowRequest, BatchGetRowResponse> future =
+                        new TableStoreFuture<BatchGetRowRequest, BatchGetRowResponse>();
+                tableStore.batchGetRow(request, future);
+                futures.add(future);
+            }
 
-        iteratorParameter.setMaxCount(parameter.getMaxCount());
-        iteratorParameter.setMaxVersions(1);
-        iteratorParameter.setBufferSize(parameter.getMaxCount());
-        return iteratorParameter;
+            List<Row> rows = new ArrayList<Row>();
+            for (TableStoreFuture<BatchGetRowRequest, BatchGetRowResponse> future : futures) {
+                BatchGetRowResponse response = Utils.await(future, "Read timeline " + timelineID);
+                if (!response.getFailedRows().isEmpty()) {
+                    throw new TimelineException(TimelineExceptionType.TET_RETRY,
+                            String.format("Read timeline %s failed, failed:%d, reason:%s", timelineID,
+                                    response.getFailedRows().size(),
+                                    response.getFailedRows().get(0).getError().getMessage()));
+                }
+                for (BatchGetRowResponse.RowResult result : response.getSucceedRows()) {
+                    if (result.getRow() != null) {
+                        rows.add(result.getRow());
+                    }
+                }
+            }
+            return rows;
+        } catch (TableStoreException ex) {
+            throw handleTableStoreException(ex, timelineID, "read");
+        } catch (ClientException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Parameter is invalid, reason:" + ex.getMessage(), ex);
+        }
     }
 
-    private PutRowRequest createPutRowRequest(String timelineID, IMessage message) {
+    PutRowRequest createPutRowRequest(String timelineID, IMessage message) {
+        String firstPKValue = Utils.saltTimelineID(timelineID, config.getTimelineIDSaltLength());
         PutRowRequest request = new PutRowRequest();
         RowPutChange putChange = new RowPutChange(config.getTableName());
 
-        PrimaryKeyColumn firstPK = new PrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(timelineID));
+        PrimaryKeyColumn firstPK = new PrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(firstPKValue));
         PrimaryKeyColumn secondPK = new PrimaryKeyColumn(config.getSecondPKName(), PrimaryKeyValue.AUTO_INCREMENT);
         putChange.setPrimaryKey(PrimaryKeyBuilder.createPrimaryKeyBuilder().
                 addPrimaryKeyColumn(firstPK).addPrimaryKeyColumn(secondPK).build());
         putChange.setReturnType(ReturnType.RT_PK);
 
-        byte[] content = message.serialize();
-        if (content.length > 1000 * 1024 * 1024) {
-            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
-                    String.format("Message Content must less than 1GB, current:%s", String.valueOf(content.length)));
+        if (message instanceof EncodedMessage) {
+            EncodedMessage encoded = (EncodedMessage) message;
+            putChange.addColumns(encoded.getColumns(config));
+            metrics.recordBytesWritten(encoded.getSize());
+        } else if (message instanceof RawMessage) {
+            RawMessage raw = (RawMessage) message;
+            putChange.addColumns(Utils.toColumns(raw.getArray(), raw.getOffset(), raw.getLength(),
+                    raw.getMessageID(), config));
+            metrics.recordBytesWritten(raw.getLength());
+        } else {
+            byte[] content = message.serialize();
+            putChange.addColumns(Utils.toColumns(content, message.getMessageID(), config));
+            metrics.recordBytesWritten(content.length);
         }
-
-        int pos = 0;
-        int index = Utils.CONTENT_COLUMN_START_ID;
-        while (pos < content.length) {
-            byte[] columnValue;
-            if (pos + config.getColumnMaxLength() < content.length) {
-                columnValue = Arrays.copyOfRange(content, pos, pos + config.getColumnMaxLength());
-            } else {
-                columnValue = Arrays.copyOfRange(content, pos, content.length);
-            }
-            putChange.addColumn(String.valueOf(config.getMessageContentPrefix() + String.valueOf(index++)),
-                    ColumnValue.fromBinary(columnValue));
-            pos += columnValue.length;
+        if (timeIndex != null) {
+            timeIndex.addTimestamp(putChange);
         }
-
-        if (config.getColumnNameOfMessageCrc32() != null && !config.getColumnNameOfMessageCrc32().isEmpty()) {
-            long crc32 = Utils.crc32(content);
-            putChange.addColumn(config.getColumnNameOfMessageCrc32(), ColumnValue.fromLong(crc32));
+        AttributedMessage attributed = AttributedMessage.of(message);
+        if (attributed != null) {
+            putChange.addColumns(attributed.getColumns(config));
         }
 
-        putChange.addColumn(config.getMessageIDColumnName(), ColumnValue.fromString(message.getMessageID()));
-
         request.setRowChange(putChange);
         return request;
     }
 
     private GetRowRequest createGetRowRequest(String timelineID, Long sequenceID) {
+        String firstPKValue = Utils.saltTimelineID(timelineID, config.getTimelineIDSaltLength());
         GetRowRequest request = new GetRowRequest();
-        PrimaryKeyColumn firstPK = new PrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(timelineID));
+        PrimaryKeyColumn firstPK = new PrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(firstPKValue));
         PrimaryKeyColumn secondPK = new PrimaryKeyColumn(config.getSecondPKName(), PrimaryKeyValue.fromLong(sequenceID));
         PrimaryKey pk = PrimaryKeyBuilder.createPrimaryKeyBuilder().
                 addPrimaryKeyColumn(firstPK).addPrimaryKeyColumn(secondPK).build();
@@ -278,134 +752,170 @@ public class DistributeTimelineStore implements IStore {
         return request;
     }
 
-    private Future<TimelineEntry> doReadAsync(final String timelineID, final TimelineCallback<Long> callback, GetRowRequest request) {
+    private Future<TimelineEntry> doReadAsync(final String timelineID, final TimelineCallback<Long> callback,
+                                              GetRowRequest request, final long start,
+                                              final TimelineInterceptorChain.Call call) {
+        final TimelineEntryFuture future = new TimelineEntryFuture();
         final TableStoreCallback<GetRowRequest, GetRowResponse> tablestoreCallback = new TableStoreCallback<GetRowRequest, GetRowResponse>() {
             @Override
             public void onCompleted(GetRowRequest request, GetRowResponse response) {
-                Row row = response.getRow();
-                TimelineEntry timelineEntry = Utils.toTimelineEntry(row, config);
-                long sequenceID = response.getRow().getPrimaryKey().getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
-                callback.onCompleted(timelineID, sequenceID, timelineEntry);
+                metrics.read.recordSuccess(start);
+                final Row row = response.getRow();
+                long size = row == null ? 0 : Utils.dataSize(row);
+                metrics.recordBytesRead(size);
+                interceptors.complete(call, size, null);
+
+                final long sequenceID = sequenceIDOf(request);
+                Runnable task = new Runnable() {
+                    @Override
+                    public void run() {
+                        completeRead(future, callback, timelineID, sequenceID, row);
+                    }
+                };
+                if (callback == null && !config.isDecodeOnCallbackExecutor()) {
+                    task.run();
+                } else if (callback == null) {
+                    callbacks.dispatchOrRun(task);
+                } else {
+                    callbacks.dispatch(task, future, new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onFailed(timelineID, sequenceID, createRejectedException());
+                        }
+                    });
+                }
             }
 
             @Override
             public void onFailed(GetRowRequest getRowRequest, Exception e) {
-                e = createException(e, timelineID, "read");
-
-                long sequenceID = getRowRequest.getRowQueryCriteria().getPrimaryKey().
-                        getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
-                callback.onFailed(timelineID, sequenceID, e);
+                final Exception exception = createException(e, timelineID, "read");
+                metrics.read.recordFailure(exception);
+                interceptors.complete(call, exception);
+                future.fail(exception);
+
+                if (callback != null) {
+                    final long sequenceID = sequenceIDOf(getRowRequest);
+                    Runnable task = new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onFailed(timelineID, sequenceID, exception);
+                        }
+                    };
+                    callbacks.dispatch(task, future, task);
+                }
             }
         };
 
-        final Future<GetRowResponse> future = tableStore.getRow(request, tablestoreCallback);
-        return new Future<TimelineEntry>() {
-            @Override
-            public boolean cancel(boolean mayInterruptIfRunning) {
-                return future.cancel(mayInterruptIfRunning);
-            }
-
-            @Override
-            public boolean isCancelled() {
-                return future.isCancelled();
-            }
-
-            @Override
-            public boolean isDone() {
-                return future.isDone();
-            }
+        tableStore.getRow(request, tablestoreCallback);
+        return future;
+    }
 
-            @Override
-            public TimelineEntry get() throws InterruptedException, ExecutionException {
-                try {
-                    GetRowResponse response = future.get();
-                    return Utils.toTimelineEntry(response.getRow(), config);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "read");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
-                            "Drop store failed, reason:" + ex.getMessage(), ex);
-                }
+    /**
+     * 解码读取结果，设置Future的结果并调用用户回调。在回调线程池中执行，或者在没有用户回调时在IO线程中执行。
+     * 消息不存在（已删除或已清理）时结果是null。
+     */
+    private void completeRead(TimelineEntryFuture future, TimelineCallback<Long> callback,
+                              String timelineID, long sequenceID, Row row) {
+        TimelineEntry timelineEntry;
+        try {
+            timelineEntry = row == null ? null : Utils.toTimelineEntry(row, config);
+        } catch (RuntimeException ex) {
+            future.fail(ex);
+            if (callback != null) {
+                callback.onFailed(timelineID, sequenceID, ex);
             }
+            return;
+        }
 
-            @Override
-            public TimelineEntry get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-                try {
-                    GetRowResponse response = future.get(timeout, unit);
-                    return Utils.toTimelineEntry(response.getRow(), config);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "read");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
-                            "Drop store failed, reason:" + ex.getMessage(), ex);
-                }
-            }
-        };
+        future.complete(timelineEntry);
+        if (callback != null) {
+            callback.onCompleted(timelineID, sequenceID, timelineEntry);
+        }
     }
 
-    private Future<TimelineEntry> doWriteAsync(final String timelineID, final IMessage message, final TimelineCallback<IMessage> callback, PutRowRequest request) {
+    private Future<TimelineEntry> doWriteAsync(final String timelineID, final IMessage message, final TimelineCallback<IMessage> callback,
+                                               PutRowRequest request, final long start,
+                                               final TimelineInterceptorChain.Call call) {
+        final TimelineEntryFuture future = new TimelineEntryFuture();
         final TableStoreCallback<PutRowRequest, PutRowResponse> tablestoreCallback = new TableStoreCallback<PutRowRequest, PutRowResponse>() {
             @Override
             public void onCompleted(PutRowRequest request, PutRowResponse response) {
                 long sequenceID = response.getRow().getPrimaryKey().getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
-                TimelineEntry timelineEntry = new TimelineEntry(sequenceID, message);
-                callback.onCompleted(timelineID, message, timelineEntry);
+                final TimelineEntry timelineEntry = new TimelineEntry(sequenceID, EncodedMessage.unwrap(message));
+                if (timeIndex != null) {
+                    timeIndex.record(timelineID, sequenceID, request.getRowChange());
+                }
+                if (messageIndex != null && message.getMessageID() != null) {
+                    // 索引写入完成后再返回，write返回后就可以按消息ID读到这条消息。
+                    messageIndex.put(timelineID, message.getMessageID(), sequenceID, new Runnable() {
+                        @Override
+                        public void run() {
+                            completeWrite(timelineID, message, callback, future, timelineEntry, start, call);
+                        }
+                    });
+                } else {
+                    completeWrite(timelineID, message, callback, future, timelineEntry, start, call);
+                }
             }
 
             @Override
             public void onFailed(PutRowRequest putRowRequest, Exception e) {
-                e = createException(e, timelineID, "write");
-
-                callback.onFailed(timelineID, message, e);
+                final Exception exception = createException(e, timelineID, "write");
+                metrics.write.recordFailure(exception);
+                interceptors.complete(call, exception);
+                future.fail(exception);
+
+                if (callback != null) {
+                    Runnable task = new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onFailed(timelineID, message, exception);
+                        }
+                    };
+                    callbacks.dispatch(task, future, task);
+                }
             }
         };
 
-        final Future<PutRowResponse> future = tableStore.putRow(request, tablestoreCallback);
-        return new Future<TimelineEntry>() {
-            @Override
-            public boolean cancel(boolean mayInterruptIfRunning) {
-                return future.cancel(mayInterruptIfRunning);
-            }
-
-            @Override
-            public boolean isCancelled() {
-                return future.isCancelled();
-            }
+        tableStore.putRow(request, tablestoreCallback);
+        return future;
+    }
 
-            @Override
-            public boolean isDone() {
-                return future.isDone();
-            }
+    private void completeWrite(final String timelineID, final IMessage message, final TimelineCallback<IMessage> callback,
+                               TimelineEntryFuture future, final TimelineEntry timelineEntry, long start,
+                               TimelineInterceptorChain.Call call) {
+        metrics.write.recordSuccess(start);
+        interceptors.complete(call, null);
+        // 先加入待清理集合再完成Future，同步写入返回时Timeline已经在待清理集合中。
+        if (retention != null) {
+            retention.touch(timelineID);
+        }
+        future.complete(timelineEntry);
 
-            @Override
-            public TimelineEntry get() throws InterruptedException, ExecutionException {
-                try {
-                    PutRowResponse response = future.get();
-                    return Utils.toTimelineEntry(response, message);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "write");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
-                            "Drop store failed, reason:" + ex.getMessage(), ex);
+        if (callback != null) {
+            callbacks.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onCompleted(timelineID, message, timelineEntry);
                 }
-            }
-
-            @Override
-            public TimelineEntry get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-                try {
-                    PutRowResponse response = future.get(timeout, unit);
-                    return Utils.toTimelineEntry(response, message);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "write");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
-                            "Drop store failed, reason:" + ex.getMessage(), ex);
+            }, future, new Runnable() {
+                @Override
+                public void run() {
+                    callback.onFailed(timelineID, message, createRejectedException());
                 }
-            }
-        };
+            });
+        }
     }
 
-    private TimelineException handleTableStoreException(TableStoreException ex, String timelineID, String type) {
+    /**
+     * 回调线程池丢弃回调时传给用户回调onFailed的异常，请求本身可能已经成功。
+     */
+    private static TimelineException createRejectedException() {
+        return new TimelineException(TimelineExceptionType.TET_ABORT,
+                "Callback executor rejected the callback, the request may have succeeded");
+    }
+
+    TimelineException handleTableStoreException(TableStoreException ex, String timelineID, String type) {
         if (ex.getErrorCode().equals("OTSObjectNotExist")) {
             return new TimelineException(TimelineExceptionType.TET_INVALID_USE,
                     "Store is not create, please create before " + type, ex);
@@ -421,6 +931,18 @@ public class DistributeTimelineStore implements IStore {
         }
     }
 
+    private TimelineException recordFailure(TimelineMetrics.OperationMetrics operation,
+                                            TimelineInterceptorChain.Call call, TimelineException ex) {
+        operation.recordFailure(ex);
+        interceptors.complete(call, ex);
+        return ex;
+    }
+
+    private long sequenceIDOf(GetRowRequest request) {
+        return request.getRowQueryCriteria().getPrimaryKey().
+                getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
+    }
+
     private Exception createException(Exception e, String timelineID, String type) {
         if (e instanceof TableStoreException) {
             TableStoreException ex = (TableStoreException)e;
@@ -0,0 +1,141 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.model.Column;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 预先编码的消息信封，用于把同一个消息写入多个Timeline（比如IM中的群消息扇出）。
+ * 构造时只序列化一次，写入DistributeTimelineStore时按列长度切分、计算crc32的结果也只计算一次，之后写入任意多个Timeline都复用同一份属性列。
+ * 它本身也是IMessage，所有写接口（write、batch、writeAsync、ShardedTimelineStore的扇出写）都可以直接使用，
+ * 返回的TimelineEntry中是原始消息，读取时按原始消息的类型反序列化。
+ * 构造后不要再修改原始消息，修改不会反映到已经编码的内容中。
+ */
+public class EncodedMessage implements IMessage {
+    private final IMessage message;
+    private final String messageID;
+    private final byte[] content;
+    private volatile Encoding encoding = null;
+
+    /**
+     * 消息信封的构造函数，会立即序列化消息。
+     * @param message   原始消息。
+     */
+    public EncodedMessage(IMessage message) {
+        if (message == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "EncodedMessage parameter message is null");
+        }
+        if (message instanceof EncodedMessage) {
+            message = ((EncodedMessage) message).getMessage();
+        }
+
+        this.message = message;
+        this.messageID = message.getMessageID();
+        this.content = message.serialize();
+    }
+
+    /**
+     * 获取原始消息。
+     * @return  原始消息。
+     */
+    public IMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * 获取序列化后的字节数。
+     * @return  字节数。
+     */
+    public int getSize() {
+        return content.length;
+    }
+
+    @Override
+    public String getMessageID() {
+        return messageID;
+    }
+
+    /**
+     * 消息ID在构造时已经确定，不能再修改。
+     */
+    @Override
+    public void setMessageID(String messageID) {
+        throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                "EncodedMessage does not support setMessageID");
+    }
+
+    @Override
+    public IMessage newInstance() {
+        return message.newInstance();
+    }
+
+    /**
+     * 返回构造时序列化的字节，所有调用共享同一个数组，调用方不能修改。
+     * @return  序列化后的字节。
+     */
+    @Override
+    public byte[] serialize() {
+        return content;
+    }
+
+    /**
+     * 消息信封只用于写入，不支持反序列化。
+     */
+    @Override
+    public void deserialize(byte[] input) {
+        throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                "EncodedMessage does not support deserialize");
+    }
+
+    /**
+     * 按配置的列长度、内容列前缀、crc32列和消息ID列切分的属性列，配置不变时直接复用上次的结果。
+     */
+    List<Column> getColumns(DistributeTimelineConfig config) {
+        Encoding current = encoding;
+        if (current == null || !current.matches(config)) {
+            current = new Encoding(config,
+                    Collections.unmodifiableList(Utils.toColumns(content, messageID, config)));
+            encoding = current;
+        }
+        return current.columns;
+    }
+
+    /**
+     * 如果是消息信封，返回其中的原始消息，否则原样返回。
+     */
+    static IMessage unwrap(IMessage message) {
+        if (message instanceof EncodedMessage) {
+            return ((EncodedMessage) message).getMessage();
+        }
+        return message;
+    }
+
+    private static class Encoding {
+        private final int columnMaxLength;
+        private final String messageContentPrefix;
+        private final String columnNameOfMessageCrc32;
+        private final String messageIDColumnName;
+        private final List<Column> columns;
+
+        Encoding(DistributeTimelineConfig config, List<Column> columns) {
+            this.columnMaxLength = config.getColumnMaxLength();
+            this.messageContentPrefix = config.getMessageContentPrefix();
+            this.columnNameOfMessageCrc32 = config.getColumnNameOfMessageCrc32();
+            this.messageIDColumnName = config.getMessageIDColumnName();
+            this.columns = columns;
+        }
+
+        boolean matches(DistributeTimelineConfig config) {
+            return columnMaxLength == config.getColumnMaxLength()
+                    && equals(messageContentPrefix, config.getMessageContentPrefix())
+                    && equals(columnNameOfMessageCrc32, config.getColumnNameOfMessageCrc32())
+                    && equals(messageIDColumnName, config.getMessageIDColumnName());
+        }
+
+        private static boolean equals(String left, String right) {
+            return left == null ? right == null : left.equals(right);
+        }
+    }
+}
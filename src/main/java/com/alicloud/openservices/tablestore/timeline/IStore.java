@@ -1,7 +1,10 @@
 package com.alicloud.openservices.tablestore.timeline;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 /**
@@ -21,11 +24,48 @@ public interface IStore extends Closeable {
      * 批量写入接口，性能相对于Write更好。
      * 在实现中，由于是等到一定数据量或者一定时间后才会统一提交，所以batch接口调用完成后并不一定写入成功。
      * 在程序结束的时候，需要调用close()接口flush buffer中剩余未提交的数据。
+     * batch写入时拿不到服务端生成的顺序ID，所以DistributeTimelineStore不会为batch写入的消息维护消息ID索引，readByMessageID读不到这些消息。
      * @param timelineID    需要写入的Timeline的ID
      * @param message       需要写入的消息体
      */
     void batch(String timelineID, IMessage message);
 
+    /**
+     * 写一条已经编码好的消息到特定Timeline中，等价于write(timelineID, new RawMessage(messageID, content))。
+     * 消息字节不会被复制也不会再次序列化，调用完成前不能修改。
+     * @param timelineID   需要写入的Timeline的ID
+     * @param messageID    消息ID
+     * @param content      消息字节
+     * @return             写入成功的消息，包括顺序ID，其中的消息是RawMessage
+     */
+    TimelineEntry write(String timelineID, String messageID, byte[] content);
+
+    /**
+     * 写一条已经编码好的消息到特定Timeline中，使用content中position到limit之间的字节，不会改变position。
+     * @param timelineID   需要写入的Timeline的ID
+     * @param messageID    消息ID
+     * @param content      消息字节
+     * @return             写入成功的消息，包括顺序ID，其中的消息是RawMessage
+     */
+    TimelineEntry write(String timelineID, String messageID, ByteBuffer content);
+
+    /**
+     * 批量写入一条已经编码好的消息，等价于batch(timelineID, new RawMessage(messageID, content))。
+     * 消息字节不会被复制，在数据提交（或者close()）之前不能修改。
+     * @param timelineID    需要写入的Timeline的ID
+     * @param messageID     消息ID
+     * @param content       消息字节
+     */
+    void batch(String timelineID, String messageID, byte[] content);
+
+    /**
+     * 批量写入一条已经编码好的消息，使用content中position到limit之间的字节，不会改变position。
+     * @param timelineID    需要写入的Timeline的ID
+     * @param messageID     消息ID
+     * @param content       消息字节
+     */
+    void batch(String timelineID, String messageID, ByteBuffer content);
+
     /**
      * 异步写一条消息到特定Timeline中
      * @param timelineID   需要写入的Timeline的ID
@@ -39,7 +79,7 @@ public interface IStore extends Closeable {
      * 同步读取一个Timeline实体
      * @param timelineID     需要读取的Timeline的ID
      * @param sequenceID     需要读取的消息的顺序ID
-     * @return               读取到的Timeline实体
+     * @return               读取到的Timeline实体，消息不存在时返回null
      */
     TimelineEntry read(String timelineID, Long sequenceID);
 
@@ -52,15 +92,51 @@ public interface IStore extends Closeable {
      */
     Future<TimelineEntry> readAsync(String timelineID, Long sequenceID, TimelineCallback<Long> callback);
 
+    /**
+     * 按客户端生成的消息ID读取一个Timeline实体，用于撤回、编辑或确认某条消息。
+     * DistributeTimelineStore中通过batch写入的消息没有消息ID索引，读取时返回null。
+     * @param timelineID     需要读取的Timeline的ID
+     * @param messageID      消息ID
+     * @return               读取到的Timeline实体，不存在时返回null
+     */
+    TimelineEntry readByMessageID(String timelineID, String messageID);
+
+    /**
+     * 按消息ID批量读取同一个Timeline中的多个实体。
+     * DistributeTimelineStore中通过batch写入的消息没有消息ID索引，不会出现在结果中。
+     * @param timelineID     需要读取的Timeline的ID
+     * @param messageIDs     消息ID
+     * @return               消息ID到Timeline实体的映射，按传入的顺序排列，不包含不存在的消息
+     */
+    Map<String, TimelineEntry> readByMessageIDs(String timelineID, Collection<String> messageIDs);
+
     /**
      * 读取固定数量的Timeline实体。对于不同的Timeline模型，读取的参数有差异。
      * 比如IM中读取历史消息，是逆序读，但是读取最新的同步消息是正序读。
      * @param timelineID     对应的Timeline ID，一般是用户ID，或群组ID
-     * @param parameter      范围读取的参数对象，包括：direction、from、to和maxCount
-     * @return               TimelineEntry的迭代器
+     * @param parameter      范围读取的参数对象，包括：direction、from、to和maxCount，设置raw()时返回RawMessage
+     * @return               TimelineEntry的迭代器，实现了Closeable时，没有读完就结束读取应调用close释放当前页和取消正在进行的读取
      */
     Iterator<TimelineEntry> scan(String timelineID, ScanParameter parameter);
 
+    /**
+     * 删除Timeline中顺序ID在[fromSequenceID, toSequenceID)范围内的消息，在后台执行，立即返回。
+     * 删除过程中只读取主键，按批并发删除，可以通过返回的任务查看进度；任务中断后，
+     * 用delete(timelineID, job.getCheckpoint(), toSequenceID)从断点继续删除。
+     * @param timelineID        需要删除的Timeline的ID
+     * @param fromSequenceID    起始顺序ID（包含）
+     * @param toSequenceID      结束顺序ID（不包含）
+     * @return                  删除任务，get返回删除的行数
+     */
+    TimelineDeleteJob delete(String timelineID, long fromSequenceID, long toSequenceID);
+
+    /**
+     * 删除Timeline中的所有消息，等价于delete(timelineID, 0, Long.MAX_VALUE)。
+     * @param timelineID        需要删除的Timeline的ID
+     * @return                  删除任务，get返回删除的行数
+     */
+    TimelineDeleteJob deleteTimeline(String timelineID);
+
     /**
      * 创建store涉及到的资源，比如创建存储或同步系统中的表等，创建前必须判断是否已经存在。
      */
@@ -0,0 +1,235 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * 给任意IStore加上拦截器的装饰类，用于LocalTimelineStore、TieredTimelineStore、ShardedTimelineStore等没有内置拦截器的Store。
+ * DistributeTimelineStore可以直接通过DistributeTimelineConfig.addInterceptor注册拦截器，它能拦截到每一页范围读取。
+ * 这里只能拦截scan调用本身，后续翻页由被装饰的Store完成，不会再调用拦截器。
+ * write和batch的payloadSize是消息序列化后的大小，read的payloadSize未知，为-1。
+ */
+public class InterceptingTimelineStore implements IStore {
+    private final IStore store;
+    private final TimelineInterceptorChain interceptors;
+
+    /**
+     * InterceptingTimelineStore的构造函数。
+     * @param store         被装饰的Store。
+     * @param interceptors  拦截器列表，按顺序调用onStart，按相反顺序调用onComplete。
+     */
+    public InterceptingTimelineStore(IStore store, List<TimelineInterceptor> interceptors) {
+        if (store == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "InterceptingTimelineStore parameter store is null");
+        }
+
+        this.store = store;
+        this.interceptors = new TimelineInterceptorChain(interceptors);
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, IMessage message) {
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.WRITE, timelineID, sizeOf(message));
+        TimelineEntry entry;
+        try {
+            entry = store.write(timelineID, message);
+        } catch (RuntimeException ex) {
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+        interceptors.complete(call, null);
+        return entry;
+    }
+
+    @Override
+    public void batch(String timelineID, IMessage message) {
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.BATCH, timelineID, sizeOf(message));
+        try {
+            store.batch(timelineID, message);
+        } catch (RuntimeException ex) {
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+        interceptors.complete(call, null);
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, byte[] content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, ByteBuffer content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, byte[] content) {
+        batch(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, ByteBuffer content) {
+        batch(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public Future<TimelineEntry> writeAsync(String timelineID, IMessage message,
+                                            final TimelineCallback<IMessage> callback) {
+        final TimelineInterceptorChain.Call call =
+                interceptors.start(TimelineOperation.WRITE, timelineID, sizeOf(message));
+        try {
+            return store.writeAsync(timelineID, message, new TimelineCallback<IMessage>() {
+                @Override
+                public void onCompleted(String timelineID, IMessage request, TimelineEntry timelineEntry) {
+                    interceptors.complete(call, null);
+                    if (callback != null) {
+                        callback.onCompleted(timelineID, request, timelineEntry);
+                    }
+                }
+
+                @Override
+                public void onFailed(String timelineID, IMessage request, Exception ex) {
+                    interceptors.complete(call, ex);
+                    if (callback != null) {
+                        callback.onFailed(timelineID, request, ex);
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public TimelineEntry read(String timelineID, Long sequenceID) {
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.READ, timelineID, -1);
+        TimelineEntry entry;
+        try {
+            entry = store.read(timelineID, sequenceID);
+        } catch (RuntimeException ex) {
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+        interceptors.complete(call, null);
+        return entry;
+    }
+
+    @Override
+    public Future<TimelineEntry> readAsync(String timelineID, Long sequenceID,
+                                           final TimelineCallback<Long> callback) {
+        final TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.READ, timelineID, -1);
+        try {
+            return store.readAsync(timelineID, sequenceID, new TimelineCallback<Long>() {
+                @Override
+                public void onCompleted(String timelineID, Long request, TimelineEntry timelineEntry) {
+                    interceptors.complete(call, null);
+                    if (callback != null) {
+                        callback.onCompleted(timelineID, request, timelineEntry);
+                    }
+                }
+
+                @Override
+                public void onFailed(String timelineID, Long request, Exception ex) {
+                    interceptors.complete(call, ex);
+                    if (callback != null) {
+                        callback.onFailed(timelineID, request, ex);
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public Iterator<TimelineEntry> scan(String timelineID, ScanParameter parameter) {
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.SCAN_PAGE, timelineID, -1);
+        Iterator<TimelineEntry> iterator;
+        try {
+            iterator = store.scan(timelineID, parameter);
+        } catch (RuntimeException ex) {
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+        interceptors.complete(call, null);
+        return iterator;
+    }
+
+    @Override
+    public TimelineEntry readByMessageID(String timelineID, String messageID) {
+        return store.readByMessageID(timelineID, messageID);
+    }
+
+    @Override
+    public Map<String, TimelineEntry> readByMessageIDs(String timelineID, Collection<String> messageIDs) {
+        return store.readByMessageIDs(timelineID, messageIDs);
+    }
+
+    @Override
+    public TimelineDeleteJob delete(String timelineID, long fromSequenceID, long toSequenceID) {
+        return store.delete(timelineID, fromSequenceID, toSequenceID);
+    }
+
+    @Override
+    public TimelineDeleteJob deleteTimeline(String timelineID) {
+        return store.deleteTimeline(timelineID);
+    }
+
+    @Override
+    public void create() {
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.CREATE, null, -1);
+        try {
+            store.create();
+        } catch (RuntimeException ex) {
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+        interceptors.complete(call, null);
+    }
+
+    @Override
+    public void drop() {
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.DROP, null, -1);
+        try {
+            store.drop();
+        } catch (RuntimeException ex) {
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+        interceptors.complete(call, null);
+    }
+
+    @Override
+    public boolean exist() {
+        TimelineInterceptorChain.Call call = interceptors.start(TimelineOperation.EXIST, null, -1);
+        boolean exist;
+        try {
+            exist = store.exist();
+        } catch (RuntimeException ex) {
+            interceptors.complete(call, ex);
+            throw ex;
+        }
+        interceptors.complete(call, null);
+        return exist;
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private long sizeOf(IMessage message) {
+        if (interceptors.isEmpty() || message == null) {
+            return -1;
+        }
+        return message.serialize().length;
+    }
+}
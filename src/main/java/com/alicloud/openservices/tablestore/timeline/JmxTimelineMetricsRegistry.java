@@ -0,0 +1,122 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把指标注册为JMX MBean，ObjectName是com.alicloud.openservices.tablestore.timeline:type=TimelineMetrics,name="实例名/表名"。
+ * 每个指标是一个只读属性，属性名和TimelineMetrics.snapshot的key一致，可以用jconsole或JMX exporter采集。
+ */
+public class JmxTimelineMetricsRegistry implements TimelineMetricsRegistry {
+    private final static String DOMAIN = "com.alicloud.openservices.tablestore.timeline";
+
+    private Logger logger = LoggerFactory.getLogger(JmxTimelineMetricsRegistry.class);
+    private final MBeanServer server;
+
+    /**
+     * JmxTimelineMetricsRegistry的构造函数，使用平台MBeanServer。
+     */
+    public JmxTimelineMetricsRegistry() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * JmxTimelineMetricsRegistry的构造函数。
+     * @param server    MBeanServer。
+     */
+    public JmxTimelineMetricsRegistry(MBeanServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void register(TimelineMetrics metrics) {
+        try {
+            server.registerMBean(new MetricsMBean(metrics), objectName(metrics));
+        } catch (InstanceAlreadyExistsException ex) {
+            logger.warn("Metrics {} has been registered, skip.", metrics.getName());
+        } catch (JMException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Register metrics failed, reason:" + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void unregister(TimelineMetrics metrics) {
+        try {
+            server.unregisterMBean(objectName(metrics));
+        } catch (InstanceNotFoundException ex) {
+            logger.warn("Metrics {} has not been registered, skip.", metrics.getName());
+        } catch (JMException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Unregister metrics failed, reason:" + ex.getMessage(), ex);
+        }
+    }
+
+    static ObjectName objectName(TimelineMetrics metrics) throws MalformedObjectNameException {
+        return new ObjectName(DOMAIN + ":type=TimelineMetrics,name=" + ObjectName.quote(metrics.getName()));
+    }
+
+    private static class MetricsMBean implements DynamicMBean {
+        private final TimelineMetrics metrics;
+        private final MBeanInfo info;
+
+        MetricsMBean(TimelineMetrics metrics) {
+            this.metrics = metrics;
+
+            List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+            for (Map.Entry<String, Number> entry : metrics.snapshot().entrySet()) {
+                attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                        entry.getKey(), true, false, false));
+            }
+            this.info = new MBeanInfo(TimelineMetrics.class.getName(), "Timeline store metrics",
+                    attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Number value = metrics.snapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Number> snapshot = metrics.snapshot();
+            AttributeList result = new AttributeList();
+            for (String attribute : attributes) {
+                if (snapshot.containsKey(attribute)) {
+                    result.add(new Attribute(attribute, snapshot.get(attribute)));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read only:" + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            return info;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * 本地Store的配置文件。
+ * 本地Store将消息追加写入本地磁盘上的内存映射段文件（segment），不依赖网络，适用于边缘网关、离线客户端等场景。
+ */
+public class LocalTimelineConfig {
+    /**
+     * 存放段文件和索引快照的目录。
+     */
+    private String directory = null;
+
+    /**
+     * 单个段文件的大小，单位是字节。段文件写满后会切换到新的段文件。默认64MB。
+     */
+    private int segmentSize = 64 * 1024 * 1024;
+
+    /**
+     * 每个Timeline的稀疏索引间隔，即每写入多少条消息记录一个索引点。
+     * 间隔越小，按顺序ID查找越快，但索引占用的内存越大。
+     */
+    private int indexInterval = 16;
+
+    /**
+     * 数据的Time To Live，单位是秒，语义和DistributeTimelineConfig.getTtl()一致。如果希望永久保存，则设置为-1即可。
+     * 过期的消息读取不到，所有消息都已过期的段文件会被整体删除。
+     */
+    private int ttl = -1;
+
+    /**
+     * 是否每次写入后都将段文件刷到磁盘。开启后更可靠，但是写入性能会明显下降。
+     */
+    private boolean forceOnWrite = false;
+
+    /**
+     * 消息构造类。
+     */
+    private IMessage messageInstance = new StringMessage();
+
+    /**
+     * LocalTimelineConfig的构造函数。
+     * @param directory     存放段文件的目录。
+     */
+    public LocalTimelineConfig(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 获取存放段文件的目录。
+     * @return  目录。
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 设置存放段文件的目录。
+     * @param directory 目录。
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 获取单个段文件的大小。
+     * @return  段文件大小，单位是字节。
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * 设置单个段文件的大小。
+     * @param segmentSize   段文件大小，单位是字节。
+     */
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * 获取稀疏索引间隔。
+     * @return  稀疏索引间隔。
+     */
+    public int getIndexInterval() {
+        return indexInterval;
+    }
+
+    /**
+     * 设置稀疏索引间隔。
+     * @param indexInterval 稀疏索引间隔。
+     */
+    public void setIndexInterval(int indexInterval) {
+        this.indexInterval = indexInterval;
+    }
+
+    /**
+     * 获取数据的TTL（Time-To-Live）。
+     * @return  数据的TTL。
+     */
+    public int getTtl() {
+        return ttl;
+    }
+
+    /**
+     * 设置数据的TTL（Time-To-Live）。
+     * @param ttl   数据的TTL。
+     */
+    public void setTtl(int ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * 是否每次写入后都刷盘。
+     * @return  true/false。
+     */
+    public boolean isForceOnWrite() {
+        return forceOnWrite;
+    }
+
+    /**
+     * 设置是否每次写入后都刷盘。
+     * @param forceOnWrite  是否每次写入后都刷盘。
+     */
+    public void setForceOnWrite(boolean forceOnWrite) {
+        this.forceOnWrite = forceOnWrite;
+    }
+
+    /**
+     * 获取消息类型的实例，用来在读取到消息的时候构造同类型消息。
+     * @return  消息实例。
+     */
+    public IMessage getMessageInstance() {
+        return messageInstance;
+    }
+
+    /**
+     * 设置消息类型的实例，用来在读取到消息的时候构造同类型消息。
+     * @param messageInstance 消息实例。
+     */
+    public void setMessageInstance(IMessage messageInstance) {
+        this.messageInstance = messageInstance;
+    }
+}
@@ -0,0 +1,120 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 本地Store中单个Timeline的稀疏索引。
+ * 每个Timeline的记录通过prevPointer串成一条反向链表，索引只记录链表尾和每隔indexInterval条记录的一个索引点，
+ * 查找某个顺序ID时，先二分找到第一个不小于它的索引点，再沿链表最多回溯indexInterval条记录。
+ */
+class LocalTimelineIndex {
+    private long lastSequenceID = 0;
+    private long tailPointer = LocalTimelineSegment.NULL_POINTER;
+    private long count = 0;
+
+    private long[] checkpointSequenceIDs = new long[4];
+    private long[] checkpointPointers = new long[4];
+    private int checkpointCount = 0;
+
+    synchronized long getLastSequenceID() {
+        return lastSequenceID;
+    }
+
+    synchronized long getTailPointer() {
+        return tailPointer;
+    }
+
+    /**
+     * 记录一条新追加的消息。
+     */
+    synchronized void append(long sequenceID, long pointer, int indexInterval) {
+        if (count % indexInterval == 0) {
+            if (checkpointCount == checkpointPointers.length) {
+                checkpointSequenceIDs = Arrays.copyOf(checkpointSequenceIDs, checkpointCount * 2);
+                checkpointPointers = Arrays.copyOf(checkpointPointers, checkpointCount * 2);
+            }
+            checkpointSequenceIDs[checkpointCount] = sequenceID;
+            checkpointPointers[checkpointCount] = pointer;
+            checkpointCount++;
+        }
+
+        count++;
+        lastSequenceID = sequenceID;
+        tailPointer = pointer;
+    }
+
+    /**
+     * 查找开始回溯的位置：第一个顺序ID不小于sequenceID的索引点，如果没有则从链表尾开始。
+     * @param sequenceID    目标顺序ID。
+     * @return              记录指针。
+     */
+    synchronized long locate(long sequenceID) {
+        int low = 0;
+        int high = checkpointCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (checkpointSequenceIDs[mid] < sequenceID) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low < checkpointCount ? checkpointPointers[low] : tailPointer;
+    }
+
+    /**
+     * 删除指向已过期段文件的索引点。
+     * @param minSegmentID  仍然存在的最小段文件ID。
+     * @return              如果整个Timeline都已过期返回true。
+     */
+    synchronized boolean expire(int minSegmentID) {
+        if (tailPointer == LocalTimelineSegment.NULL_POINTER
+                || LocalTimelineSegment.segmentOf(tailPointer) < minSegmentID) {
+            tailPointer = LocalTimelineSegment.NULL_POINTER;
+            checkpointCount = 0;
+            return true;
+        }
+
+        int expired = 0;
+        while (expired < checkpointCount
+                && LocalTimelineSegment.segmentOf(checkpointPointers[expired]) < minSegmentID) {
+            expired++;
+        }
+        if (expired > 0) {
+            System.arraycopy(checkpointSequenceIDs, expired, checkpointSequenceIDs, 0, checkpointCount - expired);
+            System.arraycopy(checkpointPointers, expired, checkpointPointers, 0, checkpointCount - expired);
+            checkpointCount -= expired;
+        }
+        return false;
+    }
+
+    synchronized void writeTo(DataOutput output) throws IOException {
+        output.writeLong(lastSequenceID);
+        output.writeLong(tailPointer);
+        output.writeLong(count);
+        output.writeInt(checkpointCount);
+        for (int i = 0; i < checkpointCount; i++) {
+            output.writeLong(checkpointSequenceIDs[i]);
+            output.writeLong(checkpointPointers[i]);
+        }
+    }
+
+    static LocalTimelineIndex readFrom(DataInput input) throws IOException {
+        LocalTimelineIndex index = new LocalTimelineIndex();
+        index.lastSequenceID = input.readLong();
+        index.tailPointer = input.readLong();
+        index.count = input.readLong();
+        index.checkpointCount = input.readInt();
+        int capacity = Math.max(4, index.checkpointCount);
+        index.checkpointSequenceIDs = new long[capacity];
+        index.checkpointPointers = new long[capacity];
+        for (int i = 0; i < index.checkpointCount; i++) {
+            index.checkpointSequenceIDs[i] = input.readLong();
+            index.checkpointPointers[i] = input.readLong();
+        }
+        return index;
+    }
+}
@@ -0,0 +1,166 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * LocalTimelineStore的迭代器，语义和DistributeTimelineIterator一致：包含from，不包含to，最多返回maxCount个。
+ * 逆序读沿着记录链表向前回溯即可；正序读每次从下一个索引点回溯一段（最多indexInterval条），反转后再返回。
+ * 指定了写入时间范围时按记录中的写入时间过滤。顺序ID不小于写入时间的微秒数，正序读从起始时间对应的顺序ID开始；
+ * 同一个Timeline的记录按写入时间排列，超出时间范围后就结束。
+ * close后释放已经读出的记录，hasNext返回false。
+ */
+class LocalTimelineIterator implements Iterator<TimelineEntry>, Closeable {
+    private final static int BATCH_SIZE = 100;
+
+    private final LocalTimelineStore store;
+    private final LocalTimelineIndex index;
+    private final ScanParameter parameter;
+    private final LinkedList<LocalTimelineSegment.Record> buffer = new LinkedList<LocalTimelineSegment.Record>();
+
+    private long nextFrom;
+    private long nextPointer;
+    private int remaining;
+    private boolean finished = false;
+
+    LocalTimelineIterator(LocalTimelineStore store, LocalTimelineIndex index, ScanParameter parameter) {
+        this.store = store;
+        this.index = index;
+        this.parameter = parameter;
+        this.remaining = parameter.getMaxCount();
+
+        if (index == null) {
+            finished = true;
+        } else if (parameter.isForward()) {
+            nextFrom = parameter.getFrom();
+            if (parameter.hasTimeRange()) {
+                nextFrom = Math.max(nextFrom, Math.min(parameter.getStartTime(), Long.MAX_VALUE / 1000) * 1000);
+            }
+        } else {
+            nextPointer = index.locate(parameter.getFrom());
+        }
+    }
+
+    /**
+     * 判断是否还有下一条有效TimelineEntry。
+     * @return  true/false
+     */
+    @Override
+    public boolean hasNext() {
+        if (remaining <= 0) {
+            return false;
+        }
+
+        while (buffer.isEmpty() && !finished) {
+            if (parameter.isForward()) {
+                fillForward();
+            } else {
+                fillBackward();
+            }
+        }
+        return !buffer.isEmpty();
+    }
+
+    /**
+     * 获取下一条TimelineEntry。
+     * @return      下一条TimelineEntry。
+     */
+    @Override
+    public TimelineEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        remaining--;
+        return store.toTimelineEntry(buffer.removeFirst(), parameter.isRaw());
+    }
+
+    /**
+     * 删除当前TimelineEntry。
+     * 当前不支持，会抛出异常。
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("LocalTimelineIterator does not support remove");
+    }
+
+    /**
+     * 结束读取，可以重复调用。
+     */
+    @Override
+    public void close() {
+        finished = true;
+        remaining = 0;
+        buffer.clear();
+    }
+
+    private void fillForward() {
+        if (nextFrom >= parameter.getTo()) {
+            finished = true;
+            return;
+        }
+
+        LinkedList<LocalTimelineSegment.Record> chunk = new LinkedList<LocalTimelineSegment.Record>();
+        long pointer = index.locate(nextFrom);
+        while (pointer != LocalTimelineSegment.NULL_POINTER) {
+            LocalTimelineSegment.Record record = store.readRecord(pointer, false);
+            if (record == null || record.sequenceID < nextFrom) {
+                break;
+            }
+            chunk.addFirst(record);
+            pointer = record.prevPointer;
+        }
+
+        if (chunk.isEmpty()) {
+            finished = true;
+            return;
+        }
+
+        for (LocalTimelineSegment.Record record : chunk) {
+            if (record.sequenceID >= parameter.getTo()
+                    || (parameter.hasTimeRange() && record.timestamp >= parameter.getEndTime())) {
+                finished = true;
+                break;
+            }
+            if (!store.isExpired(record) && inTimeRange(record)) {
+                buffer.add(store.readRecord(record.pointer, true));
+            }
+        }
+        nextFrom = chunk.getLast().sequenceID + 1;
+    }
+
+    private void fillBackward() {
+        int count = 0;
+        while (count < Math.min(remaining, BATCH_SIZE)) {
+            if (nextPointer == LocalTimelineSegment.NULL_POINTER) {
+                finished = true;
+                return;
+            }
+
+            LocalTimelineSegment.Record record = store.readRecord(nextPointer, false);
+            if (record == null || record.sequenceID <= parameter.getTo() || store.isExpired(record)) {
+                // 同一个Timeline的记录按写入时间排列，遇到过期记录说明更早的记录也都已经过期。
+                finished = true;
+                return;
+            }
+
+            if (parameter.hasTimeRange() && record.timestamp < parameter.getStartTime()) {
+                finished = true;
+                return;
+            }
+
+            if (record.sequenceID <= parameter.getFrom() && inTimeRange(record)) {
+                buffer.add(store.readRecord(nextPointer, true));
+                count++;
+            }
+            nextPointer = record.prevPointer;
+        }
+    }
+
+    private boolean inTimeRange(LocalTimelineSegment.Record record) {
+        return !parameter.hasTimeRange()
+                || (record.timestamp >= parameter.getStartTime() && record.timestamp < parameter.getEndTime());
+    }
+}
@@ -0,0 +1,271 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * 本地Store的段文件，文件整体通过内存映射访问，只追加写入。
+ * 文件头是4字节的魔数，之后是连续的记录，每条记录的格式为：
+ * bodyLength(int) + crc32(int) + body，
+ * body为：prevPointer(long) + sequenceID(long) + timestamp(long) + timelineID + messageID + content。
+ * prevPointer指向同一个Timeline的上一条记录，用于在段文件内外按Timeline串联记录。
+ * bodyLength为0表示后面没有数据，因为新映射的文件内容全部为0。
+ */
+class LocalTimelineSegment {
+    final static int MAGIC = 0x544c5347;
+    final static int HEADER_SIZE = 4;
+    final static int RECORD_HEADER_SIZE = 8;
+    final static long NULL_POINTER = -1L;
+
+    private final int segmentID;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int position = HEADER_SIZE;
+    private volatile long lastTimestamp = 0;
+
+    /**
+     * 一条解析后的记录，仅在package内使用。
+     */
+    static class Record {
+        long pointer;
+        long prevPointer;
+        long sequenceID;
+        long timestamp;
+        String timelineID;
+        String messageID;
+        byte[] content;
+    }
+
+    private LocalTimelineSegment(int segmentID, File file, RandomAccessFile randomAccessFile,
+                                 MappedByteBuffer buffer) {
+        this.segmentID = segmentID;
+        this.file = file;
+        this.randomAccessFile = randomAccessFile;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    /**
+     * 创建一个新的段文件。
+     */
+    static LocalTimelineSegment create(File file, int segmentID, int segmentSize) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.putInt(0, MAGIC);
+        return new LocalTimelineSegment(segmentID, file, raf, buffer);
+    }
+
+    /**
+     * 打开一个已经存在的段文件，写入位置需要通过recover确定。
+     */
+    static LocalTimelineSegment open(File file, int segmentID) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            raf.close();
+            throw new IOException("Invalid segment file: " + file.getPath());
+        }
+        return new LocalTimelineSegment(segmentID, file, raf, buffer);
+    }
+
+    static long toPointer(int segmentID, int position) {
+        return ((long) segmentID << 32) | (position & 0xffffffffL);
+    }
+
+    static int segmentOf(long pointer) {
+        return (int) (pointer >>> 32);
+    }
+
+    static int positionOf(long pointer) {
+        return (int) pointer;
+    }
+
+    /**
+     * 计算一条记录占用的字节数。
+     */
+    static int recordSize(byte[] timelineID, byte[] messageID, int contentLength) {
+        return RECORD_HEADER_SIZE + 8 + 8 + 8
+                + 2 + timelineID.length
+                + 2 + (messageID == null ? 0 : messageID.length)
+                + contentLength;
+    }
+
+    int getSegmentID() {
+        return segmentID;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    boolean hasRoom(int recordSize) {
+        return position + recordSize <= capacity;
+    }
+
+    /**
+     * 追加一条记录，调用方需要保证已经持有写锁并且剩余空间足够。
+     * @return  记录的指针。
+     */
+    long append(long prevPointer, long sequenceID, long timestamp, byte[] timelineID, byte[] messageID, byte[] content) {
+        int size = recordSize(timelineID, messageID, content.length);
+        int bodyLength = size - RECORD_HEADER_SIZE;
+        int start = position;
+
+        // crc32直接在写入的源数组上计算，不再从映射内存中拷贝一遍消息体。
+        byte[] fields = new byte[8 + 8 + 8 + 2];
+        ByteBuffer.wrap(fields).putLong(prevPointer).putLong(sequenceID).putLong(timestamp)
+                .putShort((short) timelineID.length);
+        byte[] messageIDLength = new byte[2];
+        ByteBuffer.wrap(messageIDLength).putShort((short) (messageID == null ? -1 : messageID.length));
+
+        ByteBuffer body = buffer.duplicate();
+        body.position(start + RECORD_HEADER_SIZE);
+        CRC32 crc32 = new CRC32();
+        put(body, crc32, fields);
+        put(body, crc32, timelineID);
+        put(body, crc32, messageIDLength);
+        if (messageID != null) {
+            put(body, crc32, messageID);
+        }
+        put(body, crc32, content);
+
+        buffer.putInt(start + 4, (int) crc32.getValue());
+        // 长度最后写入，长度不为0即表示记录完整可见。
+        buffer.putInt(start, bodyLength);
+
+        position = start + size;
+        lastTimestamp = timestamp;
+        return toPointer(segmentID, start);
+    }
+
+    /**
+     * 读取指定位置的记录。
+     * @param position      记录在段文件中的位置。
+     * @param withContent   是否需要读取消息内容。
+     * @return              记录，如果该位置没有合法的记录则返回null。
+     */
+    Record read(int position, boolean withContent) {
+        if (position < HEADER_SIZE || position + RECORD_HEADER_SIZE > capacity) {
+            return null;
+        }
+
+        int bodyLength = buffer.getInt(position);
+        if (bodyLength <= 0 || position + RECORD_HEADER_SIZE + bodyLength > capacity) {
+            return null;
+        }
+
+        ByteBuffer body = buffer.duplicate();
+        body.position(position + RECORD_HEADER_SIZE);
+        body.limit(position + RECORD_HEADER_SIZE + bodyLength);
+
+        Record record = new Record();
+        record.pointer = toPointer(segmentID, position);
+        record.prevPointer = body.getLong();
+        record.sequenceID = body.getLong();
+        record.timestamp = body.getLong();
+        record.timelineID = readString(body, body.getShort());
+        record.messageID = readString(body, body.getShort());
+        if (withContent) {
+            record.content = new byte[body.remaining()];
+            body.get(record.content);
+        }
+        return record;
+    }
+
+    /**
+     * 判断指定位置的记录是否完整，即长度合法并且crc32校验通过。
+     */
+    boolean isValid(int position) {
+        if (position < HEADER_SIZE || position + RECORD_HEADER_SIZE > capacity) {
+            return false;
+        }
+
+        int bodyLength = buffer.getInt(position);
+        if (bodyLength <= 0 || position + RECORD_HEADER_SIZE + bodyLength > capacity) {
+            return false;
+        }
+
+        return (int) crc32(position + RECORD_HEADER_SIZE, bodyLength) == buffer.getInt(position + 4);
+    }
+
+    /**
+     * 返回下一条记录的位置，调用方需要先通过isValid确认当前记录完整。
+     */
+    int next(int position) {
+        return position + RECORD_HEADER_SIZE + buffer.getInt(position);
+    }
+
+    /**
+     * 截断段文件，将end之后的残留数据清零，并把写入位置设置为end。用于崩溃恢复。
+     */
+    void truncate(int end) {
+        for (int i = end; i < capacity && i < end + RECORD_HEADER_SIZE; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        position = end;
+    }
+
+    void setLastTimestamp(long lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        buffer.force();
+        randomAccessFile.close();
+    }
+
+    private static void put(ByteBuffer body, CRC32 crc32, byte[] bytes) {
+        body.put(bytes);
+        crc32.update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 计算映射内存中一段数据的crc32，只在恢复时校验记录使用，分块拷贝以免为大消息分配整块数组。
+     */
+    private long crc32(int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        byte[] chunk = new byte[Math.min(length, 4096)];
+        CRC32 crc32 = new CRC32();
+        while (view.hasRemaining()) {
+            int n = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, n);
+            crc32.update(chunk, 0, n);
+        }
+        return crc32.getValue();
+    }
+
+    private static String readString(ByteBuffer body, short length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_ABORT, "UTF-8 is not supported", ex);
+        }
+    }
+}
@@ -0,0 +1,637 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 基于本地内存映射段文件的存储层实现，不依赖网络。
+ * 所有Timeline的消息按写入顺序追加到同一组段文件中，每个Timeline在内存中维护一个稀疏索引（LocalTimelineIndex）。
+ * 段文件写满时会被封存，并同时生成一份索引快照，重启时只需加载最新的快照并重放最后一个段文件即可恢复。
+ * 段文件只追加、按ttl整体过期，不支持delete和deleteTimeline。
+ */
+public class LocalTimelineStore implements IStore {
+    private final static String SEGMENT_SUFFIX = ".segment";
+    private final static String SNAPSHOT_SUFFIX = ".index";
+    private final static int SNAPSHOT_MAGIC = 0x544c4958;
+
+    private Logger logger = LoggerFactory.getLogger(LocalTimelineStore.class);
+
+    private LocalTimelineConfig config = null;
+    private File directory = null;
+
+    /**
+     * 写锁。段文件的IO在锁内进行，使用ReentrantLock而不是synchronized，虚拟线程在锁内阻塞时不会占住载体线程。
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ConcurrentMap<String, LocalTimelineIndex> indexes = new ConcurrentHashMap<String, LocalTimelineIndex>();
+    private final ConcurrentSkipListMap<Integer, LocalTimelineSegment> segments =
+            new ConcurrentSkipListMap<Integer, LocalTimelineSegment>();
+    private LocalTimelineSegment activeSegment = null;
+    private volatile boolean opened = false;
+
+    /**
+     * LocalTimelineStore的构造函数，如果目录已经存在，则会从目录中恢复数据。
+     * @param config    本地Store的配置参数。
+     */
+    public LocalTimelineStore(LocalTimelineConfig config) {
+        if (config.getDirectory() == null || config.getDirectory().isEmpty()) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "LocalTimelineConfig directory is null or empty");
+        }
+
+        if (config.getSegmentSize() <= LocalTimelineSegment.HEADER_SIZE || config.getIndexInterval() <= 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "LocalTimelineConfig segmentSize or indexInterval is invalid");
+        }
+
+        this.config = config;
+        this.directory = new File(config.getDirectory());
+
+        if (exist()) {
+            open();
+        }
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, IMessage message) {
+        checkOpened("write");
+
+        byte[] timelineIDBytes = toBytes(timelineID);
+        if (timelineIDBytes.length > Short.MAX_VALUE) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "TimelineID is too long, current:" + String.valueOf(timelineIDBytes.length));
+        }
+
+        byte[] messageIDBytes = message.getMessageID() == null ? null : toBytes(message.getMessageID());
+        if (messageIDBytes != null && messageIDBytes.length > Short.MAX_VALUE) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "MessageID is too long, current:" + String.valueOf(messageIDBytes.length));
+        }
+
+        byte[] content = message.serialize();
+        int size = LocalTimelineSegment.recordSize(timelineIDBytes, messageIDBytes, content.length);
+        if (size > config.getSegmentSize() - LocalTimelineSegment.HEADER_SIZE) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    String.format("Message Content must less than segment size, current:%s", String.valueOf(content.length)));
+        }
+
+        writeLock.lock();
+        try {
+            checkOpened("write");
+            if (!activeSegment.hasRoom(size)) {
+                roll();
+            }
+
+            LocalTimelineIndex index = indexes.get(timelineID);
+            if (index == null) {
+                index = new LocalTimelineIndex();
+                indexes.put(timelineID, index);
+            }
+
+            long now = System.currentTimeMillis();
+            // 和Table Store的自增列一样，顺序ID严格递增但不连续，Timeline过期被清理后再写入也不会回退。
+            long sequenceID = Math.max(index.getLastSequenceID() + 1, now * 1000);
+            long pointer = activeSegment.append(index.getTailPointer(), sequenceID, now,
+                    timelineIDBytes, messageIDBytes, content);
+            if (config.isForceOnWrite()) {
+                activeSegment.force();
+            }
+            index.append(sequenceID, pointer, config.getIndexInterval());
+            return new TimelineEntry(sequenceID, EncodedMessage.unwrap(message));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 本地Store没有网络请求可以合并，batch等同于write。
+     */
+    @Override
+    public void batch(String timelineID, IMessage message) {
+        write(timelineID, message);
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, byte[] content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, ByteBuffer content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, byte[] content) {
+        batch(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, ByteBuffer content) {
+        batch(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public Future<TimelineEntry> writeAsync(final String timelineID,
+                                            final IMessage message,
+                                            final TimelineCallback<IMessage> callback) {
+        FutureTask<TimelineEntry> task = new FutureTask<TimelineEntry>(new Callable<TimelineEntry>() {
+            @Override
+            public TimelineEntry call() throws Exception {
+                return write(timelineID, message);
+            }
+        });
+        task.run();
+
+        if (callback != null) {
+            TimelineEntry entry;
+            try {
+                entry = task.get();
+            } catch (Exception ex) {
+                callback.onFailed(timelineID, message, unwrap(ex));
+                return task;
+            }
+            callback.onCompleted(timelineID, message, entry);
+        }
+        return task;
+    }
+
+    @Override
+    public TimelineEntry read(String timelineID, Long sequenceID) {
+        checkOpened("read");
+
+        LocalTimelineIndex index = indexes.get(timelineID);
+        if (index == null) {
+            return null;
+        }
+
+        long pointer = index.locate(sequenceID);
+        while (pointer != LocalTimelineSegment.NULL_POINTER) {
+            LocalTimelineSegment.Record record = readRecord(pointer, false);
+            if (record == null || record.sequenceID < sequenceID) {
+                return null;
+            }
+
+            if (record.sequenceID == sequenceID) {
+                if (isExpired(record)) {
+                    return null;
+                }
+                return toTimelineEntry(readRecord(pointer, true), false);
+            }
+            pointer = record.prevPointer;
+        }
+        return null;
+    }
+
+    @Override
+    public Future<TimelineEntry> readAsync(final String timelineID,
+                                           final Long sequenceID,
+                                           final TimelineCallback<Long> callback) {
+        FutureTask<TimelineEntry> task = new FutureTask<TimelineEntry>(new Callable<TimelineEntry>() {
+            @Override
+            public TimelineEntry call() throws Exception {
+                return read(timelineID, sequenceID);
+            }
+        });
+        task.run();
+
+        if (callback != null) {
+            TimelineEntry entry;
+            try {
+                entry = task.get();
+            } catch (Exception ex) {
+                callback.onFailed(timelineID, sequenceID, unwrap(ex));
+                return task;
+            }
+            callback.onCompleted(timelineID, sequenceID, entry);
+        }
+        return task;
+    }
+
+    /**
+     * 本地Store不保存消息属性，不支持按属性过滤。
+     */
+    @Override
+    public Iterator<TimelineEntry> scan(String timelineID, ScanParameter parameter) {
+        checkOpened("scan");
+        if (parameter.getFilter() != null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "LocalTimelineStore does not support attribute filter");
+        }
+        return new LocalTimelineIterator(this, indexes.get(timelineID), parameter);
+    }
+
+    /**
+     * 本地Store没有消息ID索引，从最新的消息开始逆序扫描，找到后停止。
+     */
+    @Override
+    public TimelineEntry readByMessageID(String timelineID, String messageID) {
+        return readByMessageIDs(timelineID, Collections.singletonList(messageID)).get(messageID);
+    }
+
+    @Override
+    public Map<String, TimelineEntry> readByMessageIDs(String timelineID, Collection<String> messageIDs) {
+        checkOpened("readByMessageID");
+        Set<String> remaining = new HashSet<String>(messageIDs);
+        Map<String, TimelineEntry> found = new HashMap<String, TimelineEntry>();
+        ScanParameter parameter = ScanParameterBuilder.scanBackward()
+                .from(Long.MAX_VALUE).to(0).maxCount(Integer.MAX_VALUE).build();
+        Iterator<TimelineEntry> iterator = scan(timelineID, parameter);
+        while (!remaining.isEmpty() && iterator.hasNext()) {
+            TimelineEntry entry = iterator.next();
+            String messageID = entry.getMessage().getMessageID();
+            if (messageID != null && remaining.remove(messageID)) {
+                found.put(messageID, entry);
+            }
+        }
+
+        Map<String, TimelineEntry> result = new LinkedHashMap<String, TimelineEntry>();
+        for (String messageID : messageIDs) {
+            TimelineEntry entry = found.get(messageID);
+            if (entry != null) {
+                result.put(messageID, entry);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public TimelineDeleteJob delete(String timelineID, long fromSequenceID, long toSequenceID) {
+        throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                "LocalTimelineStore does not support delete, messages expire with ttl");
+    }
+
+    @Override
+    public TimelineDeleteJob deleteTimeline(String timelineID) {
+        return delete(timelineID, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public void create() {
+        if (exist()) {
+            logger.warn("Store has be created.");
+            return;
+        }
+
+        if (!directory.mkdirs()) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Create store failed, can not create directory:" + directory.getPath());
+        }
+        open();
+        logger.info("Create store {} succeeded.", directory.getPath());
+    }
+
+    @Override
+    public void drop() {
+        if (!exist()) {
+            logger.warn("Store has be drop.");
+            return;
+        }
+
+        close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    logger.warn("Delete file {} failed.", file.getPath());
+                }
+            }
+        }
+
+        if (!directory.delete()) {
+            throw new TimelineException(TimelineExceptionType.TET_UNKNOWN,
+                    "Drop store failed, can not delete directory:" + directory.getPath());
+        }
+        logger.info("Drop store {} succeeded.", directory.getPath());
+    }
+
+    @Override
+    public boolean exist() {
+        return directory.isDirectory();
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (!opened) {
+                return;
+            }
+
+            opened = false;
+            for (LocalTimelineSegment segment : segments.values()) {
+                try {
+                    segment.close();
+                } catch (IOException ex) {
+                    logger.warn("Close segment " + segment.getFile().getPath() + " failed", ex);
+                }
+            }
+            segments.clear();
+            indexes.clear();
+            activeSegment = null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 读取指针指向的记录，如果段文件已经过期删除，则返回null。
+     */
+    LocalTimelineSegment.Record readRecord(long pointer, boolean withContent) {
+        LocalTimelineSegment segment = segments.get(LocalTimelineSegment.segmentOf(pointer));
+        if (segment == null) {
+            return null;
+        }
+        return segment.read(LocalTimelineSegment.positionOf(pointer), withContent);
+    }
+
+    boolean isExpired(LocalTimelineSegment.Record record) {
+        return config.getTtl() > 0 && record.timestamp + config.getTtl() * 1000L < System.currentTimeMillis();
+    }
+
+    TimelineEntry toTimelineEntry(LocalTimelineSegment.Record record, boolean raw) {
+        if (raw) {
+            return new TimelineEntry(record.sequenceID, new RawMessage(record.messageID, record.content));
+        }
+
+        IMessage message = config.getMessageInstance().newInstance();
+        message.deserialize(record.content);
+        message.setMessageID(record.messageID);
+        return new TimelineEntry(record.sequenceID, message);
+    }
+
+    private void open() {
+        writeLock.lock();
+        try {
+            if (opened) {
+                return;
+            }
+
+            try {
+                Map<Integer, Long> segmentTimestamps = new HashMap<Integer, Long>();
+                int snapshotID = loadLatestSnapshot(segmentTimestamps);
+
+                for (File file : listFiles(SEGMENT_SUFFIX)) {
+                    int segmentID = idOf(file, SEGMENT_SUFFIX);
+                    LocalTimelineSegment segment = LocalTimelineSegment.open(file, segmentID);
+                    Long timestamp = segmentTimestamps.get(segmentID);
+                    if (timestamp != null) {
+                        segment.setLastTimestamp(timestamp);
+                    }
+                    segments.put(segmentID, segment);
+                }
+
+                if (segments.isEmpty()) {
+                    activeSegment = createSegment(0);
+                } else if (segments.lastKey() <= snapshotID) {
+                    // 最后一个段文件已经封存，崩溃发生在切换新段文件之前。
+                    activeSegment = createSegment(segments.lastKey() + 1);
+                } else {
+                    activeSegment = segments.lastEntry().getValue();
+                    for (LocalTimelineSegment segment : segments.values()) {
+                        if (segment.getSegmentID() > snapshotID) {
+                            replay(segment);
+                        }
+                    }
+                }
+                opened = true;
+                expire();
+            } catch (IOException ex) {
+                throw new TimelineException(TimelineExceptionType.TET_ABORT,
+                        "Open store failed, reason:" + ex.getMessage(), ex);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 重放段文件中的所有记录来重建索引，不完整的记录及其后的数据会被截断。
+     */
+    private void replay(LocalTimelineSegment segment) {
+        int position = LocalTimelineSegment.HEADER_SIZE;
+        int count = 0;
+        while (segment.isValid(position)) {
+            LocalTimelineSegment.Record record = segment.read(position, false);
+            LocalTimelineIndex index = indexes.get(record.timelineID);
+            if (index == null) {
+                index = new LocalTimelineIndex();
+                indexes.put(record.timelineID, index);
+            }
+            index.append(record.sequenceID, record.pointer, config.getIndexInterval());
+            segment.setLastTimestamp(record.timestamp);
+            position = segment.next(position);
+            count++;
+        }
+
+        if (segment == activeSegment) {
+            segment.truncate(position);
+        }
+        logger.info("Replay segment {} succeeded, record count:{}.", segment.getFile().getPath(), count);
+    }
+
+    /**
+     * 封存当前段文件，写入索引快照，然后切换到新的段文件。调用方需要持有写锁。
+     */
+    private void roll() {
+        LocalTimelineSegment sealed = activeSegment;
+        sealed.force();
+
+        try {
+            writeSnapshot(sealed.getSegmentID());
+            activeSegment = createSegment(sealed.getSegmentID() + 1);
+        } catch (IOException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_ABORT,
+                    "Roll segment failed, reason:" + ex.getMessage(), ex);
+        }
+        expire();
+    }
+
+    private LocalTimelineSegment createSegment(int segmentID) throws IOException {
+        File file = new File(directory, String.format("%010d%s", segmentID, SEGMENT_SUFFIX));
+        LocalTimelineSegment segment = LocalTimelineSegment.create(file, segmentID, config.getSegmentSize());
+        segments.put(segmentID, segment);
+        return segment;
+    }
+
+    /**
+     * 删除所有数据都已经超过TTL的段文件，同时清理指向这些段文件的索引。调用方需要持有写锁。
+     */
+    private void expire() {
+        if (config.getTtl() <= 0) {
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() - config.getTtl() * 1000L;
+        boolean expired = false;
+        for (LocalTimelineSegment segment : segments.values()) {
+            if (segment == activeSegment || segment.getLastTimestamp() >= deadline) {
+                break;
+            }
+
+            segments.remove(segment.getSegmentID());
+            try {
+                segment.close();
+            } catch (IOException ex) {
+                logger.warn("Close segment " + segment.getFile().getPath() + " failed", ex);
+            }
+            if (!segment.getFile().delete()) {
+                logger.warn("Delete expired segment {} failed.", segment.getFile().getPath());
+            }
+            expired = true;
+        }
+
+        if (expired) {
+            int minSegmentID = segments.firstKey();
+            Iterator<Map.Entry<String, LocalTimelineIndex>> iterator = indexes.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getValue().expire(minSegmentID)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void writeSnapshot(int segmentID) throws IOException {
+        File file = new File(directory, String.format("%010d%s", segmentID, SNAPSHOT_SUFFIX));
+        File temp = new File(directory, file.getName() + ".tmp");
+
+        CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)), new CRC32());
+        DataOutputStream output = new DataOutputStream(checked);
+        try {
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeInt(segments.size());
+            for (LocalTimelineSegment segment : segments.values()) {
+                output.writeInt(segment.getSegmentID());
+                output.writeLong(segment.getLastTimestamp());
+            }
+
+            output.writeInt(indexes.size());
+            for (Map.Entry<String, LocalTimelineIndex> entry : indexes.entrySet()) {
+                output.writeUTF(entry.getKey());
+                entry.getValue().writeTo(output);
+            }
+            output.flush();
+            output.writeLong(checked.getChecksum().getValue());
+        } finally {
+            output.close();
+        }
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Can not replace snapshot " + file.getPath());
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Can not rename snapshot " + temp.getPath());
+        }
+
+        for (File old : listFiles(SNAPSHOT_SUFFIX)) {
+            if (idOf(old, SNAPSHOT_SUFFIX) < segmentID && !old.delete()) {
+                logger.warn("Delete snapshot {} failed.", old.getPath());
+            }
+        }
+    }
+
+    /**
+     * 加载最新的一份完整快照。
+     * @return  快照对应的段文件ID，没有可用快照时返回-1。
+     */
+    private int loadLatestSnapshot(Map<Integer, Long> segmentTimestamps) {
+        List<File> files = listFiles(SNAPSHOT_SUFFIX);
+        for (int i = files.size() - 1; i >= 0; i--) {
+            File file = files.get(i);
+            Map<String, LocalTimelineIndex> loaded = new HashMap<String, LocalTimelineIndex>();
+            try {
+                CheckedInputStream checked = new CheckedInputStream(
+                        new BufferedInputStream(new FileInputStream(file)), new CRC32());
+                DataInputStream input = new DataInputStream(checked);
+                try {
+                    if (input.readInt() != SNAPSHOT_MAGIC) {
+                        throw new IOException("Invalid snapshot magic");
+                    }
+
+                    int segmentCount = input.readInt();
+                    for (int j = 0; j < segmentCount; j++) {
+                        int segmentID = input.readInt();
+                        segmentTimestamps.put(segmentID, input.readLong());
+                    }
+
+                    int indexCount = input.readInt();
+                    for (int j = 0; j < indexCount; j++) {
+                        String timelineID = input.readUTF();
+                        loaded.put(timelineID, LocalTimelineIndex.readFrom(input));
+                    }
+
+                    long expected = checked.getChecksum().getValue();
+                    if (input.readLong() != expected) {
+                        throw new IOException("Snapshot checksum mismatch");
+                    }
+                } finally {
+                    input.close();
+                }
+            } catch (IOException ex) {
+                logger.warn("Load snapshot " + file.getPath() + " failed, ignore it", ex);
+                segmentTimestamps.clear();
+                continue;
+            }
+
+            indexes.putAll(loaded);
+            return idOf(file, SNAPSHOT_SUFFIX);
+        }
+        return -1;
+    }
+
+    private List<File> listFiles(final String suffix) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(suffix);
+            }
+        });
+
+        List<File> result = files == null ? new ArrayList<File>() : new ArrayList<File>(Arrays.asList(files));
+        Collections.sort(result, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        return result;
+    }
+
+    private static int idOf(File file, String suffix) {
+        String name = file.getName();
+        return Integer.parseInt(name.substring(0, name.length() - suffix.length()));
+    }
+
+    private void checkOpened(String type) {
+        if (!opened) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Store is not create, please create before " + type);
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        try {
+            return value.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_ABORT, "UTF-8 is not supported", ex);
+        }
+    }
+
+    private static Exception unwrap(Exception ex) {
+        if (ex instanceof ExecutionException && ex.getCause() instanceof Exception) {
+            return (Exception) ex.getCause();
+        }
+        return ex;
+    }
+}
@@ -0,0 +1,92 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的对数线性直方图，用于记录延时和每页行数等非负整数。
+ * 小于16的值精确记录，更大的值按2的幂分段，每段再等分成8个桶，相对误差不超过12.5%。
+ * 记录只需要两次原子加法，读取分位数时遍历所有桶，读取期间的并发写入可能只有部分可见。
+ */
+class LogLinearHistogram {
+    private final static int SUB_BUCKET_BITS = 3;
+    private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private final static int LINEAR_COUNT = SUB_BUCKET_COUNT * 2;
+    private final static int BUCKET_COUNT = LINEAR_COUNT + (63 - 4) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final StripedCounter count = new StripedCounter();
+    private final StripedCounter sum = new StripedCounter();
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : 1.0 * sum.sum() / count;
+    }
+
+    /**
+     * 获取分位数，返回值所在桶的上界。
+     * @param percentile    百分位，取值范围(0, 100]。
+     * @return              分位数，没有数据时返回0。
+     */
+    long getValueAtPercentile(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKET_COUNT - 1);
+    }
+
+    long getMax() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (buckets.get(i) > 0) {
+                return upperBoundOf(i);
+            }
+        }
+        return 0;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_COUNT) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1));
+        return LINEAR_COUNT + (msb - 4) * SUB_BUCKET_COUNT + sub;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < LINEAR_COUNT) {
+            return index;
+        }
+        int msb = (index - LINEAR_COUNT) / SUB_BUCKET_COUNT + 4;
+        int sub = (index - LINEAR_COUNT) % SUB_BUCKET_COUNT;
+        long lower = (long) (SUB_BUCKET_COUNT + sub) << (msb - SUB_BUCKET_BITS);
+        return lower + (1L << (msb - SUB_BUCKET_BITS)) - 1;
+    }
+}
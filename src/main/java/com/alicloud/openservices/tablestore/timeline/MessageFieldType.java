@@ -0,0 +1,41 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * BinaryMessage字段的类型，决定字段的编码方式。
+ */
+public enum MessageFieldType {
+    /**
+     * 布尔值，varint编码，占1个字节。
+     */
+    BOOL(BinaryCodec.WIRE_VARINT),
+
+    /**
+     * 64位有符号整数，zigzag + varint编码，绝对值小的数占用字节少，可用于int、long、时间戳和枚举。
+     */
+    INT64(BinaryCodec.WIRE_VARINT),
+
+    /**
+     * 双精度浮点数，固定8个字节。
+     */
+    DOUBLE(BinaryCodec.WIRE_FIXED64),
+
+    /**
+     * 字符串，UTF-8编码，前面是varint编码的字节长度。
+     */
+    STRING(BinaryCodec.WIRE_LENGTH_DELIMITED),
+
+    /**
+     * 字节数组，前面是varint编码的长度。
+     */
+    BYTES(BinaryCodec.WIRE_LENGTH_DELIMITED);
+
+    private final int wireType;
+
+    MessageFieldType(int wireType) {
+        this.wireType = wireType;
+    }
+
+    int getWireType() {
+        return wireType;
+    }
+}
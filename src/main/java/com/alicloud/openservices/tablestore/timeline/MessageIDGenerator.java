@@ -0,0 +1,133 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁的64位消息ID生成器（Snowflake格式），DistinctMessage默认使用它生成消息ID。
+ * ID从高位到低位依次是：1位符号位（始终为0）、41位毫秒时间戳（从2019-01-01开始，可以使用69年）、10位节点ID、12位序号。
+ * 同一毫秒内序号用完时借用下一毫秒，系统时钟回拨时沿用上次的时间戳继续递增，所以同一个生成器生成的ID严格递增，不会重复。
+ * 节点ID默认由进程ID和本机IP的哈希得到，只有1024个取值，约38个进程时就有一半的概率出现相同的节点ID，
+ * 相同节点ID的进程在同一毫秒生成的ID会重复。多进程部署时请用setNodeID为每个进程分配不同的节点ID（比如从配置或者协调服务获取），
+ * 没有设置时第一次使用默认生成器会打印一条警告日志。
+ */
+public class MessageIDGenerator {
+    private static Logger logger = LoggerFactory.getLogger(MessageIDGenerator.class);
+
+    /**
+     * 时间戳的起点，2019-01-01 00:00:00 UTC。
+     */
+    public final static long EPOCH = 1546300800000L;
+
+    public final static int NODE_ID_BITS = 10;
+    public final static int SEQUENCE_BITS = 12;
+    public final static long MAX_NODE_ID = (1L << NODE_ID_BITS) - 1;
+
+    private final static long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static volatile MessageIDGenerator defaultGenerator = new MessageIDGenerator(defaultNodeID());
+
+    /**
+     * 是否调用过setNodeID，没有调用过时默认生成器使用哈希得到的节点ID。
+     */
+    private static volatile boolean nodeIDAssigned = false;
+    private final static AtomicBoolean warned = new AtomicBoolean(false);
+
+    private final long nodeID;
+
+    /**
+     * 上次生成的时间戳和序号，高位是相对EPOCH的时间戳，低SEQUENCE_BITS位是序号。
+     */
+    private final AtomicLong state = new AtomicLong(0);
+
+    /**
+     * 消息ID生成器的构造函数。
+     * @param nodeID    节点ID，范围是[0, MAX_NODE_ID]。
+     */
+    public MessageIDGenerator(long nodeID) {
+        if (nodeID < 0 || nodeID > MAX_NODE_ID) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "NodeID must be in [0, " + MAX_NODE_ID + "], current:" + nodeID);
+        }
+        this.nodeID = nodeID;
+    }
+
+    /**
+     * 获取DistinctMessage使用的默认生成器。
+     * @return  默认生成器。
+     */
+    public static MessageIDGenerator getDefault() {
+        MessageIDGenerator generator = defaultGenerator;
+        if (!nodeIDAssigned && warned.compareAndSet(false, true)) {
+            logger.warn("MessageIDGenerator node ID {} is a hash of the process ID and local IP and may collide with"
+                    + " other processes, call MessageIDGenerator.setNodeID to assign a unique node ID to each process.",
+                    generator.getNodeID());
+        }
+        return generator;
+    }
+
+    /**
+     * 设置默认生成器的节点ID，需要在生成消息之前调用。
+     * @param nodeID    节点ID，范围是[0, MAX_NODE_ID]。
+     */
+    public static void setNodeID(long nodeID) {
+        defaultGenerator = new MessageIDGenerator(nodeID);
+        nodeIDAssigned = true;
+    }
+
+    /**
+     * 获取节点ID。
+     * @return  节点ID。
+     */
+    public long getNodeID() {
+        return nodeID;
+    }
+
+    /**
+     * 生成下一个消息ID。
+     * @return  消息ID，始终是正数。
+     */
+    public long nextID() {
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_ID_BITS + SEQUENCE_BITS))
+                        | (nodeID << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 从消息ID中解析出生成时间。
+     * @param messageID     消息ID。
+     * @return              生成时间，单位毫秒。
+     */
+    public static long timestampOf(long messageID) {
+        return (messageID >>> (NODE_ID_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    /**
+     * 从消息ID中解析出节点ID。
+     * @param messageID     消息ID。
+     * @return              节点ID。
+     */
+    public static long nodeIDOf(long messageID) {
+        return (messageID >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    private static long defaultNodeID() {
+        String machine = Utils.getProcessID();
+        try {
+            machine += "@" + Utils.getLocalIP();
+        } catch (TimelineException ex) {
+            // 取不到本机IP时只用进程ID。
+        }
+        int hash = machine.hashCode();
+        return (hash ^ (hash >>> NODE_ID_BITS) ^ (hash >>> (2 * NODE_ID_BITS))) & MAX_NODE_ID;
+    }
+}
@@ -0,0 +1,181 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.ClientException;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * 消息ID索引表，主键是(加盐的Timeline ID, 消息ID)，属性列是顺序ID，用于按消息ID一次点查找到消息。
+ * 顺序ID由服务端自增生成，所以索引在消息写入成功、拿到顺序ID之后再写入，写入完成后write才返回。
+ * batch通过TableStoreWriter写入，回调中拿不到顺序ID，所以batch写入的消息没有索引；TimelineImporter导入时顺序ID已知，索引和消息在同一个BatchWriteRow中写入。
+ * 索引写入失败不会让write失败（消息已经写入，重试会产生重复消息），只记录messageIndex.failures指标。
+ * 索引表的TTL和消息表相同，过期的消息和索引一起被清理；delete和retention删除的消息，索引在TTL到期前仍然存在，
+ * 读取时会校验消息ID，不会返回错误的消息。
+ */
+class MessageIDIndex {
+    private static Logger logger = LoggerFactory.getLogger(MessageIDIndex.class);
+
+    private final DistributeTimelineStore store;
+    private final DistributeTimelineConfig config;
+    private final AsyncClientInterface client;
+    private final TimelineMetrics metrics;
+    private final String tableName;
+
+    MessageIDIndex(DistributeTimelineStore store, AsyncClientInterface client) {
+        this.store = store;
+        this.config = store.getConfig();
+        this.client = client;
+        this.metrics = store.getMetrics();
+        this.tableName = config.getMessageIDIndexTableName();
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    void create() {
+        TableMeta tableMeta = new TableMeta(tableName);
+        tableMeta.addPrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyType.STRING);
+        tableMeta.addPrimaryKeyColumn(config.getMessageIDColumnName(), PrimaryKeyType.STRING);
+
+        TableOptions tableOptions = new TableOptions();
+        tableOptions.setTimeToLive(config.getTtl());
+        tableOptions.setMaxVersions(1);
+        try {
+            TableStoreFuture<CreateTableRequest, CreateTableResponse> future =
+                    new TableStoreFuture<CreateTableRequest, CreateTableResponse>();
+            client.createTable(new CreateTableRequest(tableMeta, tableOptions), future);
+            Utils.await(future, "Create message ID index");
+            logger.info("Create message ID index {} succeeded.", tableName);
+        } catch (TableStoreException ex) {
+            if (ex.getErrorCode().equals("OTSObjectAlreadyExist")) {
+                logger.warn("Message ID index has be created.");
+            } else {
+                throw store.handleTableStoreException(ex, null, "create");
+            }
+        } catch (ClientException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Create message ID index failed, reason:" + ex.getMessage(), ex);
+        }
+    }
+
+    void drop() {
+        try {
+            TableStoreFuture<DeleteTableRequest, DeleteTableResponse> future =
+                    new TableStoreFuture<DeleteTableRequest, DeleteTableResponse>();
+            client.deleteTable(new DeleteTableRequest(tableName), future);
+            Utils.await(future, "Drop message ID index");
+            logger.info("Drop message ID index {} succeeded.", tableName);
+        } catch (TableStoreException ex) {
+            if (ex.getErrorCode().equals("OTSObjectNotExist")) {
+                logger.warn("Message ID index has be drop.");
+            } else {
+                throw store.handleTableStoreException(ex, null, "drop");
+            }
+        } catch (ClientException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Drop message ID index failed, reason:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 异步写入一条索引，成功或失败后都会在SDK的回调线程中执行done。
+     */
+    void put(final String timelineID, String messageID, long sequenceID, final Runnable done) {
+        PutRowRequest request = new PutRowRequest();
+        request.setRowChange(createRowChange(timelineID, messageID, sequenceID));
+
+        TableStoreCallback<PutRowRequest, PutRowResponse> callback = new TableStoreCallback<PutRowRequest, PutRowResponse>() {
+            @Override
+            public void onCompleted(PutRowRequest request, PutRowResponse response) {
+                done.run();
+            }
+
+            @Override
+            public void onFailed(PutRowRequest request, Exception e) {
+                metrics.recordMessageIndexFailure();
+                logger.warn("Write message ID index of timeline " + timelineID + " failed.", e);
+                done.run();
+            }
+        };
+
+        try {
+            client.putRow(request, callback);
+        } catch (RuntimeException ex) {
+            metrics.recordMessageIndexFailure();
+            logger.warn("Write message ID index of timeline " + timelineID + " failed.", ex);
+            done.run();
+        }
+    }
+
+    /**
+     * 创建一条索引的写入，用于顺序ID已知时和消息一起写入。
+     */
+    RowPutChange createRowChange(String timelineID, String messageID, long sequenceID) {
+        RowPutChange change = new RowPutChange(tableName, createPrimaryKey(timelineID, messageID));
+        change.addColumn(config.getSecondPKName(), ColumnValue.fromLong(sequenceID));
+        return change;
+    }
+
+    /**
+     * 查找消息ID对应的顺序ID。
+     * @return  顺序ID，索引中没有时返回null。
+     */
+    Long lookup(String timelineID, String messageID) {
+        SingleRowQueryCriteria criteria = new SingleRowQueryCriteria(tableName, createPrimaryKey(timelineID, messageID));
+        criteria.setMaxVersions(1);
+        GetRowResponse response;
+        try {
+            TableStoreFuture<GetRowRequest, GetRowResponse> future = new TableStoreFuture<GetRowRequest, GetRowResponse>();
+            client.getRow(new GetRowRequest(criteria), future);
+            response = Utils.await(future, "Read message ID index of timeline " + timelineID);
+        } catch (TableStoreException ex) {
+            throw store.handleTableStoreException(ex, timelineID, "readByMessageID");
+        }
+        return response.getRow() == null ? null : sequenceIDOf(response.getRow());
+    }
+
+    /**
+     * 批量查找消息ID对应的顺序ID。
+     * @return  消息ID到顺序ID的映射，不包含索引中没有的消息ID。
+     */
+    Map<String, Long> lookup(String timelineID, Collection<String> messageIDs) {
+        List<PrimaryKey> primaryKeys = new ArrayList<PrimaryKey>();
+        for (String messageID : new LinkedHashSet<String>(messageIDs)) {
+            primaryKeys.add(createPrimaryKey(timelineID, messageID));
+        }
+
+        Map<String, Long> sequenceIDs = new HashMap<String, Long>();
+        for (Row row : store.batchGetRows(timelineID, tableName, primaryKeys)) {
+            sequenceIDs.put(row.getPrimaryKey().getPrimaryKeyColumn(1).getValue().asString(), sequenceIDOf(row));
+        }
+        return sequenceIDs;
+    }
+
+    private PrimaryKey createPrimaryKey(String timelineID, String messageID) {
+        if (messageID == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, "Message ID is null");
+        }
+
+        String firstPKValue = Utils.saltTimelineID(timelineID, config.getTimelineIDSaltLength());
+        return PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                .addPrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(firstPKValue))
+                .addPrimaryKeyColumn(config.getMessageIDColumnName(), PrimaryKeyValue.fromString(messageID))
+                .build();
+    }
+
+    private long sequenceIDOf(Row row) {
+        Column column = row.getLatestColumn(config.getSecondPKName());
+        if (column == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Message ID index row has no sequence ID column");
+        }
+        return column.getValue().asLong();
+    }
+}
@@ -0,0 +1,113 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.*;
+
+/**
+ * BinaryMessage的消息结构，由MessageSchemaBuilder构造，构造后不可修改，可以被多个线程共享。
+ * 每个字段有唯一的编号、名字和类型，编码中只写编号不写名字。
+ * 为了前后兼容，已经使用的编号不能修改类型，也不能分配给其他字段；废弃的字段只需要从结构中删除，旧数据中的该字段在读取时会被保留下来。
+ */
+public class MessageSchema {
+    /**
+     * 一个字段的定义。
+     */
+    static class Field {
+        final int index;
+        final int number;
+        final String name;
+        final MessageFieldType type;
+        final int tag;
+
+        Field(int index, int number, String name, MessageFieldType type) {
+            this.index = index;
+            this.number = number;
+            this.name = name;
+            this.type = type;
+            this.tag = (number << 3) | type.getWireType();
+        }
+    }
+
+    private final String name;
+    private final Field[] fields;
+    private final Map<String, Field> fieldsByName = new HashMap<String, Field>();
+    private final Map<Integer, Field> fieldsByNumber = new HashMap<Integer, Field>();
+    private final Field[] smallNumbers;
+
+    MessageSchema(String name, List<Field> fields) {
+        this.name = name;
+        this.fields = fields.toArray(new Field[fields.size()]);
+
+        int maxSmallNumber = 0;
+        for (Field field : this.fields) {
+            fieldsByName.put(field.name, field);
+            fieldsByNumber.put(field.number, field);
+            if (field.number < 128) {
+                maxSmallNumber = Math.max(maxSmallNumber, field.number);
+            }
+        }
+
+        // 编号小于128的字段用数组查找，tag只占一个字节，常用字段应该使用小编号。
+        this.smallNumbers = new Field[maxSmallNumber + 1];
+        for (Field field : this.fields) {
+            if (field.number < 128) {
+                smallNumbers[field.number] = field;
+            }
+        }
+    }
+
+    /**
+     * 获取消息结构的名字。
+     * @return  名字。
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取所有字段的名字，按编号排序。
+     * @return  字段名列表。
+     */
+    public List<String> getFieldNames() {
+        List<String> result = new ArrayList<String>(fields.length);
+        for (Field field : fields) {
+            result.add(field.name);
+        }
+        return result;
+    }
+
+    /**
+     * 获取字段的类型。
+     * @param fieldName     字段名。
+     * @return              字段类型。
+     */
+    public MessageFieldType getFieldType(String fieldName) {
+        return field(fieldName).type;
+    }
+
+    int getFieldCount() {
+        return fields.length;
+    }
+
+    Field fieldAt(int index) {
+        return fields[index];
+    }
+
+    Field field(String fieldName) {
+        Field field = fieldsByName.get(fieldName);
+        if (field == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Field " + fieldName + " is not defined in schema " + name);
+        }
+        return field;
+    }
+
+    /**
+     * 按编号查找字段，未知编号返回null。
+     */
+    Field fieldOf(int number) {
+        if (number < smallNumbers.length) {
+            return smallNumbers[number];
+        }
+        return fieldsByNumber.get(number);
+    }
+}
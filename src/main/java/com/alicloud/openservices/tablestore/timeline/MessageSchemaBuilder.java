@@ -0,0 +1,66 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.*;
+
+/**
+ * MessageSchema类的构造类，例如：
+ * MessageSchemaBuilder.newSchema("chat").addField(1, "sender", MessageFieldType.STRING).addField(2, "sentAt", MessageFieldType.INT64).build();
+ */
+public class MessageSchemaBuilder {
+    private final String name;
+    private final Map<Integer, MessageSchema.Field> fields = new TreeMap<Integer, MessageSchema.Field>();
+    private final Set<String> fieldNames = new HashSet<String>();
+
+    private MessageSchemaBuilder(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 静态方法，开始构造一个消息结构。
+     * @param name  消息结构的名字，只用于错误信息。
+     * @return      MessageSchemaBuilder对象。
+     */
+    public static MessageSchemaBuilder newSchema(String name) {
+        return new MessageSchemaBuilder(name);
+    }
+
+    /**
+     * 添加一个字段。
+     * @param number    字段编号，范围是[1, 2^29-1]，同一个结构中不能重复，1~15的编号编码后只占一个字节。
+     * @param name      字段名，同一个结构中不能重复。
+     * @param type      字段类型。
+     * @return          MessageSchemaBuilder对象，用于串行调用。
+     */
+    public MessageSchemaBuilder addField(int number, String name, MessageFieldType type) {
+        if (number < 1 || number > BinaryCodec.MAX_FIELD_NUMBER) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Field number must be in [1, " + BinaryCodec.MAX_FIELD_NUMBER + "], but:" + number);
+        }
+
+        if (name == null || name.isEmpty() || type == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Field name or type is null or empty");
+        }
+
+        if (fields.containsKey(number) || fieldNames.contains(name)) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Field " + number + ":" + name + " is duplicated");
+        }
+
+        fields.put(number, new MessageSchema.Field(0, number, name, type));
+        fieldNames.add(name);
+        return this;
+    }
+
+    /**
+     * 构造MessageSchema对象。
+     * @return  MessageSchema对象。
+     */
+    public MessageSchema build() {
+        List<MessageSchema.Field> result = new ArrayList<MessageSchema.Field>(fields.size());
+        for (MessageSchema.Field field : fields.values()) {
+            result.add(new MessageSchema.Field(result.size(), field.number, field.name, field.type));
+        }
+        return new MessageSchema(name, result);
+    }
+}
@@ -0,0 +1,125 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 已经编码好的原始消息，只包含消息ID和消息字节，用于只转发消息、不关心消息内容的场景（比如网关）。
+ * 写入时直接使用传入的字节，不会再次序列化或复制，所以在写入完成前调用方不能修改传入的数组或ByteBuffer。
+ * 范围读取时通过ScanParameterBuilder.raw()可以直接得到RawMessage，不会构造和反序列化用户的消息类。
+ */
+public class RawMessage implements IMessage {
+    private final static byte[] EMPTY = new byte[0];
+
+    private String messageID = null;
+    private byte[] array = EMPTY;
+    private int offset = 0;
+    private int length = 0;
+
+    /**
+     * 原始消息的构造函数，用于反序列化。
+     */
+    public RawMessage() {
+    }
+
+    /**
+     * 原始消息的构造函数。
+     * @param messageID 消息ID，需要保证同一个会话一段时间内唯一。
+     * @param content   消息字节，不会被复制。
+     */
+    public RawMessage(String messageID, byte[] content) {
+        if (content == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "RawMessage parameter content is null");
+        }
+
+        this.messageID = messageID;
+        this.array = content;
+        this.length = content.length;
+    }
+
+    /**
+     * 原始消息的构造函数，使用ByteBuffer中position到limit之间的字节，不会改变ByteBuffer的position。
+     * 有底层数组的ByteBuffer不会被复制，DirectByteBuffer会被复制一次。
+     * @param messageID 消息ID，需要保证同一个会话一段时间内唯一。
+     * @param content   消息字节。
+     */
+    public RawMessage(String messageID, ByteBuffer content) {
+        if (content == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "RawMessage parameter content is null");
+        }
+
+        this.messageID = messageID;
+        this.length = content.remaining();
+        if (content.hasArray()) {
+            this.array = content.array();
+            this.offset = content.arrayOffset() + content.position();
+        } else {
+            this.array = new byte[length];
+            content.duplicate().get(array);
+        }
+    }
+
+    @Override
+    public String getMessageID() {
+        return messageID;
+    }
+
+    @Override
+    public void setMessageID(String messageID) {
+        this.messageID = messageID;
+    }
+
+    @Override
+    public IMessage newInstance() {
+        return new RawMessage();
+    }
+
+    /**
+     * 返回消息字节。构造时传入的是完整数组时直接返回该数组，否则返回一个副本。
+     * @return  消息字节。
+     */
+    @Override
+    public byte[] serialize() {
+        if (offset == 0 && length == array.length) {
+            return array;
+        }
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    /**
+     * 直接使用传入的字节，不会复制。
+     * @param input  消息字节。
+     */
+    @Override
+    public void deserialize(byte[] input) {
+        this.array = input;
+        this.offset = 0;
+        this.length = input.length;
+    }
+
+    /**
+     * 获取消息字节，不复制。
+     * @return  只读的ByteBuffer，position到limit之间是消息字节。
+     */
+    public ByteBuffer getContent() {
+        return ByteBuffer.wrap(array, offset, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * 获取消息字节数。
+     * @return  字节数。
+     */
+    public int getLength() {
+        return length;
+    }
+
+    byte[] getArray() {
+        return array;
+    }
+
+    int getOffset() {
+        return offset;
+    }
+}
@@ -24,6 +24,26 @@ public class ScanParameter {
      */
     private boolean isForward = true;
 
+    /**
+     * 是否返回RawMessage，不反序列化消息。
+     */
+    private boolean raw = false;
+
+    /**
+     * 写入时间范围的起始时间（包含），单位毫秒，null表示不按写入时间过滤。
+     */
+    private Long startTime = null;
+
+    /**
+     * 写入时间范围的结束时间（不包含），单位毫秒。
+     */
+    private Long endTime = null;
+
+    /**
+     * 按消息属性过滤的条件，null表示不过滤。
+     */
+    private AttributeFilter filter = null;
+
     /**
      * ScanParameter构造函数，需要设置方向。
      * @param isForward     是否是正序。
@@ -85,4 +105,87 @@ public class ScanParameter {
      * @return  正向返回true，逆向返回false。
      */
     boolean isForward() { return isForward; }
+
+    /**
+     * 是否返回RawMessage，package内可见，用户不会使用此接口。
+     * @return  返回RawMessage时为true。
+     */
+    boolean isRaw() {
+        return raw;
+    }
+
+    /**
+     * 设置是否返回RawMessage，package内可见，用户不会使用此接口。
+     * @param raw   是否返回RawMessage。
+     */
+    void setRaw(boolean raw) {
+        this.raw = raw;
+    }
+
+    /**
+     * 获取写入时间范围的起始时间，package内可见，用户不会使用此接口。
+     * @return  起始时间（包含），单位毫秒，没有设置时间范围时为null。
+     */
+    Long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * 获取写入时间范围的结束时间，package内可见，用户不会使用此接口。
+     * @return  结束时间（不包含），单位毫秒，没有设置时间范围时为null。
+     */
+    Long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * 设置写入时间范围，package内可见，用户不会使用此接口。
+     * @param startTime     起始时间（包含），单位毫秒。
+     * @param endTime       结束时间（不包含），单位毫秒。
+     */
+    void setTimeRange(Long startTime, Long endTime) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    /**
+     * 是否指定了写入时间范围。
+     * @return  指定了时间范围时为true。
+     */
+    boolean hasTimeRange() {
+        return startTime != null;
+    }
+
+    /**
+     * 获取按消息属性过滤的条件，package内可见，用户不会使用此接口。
+     * @return  过滤条件，不过滤时为null。
+     */
+    AttributeFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * 设置按消息属性过滤的条件，package内可见，用户不会使用此接口。
+     * @param filter    过滤条件。
+     */
+    void setFilter(AttributeFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * 复制一个顺序ID范围不同、其他参数相同的ScanParameter，用于把时间范围换算成顺序ID范围，不修改用户的参数。
+     * @param from  起始位置的顺序ID。
+     * @param to    结束位置的顺序ID。
+     * @return      新的ScanParameter对象。
+     */
+    ScanParameter withSequenceRange(long from, long to) {
+        ScanParameter parameter = new ScanParameter(isForward);
+        parameter.setFrom(from);
+        parameter.setTo(to);
+        parameter.setMaxCount(maxCount);
+        parameter.setRaw(raw);
+        parameter.setTimeRange(startTime, endTime);
+        parameter.setFilter(filter);
+        return parameter;
+    }
 }
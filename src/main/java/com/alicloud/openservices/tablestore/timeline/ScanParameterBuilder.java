@@ -80,11 +80,64 @@ public class ScanParameterBuilder {
     }
 
     /**
-     * 生成ScanParameter对象，需要调用完from，to和maxCount后再调用build接口。
+     * 设置为原始消息模式，读取到的TimelineEntry中是RawMessage（顺序ID、消息ID和消息字节），不会构造和反序列化配置的消息类。
+     * 用于只转发消息、不关心消息内容的场景。TieredTimelineStore的原始消息模式不经过本地层。
+     * @return              ScanParameterBuilder对象，用于串行调用剩余参数接口。
+     */
+    public ScanParameterBuilder raw() {
+        this.parameter.setRaw(true);
+        return this;
+    }
+
+    /**
+     * 设置写入时间范围，只返回写入时间在[startTime, endTime)内的消息，正序和逆序都是同样的含义。
+     * 设置时间范围后可以不调用from和to，此时顺序ID范围是整个Timeline。
+     * DistributeTimelineStore需要开启timeIndexEnabled，用时间索引把时间范围换算成顺序ID范围后再由服务端按写入时间过滤；
+     * 开启前写入的消息没有写入时间，不会被返回。
+     * @param startTime     起始时间（包含），单位毫秒。
+     * @param endTime       结束时间（不包含），单位毫秒。
+     * @return              ScanParameterBuilder对象，用于串行调用剩余参数接口。
+     */
+    public ScanParameterBuilder timeRange(long startTime, long endTime) {
+        if (startTime < 0 || startTime > endTime) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "startTime must more than or equal 0 and less than or equal endTime");
+        }
+
+        this.parameter.setTimeRange(startTime, endTime);
+        return this;
+    }
+
+    /**
+     * 设置按消息属性过滤的条件，只返回满足条件的消息，过滤在服务端进行。属性由AttributedMessage写入。
+     * 只有DistributeTimelineStore支持，maxCount是满足条件的消息个数。
+     * @param filter        过滤条件。
+     * @return              ScanParameterBuilder对象，用于串行调用剩余参数接口。
+     */
+    public ScanParameterBuilder filter(AttributeFilter filter) {
+        if (filter == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "filter is null");
+        }
+
+        this.parameter.setFilter(filter);
+        return this;
+    }
+
+    /**
+     * 生成ScanParameter对象，需要调用完from，to和maxCount后再调用build接口，设置了时间范围时from和to可以不调用。
      * @return      ScanParameter对象。
      * @throws      TimelineException 异常
      */
     public ScanParameter build() {
+        if (parameter.hasTimeRange() && parameter.getFrom() == null) {
+            parameter.setFrom(parameter.isForward() ? 0 : Long.MAX_VALUE);
+        }
+
+        if (parameter.hasTimeRange() && parameter.getTo() == null) {
+            parameter.setTo(parameter.isForward() ? Long.MAX_VALUE : 0);
+        }
+
         if (parameter.getFrom() == null) {
             throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
                     "ScanParameter's 'from' parameter is Null");
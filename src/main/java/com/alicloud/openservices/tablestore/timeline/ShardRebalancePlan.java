@@ -0,0 +1,153 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.*;
+
+/**
+ * 分片迁移计划，列出新增一个分片后需要迁移的Timeline，以及每个Timeline的源分片和目标分片。
+ * 也可以作为命令行工具使用：从标准输入按行读取Timeline ID，输出需要迁移的Timeline。
+ */
+public class ShardRebalancePlan {
+    private final List<Move> moves = new ArrayList<Move>();
+    private long totalCount = 0;
+
+    /**
+     * 一个Timeline的迁移。
+     */
+    public static class Move {
+        private final String timelineID;
+        private final String fromShard;
+        private final String toShard;
+
+        Move(String timelineID, String fromShard, String toShard) {
+            this.timelineID = timelineID;
+            this.fromShard = fromShard;
+            this.toShard = toShard;
+        }
+
+        /**
+         * 获取需要迁移的Timeline ID。
+         * @return  Timeline ID。
+         */
+        public String getTimelineID() {
+            return timelineID;
+        }
+
+        /**
+         * 获取源分片名称。
+         * @return  源分片名称。
+         */
+        public String getFromShard() {
+            return fromShard;
+        }
+
+        /**
+         * 获取目标分片名称。
+         * @return  目标分片名称。
+         */
+        public String getToShard() {
+            return toShard;
+        }
+
+        @Override
+        public String toString() {
+            return timelineID + "\t" + fromShard + "\t" + toShard;
+        }
+    }
+
+    /**
+     * 计算新增一个分片后的迁移计划。
+     * @param ring          当前的哈希环。
+     * @param newShard      新增分片的名称。
+     * @param timelineIDs   所有已有的Timeline ID。
+     * @return              迁移计划。
+     */
+    public static ShardRebalancePlan planAddShard(ConsistentHashRing ring, String newShard, Iterable<String> timelineIDs) {
+        ConsistentHashRing target = ring.withNode(newShard);
+        ShardRebalancePlan plan = new ShardRebalancePlan();
+        for (String timelineID : timelineIDs) {
+            plan.totalCount++;
+            String from = ring.locate(timelineID);
+            String to = target.locate(timelineID);
+            if (!from.equals(to)) {
+                plan.moves.add(new Move(timelineID, from, to));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 获取需要迁移的Timeline列表。
+     * @return  迁移列表。
+     */
+    public List<Move> getMoves() {
+        return Collections.unmodifiableList(moves);
+    }
+
+    /**
+     * 获取参与计算的Timeline总数。
+     * @return  Timeline总数。
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Arguments not enough. virtualNodeCount existingShards(comma separated) newShard < timelineIDs");
+            System.exit(-1);
+        }
+
+        int virtualNodeCount = Integer.parseInt(args[0]);
+        List<String> shards = Arrays.asList(args[1].split(","));
+        String newShard = args[2];
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+        Iterable<String> timelineIDs = new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private String next = readLine();
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public String next() {
+                        String current = next;
+                        next = readLine();
+                        return current;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    private String readLine() {
+                        try {
+                            String line = reader.readLine();
+                            while (line != null && line.trim().isEmpty()) {
+                                line = reader.readLine();
+                            }
+                            return line == null ? null : line.trim();
+                        } catch (IOException ex) {
+                            throw new TimelineException(TimelineExceptionType.TET_ABORT,
+                                    "Read timeline id failed", ex);
+                        }
+                    }
+                };
+            }
+        };
+
+        ShardRebalancePlan plan = planAddShard(new ConsistentHashRing(shards, virtualNodeCount), newShard, timelineIDs);
+        for (Move move : plan.getMoves()) {
+            System.out.println(move);
+        }
+        System.out.println(String.format("Moved: %d/%d", plan.getMoves().size(), plan.getTotalCount()));
+    }
+}
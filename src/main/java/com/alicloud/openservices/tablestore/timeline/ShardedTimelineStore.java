@@ -0,0 +1,331 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 分片存储层实现，把Timeline按一致性哈希路由到多个后端Store（一般是多个表或多个实例上的DistributeTimelineStore）。
+ * 单个Timeline的所有数据都在同一个分片上，所以单个Timeline的读写语义和后端Store完全一致。
+ * 分片名称决定路由结果，上线后不能修改，新增分片前可以用ShardRebalancePlan计算需要迁移的Timeline。
+ */
+public class ShardedTimelineStore implements IStore {
+    /**
+     * 每个分片默认的虚拟节点个数。
+     */
+    public final static int DEFAULT_VIRTUAL_NODE_COUNT = 160;
+
+    private final Map<String, IStore> shards;
+    private final ConsistentHashRing ring;
+
+    /**
+     * ShardedTimelineStore的构造函数，每个配置对应一个DistributeTimelineStore分片，分片名称是"实例名/表名"。
+     * @param configs   每个分片的配置参数。
+     */
+    public ShardedTimelineStore(List<DistributeTimelineConfig> configs) {
+        this(createShards(configs), DEFAULT_VIRTUAL_NODE_COUNT);
+    }
+
+    /**
+     * ShardedTimelineStore的构造函数。
+     * @param shards            分片名称到分片Store的映射。
+     * @param virtualNodeCount  每个分片的虚拟节点个数。
+     */
+    public ShardedTimelineStore(Map<String, IStore> shards, int virtualNodeCount) {
+        if (shards == null || shards.isEmpty()) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "ShardedTimelineStore parameter shards is null or empty");
+        }
+
+        this.shards = new LinkedHashMap<String, IStore>(shards);
+        this.ring = new ConsistentHashRing(this.shards.keySet(), virtualNodeCount);
+    }
+
+    /**
+     * 获取Timeline所在的分片名称。
+     * @param timelineID    Timeline ID。
+     * @return              分片名称。
+     */
+    public String locate(String timelineID) {
+        return ring.locate(timelineID);
+    }
+
+    /**
+     * 计算新增一个分片后需要迁移的Timeline。
+     * @param newShard      新增分片的名称。
+     * @param timelineIDs   所有已有的Timeline ID。
+     * @return              迁移计划。
+     */
+    public ShardRebalancePlan planAddShard(String newShard, Iterable<String> timelineIDs) {
+        return ShardRebalancePlan.planAddShard(ring, newShard, timelineIDs);
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, IMessage message) {
+        return shardOf(timelineID).write(timelineID, message);
+    }
+
+    /**
+     * 扇出写：把同一个消息写入多个Timeline。接收者先按分片分组，各分片并行异步写入，全部完成后返回。
+     * 消息会先包装成EncodedMessage，所有接收者复用同一次序列化的结果。
+     * @param timelineIDs   接收消息的Timeline ID列表。
+     * @param message       消息体。
+     * @return              每个Timeline写入成功的TimelineEntry。
+     */
+    public Map<String, TimelineEntry> write(Collection<String> timelineIDs, IMessage message) {
+        IMessage encoded = encode(timelineIDs, message);
+        final Map<String, TimelineEntry> result = new ConcurrentHashMap<String, TimelineEntry>();
+        final Map<String, Exception> errors = new ConcurrentHashMap<String, Exception>();
+        final CountDownLatch latch = new CountDownLatch(timelineIDs.size());
+
+        TimelineCallback<IMessage> callback = new TimelineCallback<IMessage>() {
+            @Override
+            public void onCompleted(String timelineID, IMessage request, TimelineEntry timelineEntry) {
+                result.put(timelineID, timelineEntry);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailed(String timelineID, IMessage request, Exception ex) {
+                errors.put(timelineID, ex);
+                latch.countDown();
+            }
+        };
+
+        for (Map.Entry<String, List<String>> group : groupByShard(timelineIDs).entrySet()) {
+            IStore shard = shards.get(group.getKey());
+            for (String timelineID : group.getValue()) {
+                try {
+                    shard.writeAsync(timelineID, encoded, callback);
+                } catch (RuntimeException ex) {
+                    errors.put(timelineID, ex);
+                    latch.countDown();
+                }
+            }
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException(TimelineExceptionType.TET_ABORT, "Fan out write was interrupted", ex);
+        }
+
+        if (!errors.isEmpty()) {
+            Map.Entry<String, Exception> first = errors.entrySet().iterator().next();
+            throw new TimelineException(TimelineExceptionType.TET_RETRY,
+                    String.format("Fan out write failed, failed count:%d, first failed timeline %s, reason:%s.",
+                            errors.size(), first.getKey(), first.getValue().getMessage()), first.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    public void batch(String timelineID, IMessage message) {
+        shardOf(timelineID).batch(timelineID, message);
+    }
+
+    /**
+     * 扇出批量写：接收者先按分片分组，再依次加入各分片的批量写buffer，同一分片的行会被合并到相同的BatchWriteRow请求中。
+     * 和扇出写一样，所有接收者复用同一次序列化的结果。
+     * @param timelineIDs   接收消息的Timeline ID列表。
+     * @param message       消息体。
+     */
+    public void batch(Collection<String> timelineIDs, IMessage message) {
+        IMessage encoded = encode(timelineIDs, message);
+        for (Map.Entry<String, List<String>> group : groupByShard(timelineIDs).entrySet()) {
+            IStore shard = shards.get(group.getKey());
+            for (String timelineID : group.getValue()) {
+                shard.batch(timelineID, encoded);
+            }
+        }
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, byte[] content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, ByteBuffer content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, byte[] content) {
+        batch(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, ByteBuffer content) {
+        batch(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public Future<TimelineEntry> writeAsync(String timelineID, IMessage message, TimelineCallback<IMessage> callback) {
+        return shardOf(timelineID).writeAsync(timelineID, message, callback);
+    }
+
+    @Override
+    public TimelineEntry read(String timelineID, Long sequenceID) {
+        return shardOf(timelineID).read(timelineID, sequenceID);
+    }
+
+    @Override
+    public Future<TimelineEntry> readAsync(String timelineID, Long sequenceID, TimelineCallback<Long> callback) {
+        return shardOf(timelineID).readAsync(timelineID, sequenceID, callback);
+    }
+
+    @Override
+    public Iterator<TimelineEntry> scan(String timelineID, ScanParameter parameter) {
+        return shardOf(timelineID).scan(timelineID, parameter);
+    }
+
+    @Override
+    public TimelineEntry readByMessageID(String timelineID, String messageID) {
+        return shardOf(timelineID).readByMessageID(timelineID, messageID);
+    }
+
+    @Override
+    public Map<String, TimelineEntry> readByMessageIDs(String timelineID, Collection<String> messageIDs) {
+        return shardOf(timelineID).readByMessageIDs(timelineID, messageIDs);
+    }
+
+    @Override
+    public TimelineDeleteJob delete(String timelineID, long fromSequenceID, long toSequenceID) {
+        return shardOf(timelineID).delete(timelineID, fromSequenceID, toSequenceID);
+    }
+
+    @Override
+    public TimelineDeleteJob deleteTimeline(String timelineID) {
+        return shardOf(timelineID).deleteTimeline(timelineID);
+    }
+
+    /**
+     * 并行创建所有分片。
+     */
+    @Override
+    public void create() {
+        forEachShard(new ShardTask<Void>() {
+            @Override
+            public Void run(IStore shard) {
+                if (!shard.exist()) {
+                    shard.create();
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 并行删除所有分片，此操作非常危险，一定要慎重。
+     */
+    @Override
+    public void drop() {
+        forEachShard(new ShardTask<Void>() {
+            @Override
+            public Void run(IStore shard) {
+                shard.drop();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 并行判断所有分片是否都已经创建。
+     * @return  所有分片都存在时返回true。
+     */
+    @Override
+    public boolean exist() {
+        List<Boolean> results = forEachShard(new ShardTask<Boolean>() {
+            @Override
+            public Boolean run(IStore shard) {
+                return shard.exist();
+            }
+        });
+        return !results.contains(Boolean.FALSE);
+    }
+
+    @Override
+    public void close() {
+        for (IStore shard : shards.values()) {
+            shard.close();
+        }
+    }
+
+    private IStore shardOf(String timelineID) {
+        return shards.get(ring.locate(timelineID));
+    }
+
+    private static IMessage encode(Collection<String> timelineIDs, IMessage message) {
+        if (timelineIDs.size() <= 1 || message instanceof EncodedMessage) {
+            return message;
+        }
+        return new EncodedMessage(message);
+    }
+
+    private Map<String, List<String>> groupByShard(Collection<String> timelineIDs) {
+        Map<String, List<String>> groups = new LinkedHashMap<String, List<String>>();
+        for (String timelineID : timelineIDs) {
+            String shard = ring.locate(timelineID);
+            List<String> group = groups.get(shard);
+            if (group == null) {
+                group = new ArrayList<String>();
+                groups.put(shard, group);
+            }
+            group.add(timelineID);
+        }
+        return groups;
+    }
+
+    private interface ShardTask<T> {
+        T run(IStore shard);
+    }
+
+    private <T> List<T> forEachShard(final ShardTask<T> task) {
+        ExecutorService executor = Executors.newFixedThreadPool(shards.size());
+        try {
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            for (final IStore shard : shards.values()) {
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        return task.run(shard);
+                    }
+                }));
+            }
+
+            List<T> results = new ArrayList<T>();
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof TimelineException) {
+                        throw (TimelineException) ex.getCause();
+                    }
+                    throw new TimelineException(TimelineExceptionType.TET_UNKNOWN,
+                            "Shard operation failed, reason:" + ex.getCause().getMessage(), ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new TimelineException(TimelineExceptionType.TET_ABORT, "Shard operation was interrupted", ex);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Map<String, IStore> createShards(List<DistributeTimelineConfig> configs) {
+        Map<String, IStore> shards = new LinkedHashMap<String, IStore>();
+        for (DistributeTimelineConfig config : configs) {
+            String name = config.getInstanceName() + "/" + config.getTableName();
+            if (shards.containsKey(name)) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Shard is duplicated:" + name);
+            }
+            shards.put(name, new DistributeTimelineStore(config));
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,42 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段计数器，不同线程累加到不同的槽位，避免多个线程竞争同一个缓存行，读取时把所有槽位相加。
+ * 相当于JDK8的LongAdder，但是支持JDK6。
+ */
+class StripedCounter {
+    /**
+     * 相邻槽位间隔8个long（64字节），保证不在同一个缓存行。
+     */
+    private final static int PADDING = 8;
+    private final static int STRIPES = stripeCount();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    void add(long value) {
+        int index = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+        cells.addAndGet(index * PADDING, value);
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    private static int stripeCount() {
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors() && count < 64) {
+            count <<= 1;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,83 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 同步等待SDK请求使用的Future，作为回调传给SDK，由回调设置结果。
+ * get只等待CountDownLatch，不调用SDK Future的get：SDK的Future在synchronized中wait，虚拟线程等待时会占住载体线程。
+ * 和SDK的Future一致，失败时get直接抛出TableStoreException、ClientException等运行时异常，其他异常包装成ExecutionException。
+ * SDK的Future不支持取消，这里的cancel只让等待的线程立即返回（get抛出CancellationException），已经发出的请求仍会执行，结果被丢弃。
+ */
+class TableStoreFuture<Req, Res> implements Future<Res>, TableStoreCallback<Req, Res> {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private volatile boolean cancelled = false;
+    private Res response = null;
+    private Exception exception = null;
+
+    @Override
+    public void onCompleted(Req request, Res response) {
+        if (completed.compareAndSet(false, true)) {
+            this.response = response;
+            done.countDown();
+        }
+    }
+
+    @Override
+    public void onFailed(Req request, Exception exception) {
+        if (completed.compareAndSet(false, true)) {
+            this.exception = exception;
+            done.countDown();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (completed.compareAndSet(false, true)) {
+            cancelled = true;
+            done.countDown();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public Res get() throws InterruptedException, ExecutionException {
+        done.await();
+        return report();
+    }
+
+    @Override
+    public Res get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    private Res report() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+
+        if (exception instanceof RuntimeException) {
+            throw (RuntimeException) exception;
+        } else if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,49 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * 分层Store的配置文件。
+ * 分层Store在进程内缓存每个Timeline最近的一段消息，持久层一般使用DistributeTimelineStore。
+ */
+public class TieredTimelineConfig {
+    /**
+     * 本地层所有Timeline共享的内存预算，单位是字节，超过后按最近最少使用的顺序淘汰整个Timeline。默认64MB。
+     */
+    private long memoryBudget = 64L * 1024 * 1024;
+
+    /**
+     * 本地层每个Timeline最多缓存的消息个数，超过后淘汰最早的消息。默认100。
+     */
+    private int maxEntriesPerTimeline = 100;
+
+    /**
+     * 获取本地层的内存预算。
+     * @return  内存预算，单位是字节。
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * 设置本地层的内存预算。
+     * @param memoryBudget  内存预算，单位是字节。
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * 获取每个Timeline最多缓存的消息个数。
+     * @return  消息个数。
+     */
+    public int getMaxEntriesPerTimeline() {
+        return maxEntriesPerTimeline;
+    }
+
+    /**
+     * 设置每个Timeline最多缓存的消息个数。
+     * @param maxEntriesPerTimeline 消息个数。
+     */
+    public void setMaxEntriesPerTimeline(int maxEntriesPerTimeline) {
+        this.maxEntriesPerTimeline = maxEntriesPerTimeline;
+    }
+}
@@ -0,0 +1,573 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分层存储层实现：进程内的本地层加上一个持久层（一般是DistributeTimelineStore）。
+ * 写入先写持久层，成功后用持久层返回的顺序ID填充本地层；读取和范围读取在本地层完整覆盖请求范围时直接返回，否则读持久层。
+ * 每个Timeline记录一个residentFrom，表示本地层完整保存了顺序ID不小于residentFrom的所有消息。
+ * 完整性依赖于这些Timeline只通过当前Store写入，如果有其他进程写同一个Timeline，本地层可能读不到这些消息。
+ * 本地层缓存的消息对象会被多个读者共享，使用者不应修改读取到的消息。
+ * 写入RawMessage和原始消息模式的范围读取不经过本地层。
+ * 删除任务开始时该Timeline在本地层失效，任务结束前写入和范围读取都不会填充本地层。
+ * 有写入进行中的Timeline，范围读取直接读持久层，直到写入结果填充到本地层，
+ * 所以持久层的Future先于回调完成时，writeAsync().get()之后的范围读取也能读到刚写入的消息。
+ */
+public class TieredTimelineStore implements IStore {
+    private final static long ENTRY_OVERHEAD = 64;
+
+    private final IStore durable;
+    private final TieredTimelineConfig config;
+
+    /**
+     * 所有本地层的状态都由这个map的锁保护，按访问顺序排列，用于LRU淘汰。
+     */
+    private final LinkedHashMap<String, ResidentTimeline> timelines =
+            new LinkedHashMap<String, ResidentTimeline>(16, 0.75f, true);
+    private long usedBytes = 0;
+
+    /**
+     * 进行中的删除任务，由timelines的锁保护。
+     */
+    private final Map<String, TimelineDeleteJob> deleting = new HashMap<String, TimelineDeleteJob>();
+
+    /**
+     * 每个Timeline进行中的写入个数，由timelines的锁保护。
+     */
+    private final Map<String, Integer> writing = new HashMap<String, Integer>();
+
+    private final AtomicLong localHitCount = new AtomicLong();
+    private final AtomicLong localMissCount = new AtomicLong();
+
+    /**
+     * 单个Timeline在本地层的数据。
+     */
+    private static class ResidentTimeline {
+        final TreeMap<Long, TimelineEntry> entries = new TreeMap<Long, TimelineEntry>();
+        final Map<Long, Long> sizes = new HashMap<Long, Long>();
+        long residentFrom = Long.MAX_VALUE;
+        long bytes = 0;
+
+        /**
+         * 按单个Timeline的上限淘汰过的最大顺序ID，residentFrom不能低于它，否则被淘汰的消息会被当作本地层完整保存的范围。
+         */
+        long trimmedTo = Long.MIN_VALUE;
+    }
+
+    /**
+     * TieredTimelineStore的构造函数。
+     * @param durable   持久层，一般是DistributeTimelineStore。
+     * @param config    分层Store的配置参数。
+     */
+    public TieredTimelineStore(IStore durable, TieredTimelineConfig config) {
+        if (durable == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "TieredTimelineStore parameter durable is null");
+        }
+
+        if (config.getMemoryBudget() <= 0 || config.getMaxEntriesPerTimeline() <= 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "TieredTimelineConfig memoryBudget or maxEntriesPerTimeline is invalid");
+        }
+
+        this.durable = durable;
+        this.config = config;
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, IMessage message) {
+        beginWrite(timelineID);
+        TimelineEntry entry = null;
+        try {
+            entry = durable.write(timelineID, message);
+        } finally {
+            endWrite(timelineID, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * batch接口拿不到顺序ID，无法填充本地层，所以会让该Timeline在本地层失效。
+     */
+    @Override
+    public void batch(String timelineID, IMessage message) {
+        invalidate(timelineID);
+        durable.batch(timelineID, message);
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, byte[] content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public TimelineEntry write(String timelineID, String messageID, ByteBuffer content) {
+        return write(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, byte[] content) {
+        batch(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public void batch(String timelineID, String messageID, ByteBuffer content) {
+        batch(timelineID, new RawMessage(messageID, content));
+    }
+
+    @Override
+    public Future<TimelineEntry> writeAsync(final String timelineID,
+                                            final IMessage message,
+                                            final TimelineCallback<IMessage> callback) {
+        beginWrite(timelineID);
+        try {
+            return durable.writeAsync(timelineID, message, new TimelineCallback<IMessage>() {
+                @Override
+                public void onCompleted(String timelineID, IMessage request, TimelineEntry timelineEntry) {
+                    endWrite(timelineID, timelineEntry);
+                    if (callback != null) {
+                        callback.onCompleted(timelineID, request, timelineEntry);
+                    }
+                }
+
+                @Override
+                public void onFailed(String timelineID, IMessage request, Exception ex) {
+                    endWrite(timelineID, null);
+                    if (callback != null) {
+                        callback.onFailed(timelineID, request, ex);
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            endWrite(timelineID, null);
+            throw ex;
+        }
+    }
+
+    @Override
+    public TimelineEntry read(String timelineID, Long sequenceID) {
+        TimelineEntry entry = readLocal(timelineID, sequenceID);
+        if (entry != null) {
+            return entry;
+        }
+        return durable.read(timelineID, sequenceID);
+    }
+
+    @Override
+    public Future<TimelineEntry> readAsync(final String timelineID,
+                                           final Long sequenceID,
+                                           final TimelineCallback<Long> callback) {
+        final TimelineEntry entry = readLocal(timelineID, sequenceID);
+        if (entry == null) {
+            return durable.readAsync(timelineID, sequenceID, callback);
+        }
+
+        FutureTask<TimelineEntry> task = new FutureTask<TimelineEntry>(new Callable<TimelineEntry>() {
+            @Override
+            public TimelineEntry call() throws Exception {
+                return entry;
+            }
+        });
+        task.run();
+
+        if (callback != null) {
+            callback.onCompleted(timelineID, sequenceID, entry);
+        }
+        return task;
+    }
+
+    @Override
+    public Iterator<TimelineEntry> scan(String timelineID, ScanParameter parameter) {
+        if (parameter.isRaw()) {
+            // 本地层缓存的是反序列化后的消息，原始消息模式直接读持久层，也不填充本地层。
+            return durable.scan(timelineID, parameter);
+        }
+
+        if (parameter.hasTimeRange() || parameter.getFilter() != null) {
+            // 本地层没有持久层的写入时间和消息属性，按时间范围或属性过滤时直接读持久层。
+            return durable.scan(timelineID, parameter);
+        }
+
+        List<TimelineEntry> local = scanLocal(timelineID, parameter);
+        if (local != null) {
+            localHitCount.incrementAndGet();
+            return Collections.unmodifiableList(local).iterator();
+        }
+
+        localMissCount.incrementAndGet();
+        Iterator<TimelineEntry> iterator = durable.scan(timelineID, parameter);
+        if (!parameter.isForward() && parameter.getFrom() == Long.MAX_VALUE) {
+            // 从最新的消息开始逆序读，读到的消息和本地层已有的消息是连续的，可以用来填充本地层。
+            return new PopulatingIterator(timelineID, parameter, iterator);
+        }
+        return iterator;
+    }
+
+    /**
+     * 本地层没有消息ID的索引，直接读持久层。
+     */
+    @Override
+    public TimelineEntry readByMessageID(String timelineID, String messageID) {
+        return durable.readByMessageID(timelineID, messageID);
+    }
+
+    @Override
+    public Map<String, TimelineEntry> readByMessageIDs(String timelineID, Collection<String> messageIDs) {
+        return durable.readByMessageIDs(timelineID, messageIDs);
+    }
+
+    @Override
+    public TimelineDeleteJob delete(String timelineID, long fromSequenceID, long toSequenceID) {
+        TimelineDeleteJob job = durable.delete(timelineID, fromSequenceID, toSequenceID);
+        synchronized (timelines) {
+            deleting.put(timelineID, job);
+            invalidate(timelineID);
+        }
+        return job;
+    }
+
+    @Override
+    public TimelineDeleteJob deleteTimeline(String timelineID) {
+        return delete(timelineID, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public void create() {
+        durable.create();
+    }
+
+    @Override
+    public void drop() {
+        clear();
+        durable.drop();
+    }
+
+    @Override
+    public boolean exist() {
+        return durable.exist();
+    }
+
+    @Override
+    public void close() {
+        clear();
+        durable.close();
+    }
+
+    /**
+     * 获取本地层命中的范围读取次数。
+     * @return  命中次数。
+     */
+    public long getLocalHitCount() {
+        return localHitCount.get();
+    }
+
+    /**
+     * 获取本地层未命中、转发到持久层的范围读取次数。
+     * @return  未命中次数。
+     */
+    public long getLocalMissCount() {
+        return localMissCount.get();
+    }
+
+    /**
+     * 获取本地层当前估算的内存占用。
+     * @return  内存占用，单位是字节。
+     */
+    public long getUsedBytes() {
+        synchronized (timelines) {
+            return usedBytes;
+        }
+    }
+
+    private TimelineEntry readLocal(String timelineID, Long sequenceID) {
+        synchronized (timelines) {
+            ResidentTimeline timeline = timelines.get(timelineID);
+            return timeline == null ? null : timeline.entries.get(sequenceID);
+        }
+    }
+
+    /**
+     * 尝试完全在本地层完成范围读取。
+     * @return  读取结果，如果本地层没有完整覆盖请求范围则返回null。
+     */
+    private List<TimelineEntry> scanLocal(String timelineID, ScanParameter parameter) {
+        synchronized (timelines) {
+            ResidentTimeline timeline = timelines.get(timelineID);
+            if (timeline == null || timeline.residentFrom == Long.MAX_VALUE || writing.containsKey(timelineID)) {
+                return null;
+            }
+
+            List<TimelineEntry> result = new ArrayList<TimelineEntry>();
+            if (parameter.isForward()) {
+                if (parameter.getFrom() < timeline.residentFrom) {
+                    return null;
+                }
+
+                for (TimelineEntry entry : timeline.entries.subMap(parameter.getFrom(), parameter.getTo()).values()) {
+                    if (result.size() >= parameter.getMaxCount()) {
+                        break;
+                    }
+                    result.add(entry);
+                }
+                return result;
+            }
+
+            if (parameter.getFrom() < timeline.residentFrom) {
+                return null;
+            }
+
+            for (TimelineEntry entry : timeline.entries.headMap(parameter.getFrom(), true).descendingMap().values()) {
+                if (result.size() >= parameter.getMaxCount() || entry.getSequenceID() <= parameter.getTo()) {
+                    return result;
+                }
+                result.add(entry);
+            }
+
+            // 本地层的数据读完了，已经读够maxCount条，或者请求范围也在本地层覆盖范围内才算完整。
+            return result.size() >= parameter.getMaxCount() || parameter.getTo() >= timeline.residentFrom - 1
+                    ? result : null;
+        }
+    }
+
+    private void beginWrite(String timelineID) {
+        synchronized (timelines) {
+            Integer count = writing.get(timelineID);
+            writing.put(timelineID, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * 写入结束，成功时用写入结果填充本地层。填充和减少进行中的写入个数在同一个锁内完成。
+     * @param entry     写入结果，失败时为null。
+     */
+    private void endWrite(String timelineID, TimelineEntry entry) {
+        long size = entry == null || entry.getMessage() instanceof RawMessage ? 0 : sizeOf(entry);
+        synchronized (timelines) {
+            Integer count = writing.get(timelineID);
+            if (count == null || count <= 1) {
+                writing.remove(timelineID);
+            } else {
+                writing.put(timelineID, count - 1);
+            }
+
+            if (entry != null) {
+                cacheWritten(timelineID, entry, size);
+            }
+        }
+    }
+
+    /**
+     * 用写入结果填充本地层。调用方需要持有锁。
+     */
+    private void cacheWritten(String timelineID, TimelineEntry entry, long size) {
+        if (entry.getMessage() instanceof RawMessage) {
+            // 本地层只缓存反序列化后的消息，写入原始消息时让该Timeline在本地层失效。
+            invalidate(timelineID);
+            return;
+        }
+        if (isDeleting(timelineID)) {
+            return;
+        }
+
+        ResidentTimeline timeline = timelines.get(timelineID);
+        if (timeline == null) {
+            timeline = new ResidentTimeline();
+            timelines.put(timelineID, timeline);
+        }
+
+        if (timeline.residentFrom == Long.MAX_VALUE) {
+            timeline.residentFrom = entry.getSequenceID();
+        }
+        add(timeline, entry, size);
+        trim(timelineID, timeline);
+    }
+
+    /**
+     * 填充逆序读到的消息。expected是同一次读取上一次填充的Timeline，不为null时如果该Timeline已经被淘汰或失效，
+     * 之前读到的消息已经不在本地层，不能继续填充。
+     * @return  这次填充的Timeline，不能继续填充时返回null。
+     */
+    private ResidentTimeline cacheScanned(String timelineID, ResidentTimeline expected, TimelineEntry entry,
+                                          long residentFrom) {
+        long size = entry == null ? 0 : sizeOf(entry);
+        synchronized (timelines) {
+            if (isDeleting(timelineID)) {
+                return null;
+            }
+
+            ResidentTimeline timeline = timelines.get(timelineID);
+            if (expected != null && timeline != expected) {
+                return null;
+            }
+            if (timeline == null) {
+                timeline = new ResidentTimeline();
+                timelines.put(timelineID, timeline);
+            }
+
+            if (entry != null) {
+                add(timeline, entry, size);
+            }
+            timeline.residentFrom = Math.max(Math.min(timeline.residentFrom, residentFrom), timeline.trimmedTo + 1);
+            trim(timelineID, timeline);
+            return timelines.get(timelineID) == timeline ? timeline : null;
+        }
+    }
+
+    /**
+     * 估算消息在本地层的内存占用。需要序列化消息，在锁外调用。
+     */
+    private static long sizeOf(TimelineEntry entry) {
+        IMessage message = entry.getMessage();
+        return ENTRY_OVERHEAD + message.serialize().length
+                + (message.getMessageID() == null ? 0 : message.getMessageID().length() * 2);
+    }
+
+    private void add(ResidentTimeline timeline, TimelineEntry entry, long size) {
+        if (timeline.entries.put(entry.getSequenceID(), entry) != null) {
+            return;
+        }
+
+        timeline.sizes.put(entry.getSequenceID(), size);
+        timeline.bytes += size;
+        usedBytes += size;
+    }
+
+    /**
+     * 先按单个Timeline的上限淘汰最早的消息，再按全局内存预算淘汰最近最少使用的Timeline。调用方需要持有锁。
+     */
+    private void trim(String timelineID, ResidentTimeline timeline) {
+        while (timeline.entries.size() > config.getMaxEntriesPerTimeline()) {
+            Long sequenceID = timeline.entries.pollFirstEntry().getKey();
+            long size = timeline.sizes.remove(sequenceID);
+            timeline.bytes -= size;
+            usedBytes -= size;
+            timeline.trimmedTo = Math.max(timeline.trimmedTo, sequenceID);
+            timeline.residentFrom = timeline.entries.firstKey();
+        }
+
+        Iterator<Map.Entry<String, ResidentTimeline>> iterator = timelines.entrySet().iterator();
+        while (usedBytes > config.getMemoryBudget() && iterator.hasNext()) {
+            Map.Entry<String, ResidentTimeline> eldest = iterator.next();
+            if (eldest.getKey().equals(timelineID) && timelines.size() > 1) {
+                continue;
+            }
+            usedBytes -= eldest.getValue().bytes;
+            iterator.remove();
+        }
+    }
+
+    private void invalidate(String timelineID) {
+        synchronized (timelines) {
+            ResidentTimeline timeline = timelines.remove(timelineID);
+            if (timeline != null) {
+                usedBytes -= timeline.bytes;
+            }
+        }
+    }
+
+    /**
+     * 判断该Timeline是否有进行中的删除任务，已经结束的任务会被移除。调用方需要持有锁。
+     */
+    private boolean isDeleting(String timelineID) {
+        TimelineDeleteJob job = deleting.get(timelineID);
+        if (job == null) {
+            return false;
+        }
+        if (job.isDone()) {
+            deleting.remove(timelineID);
+            return false;
+        }
+        return true;
+    }
+
+    private void clear() {
+        synchronized (timelines) {
+            timelines.clear();
+            usedBytes = 0;
+        }
+    }
+
+    /**
+     * 从最新消息开始的逆序读迭代器，在遍历持久层结果的同时填充本地层。
+     */
+    private class PopulatingIterator implements Iterator<TimelineEntry>, Closeable {
+        private final String timelineID;
+        private final ScanParameter parameter;
+        private final Iterator<TimelineEntry> iterator;
+        private int count = 0;
+        private boolean closed = false;
+        private boolean populating = true;
+        private ResidentTimeline target = null;
+
+        PopulatingIterator(String timelineID, ScanParameter parameter, Iterator<TimelineEntry> iterator) {
+            this.timelineID = timelineID;
+            this.parameter = parameter;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            boolean hasNext = iterator.hasNext();
+            if (!hasNext && count < parameter.getMaxCount()) {
+                // 持久层已经没有更多数据，说明(to, 最新]之间没有被淘汰的消息都在本地层了。
+                populate(null, parameter.getTo() + 1);
+            }
+            return hasNext;
+        }
+
+        @Override
+        public TimelineEntry next() {
+            TimelineEntry entry = iterator.next();
+            count++;
+            populate(entry, entry.getSequenceID());
+            return entry;
+        }
+
+        private void populate(TimelineEntry entry, long residentFrom) {
+            if (!populating) {
+                return;
+            }
+            target = cacheScanned(timelineID, target, entry, residentFrom);
+            if (target == null) {
+                // 读取过程中该Timeline被淘汰、失效或者开始删除，已经填充的消息不完整，之后不再填充。
+                populating = false;
+            }
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+        }
+
+        /**
+         * 关闭持久层的迭代器。关闭后没有读完的范围不能说明持久层没有更多数据，不再填充本地层。
+         */
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            if (iterator instanceof Closeable) {
+                ((Closeable) iterator).close();
+            }
+        }
+    }
+
+    /**
+     * 用于测试，判断本地层是否有该Timeline。
+     */
+    boolean isResident(String timelineID) {
+        synchronized (timelines) {
+            ResidentTimeline timeline = timelines.get(timelineID);
+            return timeline != null && timeline.residentFrom != Long.MAX_VALUE;
+        }
+    }
+}
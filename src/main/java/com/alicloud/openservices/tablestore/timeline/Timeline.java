@@ -42,6 +42,22 @@ public class Timeline {
         this.store = store;
     }
 
+    /**
+     * 获取此Timeline的ID。
+     * @return  Timeline ID。
+     */
+    public String getTimelineID() {
+        return timelineID;
+    }
+
+    /**
+     * 获取此Timeline关联的Store，package内可见，用于TimelineStreams。
+     * @return  Store。
+     */
+    IStore getStore() {
+        return store;
+    }
+
     /**
      * 写入一个消息到此Timeline中。
      * @param message   消息对象，需实现IMessage接口。
@@ -118,7 +134,7 @@ public class Timeline {
     /**
      * 顺序读取一段范围内或固定数目的消息，支持逆序，正序。
      * @param parameter     顺序读取的参数，包括方向、from、to和maxCount。
-     * @return              TimelineEntry的迭代器，通过迭代器可以遍历到待读取的所有消息。
+     * @return              TimelineEntry的迭代器，通过迭代器可以遍历到待读取的所有消息，实现了Closeable时提前结束读取应调用close。
      */
     public Iterator<TimelineEntry> scan(ScanParameter parameter) {
         if (parameter == null) {
@@ -128,4 +144,22 @@ public class Timeline {
 
         return this.store.scan(this.timelineID, parameter);
     }
+
+    /**
+     * 删除一段顺序ID范围内的消息，在后台执行，立即返回。
+     * @param fromSequenceID    起始顺序ID（包含）。
+     * @param toSequenceID      结束顺序ID（不包含）。
+     * @return                  删除任务，可以查看进度和断点，get返回删除的行数。
+     */
+    public TimelineDeleteJob delete(long fromSequenceID, long toSequenceID) {
+        return this.store.delete(this.timelineID, fromSequenceID, toSequenceID);
+    }
+
+    /**
+     * 删除当前Timeline中的所有消息，在后台执行，立即返回。
+     * @return                  删除任务，可以查看进度和断点，get返回删除的行数。
+     */
+    public TimelineDeleteJob deleteAll() {
+        return this.store.deleteTimeline(this.timelineID);
+    }
 }
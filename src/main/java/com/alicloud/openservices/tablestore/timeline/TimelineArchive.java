@@ -0,0 +1,478 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * TimelineExporter和TimelineImporter使用的导出文件格式。
+ * 文件头是4字节魔数和4字节版本号，之后是若干块，每块依次是：1字节类型、4字节原始长度、4字节压缩后长度、
+ * 4字节原始内容的crc32和Deflate压缩后的内容。
+ * 数据块的原始内容是Timeline ID、行数，然后每行依次是顺序ID与上一行的差值、消息ID、消息字节长度、消息字节、
+ * 其他属性列（消息属性、写入时间等）的个数和每列的列名、1字节类型与值，整数都是变长编码；
+ * 结束块的原始内容只有Timeline ID，表示该Timeline已经全部导出。
+ * 一个块只属于一个Timeline，同一个Timeline的块按顺序ID递增排列，不同Timeline的块可以交错。
+ * 块是追加写入的，进程中断时文件末尾最多有一个不完整的块。
+ */
+final class TimelineArchive {
+    final static int MAGIC = 0x544c4e41;
+    final static int VERSION = 2;
+    final static int HEADER_SIZE = 8;
+    final static int FRAME_HEADER_SIZE = 13;
+    final static byte TYPE_DATA = 1;
+    final static byte TYPE_END = 2;
+
+    private final static byte COLUMN_STRING = 1;
+    private final static byte COLUMN_INTEGER = 2;
+    private final static byte COLUMN_BOOLEAN = 3;
+    private final static byte COLUMN_DOUBLE = 4;
+    private final static byte COLUMN_BINARY = 5;
+
+    /**
+     * 单块原始内容的上限，避免损坏的文件导致分配过大的内存。
+     */
+    final static int MAX_BLOCK_SIZE = 256 * 1024 * 1024;
+
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+    private TimelineArchive() {
+    }
+
+    static void writeHeader(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    static void readHeader(DataInput input) throws IOException {
+        int magic = input.readInt();
+        int version = input.readInt();
+        if (magic != MAGIC) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, "Not a timeline archive file");
+        }
+        if (version != VERSION) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Unsupported timeline archive version:" + version);
+        }
+    }
+
+    /**
+     * 读取一个完整的块。
+     * @return  块，文件正好在块边界结束时返回null。
+     * @throws EOFException 文件末尾有不完整的块。
+     */
+    static Frame readFrame(DataInputStream input) throws IOException {
+        int type = input.read();
+        if (type < 0) {
+            return null;
+        }
+
+        Frame frame = new Frame();
+        frame.type = (byte) type;
+        frame.rawLength = input.readInt();
+        frame.compressedLength = input.readInt();
+        frame.crc32 = input.readInt();
+        if ((type != TYPE_DATA && type != TYPE_END) || frame.rawLength < 0 || frame.rawLength > MAX_BLOCK_SIZE
+                || frame.compressedLength < 0 || frame.compressedLength > MAX_BLOCK_SIZE + 1024) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, "Timeline archive is corrupted");
+        }
+        frame.compressed = new byte[frame.compressedLength];
+        input.readFully(frame.compressed);
+        return frame;
+    }
+
+    /**
+     * 压缩前的一个块，先用add追加行，再用encode压缩成可以直接写入文件的字节。
+     */
+    static class BlockBuilder {
+        private final String timelineID;
+        private final Buffer rows = new Buffer(64 * 1024);
+        private final Buffer header = new Buffer(64);
+        private final Buffer frame = new Buffer(64 * 1024);
+        private int count = 0;
+        private long lastSequenceID = 0;
+
+        BlockBuilder(String timelineID) {
+            this.timelineID = timelineID;
+        }
+
+        void add(long sequenceID, String messageID, byte[] content, int offset, int length, List<Column> columns) {
+            if (sequenceID < lastSequenceID) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Sequence ID must be increasing in a block");
+            }
+            rows.writeVarLong(sequenceID - lastSequenceID);
+            if (messageID == null) {
+                rows.writeVarLong(0);
+            } else {
+                byte[] bytes = messageID.getBytes(UTF8);
+                rows.writeVarLong(bytes.length + 1);
+                rows.write(bytes, 0, bytes.length);
+            }
+            rows.writeVarLong(length);
+            rows.write(content, offset, length);
+            rows.writeVarLong(columns.size());
+            for (Column column : columns) {
+                rows.writeString(column.getName());
+                rows.writeColumnValue(column.getValue());
+            }
+            lastSequenceID = sequenceID;
+            count++;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        int getSize() {
+            return rows.size;
+        }
+
+        /**
+         * 压缩当前内容并清空，下一块的顺序ID差值重新从0开始计算。
+         * @return  压缩后的块，下一次调用encode前有效。
+         */
+        Buffer encode(byte type, Deflater deflater) {
+            header.size = 0;
+            header.writeString(timelineID);
+            if (type == TYPE_DATA) {
+                header.writeVarLong(count);
+            } else {
+                rows.size = 0;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(header.array, 0, header.size);
+            crc.update(rows.array, 0, rows.size);
+            int rawLength = header.size + rows.size;
+
+            frame.size = 0;
+            frame.writeByte(type);
+            frame.writeInt(rawLength);
+            frame.writeInt(0);
+            frame.writeInt((int) crc.getValue());
+
+            deflater.reset();
+            deflate(deflater, header);
+            deflate(deflater, rows);
+            deflater.finish();
+            while (!deflater.finished()) {
+                frame.ensure(Math.max(1024, rawLength / 4));
+                frame.size += deflater.deflate(frame.array, frame.size, frame.array.length - frame.size);
+            }
+            int compressedLength = frame.size - FRAME_HEADER_SIZE;
+            frame.array[5] = (byte) (compressedLength >>> 24);
+            frame.array[6] = (byte) (compressedLength >>> 16);
+            frame.array[7] = (byte) (compressedLength >>> 8);
+            frame.array[8] = (byte) compressedLength;
+
+            rows.size = 0;
+            count = 0;
+            lastSequenceID = 0;
+            return frame;
+        }
+
+        private void deflate(Deflater deflater, Buffer input) {
+            deflater.setInput(input.array, 0, input.size);
+            while (!deflater.needsInput()) {
+                frame.ensure(Math.max(1024, input.size / 4));
+                frame.size += deflater.deflate(frame.array, frame.size, frame.array.length - frame.size);
+            }
+        }
+    }
+
+    /**
+     * 从文件读取的压缩块。
+     */
+    static class Frame {
+        byte type;
+        int rawLength;
+        int compressedLength;
+        int crc32;
+        byte[] compressed;
+
+        int getLength() {
+            return FRAME_HEADER_SIZE + compressedLength;
+        }
+
+        /**
+         * 解压并解析块的内容，消息字节不会被复制，保存在Block.data中。
+         */
+        Block decode(Inflater inflater) {
+            byte[] raw = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(compressed);
+            try {
+                int size = 0;
+                while (size < rawLength && !inflater.finished()) {
+                    int inflated = inflater.inflate(raw, size, rawLength - size);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    size += inflated;
+                }
+                if (size != rawLength) {
+                    throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                            "Timeline archive is corrupted, block length mismatch");
+                }
+            } catch (DataFormatException ex) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Timeline archive is corrupted, reason:" + ex.getMessage(), ex);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(raw, 0, rawLength);
+            if ((int) crc.getValue() != crc32) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Timeline archive is corrupted, crc32 mismatch");
+            }
+
+            Block block = new Block();
+            block.type = type;
+            block.data = raw;
+            Reader reader = new Reader(raw);
+            block.timelineID = reader.readString();
+            if (type == TYPE_END) {
+                return block;
+            }
+
+            block.count = (int) reader.readVarLong();
+            if (block.count < 0 || block.count > rawLength) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Timeline archive is corrupted, invalid row count");
+            }
+            block.sequenceIDs = new long[block.count];
+            block.messageIDs = new String[block.count];
+            block.offsets = new int[block.count];
+            block.lengths = new int[block.count];
+            block.columns = new ArrayList<List<Column>>(block.count);
+            long sequenceID = 0;
+            for (int i = 0; i < block.count; i++) {
+                sequenceID += reader.readVarLong();
+                block.sequenceIDs[i] = sequenceID;
+                int messageIDLength = (int) reader.readVarLong();
+                block.messageIDs[i] = messageIDLength == 0 ? null : reader.readString(messageIDLength - 1);
+                block.lengths[i] = reader.readLength();
+                block.offsets[i] = reader.position;
+                reader.skip(block.lengths[i]);
+                block.columns.add(reader.readColumns());
+            }
+            return block;
+        }
+    }
+
+    /**
+     * 解压后的块，每行的数据按列保存在数组中。
+     */
+    static class Block {
+        byte type;
+        String timelineID;
+        int count;
+        long[] sequenceIDs;
+        String[] messageIDs;
+        int[] offsets;
+        int[] lengths;
+        List<List<Column>> columns;
+        byte[] data;
+    }
+
+    /**
+     * 可增长的字节数组。
+     */
+    static class Buffer {
+        byte[] array;
+        int size = 0;
+
+        Buffer(int capacity) {
+            this.array = new byte[capacity];
+        }
+
+        void ensure(int extra) {
+            if (array.length - size < extra) {
+                array = Arrays.copyOf(array, Math.max(array.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            array[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            array[size++] = (byte) (value >>> 24);
+            array[size++] = (byte) (value >>> 16);
+            array[size++] = (byte) (value >>> 8);
+            array[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                array[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            array[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(UTF8);
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeColumnValue(ColumnValue value) {
+            switch (value.getType()) {
+                case STRING:
+                    writeByte(COLUMN_STRING);
+                    writeString(value.asString());
+                    break;
+                case INTEGER:
+                    writeByte(COLUMN_INTEGER);
+                    writeLong(value.asLong());
+                    break;
+                case BOOLEAN:
+                    writeByte(COLUMN_BOOLEAN);
+                    writeByte(value.asBoolean() ? 1 : 0);
+                    break;
+                case DOUBLE:
+                    writeByte(COLUMN_DOUBLE);
+                    writeLong(Double.doubleToLongBits(value.asDouble()));
+                    break;
+                case BINARY:
+                    writeByte(COLUMN_BINARY);
+                    byte[] bytes = value.asBinary();
+                    writeVarLong(bytes.length);
+                    write(bytes, 0, bytes.length);
+                    break;
+                default:
+                    throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                            "Unsupported column type:" + value.getType());
+            }
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, array, size, length);
+            size += length;
+        }
+    }
+
+    private static class Reader {
+        private final byte[] array;
+        private int position = 0;
+
+        Reader(byte[] array) {
+            this.array = array;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= array.length) {
+                    break;
+                }
+                byte b = array[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Timeline archive is corrupted, invalid varint");
+        }
+
+        int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > array.length - position) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Timeline archive is corrupted, invalid length");
+            }
+            return (int) length;
+        }
+
+        String readString() {
+            return readString(readLength());
+        }
+
+        byte readByte() {
+            if (position >= array.length) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Timeline archive is corrupted, invalid length");
+            }
+            return array[position++];
+        }
+
+        long readLong() {
+            if (array.length - position < 8) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Timeline archive is corrupted, invalid length");
+            }
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (array[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        List<Column> readColumns() {
+            int count = readLength();
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+
+            List<Column> columns = new ArrayList<Column>(count);
+            for (int i = 0; i < count; i++) {
+                String name = readString();
+                byte type = readByte();
+                ColumnValue value;
+                if (type == COLUMN_STRING) {
+                    value = ColumnValue.fromString(readString());
+                } else if (type == COLUMN_INTEGER) {
+                    value = ColumnValue.fromLong(readLong());
+                } else if (type == COLUMN_BOOLEAN) {
+                    value = ColumnValue.fromBoolean(readByte() != 0);
+                } else if (type == COLUMN_DOUBLE) {
+                    value = ColumnValue.fromDouble(Double.longBitsToDouble(readLong()));
+                } else if (type == COLUMN_BINARY) {
+                    int length = readLength();
+                    value = ColumnValue.fromBinary(Arrays.copyOfRange(array, position, position + length));
+                    position += length;
+                } else {
+                    throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                            "Timeline archive is corrupted, invalid column type");
+                }
+                columns.add(new Column(name, value));
+            }
+            return columns;
+        }
+
+        String readString(int length) {
+            if (length < 0 || length > array.length - position) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Timeline archive is corrupted, invalid length");
+            }
+            String value = new String(array, position, length, UTF8);
+            position += length;
+            return value;
+        }
+
+        void skip(int length) {
+            position += length;
+        }
+    }
+}
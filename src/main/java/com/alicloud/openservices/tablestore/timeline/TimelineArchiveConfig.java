@@ -0,0 +1,71 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.zip.Deflater;
+
+/**
+ * TimelineExporter和TimelineImporter的配置文件。
+ */
+public class TimelineArchiveConfig {
+    /**
+     * 导出时同时扫描的Timeline个数，导入时同时进行中的BatchWriteRow请求数。默认8。
+     */
+    private int concurrency = 8;
+
+    /**
+     * 导出时单块压缩前的大小上限，单位是字节。块越大压缩率越高，导入时占用的内存也越多。默认1MB。
+     */
+    private int blockSize = 1024 * 1024;
+
+    /**
+     * Deflate压缩级别，取值0到9，默认1，优先保证吞吐。
+     */
+    private int compressionLevel = Deflater.BEST_SPEED;
+
+    /**
+     * 获取并发数。
+     * @return  并发数。
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * 设置导出时同时扫描的Timeline个数，导入时同时进行中的BatchWriteRow请求数。
+     * @param concurrency   并发数。
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * 获取单块压缩前的大小上限。
+     * @return  字节数。
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * 设置单块压缩前的大小上限。
+     * @param blockSize 字节数。
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * 获取压缩级别。
+     * @return  压缩级别。
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * 设置压缩级别，取值0到9。
+     * @param compressionLevel  压缩级别。
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+}
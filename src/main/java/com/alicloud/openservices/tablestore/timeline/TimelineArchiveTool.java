@@ -0,0 +1,116 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量导出、导入Timeline的命令行工具，第一个参数是export或import，其他参数格式是--name=value，例如：
+ * java -cp timeline.jar:tablestore.jar com.alicloud.openservices.tablestore.timeline.TimelineArchiveTool export \
+ *     --endpoint=... --accessKeyID=... --accessKeySecret=... --instanceName=... --tableName=... \
+ *     --timelineFile=timelines.txt --file=backup.tla
+ * 导出的Timeline ID可以用--timelines逗号分隔传入，也可以用--timelineFile从文件中每行读取一个。
+ * 中断后用同样的参数再次执行即可从断点继续。
+ */
+public class TimelineArchiveTool {
+    private final Map<String, String> options = new LinkedHashMap<String, String>();
+    private final String command;
+
+    TimelineArchiveTool(String[] args) {
+        options.put("endpoint", "");
+        options.put("accessKeyID", "");
+        options.put("accessKeySecret", "");
+        options.put("instanceName", "");
+        options.put("tableName", "");
+        options.put("timelineIDSaltLength", "0");
+        options.put("file", "");
+        options.put("timelines", "");
+        options.put("timelineFile", "");
+        options.put("concurrency", "8");
+        options.put("blockSize", String.valueOf(1024 * 1024));
+        options.put("compressionLevel", "1");
+
+        if (args.length == 0 || !(args[0].equals("export") || args[0].equals("import"))) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Usage: TimelineArchiveTool export|import --name=value ..., supported:" + options.keySet());
+        }
+        command = args[0];
+
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            int pos = arg.indexOf('=');
+            if (!arg.startsWith("--") || pos < 0 || !options.containsKey(arg.substring(2, pos))) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Unknown argument:" + arg + ", supported:" + options.keySet());
+            }
+            options.put(arg.substring(2, pos), arg.substring(pos + 1));
+        }
+
+        if (options.get("file").length() == 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, "Argument --file is required");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new TimelineArchiveTool(args).run();
+    }
+
+    void run() throws IOException {
+        DistributeTimelineConfig storeConfig = new DistributeTimelineConfig(options.get("endpoint"),
+                options.get("accessKeyID"), options.get("accessKeySecret"),
+                options.get("instanceName"), options.get("tableName"));
+        storeConfig.setTimelineIDSaltLength(Integer.parseInt(options.get("timelineIDSaltLength")));
+
+        TimelineArchiveConfig config = new TimelineArchiveConfig();
+        config.setConcurrency(Integer.parseInt(options.get("concurrency")));
+        config.setBlockSize(Integer.parseInt(options.get("blockSize")));
+        config.setCompressionLevel(Integer.parseInt(options.get("compressionLevel")));
+
+        File file = new File(options.get("file"));
+        DistributeTimelineStore store = new DistributeTimelineStore(storeConfig);
+        try {
+            long start = System.currentTimeMillis();
+            long rows;
+            if (command.equals("export")) {
+                rows = new TimelineExporter(store, config).export(readTimelineIDs(), file);
+            } else {
+                rows = new TimelineImporter(store, config).importFrom(file);
+            }
+            System.out.println(String.format("%s %d rows in %d ms", command, rows, System.currentTimeMillis() - start));
+        } finally {
+            store.close();
+        }
+    }
+
+    private List<String> readTimelineIDs() throws IOException {
+        List<String> timelineIDs = new ArrayList<String>();
+        for (String timelineID : options.get("timelines").split(",")) {
+            if (timelineID.trim().length() > 0) {
+                timelineIDs.add(timelineID.trim());
+            }
+        }
+
+        if (options.get("timelineFile").length() > 0) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(options.get("timelineFile")), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().length() > 0) {
+                        timelineIDs.add(line.trim());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        if (timelineIDs.isEmpty()) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Argument --timelines or --timelineFile is required for export");
+        }
+        return timelineIDs;
+    }
+}
@@ -0,0 +1,144 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IStore.delete和deleteTimeline返回的后台删除任务，get返回删除的行数。
+ * 任务在后台只读取主键，按批并发删除，执行过程中可以通过getDeletedCount和getCheckpoint查看进度。
+ * 顺序ID小于checkpoint的消息都已经删除，任务失败、被取消或者进程重启后，
+ * 用delete(timelineID, checkpoint, toSequenceID)可以从断点继续删除，不会重复扫描已经删除的范围。
+ * 失败时get直接抛出TimelineException。
+ */
+public class TimelineDeleteJob implements Future<Long> {
+    private final String timelineID;
+    private final long fromSequenceID;
+    private final long toSequenceID;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private final AtomicLong deletedCount = new AtomicLong(0);
+    private volatile long checkpoint;
+    private volatile boolean cancelled = false;
+    private Exception exception = null;
+
+    TimelineDeleteJob(String timelineID, long fromSequenceID, long toSequenceID) {
+        this.timelineID = timelineID;
+        this.fromSequenceID = fromSequenceID;
+        this.toSequenceID = toSequenceID;
+        this.checkpoint = fromSequenceID;
+    }
+
+    /**
+     * 获取删除的Timeline ID。
+     * @return  Timeline ID。
+     */
+    public String getTimelineID() {
+        return timelineID;
+    }
+
+    /**
+     * 获取删除范围的起始顺序ID（包含）。
+     * @return  顺序ID。
+     */
+    public long getFromSequenceID() {
+        return fromSequenceID;
+    }
+
+    /**
+     * 获取删除范围的结束顺序ID（不包含）。
+     * @return  顺序ID。
+     */
+    public long getToSequenceID() {
+        return toSequenceID;
+    }
+
+    /**
+     * 获取已经删除的行数。
+     * @return  行数。
+     */
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
+    /**
+     * 获取断点，[fromSequenceID, checkpoint)范围内的消息都已经删除，任务成功结束时等于toSequenceID。
+     * @return  顺序ID。
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    void addDeleted(long count) {
+        deletedCount.addAndGet(count);
+    }
+
+    void setCheckpoint(long checkpoint) {
+        if (checkpoint > this.checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    void complete() {
+        if (completed.compareAndSet(false, true)) {
+            done.countDown();
+        }
+    }
+
+    void fail(Exception exception) {
+        if (completed.compareAndSet(false, true)) {
+            this.exception = exception;
+            done.countDown();
+        }
+    }
+
+    /**
+     * 取消任务，不再发起新的删除请求，已经发出的请求会继续完成并更新进度。
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (completed.compareAndSet(false, true)) {
+            cancelled = true;
+            done.countDown();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public Long get() throws InterruptedException, ExecutionException {
+        done.await();
+        return report();
+    }
+
+    @Override
+    public Long get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    private Long report() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+
+        if (exception instanceof RuntimeException) {
+            throw (RuntimeException) exception;
+        } else if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+        return deletedCount.get();
+    }
+}
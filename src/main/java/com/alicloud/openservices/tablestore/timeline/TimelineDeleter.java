@@ -0,0 +1,207 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.ClientException;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * DistributeTimelineStore中执行TimelineDeleteJob的后台线程。
+ * 扫描和删除是流水线：扫描线程只读取主键，每凑满一批就异步发出BatchWriteRow，然后继续扫描下一页，
+ * 同时进行中的删除请求数由deleteConcurrency限制。
+ * 每批覆盖[本批起始顺序ID, 本批最后一行的顺序ID + 1)，批次按顺序连续，只有前面所有批次都删除成功后断点才会前移，
+ * 所以并发完成的顺序不影响断点的正确性。
+ */
+class TimelineDeleter implements Runnable {
+    private static Logger logger = LoggerFactory.getLogger(TimelineDeleter.class);
+
+    /**
+     * 单次GetRange最多返回的行数。
+     */
+    private final static int MAX_PAGE_SIZE = 5000;
+
+    private final DistributeTimelineStore store;
+    private final DistributeTimelineConfig config;
+    private final AsyncClientInterface client;
+    private final TimelineDeleteJob job;
+    private final int concurrency;
+    private final Semaphore permits;
+
+    /**
+     * 已经删除成功、但前面还有未完成批次的批次，key是批次的起始顺序ID，value是结束顺序ID。
+     */
+    private final TreeMap<Long, Long> finished = new TreeMap<Long, Long>();
+    private long committed;
+
+    TimelineDeleter(DistributeTimelineStore store, AsyncClientInterface client, TimelineDeleteJob job) {
+        this.store = store;
+        this.config = store.getConfig();
+        this.client = client;
+        this.job = job;
+        this.concurrency = Math.max(1, config.getDeleteConcurrency());
+        this.permits = new Semaphore(concurrency);
+        this.committed = job.getFromSequenceID();
+    }
+
+    /**
+     * 在新的守护线程中执行删除任务。
+     */
+    void start() {
+        Thread thread = new Thread(this, "timeline-delete-" + job.getTimelineID());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            scan();
+        } catch (RuntimeException ex) {
+            job.fail(ex);
+        }
+
+        // 等待已经发出的请求完成，保证任务结束后进度不再变化。
+        permits.acquireUninterruptibly(concurrency);
+        if (job.getFromSequenceID() < job.getToSequenceID()) {
+            logger.info("Delete timeline {} [{}, {}) finished, deleted:{}, checkpoint:{}.", job.getTimelineID(),
+                    job.getFromSequenceID(), job.getToSequenceID(), job.getDeletedCount(), job.getCheckpoint());
+        }
+        if (!job.isDone()) {
+            job.setCheckpoint(job.getToSequenceID());
+            job.complete();
+        }
+    }
+
+    private void scan() {
+        String timelineID = job.getTimelineID();
+        if (job.getFromSequenceID() >= job.getToSequenceID()) {
+            return;
+        }
+
+        ScanParameter parameter = ScanParameterBuilder.scanForward()
+                .from(job.getFromSequenceID()).to(job.getToSequenceID()).maxCount(Integer.MAX_VALUE).build();
+        RangeRowQueryCriteria criteria = store.createRangeCriteria(timelineID, parameter);
+        // 只需要主键，读取消息ID列避免返回消息内容。
+        criteria.addColumnsToGet(config.getMessageIDColumnName());
+        criteria.setLimit(MAX_PAGE_SIZE);
+
+        long batchFrom = job.getFromSequenceID();
+        List<PrimaryKey> batch = new ArrayList<PrimaryKey>();
+        while (!job.isDone()) {
+            GetRangeResponse response;
+            try {
+                TableStoreFuture<GetRangeRequest, GetRangeResponse> future =
+                        new TableStoreFuture<GetRangeRequest, GetRangeResponse>();
+                client.getRange(new GetRangeRequest(criteria), future);
+                response = Utils.await(future, "Scan timeline " + timelineID);
+            } catch (TableStoreException ex) {
+                throw store.handleTableStoreException(ex, timelineID, "delete");
+            }
+
+            for (Row row : response.getRows()) {
+                batch.add(row.getPrimaryKey());
+                if (batch.size() >= DistributeTimelineStore.MAX_BATCH_WRITE_ROWS) {
+                    long batchTo = sequenceIDOf(row) + 1;
+                    submit(batch, batchFrom, batchTo);
+                    batch = new ArrayList<PrimaryKey>();
+                    batchFrom = batchTo;
+                }
+            }
+
+            if (response.getNextStartPrimaryKey() == null) {
+                break;
+            }
+            criteria.setInclusiveStartPrimaryKey(response.getNextStartPrimaryKey());
+        }
+
+        if (!batch.isEmpty() && !job.isDone()) {
+            submit(batch, batchFrom, job.getToSequenceID());
+        }
+    }
+
+    private void submit(List<PrimaryKey> primaryKeys, final long batchFrom, final long batchTo) {
+        final String timelineID = job.getTimelineID();
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException(TimelineExceptionType.TET_ABORT,
+                    "Delete timeline " + timelineID + " is interrupted", ex);
+        }
+        if (job.isDone()) {
+            permits.release();
+            return;
+        }
+
+        BatchWriteRowRequest request = new BatchWriteRowRequest();
+        for (PrimaryKey primaryKey : primaryKeys) {
+            request.addRowChange(new RowDeleteChange(config.getTableName(), primaryKey));
+        }
+
+        TableStoreCallback<BatchWriteRowRequest, BatchWriteRowResponse> callback =
+                new TableStoreCallback<BatchWriteRowRequest, BatchWriteRowResponse>() {
+            @Override
+            public void onCompleted(BatchWriteRowRequest request, BatchWriteRowResponse response) {
+                try {
+                    job.addDeleted(response.getSucceedRows().size());
+                    if (response.getFailedRows().isEmpty()) {
+                        commit(batchFrom, batchTo);
+                    } else {
+                        job.fail(new TimelineException(TimelineExceptionType.TET_RETRY,
+                                String.format("Delete timeline %s failed, failed:%d, reason:%s, checkpoint:%d",
+                                        timelineID, response.getFailedRows().size(),
+                                        response.getFailedRows().get(0).getError().getMessage(),
+                                        job.getCheckpoint())));
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+
+            @Override
+            public void onFailed(BatchWriteRowRequest request, Exception e) {
+                try {
+                    if (e instanceof TableStoreException) {
+                        job.fail(store.handleTableStoreException((TableStoreException) e, timelineID, "delete"));
+                    } else {
+                        job.fail(new TimelineException(TimelineExceptionType.TET_UNKNOWN,
+                                "Delete timeline " + timelineID + " failed, reason:" + e.getMessage(), e));
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+        };
+
+        try {
+            client.batchWriteRow(request, callback);
+        } catch (ClientException ex) {
+            permits.release();
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Parameter is invalid, reason:" + ex.getMessage(), ex);
+        }
+    }
+
+    private void commit(long batchFrom, long batchTo) {
+        synchronized (finished) {
+            finished.put(batchFrom, batchTo);
+            Long next;
+            while ((next = finished.remove(committed)) != null) {
+                committed = next;
+            }
+            job.setCheckpoint(committed);
+        }
+    }
+
+    private long sequenceIDOf(Row row) {
+        return row.getPrimaryKey().getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
+    }
+}
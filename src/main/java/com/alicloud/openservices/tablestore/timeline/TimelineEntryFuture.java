@@ -0,0 +1,80 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 异步读写返回的Future，由SDK的回调设置结果。
+ * get只等待CountDownLatch，不调用SDK Future的get：SDK的Future在synchronized中wait，虚拟线程等待时会占住载体线程。
+ * 失败时get直接抛出回调中转换好的TimelineException。
+ * SDK的Future不支持取消，这里的cancel只让等待的线程立即返回（get抛出CancellationException），
+ * 已经发出的请求仍会执行，传入的TimelineCallback仍会收到结果，Future上的结果被丢弃。
+ */
+class TimelineEntryFuture implements Future<TimelineEntry> {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private volatile boolean cancelled = false;
+    private TimelineEntry entry = null;
+    private Exception exception = null;
+
+    void complete(TimelineEntry entry) {
+        if (completed.compareAndSet(false, true)) {
+            this.entry = entry;
+            done.countDown();
+        }
+    }
+
+    void fail(Exception exception) {
+        if (completed.compareAndSet(false, true)) {
+            this.exception = exception;
+            done.countDown();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (completed.compareAndSet(false, true)) {
+            cancelled = true;
+            done.countDown();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public TimelineEntry get() throws InterruptedException, ExecutionException {
+        done.await();
+        return report();
+    }
+
+    @Override
+    public TimelineEntry get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    private TimelineEntry report() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+
+        if (exception instanceof RuntimeException) {
+            throw (RuntimeException) exception;
+        } else if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,307 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 把DistributeTimelineStore中的Timeline流式导出到本地文件，文件格式见TimelineArchive。
+ * 多个Timeline并发扫描，每个Timeline只读取一遍，扫描下一页的同时压缩当前页，消息不会反序列化。
+ * 消息的属性列（AttributedMessage的属性、开启时间索引时的写入时间）原样导出，导入后可以继续按属性过滤和按时间范围读取。
+ * 导出可以断点续传：对已经存在的文件再次调用export，会截掉末尾不完整的块，跳过已经导出完的Timeline，
+ * 没有导出完的Timeline从文件中最后一条消息之后继续。续传时需要传入同样的Timeline列表。
+ */
+public class TimelineExporter {
+    private static Logger logger = LoggerFactory.getLogger(TimelineExporter.class);
+
+    /**
+     * 单次GetRange最多返回的行数。
+     */
+    private final static int MAX_PAGE_SIZE = 5000;
+
+    private final DistributeTimelineStore store;
+    private final DistributeTimelineConfig storeConfig;
+    private final AsyncClientInterface client;
+    private final TimelineArchiveConfig config;
+
+    /**
+     * TimelineExporter的构造函数。
+     * @param store     需要导出的Store。
+     * @param config    导出的配置参数。
+     */
+    public TimelineExporter(DistributeTimelineStore store, TimelineArchiveConfig config) {
+        if (store == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "TimelineExporter parameter store is null");
+        }
+        if (config.getConcurrency() <= 0 || config.getBlockSize() <= 0
+                || config.getBlockSize() > TimelineArchive.MAX_BLOCK_SIZE / 2) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "TimelineArchiveConfig concurrency or blockSize is invalid");
+        }
+
+        this.store = store;
+        this.storeConfig = store.getConfig();
+        this.client = store.getClient();
+        this.config = config;
+    }
+
+    /**
+     * 导出Timeline到文件，文件已经存在时从上次中断的位置继续。
+     * @param timelineIDs   需要导出的Timeline ID。
+     * @param file          导出文件。
+     * @return              本次导出的消息条数。
+     */
+    public long export(Collection<String> timelineIDs, File file) {
+        Map<String, Long> lastSequenceIDs = new HashMap<String, Long>();
+        Set<String> finished = new HashSet<String>();
+        final Output output;
+        try {
+            long length = recover(file, lastSequenceIDs, finished);
+            RandomAccessFile truncate = new RandomAccessFile(file, "rw");
+            try {
+                truncate.setLength(length);
+            } finally {
+                truncate.close();
+            }
+
+            output = new Output(new BufferedOutputStream(new FileOutputStream(file, true), 1024 * 1024));
+            if (length == 0) {
+                output.writeHeader();
+            }
+        } catch (IOException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_ABORT,
+                    "Open export file failed, reason:" + ex.getMessage(), ex);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(config.getConcurrency(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "timeline-export");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Long>> futures = new ArrayList<Future<Long>>();
+            for (final String timelineID : new LinkedHashSet<String>(timelineIDs)) {
+                if (finished.contains(timelineID)) {
+                    continue;
+                }
+                Long last = lastSequenceIDs.get(timelineID);
+                final long from = last == null ? 0 : last + 1;
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return exportTimeline(timelineID, from, output);
+                    }
+                }));
+            }
+
+            long exported = 0;
+            for (Future<Long> future : futures) {
+                exported += get(future);
+            }
+            output.close();
+            logger.info("Export {} timelines to {} finished, exported:{}.",
+                    futures.size(), file.getPath(), exported);
+            return exported;
+        } catch (IOException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_ABORT,
+                    "Write export file failed, reason:" + ex.getMessage(), ex);
+        } finally {
+            // 出错时其他扫描线程可能还在写文件，等它们退出后再关闭文件。
+            executor.shutdownNow();
+            awaitTermination(executor);
+            output.closeQuietly();
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            // 扫描线程等待的是可以被中断的CountDownLatch，shutdownNow后很快就会退出。
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long exportTimeline(String timelineID, long from, Output output) throws IOException {
+        ScanParameter parameter = ScanParameterBuilder.scanForward()
+                .from(from).to(Long.MAX_VALUE).maxCount(Integer.MAX_VALUE).build();
+        TimelineArchive.BlockBuilder builder = new TimelineArchive.BlockBuilder(timelineID);
+        Deflater deflater = new Deflater(config.getCompressionLevel(), false);
+        long exported = 0;
+        try {
+            TableStoreFuture<GetRangeRequest, GetRangeResponse> next = new TableStoreFuture<GetRangeRequest, GetRangeResponse>();
+            client.getRange(new GetRangeRequest(createCriteria(timelineID, parameter, null)), next);
+            while (next != null) {
+                GetRangeResponse response;
+                try {
+                    response = Utils.await(next, "Export timeline " + timelineID);
+                } catch (TableStoreException ex) {
+                    throw store.handleTableStoreException(ex, timelineID, "export");
+                }
+
+                // 先发出下一页的请求，再编码当前页。
+                next = null;
+                if (response.getNextStartPrimaryKey() != null) {
+                    next = new TableStoreFuture<GetRangeRequest, GetRangeResponse>();
+                    client.getRange(new GetRangeRequest(
+                            createCriteria(timelineID, parameter, response.getNextStartPrimaryKey())), next);
+                }
+
+                for (Row row : response.getRows()) {
+                    TimelineEntry entry = Utils.toTimelineEntry(row, storeConfig, true);
+                    RawMessage message = (RawMessage) entry.getMessage();
+                    builder.add(entry.getSequenceID(), message.getMessageID(),
+                            message.getArray(), message.getOffset(), message.getLength(), attributeColumns(row));
+                    exported++;
+                    if (builder.getSize() >= config.getBlockSize()) {
+                        output.write(builder.encode(TimelineArchive.TYPE_DATA, deflater));
+                    }
+                }
+            }
+
+            if (builder.getCount() > 0) {
+                output.write(builder.encode(TimelineArchive.TYPE_DATA, deflater));
+            }
+            output.write(builder.encode(TimelineArchive.TYPE_END, deflater));
+        } finally {
+            deflater.end();
+        }
+        return exported;
+    }
+
+    /**
+     * 消息内容、消息ID和crc32之外的列，由导入时原样写回。
+     */
+    private List<Column> attributeColumns(Row row) {
+        List<Column> columns = null;
+        for (Column column : row.getColumns()) {
+            String name = column.getName();
+            if (name.startsWith(storeConfig.getMessageContentPrefix()) || name.equals(storeConfig.getMessageIDColumnName())
+                    || name.equals(storeConfig.getColumnNameOfMessageCrc32())) {
+                continue;
+            }
+            if (columns == null) {
+                columns = new ArrayList<Column>();
+            }
+            columns.add(column);
+        }
+        return columns == null ? Collections.<Column>emptyList() : columns;
+    }
+
+    private RangeRowQueryCriteria createCriteria(String timelineID, ScanParameter parameter, PrimaryKey start) {
+        RangeRowQueryCriteria criteria = store.createRangeCriteria(timelineID, parameter);
+        if (start != null) {
+            criteria.setInclusiveStartPrimaryKey(start);
+        }
+        criteria.setLimit(MAX_PAGE_SIZE);
+        return criteria;
+    }
+
+    /**
+     * 读取已有的导出文件，得到每个Timeline已经导出的最后一个顺序ID和已经导出完的Timeline。
+     * @return  文件中完整部分的长度，文件不存在时返回0。
+     */
+    static long recover(File file, Map<String, Long> lastSequenceIDs, Set<String> finished) throws IOException {
+        if (!file.exists() || file.length() < TimelineArchive.HEADER_SIZE) {
+            return 0;
+        }
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1024 * 1024));
+        Inflater inflater = new Inflater();
+        try {
+            TimelineArchive.readHeader(input);
+            long position = TimelineArchive.HEADER_SIZE;
+            while (true) {
+                TimelineArchive.Frame frame;
+                try {
+                    frame = TimelineArchive.readFrame(input);
+                } catch (EOFException ex) {
+                    logger.warn("Truncate incomplete block at {} of {}.", position, file.getPath());
+                    break;
+                }
+                if (frame == null) {
+                    break;
+                }
+
+                TimelineArchive.Block block = frame.decode(inflater);
+                if (block.type == TimelineArchive.TYPE_END) {
+                    finished.add(block.timelineID);
+                } else if (block.count > 0) {
+                    lastSequenceIDs.put(block.timelineID, block.sequenceIDs[block.count - 1]);
+                }
+                position += frame.getLength();
+            }
+            return position;
+        } finally {
+            inflater.end();
+            input.close();
+        }
+    }
+
+    private static long get(Future<Long> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException(TimelineExceptionType.TET_ABORT, "Export was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof TimelineException) {
+                throw (TimelineException) ex.getCause();
+            }
+            throw new TimelineException(TimelineExceptionType.TET_UNKNOWN,
+                    "Export failed, reason:" + ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    /**
+     * 多个扫描线程共享的输出流，每次写入一个完整的块。
+     */
+    private static class Output {
+        private final OutputStream stream;
+        private boolean closed = false;
+
+        Output(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        synchronized void writeHeader() throws IOException {
+            DataOutputStream data = new DataOutputStream(stream);
+            TimelineArchive.writeHeader(data);
+            data.flush();
+        }
+
+        synchronized void write(TimelineArchive.Buffer frame) throws IOException {
+            if (closed) {
+                throw new TimelineException(TimelineExceptionType.TET_ABORT, "Export file is closed");
+            }
+            stream.write(frame.array, 0, frame.size);
+        }
+
+        synchronized void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                stream.close();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                close();
+            } catch (IOException ex) {
+                logger.warn("Close export file failed.", ex);
+            }
+        }
+    }
+}
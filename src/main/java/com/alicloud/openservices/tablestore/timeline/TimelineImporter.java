@@ -0,0 +1,379 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.ClientException;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Inflater;
+
+/**
+ * 把TimelineExporter导出的文件流式导入DistributeTimelineStore，消息的顺序ID使用文件中的值，不再由服务端自增生成。
+ * 顺序ID列是自增列，导入依赖服务端接受在自增列中写入指定的值（本地测试服务LocalTableStoreServer总是接受）；
+ * 服务端不接受时第一批写入就会以TET_INVALID_USE失败。导入的顺序ID是原来写入时生成的微秒时间戳，
+ * 小于之后服务端自增生成的值，所以导入后正常写入的消息仍然排在导入的消息之后。
+ * 读取线程顺序解压文件中的块，按BatchWriteRow的行数和大小限制拆分后异步写入，同时进行中的请求数由concurrency限制。
+ * 导入过程中在导入文件旁边维护一个断点文件（文件名加.checkpoint），记录之前所有块都已经写入成功的位置，
+ * 进程中断后再次导入同一个文件会从断点继续，全部导入成功后删除断点文件。
+ * 同一个主键重复写入是覆盖，所以续传时重新写入断点之后的块不会产生重复消息。
+ * 目标Store开启了消息ID索引时，每条消息的索引和消息在同一个BatchWriteRow中写入，导入后可以按消息ID读取。
+ * 消息的属性列原样写回；目标Store开启了时间索引时，按导入消息的写入时间补写时间索引，和正常写入一样只是读取的提示。
+ */
+public class TimelineImporter {
+    private static Logger logger = LoggerFactory.getLogger(TimelineImporter.class);
+
+    /**
+     * 断点文件的后缀。
+     */
+    public final static String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    /**
+     * 单次BatchWriteRow中消息和属性列字节的上限，服务端限制单次请求4MB，留出主键和其他列的空间。
+     */
+    private final static int MAX_BATCH_BYTES = 3 * 1024 * 1024;
+
+    /**
+     * 部分行写入失败时，失败的行最多重试的次数。
+     */
+    private final static int MAX_ROW_RETRIES = 3;
+
+    private final DistributeTimelineStore store;
+    private final DistributeTimelineConfig storeConfig;
+    private final AsyncClientInterface client;
+    private final TimelineArchiveConfig config;
+
+    /**
+     * TimelineImporter的构造函数。
+     * @param store     导入的目标Store。
+     * @param config    导入的配置参数。
+     */
+    public TimelineImporter(DistributeTimelineStore store, TimelineArchiveConfig config) {
+        if (store == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "TimelineImporter parameter store is null");
+        }
+        if (config.getConcurrency() <= 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "TimelineArchiveConfig concurrency is invalid");
+        }
+
+        this.store = store;
+        this.storeConfig = store.getConfig();
+        this.client = store.getClient();
+        this.config = config;
+    }
+
+    /**
+     * 导入文件中的所有消息，存在断点文件时从断点继续。
+     * @param file  TimelineExporter导出的文件。
+     * @return      本次导入的消息条数。
+     */
+    public long importFrom(File file) {
+        File checkpointFile = new File(file.getPath() + CHECKPOINT_SUFFIX);
+        Task task = null;
+        DataInputStream input = null;
+        Inflater inflater = new Inflater();
+        try {
+            task = new Task(checkpointFile);
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1024 * 1024));
+            TimelineArchive.readHeader(input);
+            long position = task.committed;
+            skipFully(input, position - TimelineArchive.HEADER_SIZE);
+
+            while (task.error == null) {
+                TimelineArchive.Frame frame;
+                try {
+                    frame = TimelineArchive.readFrame(input);
+                } catch (EOFException ex) {
+                    throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                            "Import file is truncated at position:" + position, ex);
+                }
+                if (frame == null) {
+                    break;
+                }
+
+                long end = position + frame.getLength();
+                if (frame.type == TimelineArchive.TYPE_DATA) {
+                    task.submit(frame.decode(inflater), position, end);
+                } else {
+                    task.begin(position, end, 0);
+                }
+                position = end;
+                task.saveCheckpoint();
+            }
+
+            task.awaitAll();
+            task.saveCheckpoint();
+            if (task.error != null) {
+                throw task.error;
+            }
+            task.closeCheckpoint();
+            if (!checkpointFile.delete()) {
+                logger.warn("Delete checkpoint file {} failed.", checkpointFile.getPath());
+            }
+            logger.info("Import {} finished, imported:{}.", file.getPath(), task.imported.get());
+            return task.imported.get();
+        } catch (IOException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_ABORT,
+                    "Import file failed, reason:" + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            if (task != null) {
+                task.awaitAll();
+                task.saveCheckpointQuietly();
+            }
+            throw ex;
+        } finally {
+            inflater.end();
+            if (task != null) {
+                task.closeCheckpoint();
+            }
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ex) {
+                    logger.warn("Close import file failed.", ex);
+                }
+            }
+        }
+    }
+
+    private static void skipFully(InputStream input, long length) throws IOException {
+        while (length > 0) {
+            long skipped = input.skip(length);
+            if (skipped <= 0) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Checkpoint is beyond the end of import file");
+            }
+            length -= skipped;
+        }
+    }
+
+    /**
+     * 一次导入的状态。
+     */
+    private class Task {
+        private final Semaphore permits = new Semaphore(config.getConcurrency());
+        private final AtomicLong imported = new AtomicLong(0);
+
+        /**
+         * 还没有全部写入成功的块，key是块在文件中的起始位置。
+         */
+        private final TreeMap<Long, PendingBlock> pending = new TreeMap<Long, PendingBlock>();
+        private final RandomAccessFile checkpoint;
+        private long committed;
+        private long saved;
+        private volatile TimelineException error = null;
+
+        Task(File checkpointFile) throws IOException {
+            boolean exists = checkpointFile.exists() && checkpointFile.length() >= 8;
+            checkpoint = new RandomAccessFile(checkpointFile, "rw");
+            committed = exists ? checkpoint.readLong() : TimelineArchive.HEADER_SIZE;
+            if (committed < TimelineArchive.HEADER_SIZE) {
+                throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Checkpoint file is corrupted:" + checkpointFile.getPath());
+            }
+            if (exists) {
+                logger.info("Resume import from checkpoint {}.", committed);
+            }
+            saved = committed;
+        }
+
+        void submit(TimelineArchive.Block block, long start, long end) {
+            String firstPKValue = Utils.saltTimelineID(block.timelineID, storeConfig.getTimelineIDSaltLength());
+            MessageIDIndex messageIndex = store.getMessageIndex();
+            TimelineTimeIndex timeIndex = store.getTimeIndex();
+            // 开启索引时每条消息占两行。
+            int rowsPerMessage = messageIndex == null ? 1 : 2;
+            List<BatchWriteRowRequest> requests = new ArrayList<BatchWriteRowRequest>();
+            BatchWriteRowRequest request = null;
+            int bytes = 0;
+            for (int i = 0; i < block.count; i++) {
+                List<Column> attributes = block.columns.get(i);
+                int size = block.lengths[i] + (int) Utils.dataSize(attributes);
+                if (request == null || request.getRowsCount() + rowsPerMessage > DistributeTimelineStore.MAX_BATCH_WRITE_ROWS
+                        || bytes + size > MAX_BATCH_BYTES) {
+                    request = new BatchWriteRowRequest();
+                    requests.add(request);
+                    bytes = 0;
+                }
+
+                PrimaryKey primaryKey = PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                        .addPrimaryKeyColumn(storeConfig.getFirstPKName(), PrimaryKeyValue.fromString(firstPKValue))
+                        .addPrimaryKeyColumn(storeConfig.getSecondPKName(), PrimaryKeyValue.fromLong(block.sequenceIDs[i]))
+                        .build();
+                RowPutChange change = new RowPutChange(storeConfig.getTableName(), primaryKey);
+                change.addColumns(Utils.toColumns(block.data, block.offsets[i], block.lengths[i],
+                        block.messageIDs[i], storeConfig));
+                change.addColumns(attributes);
+                request.addRowChange(change);
+                if (timeIndex != null) {
+                    timeIndex.record(block.timelineID, block.sequenceIDs[i], change);
+                }
+                if (messageIndex != null && block.messageIDs[i] != null) {
+                    request.addRowChange(messageIndex.createRowChange(block.timelineID, block.messageIDs[i],
+                            block.sequenceIDs[i]));
+                }
+                bytes += size;
+            }
+
+            begin(start, end, requests.size());
+            for (BatchWriteRowRequest batch : requests) {
+                permits.acquireUninterruptibly();
+                if (error != null) {
+                    permits.release();
+                    return;
+                }
+                send(batch, block.timelineID, start, 0);
+            }
+        }
+
+        void begin(long start, long end, int batches) {
+            synchronized (pending) {
+                pending.put(start, new PendingBlock(end, batches));
+                advance();
+            }
+        }
+
+        /**
+         * 发送一个批次，调用方需要持有一个permit，请求结束时释放。
+         */
+        private void send(final BatchWriteRowRequest request, final String timelineID,
+                          final long start, final int retries) {
+            TableStoreCallback<BatchWriteRowRequest, BatchWriteRowResponse> callback =
+                    new TableStoreCallback<BatchWriteRowRequest, BatchWriteRowResponse>() {
+                @Override
+                public void onCompleted(BatchWriteRowRequest request, BatchWriteRowResponse response) {
+                    imported.addAndGet(countMessages(response.getSucceedRows()));
+                    if (response.getFailedRows().isEmpty()) {
+                        finish(start);
+                        permits.release();
+                    } else if (retries < MAX_ROW_RETRIES && error == null) {
+                        // 只重试失败的行，继续占用当前的permit。
+                        BatchWriteRowRequest retry = new BatchWriteRowRequest();
+                        for (BatchWriteRowResponse.RowResult result : response.getFailedRows()) {
+                            retry.addRowChange(request.getRowChange(result.getTableName(), result.getIndex()));
+                        }
+                        send(retry, timelineID, start, retries + 1);
+                    } else {
+                        fail(new TimelineException(TimelineExceptionType.TET_RETRY,
+                                String.format("Import timeline %s failed, failed:%d, reason:%s", timelineID,
+                                        response.getFailedRows().size(),
+                                        response.getFailedRows().get(0).getError().getMessage())));
+                        permits.release();
+                    }
+                }
+
+                @Override
+                public void onFailed(BatchWriteRowRequest request, Exception e) {
+                    if (e instanceof TableStoreException
+                            && ((TableStoreException) e).getErrorCode().equals("OTSParameterInvalid")) {
+                        fail(new TimelineException(TimelineExceptionType.TET_INVALID_USE, "Import timeline " + timelineID
+                                + " failed, the target table may not accept explicit sequence IDs in the auto-increment"
+                                + " primary key column, reason:" + e.getMessage(), e));
+                    } else if (e instanceof TableStoreException) {
+                        fail(store.handleTableStoreException((TableStoreException) e, timelineID, "import"));
+                    } else {
+                        fail(new TimelineException(TimelineExceptionType.TET_UNKNOWN,
+                                "Import timeline " + timelineID + " failed, reason:" + e.getMessage(), e));
+                    }
+                    permits.release();
+                }
+            };
+
+            try {
+                client.batchWriteRow(request, callback);
+            } catch (ClientException ex) {
+                fail(new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                        "Parameter is invalid, reason:" + ex.getMessage(), ex));
+                permits.release();
+            }
+        }
+
+        /**
+         * 只统计消息表的行，不包括索引表的行。
+         */
+        private int countMessages(List<BatchWriteRowResponse.RowResult> results) {
+            int count = 0;
+            for (BatchWriteRowResponse.RowResult result : results) {
+                if (storeConfig.getTableName().equals(result.getTableName())) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private void finish(long start) {
+            synchronized (pending) {
+                pending.get(start).remaining--;
+                advance();
+            }
+        }
+
+        /**
+         * 断点前移到第一个还没有全部写入成功的块。调用方需要持有pending的锁。
+         */
+        private void advance() {
+            while (!pending.isEmpty() && pending.firstEntry().getValue().remaining == 0) {
+                committed = pending.pollFirstEntry().getValue().end;
+            }
+        }
+
+        private void fail(TimelineException ex) {
+            if (error == null) {
+                error = ex;
+            }
+        }
+
+        void awaitAll() {
+            permits.acquireUninterruptibly(config.getConcurrency());
+            permits.release(config.getConcurrency());
+        }
+
+        void saveCheckpoint() throws IOException {
+            long current;
+            synchronized (pending) {
+                current = committed;
+            }
+            if (current != saved) {
+                checkpoint.seek(0);
+                checkpoint.writeLong(current);
+                saved = current;
+            }
+        }
+
+        void saveCheckpointQuietly() {
+            try {
+                saveCheckpoint();
+            } catch (IOException ex) {
+                logger.warn("Save import checkpoint failed.", ex);
+            }
+        }
+
+        void closeCheckpoint() {
+            try {
+                checkpoint.close();
+            } catch (IOException ex) {
+                logger.warn("Close checkpoint file failed.", ex);
+            }
+        }
+    }
+
+    private static class PendingBlock {
+        final long end;
+        int remaining;
+
+        PendingBlock(long end, int remaining) {
+            this.end = end;
+            this.remaining = remaining;
+        }
+    }
+}
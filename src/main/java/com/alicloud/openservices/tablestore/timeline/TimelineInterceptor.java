@@ -0,0 +1,22 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * Store操作的拦截器，用于链路追踪、日志和自定义监控。
+ * onStart在调用线程中执行，onComplete可能在SDK的异步回调线程中执行，实现需要线程安全，并且不应该阻塞。
+ * 拦截器抛出的异常会被忽略，不会影响Store操作。
+ */
+public interface TimelineInterceptor {
+    /**
+     * 操作开始时调用。
+     * @param invocation    操作信息。
+     * @return              上下文，例如tracing的span，会在操作结束时传给onComplete，不需要时返回null。
+     */
+    Object onStart(TimelineInvocation invocation);
+
+    /**
+     * 操作结束时调用，成功和失败都会调用，并且只调用一次。
+     * @param invocation    操作信息，包括结束时间和结果。
+     * @param context       onStart返回的上下文。
+     */
+    void onComplete(TimelineInvocation invocation, Object context);
+}
@@ -0,0 +1,74 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * 按注册顺序调用拦截器，结束时按相反顺序调用。
+ * 没有注册拦截器时start返回null，不创建任何对象，complete(null, ...)直接返回。
+ */
+class TimelineInterceptorChain {
+    private static Logger logger = LoggerFactory.getLogger(TimelineInterceptorChain.class);
+
+    private final TimelineInterceptor[] interceptors;
+
+    TimelineInterceptorChain(List<TimelineInterceptor> interceptors) {
+        this.interceptors = interceptors == null ?
+                new TimelineInterceptor[0] : interceptors.toArray(new TimelineInterceptor[interceptors.size()]);
+    }
+
+    boolean isEmpty() {
+        return interceptors.length == 0;
+    }
+
+    Call start(TimelineOperation operation, String timelineID, long payloadSize) {
+        if (interceptors.length == 0) {
+            return null;
+        }
+
+        TimelineInvocation invocation = new TimelineInvocation(operation, timelineID, payloadSize);
+        Object[] contexts = new Object[interceptors.length];
+        for (int i = 0; i < interceptors.length; i++) {
+            try {
+                contexts[i] = interceptors[i].onStart(invocation);
+            } catch (RuntimeException ex) {
+                logger.warn("Interceptor onStart failed.", ex);
+            }
+        }
+        return new Call(invocation, contexts);
+    }
+
+    void complete(Call call, Exception exception) {
+        complete(call, -1, exception);
+    }
+
+    void complete(Call call, long payloadSize, Exception exception) {
+        if (call == null) {
+            return;
+        }
+
+        call.invocation.complete(payloadSize, exception);
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            try {
+                interceptors[i].onComplete(call.invocation, call.contexts[i]);
+            } catch (RuntimeException ex) {
+                logger.warn("Interceptor onComplete failed.", ex);
+            }
+        }
+    }
+
+    /**
+     * 一次进行中的调用。
+     */
+    static class Call {
+        private final TimelineInvocation invocation;
+        private final Object[] contexts;
+
+        Call(TimelineInvocation invocation, Object[] contexts) {
+            this.invocation = invocation;
+            this.contexts = contexts;
+        }
+    }
+}
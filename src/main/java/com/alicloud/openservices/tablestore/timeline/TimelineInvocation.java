@@ -0,0 +1,85 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * 一次Store操作的信息，传给TimelineInterceptor。
+ * 结束时间、结果和读取操作的数据大小在操作结束后才有值。
+ */
+public class TimelineInvocation {
+    private final TimelineOperation operation;
+    private final String timelineID;
+    private final long startNanos;
+    private long payloadSize;
+    private long endNanos = 0;
+    private Exception exception = null;
+
+    TimelineInvocation(TimelineOperation operation, String timelineID, long payloadSize) {
+        this.operation = operation;
+        this.timelineID = timelineID;
+        this.payloadSize = payloadSize;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取操作类型。
+     * @return  操作类型。
+     */
+    public TimelineOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * 获取Timeline ID。
+     * @return  Timeline ID，DDL操作返回null。
+     */
+    public String getTimelineID() {
+        return timelineID;
+    }
+
+    /**
+     * 获取数据大小，写入是请求的大小，读取是结果的大小。
+     * @return  数据大小，单位是字节，未知时为-1。
+     */
+    public long getPayloadSize() {
+        return payloadSize;
+    }
+
+    /**
+     * 获取开始时间。
+     * @return  开始时System.nanoTime()的值。
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 获取结束时间。
+     * @return  结束时System.nanoTime()的值，未结束时为0。
+     */
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    /**
+     * 判断操作是否成功。
+     * @return  true/false
+     */
+    public boolean isSucceeded() {
+        return endNanos != 0 && exception == null;
+    }
+
+    /**
+     * 获取失败原因。
+     * @return  失败原因，成功或者未结束时为null。
+     */
+    public Exception getException() {
+        return exception;
+    }
+
+    void complete(long payloadSize, Exception exception) {
+        if (payloadSize >= 0) {
+            this.payloadSize = payloadSize;
+        }
+        this.exception = exception;
+        this.endNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,219 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.TableStoreWriter;
+import com.alicloud.openservices.tablestore.writer.WriterStatistics;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个Store的运行指标：每种操作的延时直方图、成功次数和按TimelineExceptionType分类的失败次数，
+ * 读写的字节数，范围读取每页的行数和提前关闭时没有消费的字节数，batch接口Writer中还没有写完的行数，以及回调线程池的排队情况。
+ * 记录只使用分段计数器和原子操作，不加锁，可以在异步回调线程中调用。
+ * 通过snapshot获取所有指标的当前值，也可以通过TimelineMetricsRegistry导出到JMX或其他监控系统。
+ */
+public class TimelineMetrics {
+    /**
+     * 单个操作的指标。
+     */
+    static class OperationMetrics {
+        private final String name;
+        private final LogLinearHistogram latency = new LogLinearHistogram();
+        private final Map<TimelineExceptionType, StripedCounter> errors =
+                new EnumMap<TimelineExceptionType, StripedCounter>(TimelineExceptionType.class);
+
+        OperationMetrics(String name) {
+            this.name = name;
+            for (TimelineExceptionType type : TimelineExceptionType.values()) {
+                errors.put(type, new StripedCounter());
+            }
+        }
+
+        /**
+         * 记录一次成功的操作。
+         * @param startNanos    操作开始时System.nanoTime()的值。
+         */
+        void recordSuccess(long startNanos) {
+            latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        }
+
+        /**
+         * 记录一次失败的操作，失败的操作不计入延时。
+         * @param ex    失败原因，非TimelineException按TET_UNKNOWN统计。
+         */
+        void recordFailure(Exception ex) {
+            TimelineExceptionType type = ex instanceof TimelineException ?
+                    ((TimelineException) ex).getType() : TimelineExceptionType.TET_UNKNOWN;
+            errors.get(type).increment();
+        }
+
+        private void snapshot(Map<String, Number> result) {
+            result.put(name + ".count", latency.getCount());
+            long errorCount = 0;
+            for (Map.Entry<TimelineExceptionType, StripedCounter> entry : errors.entrySet()) {
+                long count = entry.getValue().sum();
+                result.put(name + ".errors." + entry.getKey().name(), count);
+                errorCount += count;
+            }
+            result.put(name + ".errors", errorCount);
+            result.put(name + ".latency.meanMicros", latency.getMean());
+            result.put(name + ".latency.p50Micros", latency.getValueAtPercentile(50));
+            result.put(name + ".latency.p90Micros", latency.getValueAtPercentile(90));
+            result.put(name + ".latency.p99Micros", latency.getValueAtPercentile(99));
+            result.put(name + ".latency.p999Micros", latency.getValueAtPercentile(99.9));
+            result.put(name + ".latency.maxMicros", latency.getMax());
+        }
+    }
+
+    private final String name;
+
+    final OperationMetrics write = new OperationMetrics("write");
+    final OperationMetrics batch = new OperationMetrics("batch");
+    final OperationMetrics read = new OperationMetrics("read");
+    final OperationMetrics scan = new OperationMetrics("scan");
+    final OperationMetrics create = new OperationMetrics("create");
+    final OperationMetrics drop = new OperationMetrics("drop");
+    final OperationMetrics exist = new OperationMetrics("exist");
+
+    private final StripedCounter bytesWritten = new StripedCounter();
+    private final StripedCounter bytesRead = new StripedCounter();
+    private final StripedCounter bytesUnconsumed = new StripedCounter();
+    private final LogLinearHistogram rowsPerScanPage = new LogLinearHistogram();
+    private final StripedCounter writerAddedRows = new StripedCounter();
+    private volatile TableStoreWriter writer = null;
+    private final AtomicLong callbackQueueDepth = new AtomicLong();
+    private final StripedCounter callbackRejected = new StripedCounter();
+    private final LogLinearHistogram callbackQueueTime = new LogLinearHistogram();
+    private final StripedCounter retentionTrimmedRows = new StripedCounter();
+    private final AtomicLong retentionBacklog = new AtomicLong();
+    private final StripedCounter retentionFailures = new StripedCounter();
+    private final StripedCounter messageIndexFailures = new StripedCounter();
+    private final StripedCounter timeIndexFailures = new StripedCounter();
+
+    /**
+     * TimelineMetrics的构造函数。
+     * @param name  指标名称，一般是"实例名/表名"，用于区分同一进程中的多个Store。
+     */
+    public TimelineMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 获取指标名称。
+     * @return  指标名称。
+     */
+    public String getName() {
+        return name;
+    }
+
+    void recordBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    void recordBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    void recordBytesUnconsumed(long bytes) {
+        bytesUnconsumed.add(bytes);
+    }
+
+    void recordScanPage(int rowCount) {
+        rowsPerScanPage.record(rowCount);
+    }
+
+    void recordWriterAdded() {
+        writerAddedRows.increment();
+    }
+
+    void setWriter(TableStoreWriter writer) {
+        this.writer = writer;
+    }
+
+    void recordCallbackQueued() {
+        callbackQueueDepth.incrementAndGet();
+    }
+
+    void recordCallbackStarted(long submitNanos) {
+        callbackQueueDepth.decrementAndGet();
+        callbackQueueTime.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - submitNanos));
+    }
+
+    void recordCallbackRejected() {
+        callbackQueueDepth.decrementAndGet();
+        callbackRejected.increment();
+    }
+
+    void recordRetentionTrimmed(long rows) {
+        retentionTrimmedRows.add(rows);
+    }
+
+    void recordRetentionQueued() {
+        retentionBacklog.incrementAndGet();
+    }
+
+    void recordRetentionDequeued() {
+        retentionBacklog.decrementAndGet();
+    }
+
+    void recordRetentionFailure() {
+        retentionFailures.increment();
+    }
+
+    void recordMessageIndexFailure() {
+        messageIndexFailures.increment();
+    }
+
+    void recordTimeIndexFailure() {
+        timeIndexFailures.increment();
+    }
+
+    /**
+     * 获取所有指标的当前值，key是指标名，例如write.count、write.errors.TET_RETRY、write.latency.p99Micros。
+     * 指标名集合是固定的，延时的单位是微秒。
+     * @return  指标名到当前值的映射。
+     */
+    public Map<String, Number> snapshot() {
+        Map<String, Number> result = new LinkedHashMap<String, Number>();
+        for (OperationMetrics operation : new OperationMetrics[]{write, batch, read, scan, create, drop, exist}) {
+            operation.snapshot(result);
+        }
+
+        result.put("bytesWritten", bytesWritten.sum());
+        result.put("bytesRead", bytesRead.sum());
+        result.put("scan.pages", rowsPerScanPage.getCount());
+        result.put("scan.rowsPerPage.mean", rowsPerScanPage.getMean());
+        result.put("scan.rowsPerPage.p50", rowsPerScanPage.getValueAtPercentile(50));
+        result.put("scan.rowsPerPage.p99", rowsPerScanPage.getValueAtPercentile(99));
+        result.put("scan.unconsumedBytes", bytesUnconsumed.sum());
+
+        long addedRows = writerAddedRows.sum();
+        long succeedRows = 0;
+        long failedRows = 0;
+        TableStoreWriter writer = this.writer;
+        if (writer != null) {
+            WriterStatistics statistics = writer.getWriterStatistics();
+            succeedRows = statistics.getTotalSucceedRowsCount();
+            failedRows = statistics.getTotalFailedRowsCount();
+        }
+        result.put("writer.addedRows", addedRows);
+        result.put("writer.succeedRows", succeedRows);
+        result.put("writer.failedRows", failedRows);
+        result.put("writer.bufferedRows", Math.max(0, addedRows - succeedRows - failedRows));
+
+        result.put("callback.queueDepth", callbackQueueDepth.get());
+        result.put("callback.rejected", callbackRejected.sum());
+        result.put("callback.queueTime.p50Micros", callbackQueueTime.getValueAtPercentile(50));
+        result.put("callback.queueTime.p99Micros", callbackQueueTime.getValueAtPercentile(99));
+
+        result.put("retention.trimmedRows", retentionTrimmedRows.sum());
+        result.put("retention.backlog", retentionBacklog.get());
+        result.put("retention.failures", retentionFailures.sum());
+        result.put("messageIndex.failures", messageIndexFailures.sum());
+        result.put("timeIndex.failures", timeIndexFailures.sum());
+        return result;
+    }
+}
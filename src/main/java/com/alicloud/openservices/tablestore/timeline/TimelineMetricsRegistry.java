@@ -0,0 +1,20 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * 指标注册接口，用于把Store的指标导出到监控系统。
+ * Store创建时调用register，关闭时调用unregister，实现方可以保存TimelineMetrics，定期调用snapshot上报。
+ * 默认实现是JmxTimelineMetricsRegistry。
+ */
+public interface TimelineMetricsRegistry {
+    /**
+     * 注册一个Store的指标。
+     * @param metrics   Store的指标。
+     */
+    void register(TimelineMetrics metrics);
+
+    /**
+     * 注销一个Store的指标。
+     * @param metrics   Store的指标。
+     */
+    void unregister(TimelineMetrics metrics);
+}
@@ -0,0 +1,41 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * 拦截器看到的操作类型。
+ */
+public enum TimelineOperation {
+    /**
+     * 单条写入，包括write和writeAsync。
+     */
+    WRITE,
+
+    /**
+     * 批量写入，只包括加入buffer的过程。
+     */
+    BATCH,
+
+    /**
+     * 单条读取，包括read和readAsync。
+     */
+    READ,
+
+    /**
+     * 范围读取，DistributeTimelineStore中每读一页调用一次，其他Store中每次scan调用一次。
+     */
+    SCAN_PAGE,
+
+    /**
+     * 创建Store。
+     */
+    CREATE,
+
+    /**
+     * 删除Store。
+     */
+    DROP,
+
+    /**
+     * 判断Store是否存在。
+     */
+    EXIST
+}
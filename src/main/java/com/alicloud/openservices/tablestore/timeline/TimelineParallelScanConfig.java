@@ -0,0 +1,69 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * TimelineParallelScanner的配置文件。
+ */
+public class TimelineParallelScanConfig {
+    /**
+     * 同时读取的分片个数，也是读取线程数。默认8。
+     */
+    private int concurrency = 8;
+
+    /**
+     * 顺序ID范围切分的分片个数，默认0，表示并发数的4倍。分片多于并发数时，读完的线程会继续读下一个分片，数据分布不均匀时各线程的负载更均衡。
+     */
+    private int splitCount = 0;
+
+    /**
+     * 是否按顺序ID顺序返回消息，默认true。关闭后各分片的消息读到就返回，不同分片之间的消息没有顺序，但不会因为等待前面的分片而阻塞。
+     */
+    private boolean ordered = true;
+
+    /**
+     * 获取并发数。
+     * @return  并发数。
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * 设置同时读取的分片个数。
+     * @param concurrency   并发数。
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * 获取分片个数。
+     * @return  分片个数，0表示并发数的4倍。
+     */
+    public int getSplitCount() {
+        return splitCount;
+    }
+
+    /**
+     * 设置顺序ID范围切分的分片个数。
+     * @param splitCount    分片个数，0表示并发数的4倍。
+     */
+    public void setSplitCount(int splitCount) {
+        this.splitCount = splitCount;
+    }
+
+    /**
+     * 是否按顺序ID顺序返回消息。
+     * @return  true/false
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * 设置是否按顺序ID顺序返回消息。
+     * @param ordered   true/false
+     */
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+}
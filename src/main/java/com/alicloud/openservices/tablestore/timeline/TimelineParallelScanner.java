@@ -0,0 +1,365 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.ClientException;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 单个Timeline的并行范围读取，用于重新处理消息很多的Timeline（比如审计、广播）。
+ * 一个Timeline只在一个分区中，不能按表的分区点切分，所以先读取范围内第一条和最后一条消息的顺序ID，把它们之间的范围均匀切分成多个分片，
+ * 再用concurrency个线程同时读取各个分片，分片之间的数据不均匀由读完的线程继续读下一个分片来平衡。
+ * 按顺序返回时，每个分片有自己的有界队列，依次消费；不按顺序返回时，所有分片共用一个有界队列。队列满时读取线程等待，不会无限占用内存。
+ * getCheckpoint返回每个分片已经消费到的位置，中断后把它传给新的TimelineParallelScanner即可继续，已经消费的消息不会再返回。
+ * 只支持正序读取，maxCount是返回的消息总数。迭代器不是线程安全的，读完、出错或者调用close后读取线程会被停止。
+ */
+public class TimelineParallelScanner implements Iterator<TimelineEntry>, Closeable {
+    /**
+     * 读取线程每次放入队列的消息条数。
+     */
+    private final static int BATCH_SIZE = 1000;
+
+    /**
+     * 每个分片（不按顺序返回时是每个线程）在队列中最多缓存的批次数。
+     */
+    private final static int QUEUE_BATCHES = 2;
+
+    private static class Batch {
+        final int split;
+        final List<TimelineEntry> entries;
+        final boolean last;
+        final RuntimeException error;
+
+        Batch(int split, List<TimelineEntry> entries, boolean last, RuntimeException error) {
+            this.split = split;
+            this.entries = entries;
+            this.last = last;
+            this.error = error;
+        }
+    }
+
+    private final DistributeTimelineStore store;
+    private final DistributeTimelineConfig storeConfig;
+    private final String timelineID;
+    private final ScanParameter parameter;
+    private final boolean ordered;
+    private final List<TimelineScanSplit> splits;
+    private final List<BlockingQueue<Batch>> queues = new ArrayList<BlockingQueue<Batch>>();
+    private ExecutorService executor = null;
+    private volatile boolean closed = false;
+
+    private int remaining;
+    private int pendingSplits;
+    private int orderedSplit = 0;
+    private Iterator<TimelineEntry> current = Collections.<TimelineEntry>emptyList().iterator();
+    private Batch currentBatch = null;
+
+    /**
+     * 构造并行范围读取，会同步读取范围的边界并开始读取。
+     * @param store         分布式Store。
+     * @param timelineID    Timeline ID。
+     * @param parameter     范围读取参数，必须是正序，可以带时间范围和属性过滤。
+     * @param config        并行读取的配置。
+     */
+    public TimelineParallelScanner(DistributeTimelineStore store, String timelineID, ScanParameter parameter,
+                                   TimelineParallelScanConfig config) {
+        this(store, timelineID, parameter, config, null);
+    }
+
+    /**
+     * 从检查点继续并行范围读取，分片和检查点中的相同，已经读完的分片会被跳过。
+     * @param store         分布式Store。
+     * @param timelineID    Timeline ID。
+     * @param parameter     范围读取参数，需要和生成检查点时相同。
+     * @param config        并行读取的配置。
+     * @param checkpoint    getCheckpoint返回的分片列表，null表示从头开始。
+     */
+    public TimelineParallelScanner(DistributeTimelineStore store, String timelineID, ScanParameter parameter,
+                                   TimelineParallelScanConfig config, List<TimelineScanSplit> checkpoint) {
+        if (!parameter.isForward()) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "TimelineParallelScanner only supports forward scan");
+        }
+        if (config.getConcurrency() <= 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "TimelineParallelScanner concurrency must more than 0");
+        }
+
+        this.store = store;
+        this.storeConfig = store.getConfig();
+        this.timelineID = timelineID;
+        this.ordered = config.isOrdered();
+        this.remaining = parameter.getMaxCount();
+
+        ScanParameter resolved = parameter;
+        if (parameter.hasTimeRange()) {
+            resolved = store.resolveTimeRange(timelineID, parameter);
+        }
+        this.parameter = resolved;
+
+        if (checkpoint != null) {
+            splits = new ArrayList<TimelineScanSplit>();
+            for (TimelineScanSplit split : checkpoint) {
+                splits.add(new TimelineScanSplit(split.getFrom(), split.getTo(), split.getPosition()));
+            }
+        } else if (resolved == null) {
+            splits = new ArrayList<TimelineScanSplit>();
+        } else {
+            int splitCount = config.getSplitCount() > 0 ? config.getSplitCount() : config.getConcurrency() * 4;
+            splits = createSplits(splitCount);
+        }
+
+        pendingSplits = splits.size();
+        if (resolved == null || splits.isEmpty()) {
+            closed = true;
+            return;
+        }
+        start(config.getConcurrency());
+    }
+
+    /**
+     * 获取每个分片已经消费到的位置，可以在任意时刻调用。
+     * @return  分片列表的副本。
+     */
+    public List<TimelineScanSplit> getCheckpoint() {
+        List<TimelineScanSplit> checkpoint = new ArrayList<TimelineScanSplit>();
+        for (TimelineScanSplit split : splits) {
+            checkpoint.add(new TimelineScanSplit(split.getFrom(), split.getTo(), split.getPosition()));
+        }
+        return checkpoint;
+    }
+
+    /**
+     * 判断是否还有下一条有效TimelineEntry，需要等待读取线程时会阻塞。
+     * @return  true/false
+     */
+    @Override
+    public boolean hasNext() {
+        // 一批可能比剩余条数多，先检查剩余条数。
+        if (remaining <= 0) {
+            close();
+            return false;
+        }
+
+        while (!current.hasNext()) {
+            Batch batch = nextBatch();
+            if (batch == null) {
+                close();
+                return false;
+            }
+            if (batch.error != null) {
+                close();
+                throw batch.error;
+            }
+            currentBatch = batch;
+            current = batch.entries.iterator();
+            if (batch.last && batch.entries.isEmpty()) {
+                finish(batch.split);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取下一条TimelineEntry，同时更新所在分片的检查点。
+     * @return      下一条TimelineEntry。
+     */
+    @Override
+    public TimelineEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        TimelineEntry entry = current.next();
+        remaining--;
+        splits.get(currentBatch.split).setPosition(entry.getSequenceID() + 1);
+        if (currentBatch.last && !current.hasNext()) {
+            finish(currentBatch.split);
+        }
+        return entry;
+    }
+
+    /**
+     * 删除当前TimelineEntry。
+     * 当前不支持，会抛出异常。
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("TimelineParallelScanner does not support remove");
+    }
+
+    /**
+     * 停止所有读取线程，可以重复调用。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void start(int concurrency) {
+        executor = Executors.newFixedThreadPool(Math.min(concurrency, splits.size()), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "timeline-parallel-scan");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        if (ordered) {
+            for (int i = 0; i < splits.size(); i++) {
+                queues.add(new ArrayBlockingQueue<Batch>(QUEUE_BATCHES));
+            }
+        } else {
+            queues.add(new ArrayBlockingQueue<Batch>(QUEUE_BATCHES * concurrency));
+        }
+
+        // 线程池按提交顺序执行，按顺序返回时正在消费的分片总是已经开始读取的分片中最靠前的一个，不会因为后面的分片占满线程而卡住。
+        for (int i = 0; i < splits.size(); i++) {
+            final int index = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    scanSplit(index);
+                }
+            });
+        }
+    }
+
+    private void scanSplit(int index) {
+        TimelineScanSplit split = splits.get(index);
+        BlockingQueue<Batch> queue = queues.get(ordered ? index : 0);
+        List<TimelineEntry> entries = new ArrayList<TimelineEntry>();
+        DistributeTimelineIterator iterator = null;
+        try {
+            if (split.getPosition() < split.getTo()) {
+                RangeRowQueryCriteria criteria = store.createRangeCriteria(timelineID,
+                        parameter.withSequenceRange(split.getPosition(), split.getTo()));
+                iterator = new DistributeTimelineIterator(store.getClient(), criteria,
+                        parameter.getMaxCount(), parameter.isRaw(), store, timelineID);
+                while (!closed && iterator.hasNext()) {
+                    entries.add(iterator.next());
+                    if (entries.size() >= BATCH_SIZE) {
+                        if (!put(queue, new Batch(index, entries, false, null))) {
+                            return;
+                        }
+                        entries = new ArrayList<TimelineEntry>();
+                    }
+                }
+            }
+            put(queue, new Batch(index, entries, true, null));
+        } catch (TableStoreException ex) {
+            put(queue, new Batch(index, null, true, store.handleTableStoreException(ex, timelineID, "scan")));
+        } catch (ClientException ex) {
+            put(queue, new Batch(index, null, true, new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Parameter is invalid, reason:" + ex.getMessage(), ex)));
+        } catch (RuntimeException ex) {
+            put(queue, new Batch(index, null, true, ex));
+        } finally {
+            if (iterator != null) {
+                iterator.close();
+            }
+        }
+    }
+
+    private boolean put(BlockingQueue<Batch> queue, Batch batch) {
+        try {
+            while (!closed) {
+                if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private Batch nextBatch() {
+        if (pendingSplits == 0 || closed) {
+            return null;
+        }
+
+        Batch batch;
+        try {
+            batch = queues.get(ordered ? orderedSplit : 0).take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException(TimelineExceptionType.TET_ABORT,
+                    "Parallel scan timeline " + timelineID + " was interrupted", ex);
+        }
+        if (batch.last) {
+            pendingSplits--;
+            if (ordered) {
+                orderedSplit++;
+            }
+        }
+        return batch;
+    }
+
+    private void finish(int index) {
+        TimelineScanSplit split = splits.get(index);
+        split.setPosition(split.getTo());
+    }
+
+    /**
+     * 读取范围内第一条和最后一条消息的顺序ID，把它们之间的范围均匀切分。第一个分片从from开始，最后一个分片到to结束。
+     */
+    private List<TimelineScanSplit> createSplits(int splitCount) {
+        List<TimelineScanSplit> result = new ArrayList<TimelineScanSplit>();
+        long from = parameter.getFrom();
+        long to = parameter.getTo();
+        Long first = boundary(true, from, to);
+        if (first == null) {
+            return result;
+        }
+        Long last = first + 1 < to ? boundary(false, to - 1, first) : null;
+        if (last == null) {
+            last = first;
+        }
+
+        long previous = from;
+        for (int i = 1; i < splitCount; i++) {
+            long point = first + (long) ((double) (last - first) * i / splitCount);
+            if (point > previous && point <= last) {
+                result.add(new TimelineScanSplit(previous, point, previous));
+                previous = point;
+            }
+        }
+        result.add(new TimelineScanSplit(previous, to, previous));
+        return result;
+    }
+
+    private Long boundary(boolean forward, long from, long to) {
+        ScanParameter probe = new ScanParameter(forward);
+        probe.setFrom(from);
+        probe.setTo(to);
+        probe.setMaxCount(1);
+        RangeRowQueryCriteria criteria = store.createRangeCriteria(timelineID, probe);
+        // 只需要主键，读取消息ID列避免返回消息内容。
+        criteria.addColumnsToGet(storeConfig.getMessageIDColumnName());
+        criteria.setLimit(1);
+        try {
+            TableStoreFuture<GetRangeRequest, GetRangeResponse> future =
+                    new TableStoreFuture<GetRangeRequest, GetRangeResponse>();
+            store.getClient().getRange(new GetRangeRequest(criteria), future);
+            GetRangeResponse response = Utils.await(future, "Scan timeline " + timelineID);
+            if (response.getRows().isEmpty()) {
+                return null;
+            }
+            return response.getRows().get(0).getPrimaryKey()
+                    .getPrimaryKeyColumn(storeConfig.getSecondPKName()).getValue().asLong();
+        } catch (TableStoreException ex) {
+            throw store.handleTableStoreException(ex, timelineID, "scan");
+        } catch (ClientException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Parameter is invalid, reason:" + ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 保留每个Timeline最新的limit条消息，更早的消息由后台线程增量删除。
+ * 写入成功后只把Timeline ID加入待清理集合，不会阻塞写入；后台线程每隔retentionInterval取出一批Timeline，
+ * 逆序跳过最新的limit条，把更早的消息按retentionBatchSize一批用BatchWriteRow删除。
+ * 每轮删除的行数受retentionMaxDeletesPerSecond限制，没有删完的Timeline会重新加入待清理集合，下一轮继续。
+ * 只统计经过当前Store写入的Timeline，其他进程写入的Timeline需要在那个进程中开启清理。
+ */
+class TimelineRetention {
+    private static Logger logger = LoggerFactory.getLogger(TimelineRetention.class);
+
+    /**
+     * 单次GetRange最多返回的行数。
+     */
+    private final static int MAX_PAGE_SIZE = 5000;
+
+    private final DistributeTimelineStore store;
+    private final DistributeTimelineConfig config;
+    private final AsyncClientInterface client;
+    private final TimelineMetrics metrics;
+    private final ConcurrentHashMap<String, Boolean> pending = new ConcurrentHashMap<String, Boolean>();
+    private final ScheduledExecutorService scheduler;
+
+    TimelineRetention(DistributeTimelineStore store, AsyncClientInterface client) {
+        this.store = store;
+        this.config = store.getConfig();
+        this.client = client;
+        this.metrics = store.getMetrics();
+
+        if (config.getLimit() <= 0 || config.getRetentionInterval() <= 0
+                || config.getRetentionMaxDeletesPerSecond() <= 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "DistributeTimelineConfig limit, retentionInterval or retentionMaxDeletesPerSecond is invalid");
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "timeline-retention");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runOnce();
+                } catch (RuntimeException ex) {
+                    logger.warn("Timeline retention failed.", ex);
+                }
+            }
+        }, config.getRetentionInterval(), config.getRetentionInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 标记Timeline有新写入，需要检查是否超过保留条数。
+     */
+    void touch(String timelineID) {
+        if (pending.putIfAbsent(timelineID, Boolean.TRUE) == null) {
+            metrics.recordRetentionQueued();
+        }
+    }
+
+    /**
+     * 执行一轮清理，删除行数的上限是retentionMaxDeletesPerSecond在一个执行间隔内的额度。
+     * @return  本轮删除的行数。
+     */
+    long runOnce() {
+        return runOnce(Math.max(1, (long) config.getRetentionMaxDeletesPerSecond() * config.getRetentionInterval() / 1000));
+    }
+
+    long runOnce(long budget) {
+        long trimmed = 0;
+        Iterator<String> iterator = pending.keySet().iterator();
+        while (trimmed < budget && iterator.hasNext()) {
+            String timelineID = iterator.next();
+            if (pending.remove(timelineID) == null) {
+                continue;
+            }
+            metrics.recordRetentionDequeued();
+
+            int maxRows = (int) Math.min(budget - trimmed, Integer.MAX_VALUE);
+            int deleted;
+            try {
+                deleted = trim(timelineID, maxRows);
+            } catch (RuntimeException ex) {
+                metrics.recordRetentionFailure();
+                logger.warn("Trim timeline " + timelineID + " failed.", ex);
+                touch(timelineID);
+                continue;
+            }
+            trimmed += deleted;
+            metrics.recordRetentionTrimmed(deleted);
+            if (deleted >= maxRows) {
+                // 预算用完了，可能还有没删完的消息。
+                touch(timelineID);
+            }
+        }
+        return trimmed;
+    }
+
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * 删除Timeline中最新limit条之前的消息，最多删除maxRows行。
+     * @return  删除的行数。
+     */
+    private int trim(String timelineID, int maxRows) {
+        ScanParameter parameter = ScanParameterBuilder.scanBackward()
+                .from(Long.MAX_VALUE).to(0).maxCount(Integer.MAX_VALUE).build();
+        RangeRowQueryCriteria criteria = store.createRangeCriteria(timelineID, parameter);
+        // 只需要主键，读取消息ID列避免返回消息内容。
+        criteria.addColumnsToGet(config.getMessageIDColumnName());
+
+        int skip = config.getLimit();
+        List<PrimaryKey> expired = new ArrayList<PrimaryKey>();
+        while (expired.size() < maxRows) {
+            criteria.setLimit((int) Math.min((long) skip + maxRows - expired.size(), MAX_PAGE_SIZE));
+            GetRangeResponse response;
+            try {
+                TableStoreFuture<GetRangeRequest, GetRangeResponse> future =
+                        new TableStoreFuture<GetRangeRequest, GetRangeResponse>();
+                client.getRange(new GetRangeRequest(criteria), future);
+                response = Utils.await(future, "Scan timeline " + timelineID);
+            } catch (TableStoreException ex) {
+                throw store.handleTableStoreException(ex, timelineID, "trim");
+            }
+            for (Row row : response.getRows()) {
+                if (skip > 0) {
+                    skip--;
+                } else if (expired.size() < maxRows) {
+                    expired.add(row.getPrimaryKey());
+                }
+            }
+
+            if (response.getNextStartPrimaryKey() == null) {
+                break;
+            }
+            criteria.setInclusiveStartPrimaryKey(response.getNextStartPrimaryKey());
+        }
+
+        return store.deleteRows(timelineID, expired, config.getRetentionBatchSize());
+    }
+}
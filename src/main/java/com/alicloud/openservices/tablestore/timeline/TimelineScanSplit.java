@@ -0,0 +1,80 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+/**
+ * 并行范围读取中的一个分片，顺序ID范围是[from, to)，position是下一条未消费消息的顺序ID下限，等于to时分片已经读完。
+ * TimelineParallelScanner.getCheckpoint返回的分片列表可以用toString保存，用parse恢复后传给新的TimelineParallelScanner继续读取。
+ */
+public class TimelineScanSplit {
+    private final long from;
+    private final long to;
+    private volatile long position;
+
+    TimelineScanSplit(long from, long to, long position) {
+        this.from = from;
+        this.to = to;
+        this.position = position;
+    }
+
+    /**
+     * 获取分片的起始顺序ID（包含）。
+     * @return  起始顺序ID。
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * 获取分片的结束顺序ID（不包含）。
+     * @return  结束顺序ID。
+     */
+    public long getTo() {
+        return to;
+    }
+
+    /**
+     * 获取已经消费到的位置，小于这个顺序ID的消息都已经被消费。
+     * @return  下一条未消费消息的顺序ID下限。
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * 分片中的消息是否都已经被消费。
+     * @return  true/false
+     */
+    public boolean isFinished() {
+        return position >= to;
+    }
+
+    void setPosition(long position) {
+        this.position = position;
+    }
+
+    /**
+     * 格式是"from,to,position"，可以用parse恢复。
+     * @return  分片的字符串表示。
+     */
+    @Override
+    public String toString() {
+        return from + "," + to + "," + position;
+    }
+
+    /**
+     * 从toString的结果恢复分片。
+     * @param value     toString的结果。
+     * @return          分片。
+     */
+    public static TimelineScanSplit parse(String value) {
+        String[] parts = value == null ? new String[0] : value.split(",");
+        if (parts.length != 3) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, "Invalid scan split:" + value);
+        }
+        try {
+            return new TimelineScanSplit(Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim()),
+                    Long.parseLong(parts[2].trim()));
+        } catch (NumberFormatException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE, "Invalid scan split:" + value, ex);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.ClientException;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.model.filter.CompositeColumnValueFilter;
+import com.alicloud.openservices.tablestore.model.filter.SingleColumnValueFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 稀疏的时间索引表，主键是(加盐的Timeline ID, 时间桶)，属性列是这个时间桶内某条消息的顺序ID。
+ * 每个Timeline每个时间桶只在第一次写入时写一行索引（条件写入，已存在时忽略），本进程写过的时间桶缓存在内存中，不再重复写。
+ * 按时间范围读取时，用时间索引把时间范围换算成顺序ID范围，两端各多留一个时间桶，再由服务端按写入时间列过滤，
+ * 所以只要写入端之间的时钟偏差小于一个时间桶，结果就是准确的。索引只是读取的提示，写入失败不影响消息的写入。
+ */
+class TimelineTimeIndex {
+    private static Logger logger = LoggerFactory.getLogger(TimelineTimeIndex.class);
+
+    /**
+     * 内存中最多缓存的Timeline个数，超过后淘汰最久没有写入的Timeline。
+     */
+    private final static int MAX_CACHED_TIMELINES = 10000;
+
+    private final DistributeTimelineStore store;
+    private final DistributeTimelineConfig config;
+    private final AsyncClientInterface client;
+    private final TimelineMetrics metrics;
+    private final String tableName;
+    private final long interval;
+    private final Map<String, Long> lastBuckets = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_CACHED_TIMELINES;
+        }
+    };
+
+    TimelineTimeIndex(DistributeTimelineStore store, AsyncClientInterface client) {
+        this.store = store;
+        this.config = store.getConfig();
+        this.client = client;
+        this.metrics = store.getMetrics();
+        this.tableName = config.getTimeIndexTableName();
+        this.interval = config.getTimeIndexInterval();
+        if (interval <= 0) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "timeIndexInterval must more than 0");
+        }
+    }
+
+    void create() {
+        TableMeta tableMeta = new TableMeta(tableName);
+        tableMeta.addPrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyType.STRING);
+        tableMeta.addPrimaryKeyColumn(config.getTimestampColumnName(), PrimaryKeyType.INTEGER);
+
+        TableOptions tableOptions = new TableOptions();
+        tableOptions.setTimeToLive(config.getTtl());
+        tableOptions.setMaxVersions(1);
+        try {
+            TableStoreFuture<CreateTableRequest, CreateTableResponse> future =
+                    new TableStoreFuture<CreateTableRequest, CreateTableResponse>();
+            client.createTable(new CreateTableRequest(tableMeta, tableOptions), future);
+            Utils.await(future, "Create time index");
+            logger.info("Create time index {} succeeded.", tableName);
+        } catch (TableStoreException ex) {
+            if (ex.getErrorCode().equals("OTSObjectAlreadyExist")) {
+                logger.warn("Time index has be created.");
+            } else {
+                throw store.handleTableStoreException(ex, null, "create");
+            }
+        } catch (ClientException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Create time index failed, reason:" + ex.getMessage(), ex);
+        }
+    }
+
+    void drop() {
+        try {
+            TableStoreFuture<DeleteTableRequest, DeleteTableResponse> future =
+                    new TableStoreFuture<DeleteTableRequest, DeleteTableResponse>();
+            client.deleteTable(new DeleteTableRequest(tableName), future);
+            Utils.await(future, "Drop time index");
+            logger.info("Drop time index {} succeeded.", tableName);
+        } catch (TableStoreException ex) {
+            if (ex.getErrorCode().equals("OTSObjectNotExist")) {
+                logger.warn("Time index has be drop.");
+            } else {
+                throw store.handleTableStoreException(ex, null, "drop");
+            }
+        } catch (ClientException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Drop time index failed, reason:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 在消息的属性列中加上写入时间。
+     */
+    void addTimestamp(RowPutChange change) {
+        change.addColumn(config.getTimestampColumnName(), ColumnValue.fromLong(System.currentTimeMillis()));
+    }
+
+    /**
+     * 消息写入成功后调用，时间桶是这个Timeline在本进程中的新时间桶时异步写入一行索引。
+     */
+    void record(final String timelineID, long sequenceID, RowPutChange change) {
+        Long timestamp = timestampOf(change);
+        if (timestamp == null) {
+            return;
+        }
+
+        final long bucket = timestamp - timestamp % interval;
+        synchronized (lastBuckets) {
+            Long last = lastBuckets.get(timelineID);
+            if (last != null && last >= bucket) {
+                return;
+            }
+            lastBuckets.put(timelineID, bucket);
+        }
+
+        RowPutChange indexChange = new RowPutChange(tableName, createPrimaryKey(timelineID, bucket));
+        indexChange.addColumn(config.getSecondPKName(), ColumnValue.fromLong(sequenceID));
+        indexChange.setCondition(new Condition(RowExistenceExpectation.EXPECT_NOT_EXIST));
+        PutRowRequest request = new PutRowRequest();
+        request.setRowChange(indexChange);
+
+        TableStoreCallback<PutRowRequest, PutRowResponse> callback = new TableStoreCallback<PutRowRequest, PutRowResponse>() {
+            @Override
+            public void onCompleted(PutRowRequest request, PutRowResponse response) {
+            }
+
+            @Override
+            public void onFailed(PutRowRequest request, Exception e) {
+                if (e instanceof TableStoreException
+                        && ((TableStoreException) e).getErrorCode().equals("OTSConditionCheckFail")) {
+                    // 其他写入端已经写过这个时间桶。
+                    return;
+                }
+                recordFailure(timelineID, bucket, e);
+            }
+        };
+
+        try {
+            client.putRow(request, callback);
+        } catch (RuntimeException ex) {
+            recordFailure(timelineID, bucket, ex);
+        }
+    }
+
+    /**
+     * 把写入时间范围换算成顺序ID范围。
+     * @return  [起始顺序ID（包含）, 结束顺序ID（不包含）]，写入时间在范围内的消息都在这个顺序ID范围内。
+     */
+    long[] resolve(String timelineID, long startTime, long endTime) {
+        TableStoreFuture<GetRangeRequest, GetRangeResponse> lower = null;
+        TableStoreFuture<GetRangeRequest, GetRangeResponse> upper = null;
+        try {
+            // 结束于startTime之前至少一个时间桶的最后一个时间桶。
+            if (startTime > 2 * interval) {
+                lower = new TableStoreFuture<GetRangeRequest, GetRangeResponse>();
+                client.getRange(new GetRangeRequest(createCriteria(timelineID,
+                        startTime - 2 * interval, 0, Direction.BACKWARD)), lower);
+            }
+            // 开始于endTime之后至少一个时间桶的第一个时间桶。
+            if (endTime <= Long.MAX_VALUE - interval) {
+                upper = new TableStoreFuture<GetRangeRequest, GetRangeResponse>();
+                client.getRange(new GetRangeRequest(createCriteria(timelineID,
+                        endTime + interval, Long.MAX_VALUE, Direction.FORWARD)), upper);
+            }
+
+            long[] range = new long[]{0, Long.MAX_VALUE};
+            if (lower != null) {
+                Long sequenceID = firstSequenceID(Utils.await(lower, "Read time index of timeline " + timelineID));
+                if (sequenceID != null) {
+                    range[0] = sequenceID;
+                }
+            }
+            if (upper != null) {
+                Long sequenceID = firstSequenceID(Utils.await(upper, "Read time index of timeline " + timelineID));
+                if (sequenceID != null) {
+                    range[1] = sequenceID;
+                }
+            }
+            return range;
+        } catch (TableStoreException ex) {
+            throw store.handleTableStoreException(ex, timelineID, "scan");
+        } catch (ClientException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Parameter is invalid, reason:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 按写入时间过滤的服务端过滤器，没有写入时间列的消息不返回。返回的AND过滤器可以再加入其他条件。
+     */
+    CompositeColumnValueFilter createFilter(long startTime, long endTime) {
+        CompositeColumnValueFilter filter = new CompositeColumnValueFilter(CompositeColumnValueFilter.LogicOperator.AND);
+        filter.addFilter(new SingleColumnValueFilter(config.getTimestampColumnName(),
+                SingleColumnValueFilter.CompareOperator.GREATER_EQUAL, ColumnValue.fromLong(startTime))
+                .setPassIfMissing(false).setLatestVersionsOnly(true));
+        filter.addFilter(new SingleColumnValueFilter(config.getTimestampColumnName(),
+                SingleColumnValueFilter.CompareOperator.LESS_THAN, ColumnValue.fromLong(endTime))
+                .setPassIfMissing(false).setLatestVersionsOnly(true));
+        return filter;
+    }
+
+    private void recordFailure(String timelineID, long bucket, Exception ex) {
+        synchronized (lastBuckets) {
+            // 下一次写入时重新写这个时间桶的索引。
+            Long last = lastBuckets.get(timelineID);
+            if (last != null && last == bucket) {
+                lastBuckets.remove(timelineID);
+            }
+        }
+        metrics.recordTimeIndexFailure();
+        logger.warn("Write time index of timeline " + timelineID + " failed.", ex);
+    }
+
+    private RangeRowQueryCriteria createCriteria(String timelineID, long from, long to, Direction direction) {
+        RangeRowQueryCriteria criteria = new RangeRowQueryCriteria(tableName);
+        criteria.setDirection(direction);
+        criteria.setInclusiveStartPrimaryKey(createPrimaryKey(timelineID, from));
+        criteria.setExclusiveEndPrimaryKey(createPrimaryKey(timelineID, to));
+        criteria.setMaxVersions(1);
+        criteria.setLimit(1);
+        return criteria;
+    }
+
+    private PrimaryKey createPrimaryKey(String timelineID, long bucket) {
+        String firstPKValue = Utils.saltTimelineID(timelineID, config.getTimelineIDSaltLength());
+        return PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                .addPrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(firstPKValue))
+                .addPrimaryKeyColumn(config.getTimestampColumnName(), PrimaryKeyValue.fromLong(bucket))
+                .build();
+    }
+
+    private Long firstSequenceID(GetRangeResponse response) {
+        List<Row> rows = response.getRows();
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        Column column = rows.get(0).getLatestColumn(config.getSecondPKName());
+        if (column == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "Time index row has no sequence ID column");
+        }
+        return column.getValue().asLong();
+    }
+
+    private Long timestampOf(RowPutChange change) {
+        for (Column column : change.getColumnsToPut()) {
+            if (column.getName().equals(config.getTimestampColumnName())) {
+                return column.getValue().asLong();
+            }
+        }
+        return null;
+    }
+}
@@ -1,6 +1,8 @@
 package com.alicloud.openservices.tablestore.timeline;
 
 import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.ColumnType;
+import com.alicloud.openservices.tablestore.model.ColumnValue;
 import com.alicloud.openservices.tablestore.model.PrimaryKey;
 import com.alicloud.openservices.tablestore.model.PutRowResponse;
 import com.alicloud.openservices.tablestore.model.Row;
@@ -9,15 +11,20 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.zip.CRC32;
 
 class Utils {
     final static int CONTENT_COLUMN_START_ID = 10000;
+    private final static String MAX_LONG = String.valueOf(Long.MAX_VALUE);
 
     private static Logger logger = LoggerFactory.getLogger(Utils.class);
 
@@ -33,12 +40,51 @@ class Utils {
         }
     }
 
+    /**
+     * 同步等待作为回调传给SDK的TableStoreFuture，中断和执行异常转换成TimelineException，TableStoreException等原样抛出由调用方处理。
+     * 只接受TableStoreFuture：SDK的Future在synchronized中wait，虚拟线程等待时会占住载体线程。
+     */
+    static <Res> Res await(TableStoreFuture<?, Res> f, String action) {
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException(TimelineExceptionType.TET_ABORT, action + " was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_UNKNOWN,
+                    action + " failed, reason:" + ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
     static TimelineEntry toTimelineEntry(PutRowResponse response, IMessage message) {
         long sequenceID = response.getRow().getPrimaryKey().getPrimaryKeyColumn(1).getValue().asLong();
         return new TimelineEntry(sequenceID, message);
     }
 
+    /**
+     * 估算一行的数据大小，用于统计读取的字节数。
+     */
+    static long dataSize(Row row) {
+        return dataSize(Arrays.asList(row.getColumns()));
+    }
+
+    static long dataSize(List<Column> columns) {
+        long size = 0;
+        for (Column column : columns) {
+            size += column.getDataSize();
+        }
+        return size;
+    }
+
     static TimelineEntry toTimelineEntry(Row row, DistributeTimelineConfig config) {
+        return toTimelineEntry(row, config, false);
+    }
+
+    /**
+     * 把一行转换成TimelineEntry。raw为true时返回RawMessage，不构造和反序列化配置的消息类。
+     * 消息只有一列时直接使用该列的值，不再复制。
+     */
+    static TimelineEntry toTimelineEntry(Row row, DistributeTimelineConfig config, boolean raw) {
         PrimaryKey pk = row.getPrimaryKey();
         int pkCount = pk.getPrimaryKeyColumns().length;
         if (pkCount != 2) {
@@ -49,7 +95,8 @@ class Utils {
         Long sequenceID = pk.getPrimaryKeyColumn(1).getValue().asLong();
 
         Column[] columns = row.getColumns();
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ByteArrayOutputStream stream = null;
+        byte[] first = null;
         String messageID = null;
         int index = CONTENT_COLUMN_START_ID;
         long crc32 = 0;
@@ -65,21 +112,33 @@ class Utils {
                 index += 1;
 
                 byte[] value = column.getValue().asBinary();
-                stream.write(value, 0, value.length);
+                if (first == null) {
+                    first = value;
+                } else {
+                    if (stream == null) {
+                        stream = new ByteArrayOutputStream();
+                        stream.write(first, 0, first.length);
+                    }
+                    stream.write(value, 0, value.length);
+                }
             } else if (name.equals(config.getMessageIDColumnName())) {
-                messageID = column.getValue().asString();
+                messageID = toMessageID(column.getValue());
             } else if (name.equals(config.getColumnNameOfMessageCrc32())) {
                 crc32 = column.getValue().asLong();
             }
         }
-        byte[] content = stream.toByteArray();
-
-        try {
-            stream.close();
-        } catch (IOException ex) {
-            logger.error("Close ByteArrayOutputStream failed", ex);
-            throw new TimelineException(TimelineExceptionType.TET_ABORT,
-                    "Close ByteArrayOutputStream failed", ex);
+        byte[] content;
+        if (stream == null) {
+            content = first == null ? new byte[0] : first;
+        } else {
+            content = stream.toByteArray();
+            try {
+                stream.close();
+            } catch (IOException ex) {
+                logger.error("Close ByteArrayOutputStream failed", ex);
+                throw new TimelineException(TimelineExceptionType.TET_ABORT,
+                        "Close ByteArrayOutputStream failed", ex);
+            }
         }
 
         if (config.getColumnNameOfMessageCrc32() != null && !config.getColumnNameOfMessageCrc32().isEmpty()) {
@@ -91,15 +150,152 @@ class Utils {
             }
         }
 
+        if (raw) {
+            return new TimelineEntry(sequenceID, new RawMessage(messageID, content));
+        }
+
         IMessage message = config.getMessageInstance().newInstance();
         message.deserialize(content);
         message.setMessageID(messageID);
         return new TimelineEntry(sequenceID, message);
     }
 
+    /**
+     * 给Timeline ID加上哈希前缀，前缀是Timeline ID的crc32的十六进制表示的前saltLength个字符。
+     */
+    static String saltTimelineID(String timelineID, int saltLength) {
+        if (saltLength <= 0) {
+            return timelineID;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = timelineID.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new TimelineException(TimelineExceptionType.TET_ABORT, "UTF-8 is not supported", ex);
+        }
+        String hash = String.format("%08x", crc32(bytes));
+        return hash.substring(0, saltLength) + timelineID;
+    }
+
+    /**
+     * 去掉Timeline ID的哈希前缀。
+     */
+    static String unsaltTimelineID(String saltedTimelineID, int saltLength) {
+        if (saltLength <= 0) {
+            return saltedTimelineID;
+        }
+        return saltedTimelineID.substring(saltLength);
+    }
+
+    /**
+     * 计算按哈希前缀预分区的切分点，把前缀空间均匀切分为partitionCount份。
+     * @return  partitionCount - 1个切分点，按升序排列。
+     */
+    static List<String> saltSplitPoints(int saltLength, int partitionCount) {
+        List<String> splitPoints = new ArrayList<String>();
+        if (saltLength <= 0 || partitionCount <= 1) {
+            return splitPoints;
+        }
+
+        long space = 1L << (4 * saltLength);
+        long count = Math.min(partitionCount, space);
+        for (long i = 1; i < count; i++) {
+            String point = Long.toHexString(space * i / count);
+            while (point.length() < saltLength) {
+                point = "0" + point;
+            }
+            splitPoints.add(point);
+        }
+        return splitPoints;
+    }
+
+    /**
+     * 把序列化后的消息按列长度切分成属性列，依次是消息内容列、可选的crc32列和消息ID列。
+     */
+    static List<Column> toColumns(byte[] content, String messageID, DistributeTimelineConfig config) {
+        return toColumns(content, 0, content.length, messageID, config);
+    }
+
+    /**
+     * 同上，消息是content中从offset开始的length个字节。消息只有一列并且正好是整个数组时直接使用该数组，不复制。
+     */
+    static List<Column> toColumns(byte[] content, int offset, int length, String messageID,
+                                  DistributeTimelineConfig config) {
+        if (length > 1000 * 1024 * 1024) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    String.format("Message Content must less than 1GB, current:%s", String.valueOf(length)));
+        }
+
+        List<Column> columns = new ArrayList<Column>();
+        int end = offset + length;
+        int pos = offset;
+        int index = CONTENT_COLUMN_START_ID;
+        while (pos < end) {
+            byte[] columnValue;
+            if (pos + config.getColumnMaxLength() < end) {
+                columnValue = Arrays.copyOfRange(content, pos, pos + config.getColumnMaxLength());
+            } else if (pos == 0 && end == content.length) {
+                columnValue = content;
+            } else {
+                columnValue = Arrays.copyOfRange(content, pos, end);
+            }
+            columns.add(new Column(config.getMessageContentPrefix() + String.valueOf(index++),
+                    ColumnValue.fromBinary(columnValue)));
+            pos += columnValue.length;
+        }
+
+        if (config.getColumnNameOfMessageCrc32() != null && !config.getColumnNameOfMessageCrc32().isEmpty()) {
+            columns.add(new Column(config.getColumnNameOfMessageCrc32(),
+                    ColumnValue.fromLong(crc32(content, offset, length))));
+        }
+
+        columns.add(new Column(config.getMessageIDColumnName(), toMessageIDValue(messageID)));
+        return columns;
+    }
+
+    /**
+     * 规范的十进制非负整数形式的消息ID（比如DistinctMessage自动生成的ID）按整数列存储，其他的按字符串列存储。
+     * 只转换没有前导0、不超过Long.MAX_VALUE的数字，所以读取时转换回字符串和写入的完全相同。
+     */
+    static ColumnValue toMessageIDValue(String messageID) {
+        if (isCanonicalLong(messageID)) {
+            return ColumnValue.fromLong(Long.parseLong(messageID));
+        }
+        return ColumnValue.fromString(messageID);
+    }
+
+    /**
+     * 读取消息ID列，兼容整数列和旧版本写入的字符串列。
+     */
+    static String toMessageID(ColumnValue value) {
+        if (value.getType() == ColumnType.INTEGER) {
+            return String.valueOf(value.asLong());
+        }
+        return value.asString();
+    }
+
+    static boolean isCanonicalLong(String value) {
+        if (value == null || value.isEmpty() || value.length() > MAX_LONG.length()
+                || (value.charAt(0) == '0' && value.length() > 1)) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return value.length() < MAX_LONG.length() || value.compareTo(MAX_LONG) <= 0;
+    }
+
     static long crc32(byte[] content) {
+        return crc32(content, 0, content.length);
+    }
+
+    static long crc32(byte[] content, int offset, int length) {
         CRC32 crc32 = new CRC32();
-        crc32.update(content, 0, content.length);
+        crc32.update(content, offset, length);
         return crc32.getValue();
     }
 
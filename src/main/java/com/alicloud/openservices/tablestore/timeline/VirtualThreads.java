@@ -0,0 +1,21 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程的支持。这是Java 21以下版本使用的实现，不支持虚拟线程。
+ * 多版本JAR中META-INF/versions/21下有同名的实现（源码在src/main/java21），Java 21及以上版本运行时会加载那个版本。
+ */
+final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池。
+     * @param name  线程名前缀。
+     */
+    static ExecutorService newExecutor(String name) {
+        throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                "Virtual threads require Java 21 or later, current:" + System.getProperty("java.version"));
+    }
+}
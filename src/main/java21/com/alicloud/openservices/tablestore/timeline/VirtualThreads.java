@@ -0,0 +1,20 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程的支持，Java 21及以上版本的实现，编译到多版本JAR的META-INF/versions/21下。
+ */
+final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池。
+     * @param name  线程名前缀。
+     */
+    static ExecutorService newExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+}
@@ -0,0 +1,163 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 基于CompletableFuture的异步接口，包装任意IStore，只在java8 profile中编译。
+ * 单条读写通过IStore的回调完成，不占用等待线程，可以用thenCompose、allOf等组合成扇出写、批量读和流水线。
+ * 范围读取的第一页是同步读取的，所以scanAsync在executor中调用scan。
+ */
+public class CompletableTimelineStore {
+    private final IStore store;
+    private final Executor executor;
+
+    /**
+     * CompletableTimelineStore的构造函数，scanAsync使用ForkJoinPool.commonPool()。
+     * @param store     被包装的Store。
+     */
+    public CompletableTimelineStore(IStore store) {
+        this(store, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * CompletableTimelineStore的构造函数。
+     * @param store     被包装的Store。
+     * @param executor  执行scan的线程池。
+     */
+    public CompletableTimelineStore(IStore store, Executor executor) {
+        if (store == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "CompletableTimelineStore parameter store is null");
+        }
+
+        if (executor == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "CompletableTimelineStore parameter executor is null");
+        }
+
+        this.store = store;
+        this.executor = executor;
+    }
+
+    /**
+     * 获取被包装的Store。
+     * @return  被包装的Store。
+     */
+    public IStore getStore() {
+        return store;
+    }
+
+    /**
+     * 异步写入一条消息。
+     * @param timelineID    Timeline ID。
+     * @param message       消息体。
+     * @return              写入成功后完成的CompletableFuture，失败时以TimelineException异常完成。
+     */
+    public CompletableFuture<TimelineEntry> writeAsync(String timelineID, IMessage message) {
+        final CompletableFuture<TimelineEntry> future = new CompletableFuture<>();
+        try {
+            store.writeAsync(timelineID, message, new CompletingCallback<IMessage>(future));
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * 扇出写：把同一个消息异步写入多个Timeline，所有写入都成功后完成。
+     * @param timelineIDs   接收消息的Timeline ID列表。
+     * @param message       消息体。
+     * @return              Timeline ID到TimelineEntry的映射，顺序和timelineIDs一致；任意一个写入失败时以该异常完成。
+     */
+    public CompletableFuture<Map<String, TimelineEntry>> writeAsync(Collection<String> timelineIDs, IMessage message) {
+        final Map<String, CompletableFuture<TimelineEntry>> futures = new LinkedHashMap<>();
+        for (String timelineID : timelineIDs) {
+            futures.put(timelineID, writeAsync(timelineID, message));
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()]))
+                .thenApply(ignored -> {
+                    Map<String, TimelineEntry> result = new LinkedHashMap<>();
+                    for (Map.Entry<String, CompletableFuture<TimelineEntry>> entry : futures.entrySet()) {
+                        result.put(entry.getKey(), entry.getValue().join());
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * 异步读取一条消息。
+     * @param timelineID    Timeline ID。
+     * @param sequenceID    消息的顺序ID。
+     * @return              读取完成后完成的CompletableFuture，失败时以TimelineException异常完成。
+     */
+    public CompletableFuture<TimelineEntry> readAsync(String timelineID, Long sequenceID) {
+        final CompletableFuture<TimelineEntry> future = new CompletableFuture<>();
+        try {
+            store.readAsync(timelineID, sequenceID, new CompletingCallback<Long>(future));
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * 批量读：并行读取同一个Timeline中的多条消息。
+     * @param timelineID    Timeline ID。
+     * @param sequenceIDs   消息的顺序ID列表。
+     * @return              TimelineEntry列表，顺序和sequenceIDs一致；任意一个读取失败时以该异常完成。
+     */
+    public CompletableFuture<List<TimelineEntry>> readAsync(String timelineID, List<Long> sequenceIDs) {
+        final List<CompletableFuture<TimelineEntry>> futures = new ArrayList<>(sequenceIDs.size());
+        for (Long sequenceID : sequenceIDs) {
+            futures.add(readAsync(timelineID, sequenceID));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+                .thenApply(ignored -> {
+                    List<TimelineEntry> result = new ArrayList<>(futures.size());
+                    for (CompletableFuture<TimelineEntry> future : futures) {
+                        result.add(future.join());
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * 异步范围读取，在executor中调用scan，第一页读取完成后完成。
+     * 后续翻页仍然在调用迭代器的线程中同步进行。
+     * @param timelineID    Timeline ID。
+     * @param parameter     范围读取参数。
+     * @return              迭代器。
+     */
+    public CompletionStage<Iterator<TimelineEntry>> scanAsync(final String timelineID, final ScanParameter parameter) {
+        return CompletableFuture.supplyAsync(() -> store.scan(timelineID, parameter), executor);
+    }
+
+    private static class CompletingCallback<T> implements TimelineCallback<T> {
+        private final CompletableFuture<TimelineEntry> future;
+
+        CompletingCallback(CompletableFuture<TimelineEntry> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void onCompleted(String timelineID, T request, TimelineEntry timelineEntry) {
+            future.complete(timelineEntry);
+        }
+
+        @Override
+        public void onFailed(String timelineID, T request, Exception ex) {
+            future.completeExceptionally(ex);
+        }
+    }
+}
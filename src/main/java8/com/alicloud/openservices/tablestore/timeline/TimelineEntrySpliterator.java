@@ -0,0 +1,126 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.model.Row;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * DistributeTimelineIterator的Spliterator，读取原始行，转换成TimelineEntry的工作在消费行的线程中完成。
+ * trySplit每次从迭代器取出一批行，返回只负责转换这批行的Spliterator，批内还可以继续二分，
+ * 所以并行Stream中读取（需要读取下一页时）在拆分的线程中串行进行，拼接消息列、校验crc32和反序列化由各个工作线程并行进行。
+ */
+class TimelineEntrySpliterator implements Spliterator<TimelineEntry> {
+    /**
+     * trySplit每次取出的行数。
+     */
+    private final static int BATCH_SIZE = 1024;
+
+    /**
+     * 批内继续二分的最小行数。
+     */
+    private final static int MIN_SPLIT_SIZE = 64;
+
+    private final DistributeTimelineIterator source;
+    private final int characteristics;
+    private List<Row> rows = Collections.emptyList();
+    private int index = 0;
+
+    TimelineEntrySpliterator(DistributeTimelineIterator source, int characteristics) {
+        this.source = source;
+        this.characteristics = characteristics;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super TimelineEntry> action) {
+        if (index >= rows.size()) {
+            rows = source.nextRows(BATCH_SIZE);
+            index = 0;
+            if (rows.isEmpty()) {
+                return false;
+            }
+        }
+        action.accept(source.decode(rows.get(index++)));
+        return true;
+    }
+
+    @Override
+    public Spliterator<TimelineEntry> trySplit() {
+        List<Row> batch;
+        if (index < rows.size()) {
+            batch = rows.subList(index, rows.size());
+            rows = Collections.emptyList();
+            index = 0;
+        } else {
+            batch = source.nextRows(BATCH_SIZE);
+            if (batch.isEmpty()) {
+                return null;
+            }
+        }
+        return new BatchSpliterator(batch, 0, batch.size());
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+
+    /**
+     * 一批已经读取的行，大小已知，可以继续二分。
+     */
+    private class BatchSpliterator implements Spliterator<TimelineEntry> {
+        private final List<Row> batch;
+        private int from;
+        private final int to;
+
+        BatchSpliterator(List<Row> batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super TimelineEntry> action) {
+            if (from >= to) {
+                return false;
+            }
+            action.accept(source.decode(batch.get(from++)));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super TimelineEntry> action) {
+            while (from < to) {
+                action.accept(source.decode(batch.get(from++)));
+            }
+        }
+
+        @Override
+        public Spliterator<TimelineEntry> trySplit() {
+            if (to - from < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            int middle = (from + to) >>> 1;
+            Spliterator<TimelineEntry> prefix = new BatchSpliterator(batch, from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
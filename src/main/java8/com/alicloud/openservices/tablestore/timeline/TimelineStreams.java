@@ -0,0 +1,84 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 范围读取的Stream视图，只在java8 profile中编译（Timeline本身需要兼容Java 6，所以没有直接加stream方法）。
+ * DistributeTimelineStore的范围读取按页读取原始行，parallel()时每批行的拼接、crc32校验和反序列化由ForkJoinPool中的线程并行完成；
+ * 其他Store的范围读取按Spliterators.spliteratorUnknownSize的方式分批。
+ * 按顺序模式返回的Stream是ORDERED的，并行时也保持顺序ID的顺序；不按顺序模式下并行的forEach、collect等不需要保持顺序，开销更小。
+ * 返回的Stream是懒加载的，第一页在调用本方法时同步读取。没有读完就结束时应关闭Stream（例如用try-with-resources），关闭时会关闭底层的迭代器。
+ */
+public final class TimelineStreams {
+    private TimelineStreams() {
+    }
+
+    /**
+     * 按顺序ID顺序读取的Stream。
+     * @param timeline      Timeline。
+     * @param parameter     顺序读取的参数，包括方向、from、to和maxCount。
+     * @return              TimelineEntry的顺序Stream，需要并行解码时调用parallel()。
+     */
+    public static Stream<TimelineEntry> stream(Timeline timeline, ScanParameter parameter) {
+        return stream(timeline, parameter, true);
+    }
+
+    /**
+     * 范围读取的Stream。
+     * @param timeline      Timeline。
+     * @param parameter     顺序读取的参数，包括方向、from、to和maxCount。
+     * @param ordered       是否保持顺序ID的顺序。
+     * @return              TimelineEntry的Stream，需要并行解码时调用parallel()。
+     */
+    public static Stream<TimelineEntry> stream(Timeline timeline, ScanParameter parameter, boolean ordered) {
+        if (timeline == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "stream parameter timeline is null");
+        }
+
+        return stream(timeline.getStore(), timeline.getTimelineID(), parameter, ordered);
+    }
+
+    /**
+     * 范围读取的Stream。
+     * @param store         Store。
+     * @param timelineID    Timeline ID。
+     * @param parameter     顺序读取的参数，包括方向、from、to和maxCount。
+     * @param ordered       是否保持顺序ID的顺序。
+     * @return              TimelineEntry的Stream，需要并行解码时调用parallel()。
+     */
+    public static Stream<TimelineEntry> stream(IStore store, String timelineID, ScanParameter parameter, boolean ordered) {
+        if (parameter == null) {
+            throw new TimelineException(TimelineExceptionType.TET_INVALID_USE,
+                    "stream parameter is null");
+        }
+
+        int characteristics = Spliterator.NONNULL | Spliterator.IMMUTABLE | (ordered ? Spliterator.ORDERED : 0);
+        Iterator<TimelineEntry> iterator = store.scan(timelineID, parameter);
+        Spliterator<TimelineEntry> spliterator;
+        if (iterator instanceof DistributeTimelineIterator) {
+            spliterator = new TimelineEntrySpliterator((DistributeTimelineIterator) iterator, characteristics);
+        } else {
+            spliterator = Spliterators.spliteratorUnknownSize(iterator, characteristics);
+        }
+        Stream<TimelineEntry> stream = StreamSupport.stream(spliterator, false);
+        if (iterator instanceof Closeable) {
+            Closeable closeable = (Closeable) iterator;
+            stream = stream.onClose(() -> {
+                try {
+                    closeable.close();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+        return stream;
+    }
+}
@@ -0,0 +1,677 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.*;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.model.Error;
+import com.alicloud.openservices.tablestore.model.filter.CompositeColumnValueFilter;
+import com.alicloud.openservices.tablestore.model.filter.Filter;
+import com.alicloud.openservices.tablestore.model.filter.SingleColumnValueFilter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的表格存储替身，实现Timeline LIB用到的客户端接口：PutRow（支持自增列和行存在性条件）、GetRow、GetRange（支持列值过滤器）、
+ * BatchWriteRow、BatchGetRow、
+ * CreateTable、DescribeTable、DeleteTable和ListTable，不需要网络。
+ * 每个请求的延时和错误由可注入的分布决定，随机数种子固定时结果可复现，用于离线的功能测试和压测DistributeTimelineStore自身的开销。
+ * 客户端通过动态代理实现，SDK接口中没有模拟的方法会抛出UnsupportedOperationException。
+ */
+public class LocalTableStoreServer {
+    /**
+     * 单次GetRange最多返回的行数，和服务端的限制一致。
+     */
+    public final static int DEFAULT_MAX_ROWS_PER_PAGE = 5000;
+
+    /**
+     * 请求延时分布。
+     */
+    public interface LatencyDistribution {
+        /**
+         * 计算一次请求的延时。
+         * @param operation 操作名称，例如PutRow。
+         * @param random    随机数生成器。
+         * @return          延时，单位是微秒。
+         */
+        long nextLatencyMicros(String operation, Random random);
+    }
+
+    /**
+     * 请求错误分布。
+     */
+    public interface ErrorDistribution {
+        /**
+         * 计算一次请求是否失败。
+         * @param operation 操作名称，例如PutRow。
+         * @param random    随机数生成器。
+         * @return          需要返回的错误，不失败时返回null。
+         */
+        TableStoreException nextError(String operation, Random random);
+    }
+
+    private static class Table {
+        final TableMeta meta;
+        final TableOptions options;
+        final ConcurrentSkipListMap<PrimaryKey, Row> rows = new ConcurrentSkipListMap<PrimaryKey, Row>();
+        final Map<PrimaryKeyValue, Long> lastAutoIncrement = new HashMap<PrimaryKeyValue, Long>();
+
+        Table(TableMeta meta, TableOptions options) {
+            this.meta = meta;
+            this.options = options;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Table> tables = new ConcurrentHashMap<String, Table>();
+    private final ScheduledExecutorService executor;
+    private final Random random;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AsyncClientInterface asyncClient;
+    private final SyncClientInterface syncClient;
+
+    private volatile LatencyDistribution latency = fixedLatency(0);
+    private volatile ErrorDistribution errors = null;
+    private volatile int maxRowsPerPage = DEFAULT_MAX_ROWS_PER_PAGE;
+
+    /**
+     * LocalTableStoreServer的构造函数，使用4个IO线程，随机数种子固定为0。
+     */
+    public LocalTableStoreServer() {
+        this(4, 0);
+    }
+
+    /**
+     * LocalTableStoreServer的构造函数。
+     * @param ioThreadCount 执行异步请求和回调的线程数。
+     * @param seed          随机数种子。
+     */
+    public LocalTableStoreServer(int ioThreadCount, long seed) {
+        this.executor = Executors.newScheduledThreadPool(ioThreadCount);
+        this.random = new Random(seed);
+        this.asyncClient = (AsyncClientInterface) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{AsyncClientInterface.class}, new AsyncHandler());
+        this.syncClient = (SyncClientInterface) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{SyncClientInterface.class}, new SyncHandler());
+    }
+
+    /**
+     * 根据系统属性创建替身，用于压测程序的命令行参数：
+     * timeline.standin.latencyMicros（延时中位数）、timeline.standin.latencySigma（对数正态分布的sigma，0表示固定延时）、
+     * timeline.standin.errorRate（返回500错误的概率）、timeline.standin.seed（随机数种子）。
+     * @return  替身实例。
+     */
+    public static LocalTableStoreServer fromSystemProperties() {
+        long seed = Long.parseLong(System.getProperty("timeline.standin.seed", "0"));
+        LocalTableStoreServer server = new LocalTableStoreServer(4, seed);
+
+        long latencyMicros = Long.parseLong(System.getProperty("timeline.standin.latencyMicros", "0"));
+        double sigma = Double.parseDouble(System.getProperty("timeline.standin.latencySigma", "0"));
+        server.setLatency(sigma > 0 ? logNormalLatency(latencyMicros, sigma) : fixedLatency(latencyMicros));
+
+        double errorRate = Double.parseDouble(System.getProperty("timeline.standin.errorRate", "0"));
+        if (errorRate > 0) {
+            server.setErrors(errorRate(errorRate, "OTSServerBusy", 503));
+        }
+        return server;
+    }
+
+    /**
+     * 判断测试中的endpoint是否还是未填写的占位符，是的话测试使用本地替身。
+     * @param endpoint  测试中配置的endpoint。
+     * @return          true/false
+     */
+    public static boolean isPlaceholder(String endpoint) {
+        return endpoint == null || endpoint.startsWith("<");
+    }
+
+    /**
+     * 固定延时。
+     * @param micros    延时，单位是微秒。
+     * @return          延时分布。
+     */
+    public static LatencyDistribution fixedLatency(final long micros) {
+        return new LatencyDistribution() {
+            @Override
+            public long nextLatencyMicros(String operation, Random random) {
+                return micros;
+            }
+        };
+    }
+
+    /**
+     * 均匀分布的延时。
+     * @param minMicros 最小延时，单位是微秒。
+     * @param maxMicros 最大延时，单位是微秒。
+     * @return          延时分布。
+     */
+    public static LatencyDistribution uniformLatency(final long minMicros, final long maxMicros) {
+        return new LatencyDistribution() {
+            @Override
+            public long nextLatencyMicros(String operation, Random random) {
+                return minMicros + (long) (random.nextDouble() * (maxMicros - minMicros));
+            }
+        };
+    }
+
+    /**
+     * 对数正态分布的延时，和真实服务的长尾延时比较接近。
+     * @param medianMicros  延时中位数，单位是微秒。
+     * @param sigma         对数正态分布的sigma，越大长尾越明显。
+     * @return              延时分布。
+     */
+    public static LatencyDistribution logNormalLatency(final long medianMicros, final double sigma) {
+        return new LatencyDistribution() {
+            @Override
+            public long nextLatencyMicros(String operation, Random random) {
+                return (long) (medianMicros * Math.exp(sigma * random.nextGaussian()));
+            }
+        };
+    }
+
+    /**
+     * 按固定概率返回同一种错误。
+     * @param rate          出错概率，取值范围[0, 1]。
+     * @param errorCode     错误码，例如OTSServerBusy。
+     * @param httpStatus    HTTP状态码。
+     * @return              错误分布。
+     */
+    public static ErrorDistribution errorRate(final double rate, final String errorCode, final int httpStatus) {
+        return new ErrorDistribution() {
+            @Override
+            public TableStoreException nextError(String operation, Random random) {
+                if (random.nextDouble() >= rate) {
+                    return null;
+                }
+                return new TableStoreException("Injected error of " + operation, null, errorCode, "", httpStatus);
+            }
+        };
+    }
+
+    /**
+     * 设置请求延时分布，默认没有延时。
+     * @param latency   延时分布。
+     */
+    public void setLatency(LatencyDistribution latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * 设置请求错误分布，默认不注入错误。
+     * @param errors    错误分布，null表示不注入错误。
+     */
+    public void setErrors(ErrorDistribution errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * 设置单次GetRange最多返回的行数，调小可以测试迭代器翻页。
+     * @param maxRowsPerPage    单页最大行数。
+     */
+    public void setMaxRowsPerPage(int maxRowsPerPage) {
+        this.maxRowsPerPage = maxRowsPerPage;
+    }
+
+    /**
+     * 获取替身处理过的请求总数。
+     * @return  请求总数。
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * 获取异步客户端，可以直接传给DistributeTimelineStore。
+     * @return  异步客户端。
+     */
+    public AsyncClientInterface asyncClient() {
+        return asyncClient;
+    }
+
+    /**
+     * 获取同步客户端。
+     * @return  同步客户端。
+     */
+    public SyncClientInterface syncClient() {
+        return syncClient;
+    }
+
+    /**
+     * 关闭替身，客户端的shutdown不会关闭替身，方便多个Store共享同一份数据。
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private long nextLatencyMicros(String operation) {
+        synchronized (random) {
+            return Math.max(0, latency.nextLatencyMicros(operation, random));
+        }
+    }
+
+    private TableStoreException nextError(String operation) {
+        ErrorDistribution errors = this.errors;
+        if (errors == null) {
+            return null;
+        }
+        synchronized (random) {
+            return errors.nextError(operation, random);
+        }
+    }
+
+    /**
+     * 执行一个请求，失败时抛出和SDK一致的TableStoreException。
+     */
+    private Object execute(String operation, Object request) {
+        requestCount.incrementAndGet();
+        TableStoreException error = nextError(operation);
+        if (error != null) {
+            throw error;
+        }
+
+        if (operation.equals("createTable")) {
+            return createTable((CreateTableRequest) request);
+        } else if (operation.equals("deleteTable")) {
+            return deleteTable((DeleteTableRequest) request);
+        } else if (operation.equals("describeTable")) {
+            return describeTable((DescribeTableRequest) request);
+        } else if (operation.equals("listTable")) {
+            ListTableResponse response = new ListTableResponse(new Response());
+            response.setTableNames(new ArrayList<String>(tables.keySet()));
+            return response;
+        } else if (operation.equals("putRow")) {
+            return putRow((PutRowRequest) request);
+        } else if (operation.equals("getRow")) {
+            return getRow((GetRowRequest) request);
+        } else if (operation.equals("getRange")) {
+            return getRange((GetRangeRequest) request);
+        } else if (operation.equals("batchWriteRow")) {
+            return batchWriteRow((BatchWriteRowRequest) request);
+        } else if (operation.equals("batchGetRow")) {
+            return batchGetRow((BatchGetRowRequest) request);
+        }
+        throw new UnsupportedOperationException("LocalTableStoreServer does not support " + operation);
+    }
+
+    private CreateTableResponse createTable(CreateTableRequest request) {
+        TableMeta meta = request.getTableMeta();
+        if (tables.putIfAbsent(meta.getTableName(), new Table(meta, request.getTableOptions())) != null) {
+            throw error("OTSObjectAlreadyExist", "Requested table already exists.", 409);
+        }
+        return new CreateTableResponse(new Response());
+    }
+
+    private DeleteTableResponse deleteTable(DeleteTableRequest request) {
+        if (tables.remove(request.getTableName()) == null) {
+            throw tableNotExist();
+        }
+        return new DeleteTableResponse(new Response());
+    }
+
+    private DescribeTableResponse describeTable(DescribeTableRequest request) {
+        Table table = getTable(request.getTableName());
+        DescribeTableResponse response = new DescribeTableResponse(new Response());
+        response.setTableMeta(table.meta);
+        response.setTableOptions(table.options);
+        return response;
+    }
+
+    private PutRowResponse putRow(PutRowRequest request) {
+        RowPutChange change = request.getRowChange();
+        Row row = put(getTable(change.getTableName()), change);
+        return new PutRowResponse(new Response(), returnRow(change, row), capacity(0, 1));
+    }
+
+    private GetRowResponse getRow(GetRowRequest request) {
+        SingleRowQueryCriteria criteria = request.getRowQueryCriteria();
+        Row row = getTable(criteria.getTableName()).rows.get(criteria.getPrimaryKey());
+        return new GetRowResponse(new Response(), project(row, criteria.getColumnsToGet()), capacity(1, 0));
+    }
+
+    private GetRangeResponse getRange(GetRangeRequest request) {
+        RangeRowQueryCriteria criteria = request.getRangeRowQueryCriteria();
+        Table table = getTable(criteria.getTableName());
+
+        NavigableMap<PrimaryKey, Row> rows = table.rows;
+        if (criteria.getDirection() == Direction.BACKWARD) {
+            rows = rows.descendingMap();
+        }
+        Iterator<Row> iterator = rows.subMap(criteria.getInclusiveStartPrimaryKey(), true,
+                criteria.getExclusiveEndPrimaryKey(), false).values().iterator();
+
+        int limit = criteria.getLimit() > 0 ? Math.min(criteria.getLimit(), maxRowsPerPage) : maxRowsPerPage;
+        Filter filter = criteria.getFilter();
+        List<Row> result = new ArrayList<Row>();
+        while (result.size() < limit && iterator.hasNext()) {
+            Row row = iterator.next();
+            if (filter == null || matches(filter, row)) {
+                result.add(project(row, criteria.getColumnsToGet()));
+            }
+        }
+
+        GetRangeResponse response = new GetRangeResponse(new Response(), capacity(Math.max(1, result.size()), 0));
+        response.setRows(result);
+        if (iterator.hasNext()) {
+            response.setNextStartPrimaryKey(iterator.next().getPrimaryKey());
+        }
+        return response;
+    }
+
+    private BatchWriteRowResponse batchWriteRow(BatchWriteRowRequest request) {
+        BatchWriteRowResponse response = new BatchWriteRowResponse(new Response());
+        for (Map.Entry<String, List<RowChange>> entry : request.getRowChange().entrySet()) {
+            String tableName = entry.getKey();
+            Table table = tables.get(tableName);
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                RowChange change = entry.getValue().get(i);
+                if (table == null) {
+                    response.addRowResult(new BatchWriteRowResponse.RowResult(tableName,
+                            new Error("OTSObjectNotExist", "Requested table does not exist."), i));
+                } else if (change instanceof RowPutChange) {
+                    try {
+                        Row row = put(table, (RowPutChange) change);
+                        response.addRowResult(new BatchWriteRowResponse.RowResult(tableName,
+                                returnRow(change, row), capacity(0, 1), i));
+                    } catch (TableStoreException ex) {
+                        response.addRowResult(new BatchWriteRowResponse.RowResult(tableName,
+                                new Error(ex.getErrorCode(), ex.getMessage()), i));
+                    }
+                } else if (change instanceof RowDeleteChange) {
+                    table.rows.remove(change.getPrimaryKey());
+                    response.addRowResult(new BatchWriteRowResponse.RowResult(tableName, null, capacity(0, 1), i));
+                } else {
+                    response.addRowResult(new BatchWriteRowResponse.RowResult(tableName,
+                            new Error("OTSParameterInvalid", "Row change is not supported by LocalTableStoreServer."), i));
+                }
+            }
+        }
+        return response;
+    }
+
+    private BatchGetRowResponse batchGetRow(BatchGetRowRequest request) {
+        BatchGetRowResponse response = new BatchGetRowResponse(new Response());
+        for (Map.Entry<String, MultiRowQueryCriteria> entry : request.getCriterias().entrySet()) {
+            String tableName = entry.getKey();
+            Table table = tables.get(tableName);
+            List<PrimaryKey> primaryKeys = entry.getValue().getRowKeys();
+            for (int i = 0; i < primaryKeys.size(); i++) {
+                if (table == null) {
+                    response.addResult(new BatchGetRowResponse.RowResult(tableName,
+                            new Error("OTSObjectNotExist", "Requested table does not exist."), i));
+                } else {
+                    Row row = project(table.rows.get(primaryKeys.get(i)), entry.getValue().getColumnsToGet());
+                    response.addResult(new BatchGetRowResponse.RowResult(tableName, row, capacity(1, 0), i));
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * 写入一行，自增列的值按分区键（第一列主键）单调递增，和服务端一样使用微秒时间戳作为下限。
+     */
+    private Row put(Table table, RowPutChange change) {
+        PrimaryKeyColumn[] columns = change.getPrimaryKey().getPrimaryKeyColumns();
+        PrimaryKeyColumn[] pkColumns = new PrimaryKeyColumn[columns.length];
+        long timestamp = System.currentTimeMillis();
+
+        synchronized (table) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].getValue() == PrimaryKeyValue.AUTO_INCREMENT) {
+                    PrimaryKeyValue partitionKey = columns[0].getValue();
+                    Long last = table.lastAutoIncrement.get(partitionKey);
+                    long value = Math.max(last == null ? 0 : last + 1, timestamp * 1000);
+                    table.lastAutoIncrement.put(partitionKey, value);
+                    pkColumns[i] = new PrimaryKeyColumn(columns[i].getName(), PrimaryKeyValue.fromLong(value));
+                } else {
+                    pkColumns[i] = columns[i];
+                }
+            }
+
+            List<Column> attributes = new ArrayList<Column>();
+            for (Column column : change.getColumnsToPut()) {
+                attributes.add(new Column(column.getName(), column.getValue(), timestamp));
+            }
+
+            PrimaryKey primaryKey = new PrimaryKey(pkColumns);
+            Condition condition = change.getCondition();
+            if (condition != null && condition.getRowExistenceExpectation() == RowExistenceExpectation.EXPECT_NOT_EXIST
+                    && table.rows.containsKey(primaryKey)) {
+                throw error("OTSConditionCheckFail", "Condition check failed.", 403);
+            }
+            Row row = new Row(primaryKey, attributes);
+            table.rows.put(primaryKey, row);
+            return row;
+        }
+    }
+
+    /**
+     * 按列值过滤器判断一行是否返回，只支持单列和组合过滤器，列值类型不同时不返回。
+     */
+    private boolean matches(Filter filter, Row row) {
+        if (filter instanceof CompositeColumnValueFilter) {
+            CompositeColumnValueFilter composite = (CompositeColumnValueFilter) filter;
+            List<? extends Filter> subFilters = composite.getSubFilters();
+            switch (composite.getOperationType()) {
+                case NOT:
+                    return !matches(subFilters.get(0), row);
+                case AND:
+                    for (Filter subFilter : subFilters) {
+                        if (!matches(subFilter, row)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                default:
+                    for (Filter subFilter : subFilters) {
+                        if (matches(subFilter, row)) {
+                            return true;
+                        }
+                    }
+                    return false;
+            }
+        }
+
+        SingleColumnValueFilter single = (SingleColumnValueFilter) filter;
+        Column column = row.getLatestColumn(single.getColumnName());
+        if (column == null) {
+            return single.isPassIfMissing();
+        }
+        if (column.getValue().getType() != single.getColumnValue().getType()) {
+            return false;
+        }
+
+        int result = column.getValue().compareTo(single.getColumnValue());
+        switch (single.getOperator()) {
+            case EQUAL:
+                return result == 0;
+            case NOT_EQUAL:
+                return result != 0;
+            case GREATER_THAN:
+                return result > 0;
+            case GREATER_EQUAL:
+                return result >= 0;
+            case LESS_THAN:
+                return result < 0;
+            default:
+                return result <= 0;
+        }
+    }
+
+    private Row returnRow(RowChange change, Row row) {
+        if (change.getReturnType() != ReturnType.RT_PK) {
+            return null;
+        }
+        return new Row(row.getPrimaryKey(), new Column[0]);
+    }
+
+    private Row project(Row row, Set<String> columnsToGet) {
+        if (row == null || columnsToGet == null || columnsToGet.isEmpty()) {
+            return row;
+        }
+
+        List<Column> columns = new ArrayList<Column>();
+        for (Column column : row.getColumns()) {
+            if (columnsToGet.contains(column.getName())) {
+                columns.add(column);
+            }
+        }
+        return new Row(row.getPrimaryKey(), columns);
+    }
+
+    private Table getTable(String tableName) {
+        Table table = tables.get(tableName);
+        if (table == null) {
+            throw tableNotExist();
+        }
+        return table;
+    }
+
+    private ConsumedCapacity capacity(int read, int write) {
+        return new ConsumedCapacity(new CapacityUnit(read, write));
+    }
+
+    private TableStoreException tableNotExist() {
+        return error("OTSObjectNotExist", "Requested table does not exist.", 404);
+    }
+
+    private TableStoreException error(String errorCode, String message, int httpStatus) {
+        return new TableStoreException(message, null, errorCode, "", httpStatus);
+    }
+
+    /**
+     * 和SDK一致的Future：get时直接抛出TableStoreException和ClientException，其他异常包装成ExecutionException。
+     */
+    private static class ResponseFuture implements Future<Object> {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile Object response = null;
+        private volatile Exception exception = null;
+
+        void complete(Object response, Exception exception) {
+            this.response = response;
+            this.exception = exception;
+            latch.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            latch.await();
+            return getResponse();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!latch.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return getResponse();
+        }
+
+        private Object getResponse() throws ExecutionException {
+            if (exception instanceof TableStoreException) {
+                throw (TableStoreException) exception;
+            } else if (exception instanceof ClientException) {
+                throw (ClientException) exception;
+            } else if (exception != null) {
+                throw new ExecutionException(exception);
+            }
+            return response;
+        }
+    }
+
+    private class AsyncHandler implements InvocationHandler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            } else if (name.equals("asSyncClient")) {
+                return syncClient;
+            } else if (name.equals("shutdown")) {
+                return null;
+            }
+
+            Object request = null;
+            TableStoreCallback<Object, Object> callback = null;
+            for (Object arg : args == null ? new Object[0] : args) {
+                if (arg instanceof TableStoreCallback) {
+                    callback = (TableStoreCallback<Object, Object>) arg;
+                } else {
+                    request = arg;
+                }
+            }
+            return submit(name, request, callback);
+        }
+
+        private Future<Object> submit(final String operation, final Object request,
+                                      final TableStoreCallback<Object, Object> callback) {
+            final ResponseFuture future = new ResponseFuture();
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    Object response = null;
+                    Exception exception = null;
+                    try {
+                        response = execute(operation, request);
+                    } catch (Exception ex) {
+                        exception = ex;
+                    }
+                    future.complete(response, exception);
+
+                    if (callback != null) {
+                        try {
+                            if (exception == null) {
+                                callback.onCompleted(request, response);
+                            } else {
+                                callback.onFailed(request, exception);
+                            }
+                        } catch (RuntimeException ex) {
+                            // 和SDK一样，回调中的异常不影响IO线程。
+                        }
+                    }
+                }
+            }, nextLatencyMicros(operation), TimeUnit.MICROSECONDS);
+            return future;
+        }
+    }
+
+    private class SyncHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            } else if (name.equals("asAsyncClient")) {
+                return asyncClient;
+            } else if (name.equals("shutdown")) {
+                return null;
+            } else if (name.equals("createRangeIterator")) {
+                return new RowIterator(syncClient, (RangeIteratorParameter) args[0]);
+            }
+
+            long micros = nextLatencyMicros(name);
+            if (micros > 0) {
+                TimeUnit.MICROSECONDS.sleep(micros);
+            }
+            return execute(name, args == null || args.length == 0 ? null : args[0]);
+        }
+    }
+}
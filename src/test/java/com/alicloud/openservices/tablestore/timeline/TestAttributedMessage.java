@@ -0,0 +1,123 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TestAttributedMessage {
+    private LocalTableStoreServer server = null;
+    private DistributeTimelineConfig config = null;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalTableStoreServer();
+        config = new DistributeTimelineConfig("<local>", "", "", "local", "__timelinetest_attribute");
+        config.setMessageInstance(new StringMessage());
+    }
+
+    @After
+    public void after() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testDelegate() {
+        StringMessage message = new StringMessage("msg_1", "content");
+        AttributedMessage attributed = new AttributedMessage(message).setAttribute("type", "system")
+                .setAttribute("priority", 3).setAttribute("read", false);
+        assertSame(message, attributed.getMessage());
+        assertEquals("msg_1", attributed.getMessageID());
+        assertEquals("content", new String(attributed.serialize()));
+        assertTrue(attributed.newInstance() instanceof StringMessage);
+        assertEquals(Arrays.asList("type", "priority", "read"), new ArrayList<String>(attributed.getAttributeNames()));
+        assertSame(attributed, AttributedMessage.of(new EncodedMessage(attributed)));
+        assertNull(AttributedMessage.of(message));
+
+        try {
+            attributed.setAttribute("list", new ArrayList<String>());
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+
+        try {
+            new AttributedMessage(message).setAttribute(config.getMessageIDColumnName(), "id").getColumns(config);
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+
+        try {
+            AttributeFilter.and(AttributeFilter.equal("type", "system"));
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+    }
+
+    @Test
+    public void testScanWithFilter() {
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        for (int i = 0; i < 20; i++) {
+            AttributedMessage message = new AttributedMessage(new StringMessage("message " + i))
+                    .setAttribute("type", i % 4 == 0 ? "system" : "user")
+                    .setAttribute("priority", (long) (i % 5));
+            store.write("00001", message);
+        }
+        store.write("00001", new StringMessage("no attributes"));
+        store.write("00001", new EncodedMessage(new AttributedMessage(new StringMessage("encoded"))
+                .setAttribute("type", "system").setAttribute("priority", 9L)));
+
+        AttributeFilter system = AttributeFilter.equal("type", "system");
+        assertEquals(Arrays.asList("message 0", "message 4", "message 8", "message 12", "message 16", "encoded"),
+                scan(store, ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).filter(system).build()));
+        assertEquals(Arrays.asList("encoded", "message 16"),
+                scan(store, ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(2).filter(system).build()));
+
+        AttributeFilter urgentUser = AttributeFilter.and(AttributeFilter.not(system),
+                AttributeFilter.greaterEqual("priority", 4));
+        assertEquals(Arrays.asList("message 9", "message 14", "message 19"),
+                scan(store, ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).filter(urgentUser).build()));
+
+        AttributeFilter either = AttributeFilter.or(AttributeFilter.lessThan("priority", 1),
+                AttributeFilter.greaterThan("priority", 8));
+        assertEquals(Arrays.asList("message 0", "message 5", "message 10", "message 15", "encoded"),
+                scan(store, ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).filter(either).build()));
+
+        // 属性值类型不同时不满足条件。
+        assertTrue(scan(store, ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100)
+                .filter(AttributeFilter.equal("priority", "1")).build()).isEmpty());
+        store.close();
+    }
+
+    @Test
+    public void testFilterWithTimeRange() throws Exception {
+        config.setTimeIndexEnabled(true);
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        store.write("00001", new AttributedMessage(new StringMessage("before")).setAttribute("type", "system"));
+        Thread.sleep(10);
+        long startTime = System.currentTimeMillis();
+        store.write("00001", new AttributedMessage(new StringMessage("user")).setAttribute("type", "user"));
+        store.write("00001", new AttributedMessage(new StringMessage("system")).setAttribute("type", "system"));
+
+        ScanParameter parameter = ScanParameterBuilder.scanForward().timeRange(startTime, Long.MAX_VALUE)
+                .maxCount(100).filter(AttributeFilter.equal("type", "system")).build();
+        assertEquals(Arrays.asList("system"), scan(store, parameter));
+        store.close();
+    }
+
+    private static List<String> scan(IStore store, ScanParameter parameter) {
+        List<String> contents = new ArrayList<String>();
+        Iterator<TimelineEntry> iterator = store.scan("00001", parameter);
+        while (iterator.hasNext()) {
+            contents.add(((StringMessage) iterator.next().getMessage()).getContent());
+        }
+        return contents;
+    }
+}
@@ -0,0 +1,113 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TestBinaryMessage {
+    private final static MessageSchema CHAT_V1 = MessageSchemaBuilder.newSchema("chat")
+            .addField(1, "sender", MessageFieldType.STRING)
+            .addField(2, "sentAt", MessageFieldType.INT64)
+            .addField(3, "text", MessageFieldType.STRING)
+            .addField(4, "recalled", MessageFieldType.BOOL)
+            .build();
+
+    private final static MessageSchema CHAT_V2 = MessageSchemaBuilder.newSchema("chat")
+            .addField(1, "sender", MessageFieldType.STRING)
+            .addField(2, "sentAt", MessageFieldType.INT64)
+            .addField(3, "text", MessageFieldType.STRING)
+            .addField(4, "recalled", MessageFieldType.BOOL)
+            .addField(5, "score", MessageFieldType.DOUBLE)
+            .addField(200, "attachment", MessageFieldType.BYTES)
+            .build();
+
+    @Test
+    public void testRoundTrip() {
+        BinaryMessage message = new BinaryMessage("id", CHAT_V2)
+                .setString("sender", "alice")
+                .setLong("sentAt", -1234567890123L)
+                .setString("text", "\u4F60\u597D, world \uD83D\uDE00")
+                .setBool("recalled", true)
+                .setDouble("score", 0.5)
+                .setBytes("attachment", new byte[]{1, 2, 3});
+
+        byte[] bytes = message.serialize();
+        BinaryMessage result = (BinaryMessage) message.newInstance();
+        result.deserialize(bytes);
+
+        assertEquals("alice", result.getString("sender"));
+        assertEquals(-1234567890123L, result.getLong("sentAt"));
+        assertEquals("\u4F60\u597D, world \uD83D\uDE00", result.getString("text"));
+        assertTrue(result.getBool("recalled"));
+        assertEquals(0.5, result.getDouble("score"), 0);
+        assertTrue(Arrays.equals(new byte[]{1, 2, 3}, result.getBytes("attachment")));
+        assertTrue(Arrays.equals(bytes, result.serialize()));
+    }
+
+    @Test
+    public void testOptionalFields() {
+        BinaryMessage message = new BinaryMessage("id", CHAT_V1).setString("text", "hi");
+        byte[] bytes = message.serialize();
+        assertEquals(4, bytes.length);
+
+        BinaryMessage result = new BinaryMessage("id", CHAT_V1);
+        result.deserialize(bytes);
+        assertTrue(result.has("text"));
+        assertTrue(!result.has("sender"));
+        assertNull(result.getString("sender"));
+        assertEquals(0, result.getLong("sentAt"));
+
+        result.clear("text");
+        assertEquals(0, result.serialize().length);
+    }
+
+    @Test
+    public void testForwardCompatibility() {
+        BinaryMessage newer = new BinaryMessage("id", CHAT_V2)
+                .setString("text", "hi")
+                .setDouble("score", 1.5)
+                .setBytes("attachment", new byte[]{9});
+
+        BinaryMessage older = new BinaryMessage("id", CHAT_V1);
+        older.deserialize(newer.serialize());
+        assertEquals("hi", older.getString("text"));
+        older.setBool("recalled", true);
+
+        BinaryMessage roundTrip = new BinaryMessage("id", CHAT_V2);
+        roundTrip.deserialize(older.serialize());
+        assertEquals("hi", roundTrip.getString("text"));
+        assertTrue(roundTrip.getBool("recalled"));
+        assertEquals(1.5, roundTrip.getDouble("score"), 0);
+        assertTrue(Arrays.equals(new byte[]{9}, roundTrip.getBytes("attachment")));
+    }
+
+    @Test
+    public void testUtf8MatchesJdk() throws Exception {
+        for (String value : new String[]{"", "ascii", "\u00E9", "\u4E2D\u6587", "\uD83D\uDE00", "broken\uD800"}) {
+            byte[] expected = value.getBytes("UTF-8");
+            byte[] actual = new byte[BinaryCodec.utf8Length(value)];
+            assertEquals(actual.length, BinaryCodec.writeUtf8(actual, 0, value));
+            assertTrue(value, Arrays.equals(expected, actual));
+        }
+    }
+
+    @Test
+    public void testInvalidInput() {
+        BinaryMessage message = new BinaryMessage("id", CHAT_V1);
+        try {
+            message.deserialize(new byte[]{0x1A, 0x10, 'h'});
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+
+        try {
+            message.setLong("text", 1);
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+    }
+}
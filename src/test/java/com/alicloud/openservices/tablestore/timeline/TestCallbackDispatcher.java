@@ -0,0 +1,175 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TestCallbackDispatcher {
+    private final static Executor REJECTING = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            throw new RejectedExecutionException("full");
+        }
+    };
+
+    private DistributeTimelineConfig createConfig() {
+        return new DistributeTimelineConfig("http://localhost", "id", "secret", "instance", "table");
+    }
+
+    @Test
+    public void testDispatchOffCallerThread() throws Exception {
+        TimelineMetrics metrics = new TimelineMetrics("instance/table");
+        CallbackDispatcher dispatcher = new CallbackDispatcher(createConfig(), metrics);
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        dispatcher.dispatchOrRun(new Runnable() {
+            @Override
+            public void run() {
+                threadName.set(Thread.currentThread().getName());
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(threadName.get().startsWith("timeline-callback-"));
+        dispatcher.shutdown();
+        assertEquals(0L, metrics.snapshot().get("callback.queueDepth"));
+    }
+
+    @Test
+    public void testAbort() throws Exception {
+        DistributeTimelineConfig config = createConfig();
+        config.setCallbackExecutor(REJECTING);
+        assertEquals(CallbackRejectionPolicy.ABORT, config.getCallbackRejectionPolicy());
+        TimelineMetrics metrics = new TimelineMetrics("instance/table");
+        CallbackDispatcher dispatcher = new CallbackDispatcher(config, metrics);
+
+        TimelineEntryFuture future = new TimelineEntryFuture();
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        dispatcher.dispatch(new Runnable() {
+            @Override
+            public void run() {
+                fail();
+            }
+        }, future, new Runnable() {
+            @Override
+            public void run() {
+                threadName.set(Thread.currentThread().getName());
+                latch.countDown();
+            }
+        });
+
+        // 用户回调的onFailed不在调用线程（IO线程）中执行。
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("timeline-callback-rejected", threadName.get());
+
+        try {
+            future.get();
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_ABORT, ex.getType());
+        } catch (Exception ex) {
+            fail();
+        }
+        assertEquals(1L, metrics.snapshot().get("callback.rejected"));
+        assertEquals(0L, metrics.snapshot().get("callback.queueDepth"));
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        DistributeTimelineConfig config = createConfig();
+        config.setCallbackExecutor(REJECTING);
+        config.setCallbackRejectionPolicy(CallbackRejectionPolicy.BLOCK);
+        try {
+            new CallbackDispatcher(config, new TimelineMetrics("instance/table"));
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+
+        // 线程池已经关闭时按ABORT处理，不会一直等待。
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1));
+        executor.shutdown();
+        config.setCallbackExecutor(executor);
+        CallbackDispatcher dispatcher = new CallbackDispatcher(config, new TimelineMetrics("instance/table"));
+        final CountDownLatch latch = new CountDownLatch(1);
+        TimelineEntryFuture future = new TimelineEntryFuture();
+        dispatcher.dispatch(new Runnable() {
+            @Override
+            public void run() {
+                fail();
+            }
+        }, future, new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(future.isDone());
+    }
+
+    @Test
+    public void testCallerRuns() {
+        DistributeTimelineConfig config = createConfig();
+        config.setCallbackExecutor(REJECTING);
+        config.setCallbackRejectionPolicy(CallbackRejectionPolicy.CALLER_RUNS);
+        CallbackDispatcher dispatcher = new CallbackDispatcher(config, new TimelineMetrics("instance/table"));
+
+        final Thread caller = Thread.currentThread();
+        final AtomicReference<Thread> executed = new AtomicReference<Thread>();
+        dispatcher.dispatch(new Runnable() {
+            @Override
+            public void run() {
+                executed.set(Thread.currentThread());
+            }
+        }, new TimelineEntryFuture(), null);
+        assertSame(caller, executed.get());
+    }
+
+    @Test
+    public void testRejectedFutureOnlyTaskRunsInline() throws Exception {
+        DistributeTimelineConfig config = createConfig();
+        config.setCallbackExecutor(REJECTING);
+        TimelineMetrics metrics = new TimelineMetrics("instance/table");
+        CallbackDispatcher dispatcher = new CallbackDispatcher(config, metrics);
+
+        // 只设置Future结果的任务被拒绝时不让已经成功的请求失败，直接在调用线程中执行。
+        final Thread caller = Thread.currentThread();
+        final AtomicReference<Thread> executed = new AtomicReference<Thread>();
+        final TimelineEntryFuture future = new TimelineEntryFuture();
+        final TimelineEntry entry = new TimelineEntry(1L, new StringMessage("content"));
+        dispatcher.dispatchOrRun(new Runnable() {
+            @Override
+            public void run() {
+                executed.set(Thread.currentThread());
+                future.complete(entry);
+            }
+        });
+        assertSame(caller, executed.get());
+        assertSame(entry, future.get());
+        assertEquals(0L, metrics.snapshot().get("callback.rejected"));
+        assertEquals(0L, metrics.snapshot().get("callback.queueDepth"));
+    }
+
+    @Test
+    public void testReadWithRejectingExecutor() throws Exception {
+        LocalTableStoreServer server = new LocalTableStoreServer();
+        DistributeTimelineConfig config = new DistributeTimelineConfig("<local>", "", "", "local", "__timelinetest_callback");
+        config.setMessageInstance(new StringMessage());
+        config.setCallbackExecutor(REJECTING);
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+
+        TimelineEntry entry = store.write("00001", new StringMessage("content"));
+        assertEquals("content", ((StringMessage) store.read("00001", entry.getSequenceID()).getMessage()).getContent());
+        store.close();
+        server.shutdown();
+    }
+}
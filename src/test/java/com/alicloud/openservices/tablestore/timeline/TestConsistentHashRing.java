@@ -0,0 +1,72 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TestConsistentHashRing {
+    @Test
+    public void testLocateIsStable() {
+        ConsistentHashRing ring1 = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 160);
+        ConsistentHashRing ring2 = new ConsistentHashRing(Arrays.asList("c", "a", "b"), 160);
+        for (int i = 0; i < 1000; i++) {
+            String timelineID = "user_" + i;
+            assertEquals(ring1.locate(timelineID), ring2.locate(timelineID));
+        }
+    }
+
+    @Test
+    public void testDistribution() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 160);
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        int total = 40000;
+        for (int i = 0; i < total; i++) {
+            String shard = ring.locate(String.valueOf(i));
+            counts.put(shard, counts.containsKey(shard) ? counts.get(shard) + 1 : 1);
+        }
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > total / 4 * 0.8 && count < total / 4 * 1.2);
+        }
+    }
+
+    @Test
+    public void testPlanAddShard() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 160);
+        List<String> timelineIDs = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            timelineIDs.add("user_" + i);
+        }
+
+        ShardRebalancePlan plan = ShardRebalancePlan.planAddShard(ring, "d", timelineIDs);
+        assertEquals(10000, plan.getTotalCount());
+
+        // 新增第4个分片，大约1/4的Timeline需要迁移，而且只会迁移到新分片。
+        int moved = plan.getMoves().size();
+        assertTrue(moved > 2000 && moved < 3000);
+        for (ShardRebalancePlan.Move move : plan.getMoves()) {
+            assertEquals("d", move.getToShard());
+            assertEquals(ring.locate(move.getTimelineID()), move.getFromShard());
+        }
+    }
+
+    @Test
+    public void testInvalidNode() {
+        try {
+            new ConsistentHashRing(Arrays.asList("a", "a"), 160);
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, e.getType());
+        }
+
+        try {
+            new ConsistentHashRing(new ArrayList<String>(), 160).locate("user_1");
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, e.getType());
+        }
+    }
+}
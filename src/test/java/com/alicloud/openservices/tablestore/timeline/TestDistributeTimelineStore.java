@@ -1,11 +1,13 @@
 package com.alicloud.openservices.tablestore.timeline;
 
 import com.alicloud.openservices.tablestore.SyncClient;
+import com.alicloud.openservices.tablestore.SyncClientInterface;
 import com.alicloud.openservices.tablestore.model.DeleteTableRequest;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.Closeable;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -21,12 +23,18 @@ public class TestDistributeTimelineStore {
     private final static String accessKeySecret = "<your access key secret>";
     private final static String instanceName = "<your instance name>";
     private final static String testTablePrefix = "__timelinetest_ts_";
-    private static SyncClient ots = null;
+    private static SyncClientInterface ots = null;
+    private static LocalTableStoreServer server = null;
     private static DistributeTimelineConfig config = null;
 
     @Before
     public void setUp() throws Exception {
-        ots = new SyncClient(endpoint, accessKeyID, accessKeySecret, instanceName);
+        if (LocalTableStoreServer.isPlaceholder(endpoint)) {
+            server = new LocalTableStoreServer();
+            ots = server.syncClient();
+        } else {
+            ots = new SyncClient(endpoint, accessKeyID, accessKeySecret, instanceName);
+        }
 
         config = new DistributeTimelineConfig(endpoint, accessKeyID,
                 accessKeySecret, instanceName, "base_timeline_test_table");
@@ -42,12 +50,26 @@ public class TestDistributeTimelineStore {
                 ots.deleteTable(new DeleteTableRequest(table));
             }
         }
+        if (server != null) {
+            server.shutdown();
+            server = null;
+        }
+    }
+
+    /**
+     * 没有配置endpoint时使用本地替身，不需要网络。
+     */
+    private IStore createStore() {
+        if (server != null) {
+            return new DistributeTimelineStore(config, server.asyncClient());
+        }
+        return new DistributeTimelineStore(config);
     }
 
     @Test
     public void testCreate() {
         config.setTableName(testTablePrefix + "testCreate");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
 
         assertTrue(!store.exist());
 
@@ -82,7 +104,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testWrite_Exception() {
         config.setTableName(testTablePrefix + "testWrite_Exception");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         String timelineID = "00001";
         String content = String.valueOf(new Date().getTime());
         IMessage message = new StringMessage(content);
@@ -98,7 +120,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testWriteAsyncByFuture_Exception() {
         config.setTableName(testTablePrefix + "testWriteAsyncByFuture");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         String timelineID = "00001";
         String content = String.valueOf(new Date().getTime());
         IMessage message = new StringMessage(content);
@@ -117,7 +139,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testWriteAsyncByCallback_Exception() {
         config.setTableName(testTablePrefix + "testWriteAsyncByCallback");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         String timelineID = "00001";
         String content = String.valueOf(new Date().getTime());
         IMessage message = new StringMessage(content);
@@ -151,7 +173,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testWriteRead() {
         config.setTableName(testTablePrefix + "testWriteRead");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         store.create();
         sleep(5);
 
@@ -173,7 +195,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testWriteRead_Future() {
         config.setTableName(testTablePrefix + "testWriteRead_Future");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         store.create();
         sleep(5);
 
@@ -208,7 +230,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testWriteRead_Callback() {
         config.setTableName(testTablePrefix + "testWriteRead_Callback");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         store.create();
         sleep(5);
 
@@ -271,7 +293,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testScan_Exception() {
         config.setTableName(testTablePrefix + "testScan_Exception");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         String timelineID = "00001";
 
         ScanParameter parameter = ScanParameterBuilder.scanForward().maxCount(100).from(0).to(100).build();
@@ -287,7 +309,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testScanForward_NoData() {
         config.setTableName(testTablePrefix + "testScanForward_NoData");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         store.create();
         sleep(5);
 
@@ -305,7 +327,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testScanBackward_NoData() {
         config.setTableName(testTablePrefix + "testScanForward_NoData");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         store.create();
         sleep(5);
 
@@ -323,7 +345,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testScanForward_HasData() {
         config.setTableName(testTablePrefix + "testScanForward_HasData");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         store.create();
         sleep(5);
 
@@ -362,7 +384,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testScanBackward_HasData() {
         config.setTableName(testTablePrefix + "testScanBackward_HasData");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         store.create();
         sleep(5);
 
@@ -401,7 +423,7 @@ public class TestDistributeTimelineStore {
     @Test
     public void testBatchScan() {
         config.setTableName(testTablePrefix + "testBatchScan");
-        IStore store = new DistributeTimelineStore(config);
+        IStore store = createStore();
         store.create();
         sleep(5);
 
@@ -425,6 +447,75 @@ public class TestDistributeTimelineStore {
         assertEquals(new String(message.serialize()), new String(entry.getMessage().serialize()));
     }
 
+    @Test
+    public void testScanClose() throws Exception {
+        config.setTableName(testTablePrefix + "testScanClose");
+        DistributeTimelineStore store = (DistributeTimelineStore) createStore();
+        store.create();
+
+        String timelineID = "00001";
+        for (int i = 0; i < 10; i++) {
+            store.write(timelineID, new StringMessage("message " + i));
+        }
+
+        ScanParameter parameter = ScanParameterBuilder.scanForward().maxCount(100).from(0).to(Long.MAX_VALUE).build();
+        Iterator<TimelineEntry> iterator = store.scan(timelineID, parameter);
+        assertEquals("message 0", ((StringMessage) iterator.next().getMessage()).getContent());
+        assertTrue(iterator instanceof Closeable);
+        ((Closeable) iterator).close();
+        ((Closeable) iterator).close();
+        assertTrue(!iterator.hasNext());
+        assertTrue(store.getMetrics().snapshot().get("scan.unconsumedBytes").longValue() > 0);
+
+        long unconsumed = store.getMetrics().snapshot().get("scan.unconsumedBytes").longValue();
+        iterator = store.scan(timelineID, parameter);
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+        ((Closeable) iterator).close();
+        assertEquals(unconsumed, store.getMetrics().snapshot().get("scan.unconsumedBytes").longValue());
+        store.close();
+    }
+
+    @Test
+    public void testScanCloseWhileFetching() throws Exception {
+        if (server == null) {
+            // 只有本地替身可以注入延时。
+            return;
+        }
+        config.setTableName(testTablePrefix + "testScanCloseWhileFetching");
+        DistributeTimelineStore store = (DistributeTimelineStore) createStore();
+        store.create();
+
+        String timelineID = "00001";
+        for (int i = 0; i < 3; i++) {
+            store.write(timelineID, new StringMessage("message " + i));
+        }
+
+        server.setMaxRowsPerPage(1);
+        ScanParameter parameter = ScanParameterBuilder.scanForward().maxCount(100).from(0).to(Long.MAX_VALUE).build();
+        final Iterator<TimelineEntry> iterator = store.scan(timelineID, parameter);
+        iterator.next();
+
+        server.setLatency(LocalTableStoreServer.fixedLatency(5000000));
+        final AtomicReference<Boolean> hasNext = new AtomicReference<Boolean>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                hasNext.set(iterator.hasNext());
+            }
+        });
+        reader.start();
+        Thread.sleep(200);
+        ((Closeable) iterator).close();
+        reader.join(2000);
+
+        assertTrue(!reader.isAlive());
+        assertEquals(Boolean.FALSE, hasNext.get());
+        server.setLatency(LocalTableStoreServer.fixedLatency(0));
+        store.close();
+    }
+
     private void sleep(int seconds) {
         try {
             Thread.sleep(seconds);
@@ -0,0 +1,146 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestEncodedMessage {
+    private List<File> directories = new ArrayList<File>();
+
+    @Before
+    public void setUp() throws Exception {
+        directories.clear();
+    }
+
+    @After
+    public void after() throws Exception {
+        for (File directory : directories) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testEnvelope() {
+        CountingMessage message = new CountingMessage("id_1", "hello");
+        EncodedMessage encoded = new EncodedMessage(message);
+        assertEquals(1, message.serializeCount.get());
+        assertSame(message, encoded.getMessage());
+        assertEquals("id_1", encoded.getMessageID());
+        assertEquals(5, encoded.getSize());
+        assertSame(encoded.serialize(), encoded.serialize());
+        assertEquals(1, message.serializeCount.get());
+        assertTrue(encoded.newInstance() instanceof StringMessage);
+
+        assertSame(message, new EncodedMessage(encoded).getMessage());
+        assertSame(message, EncodedMessage.unwrap(encoded));
+        assertSame(message, EncodedMessage.unwrap(message));
+
+        try {
+            encoded.deserialize(new byte[0]);
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+        try {
+            encoded.setMessageID("id_2");
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+    }
+
+    @Test
+    public void testColumnsReused() {
+        EncodedMessage encoded = new EncodedMessage(new StringMessage("id_1", "hello"));
+        DistributeTimelineConfig config = new DistributeTimelineConfig("", "", "", "", "table");
+        assertSame(encoded.getColumns(config), encoded.getColumns(config));
+
+        DistributeTimelineConfig other = new DistributeTimelineConfig("", "", "", "", "table");
+        assertSame(encoded.getColumns(config), encoded.getColumns(other));
+
+        other.setColumnMaxLength(2);
+        assertNotSame(encoded.getColumns(config), encoded.getColumns(other));
+    }
+
+    @Test
+    public void testLocalStore() throws Exception {
+        LocalTimelineStore store = new LocalTimelineStore(new LocalTimelineConfig(newDirectory().getPath()));
+        store.create();
+        try {
+            CountingMessage message = new CountingMessage("id_1", "hello");
+            EncodedMessage encoded = new EncodedMessage(message);
+            for (int i = 0; i < 10; i++) {
+                TimelineEntry entry = store.write("user_" + i, encoded);
+                assertSame(message, entry.getMessage());
+
+                TimelineEntry read = store.read("user_" + i, entry.getSequenceID());
+                assertEquals("id_1", read.getMessage().getMessageID());
+                assertEquals("hello", ((StringMessage) read.getMessage()).getContent());
+            }
+            assertEquals(1, message.serializeCount.get());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testShardedFanOut() throws Exception {
+        Map<String, IStore> shards = new LinkedHashMap<String, IStore>();
+        for (String name : Arrays.asList("shard_a", "shard_b")) {
+            shards.put(name, new LocalTimelineStore(new LocalTimelineConfig(newDirectory().getPath())));
+        }
+        ShardedTimelineStore store = new ShardedTimelineStore(shards, ShardedTimelineStore.DEFAULT_VIRTUAL_NODE_COUNT);
+        store.create();
+        try {
+            List<String> receivers = new ArrayList<String>();
+            for (int i = 0; i < 20; i++) {
+                receivers.add("user_" + i);
+            }
+
+            CountingMessage message = new CountingMessage("id_1", "hello");
+            Map<String, TimelineEntry> entries = store.write(receivers, message);
+            assertEquals(20, entries.size());
+            for (TimelineEntry entry : entries.values()) {
+                assertSame(message, entry.getMessage());
+            }
+
+            store.batch(receivers, message);
+            assertEquals(2, message.serializeCount.get());
+        } finally {
+            store.close();
+        }
+    }
+
+    private File newDirectory() throws Exception {
+        File directory = File.createTempFile("__timelinetest_encoded_", "");
+        directory.delete();
+        directories.add(directory);
+        return directory;
+    }
+
+    private static class CountingMessage extends StringMessage {
+        private final AtomicInteger serializeCount = new AtomicInteger();
+
+        CountingMessage(String messageID, String content) {
+            super(messageID, content);
+        }
+
+        @Override
+        public byte[] serialize() {
+            serializeCount.incrementAndGet();
+            return super.serialize();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestInterceptingTimelineStore {
+    private File directory = null;
+    private LocalTimelineConfig config = null;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("__timelinetest_intercept_", "");
+        directory.delete();
+
+        config = new LocalTimelineConfig(directory.getPath());
+    }
+
+    @After
+    public void after() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testInterceptors() {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        TimelineInterceptor outer = new RecordingInterceptor("outer", events);
+        TimelineInterceptor inner = new RecordingInterceptor("inner", events);
+        IStore store = new InterceptingTimelineStore(new LocalTimelineStore(config),
+                Arrays.asList(outer, inner));
+
+        store.create();
+        assertEquals(Arrays.asList("outer start CREATE", "inner start CREATE",
+                "inner complete CREATE null ok", "outer complete CREATE null ok"), events);
+
+        events.clear();
+        TimelineEntry entry = store.write("00001", new StringMessage("content"));
+        assertEquals("outer complete WRITE 00001 ok", events.get(3));
+
+        events.clear();
+        store.readAsync("00001", entry.getSequenceID(), null);
+        assertTrue(events.contains("inner complete READ 00001 ok"));
+
+        store.drop();
+        events.clear();
+        try {
+            store.write("00001", new StringMessage("content"));
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals("outer complete WRITE 00001 TET_INVALID_USE", events.get(3));
+        }
+    }
+
+    @Test
+    public void testInterceptorFailureIgnored() {
+        TimelineInterceptor broken = new TimelineInterceptor() {
+            @Override
+            public Object onStart(TimelineInvocation invocation) {
+                throw new RuntimeException("broken");
+            }
+
+            @Override
+            public void onComplete(TimelineInvocation invocation, Object context) {
+                throw new RuntimeException("broken");
+            }
+        };
+        IStore store = new InterceptingTimelineStore(new LocalTimelineStore(config),
+                Collections.singletonList(broken));
+        store.create();
+        TimelineEntry entry = store.write("00001", new StringMessage("content"));
+        assertEquals("content", ((StringMessage) store.read("00001", entry.getSequenceID()).getMessage()).getContent());
+    }
+
+    @Test
+    public void testEmptyChain() {
+        TimelineInterceptorChain chain = new TimelineInterceptorChain(new ArrayList<TimelineInterceptor>());
+        assertTrue(chain.isEmpty());
+        assertNull(chain.start(TimelineOperation.WRITE, "00001", 10));
+        chain.complete(null, null);
+    }
+
+    private static class RecordingInterceptor implements TimelineInterceptor {
+        private final String name;
+        private final List<String> events;
+
+        RecordingInterceptor(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        public Object onStart(TimelineInvocation invocation) {
+            events.add(name + " start " + invocation.getOperation());
+            return name;
+        }
+
+        @Override
+        public void onComplete(TimelineInvocation invocation, Object context) {
+            assertEquals(name, context);
+            assertTrue(invocation.getEndNanos() >= invocation.getStartNanos());
+            String outcome = invocation.isSucceeded() ?
+                    "ok" : ((TimelineException) invocation.getException()).getType().name();
+            events.add(name + " complete " + invocation.getOperation() + " " + invocation.getTimelineID() + " " + outcome);
+        }
+    }
+}
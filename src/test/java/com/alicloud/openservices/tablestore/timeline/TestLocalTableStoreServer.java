@@ -0,0 +1,72 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class TestLocalTableStoreServer {
+    private LocalTableStoreServer server = null;
+    private DistributeTimelineConfig config = null;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalTableStoreServer();
+        config = new DistributeTimelineConfig("<local>", "", "", "local", "__timelinetest_standin");
+        config.setMessageInstance(new StringMessage());
+    }
+
+    @After
+    public void after() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testAutoIncrementAndPaging() {
+        server.setMaxRowsPerPage(3);
+        IStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+
+        long last = 0;
+        for (int i = 0; i < 10; i++) {
+            TimelineEntry entry = store.write("00001", new StringMessage(String.valueOf(i)));
+            assertTrue(entry.getSequenceID() > last);
+            last = entry.getSequenceID();
+        }
+        store.write("00002", new StringMessage("other"));
+
+        ScanParameter forward = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).build();
+        Iterator<TimelineEntry> iterator = store.scan("00001", forward);
+        int count = 0;
+        while (iterator.hasNext()) {
+            assertEquals(String.valueOf(count), ((StringMessage) iterator.next().getMessage()).getContent());
+            count++;
+        }
+        assertEquals(10, count);
+
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(4).build();
+        iterator = store.scan("00001", backward);
+        assertEquals("9", ((StringMessage) iterator.next().getMessage()).getContent());
+        store.close();
+    }
+
+    @Test
+    public void testInjectedError() {
+        IStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        server.setErrors(LocalTableStoreServer.errorRate(1.0, "OTSServerBusy", 503));
+
+        try {
+            store.write("00001", new StringMessage("content"));
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_RETRY, ex.getType());
+        }
+
+        server.setErrors(null);
+        assertNotNull(store.write("00001", new StringMessage("content")));
+    }
+}
@@ -0,0 +1,294 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TestLocalTimelineStore {
+    private File directory = null;
+    private LocalTimelineConfig config = null;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("__timelinetest_local_", "");
+        directory.delete();
+
+        config = new LocalTimelineConfig(directory.getPath());
+        config.setSegmentSize(4096);
+        config.setIndexInterval(4);
+    }
+
+    @After
+    public void after() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testCreate() {
+        IStore store = new LocalTimelineStore(config);
+        assertTrue(!store.exist());
+
+        try {
+            store.write("00001", new StringMessage("content"));
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals("Store is not create, please create before write", ex.getMessage());
+        }
+
+        store.create();
+        assertTrue(store.exist());
+        store.create();
+
+        store.drop();
+        assertTrue(!store.exist());
+        store.drop();
+    }
+
+    @Test
+    public void testWriteAndRead() {
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+
+        TimelineEntry first = store.write("00001", new StringMessage("m1", "hangzhou"));
+        TimelineEntry second = store.write("00001", new StringMessage("m2", "chengdu"));
+        store.write("00002", new StringMessage("m3", "beijing"));
+        assertTrue(second.getSequenceID() > first.getSequenceID());
+
+        TimelineEntry entry = store.read("00001", first.getSequenceID());
+        assertEquals(first.getSequenceID(), entry.getSequenceID());
+        assertEquals("hangzhou", ((StringMessage) entry.getMessage()).getContent());
+        assertEquals("m1", entry.getMessage().getMessageID());
+
+        assertNull(store.read("00001", first.getSequenceID() - 1));
+        assertNull(store.read("00003", first.getSequenceID()));
+        store.close();
+    }
+
+    @Test
+    public void testAsyncByCallback() throws Exception {
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+
+        final AtomicReference<TimelineEntry> result = new AtomicReference<TimelineEntry>();
+        Future<TimelineEntry> future = store.writeAsync("00001", new StringMessage("hangzhou"),
+                new TimelineCallback<IMessage>() {
+                    @Override
+                    public void onCompleted(String timelineID, IMessage request, TimelineEntry timelineEntry) {
+                        result.set(timelineEntry);
+                    }
+
+                    @Override
+                    public void onFailed(String timelineID, IMessage request, Exception ex) {
+                        fail();
+                    }
+                });
+        assertEquals(future.get().getSequenceID(), result.get().getSequenceID());
+
+        TimelineEntry entry = store.readAsync("00001", result.get().getSequenceID(), null).get();
+        assertEquals("hangzhou", ((StringMessage) entry.getMessage()).getContent());
+        store.close();
+    }
+
+    @Test
+    public void testScanForwardAndBackward() {
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+
+        List<Long> sequenceIDs = new ArrayList<Long>();
+        for (int i = 0; i < 50; i++) {
+            sequenceIDs.add(store.write("00001", new StringMessage(String.valueOf(i))).getSequenceID());
+            store.write("00002", new StringMessage("other"));
+        }
+
+        ScanParameter forward = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).build();
+        assertScan(store.scan("00001", forward), 0, 50, true);
+
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(100).build();
+        assertScan(store.scan("00001", backward), 49, 50, false);
+
+        ScanParameter range = ScanParameterBuilder.scanForward()
+                .from(sequenceIDs.get(10)).to(sequenceIDs.get(20)).maxCount(100).build();
+        assertScan(store.scan("00001", range), 10, 10, true);
+
+        ScanParameter limited = ScanParameterBuilder.scanBackward()
+                .from(sequenceIDs.get(30)).to(sequenceIDs.get(5)).maxCount(7).build();
+        assertScan(store.scan("00001", limited), 30, 7, false);
+
+        assertTrue(!store.scan("00003", forward).hasNext());
+        store.close();
+    }
+
+    @Test
+    public void testScanClose() throws Exception {
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+        for (int i = 0; i < 10; i++) {
+            store.write("00001", new StringMessage(String.valueOf(i)));
+        }
+
+        ScanParameter parameter = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(100).build();
+        Iterator<TimelineEntry> iterator = store.scan("00001", parameter);
+        assertEquals("9", ((StringMessage) iterator.next().getMessage()).getContent());
+        ((Closeable) iterator).close();
+        assertTrue(!iterator.hasNext());
+        store.close();
+    }
+
+    @Test
+    public void testRecovery() {
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+
+        List<Long> sequenceIDs = new ArrayList<Long>();
+        for (int i = 0; i < 200; i++) {
+            sequenceIDs.add(store.write("00001", new StringMessage(String.valueOf(i))).getSequenceID());
+        }
+        assertTrue(directory.listFiles().length > 2);
+        store.close();
+
+        IStore recovered = new LocalTimelineStore(config);
+        assertEquals("123", ((StringMessage) recovered.read("00001", sequenceIDs.get(123)).getMessage()).getContent());
+
+        ScanParameter forward = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(1000).build();
+        assertScan(recovered.scan("00001", forward), 0, 200, true);
+
+        TimelineEntry entry = recovered.write("00001", new StringMessage("200"));
+        assertTrue(entry.getSequenceID() > sequenceIDs.get(199));
+        recovered.close();
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        config.setTtl(1);
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+
+        TimelineEntry entry = store.write("00001", new StringMessage("hangzhou"));
+        assertNotNull(store.read("00001", entry.getSequenceID()));
+
+        Thread.sleep(2000);
+        assertNull(store.read("00001", entry.getSequenceID()));
+
+        ScanParameter forward = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).build();
+        assertTrue(!store.scan("00001", forward).hasNext());
+        store.close();
+    }
+
+    @Test
+    public void testScanTimeRange() throws Exception {
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+        for (int i = 0; i < 10; i++) {
+            store.write("00001", new StringMessage("before " + i));
+        }
+        Thread.sleep(10);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            store.write("00001", new StringMessage("in " + i));
+        }
+        Thread.sleep(10);
+        long endTime = System.currentTimeMillis();
+        Thread.sleep(10);
+        for (int i = 0; i < 10; i++) {
+            store.write("00001", new StringMessage("after " + i));
+        }
+
+        ScanParameter forward = ScanParameterBuilder.scanForward().timeRange(startTime, endTime).maxCount(100).build();
+        Iterator<TimelineEntry> iterator = store.scan("00001", forward);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("in " + i, ((StringMessage) iterator.next().getMessage()).getContent());
+        }
+        assertFalse(iterator.hasNext());
+
+        ScanParameter backward = ScanParameterBuilder.scanBackward().timeRange(startTime, endTime).maxCount(3).build();
+        iterator = store.scan("00001", backward);
+        for (int i = 9; i > 6; i--) {
+            assertEquals("in " + i, ((StringMessage) iterator.next().getMessage()).getContent());
+        }
+        assertFalse(iterator.hasNext());
+
+        ScanParameter empty = ScanParameterBuilder.scanForward().timeRange(0, startTime - 10000).maxCount(100).build();
+        assertFalse(store.scan("00001", empty).hasNext());
+        store.close();
+    }
+
+    @Test
+    public void testFilterNotSupported() {
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+        store.write("00001", new AttributedMessage(new StringMessage("content")).setAttribute("type", "system"));
+        assertEquals("content", ((StringMessage) store.read("00001", store.scan("00001", ScanParameterBuilder
+                .scanForward().from(0).to(Long.MAX_VALUE).maxCount(1).build()).next().getSequenceID()).getMessage()).getContent());
+
+        try {
+            store.scan("00001", ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100)
+                    .filter(AttributeFilter.equal("type", "system")).build());
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+        store.close();
+    }
+
+    @Test
+    public void testReadByMessageID() {
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+        TimelineEntry first = store.write("00001", new StringMessage("msg_1", "hangzhou"));
+        store.write("00001", new StringMessage("msg_2", "beijing"));
+        store.write("00002", new StringMessage("msg_1", "shanghai"));
+
+        assertEquals(first.getSequenceID(), store.readByMessageID("00001", "msg_1").getSequenceID());
+        assertEquals("shanghai", ((StringMessage) store.readByMessageID("00002", "msg_1").getMessage()).getContent());
+        assertNull(store.readByMessageID("00001", "msg_3"));
+
+        Map<String, TimelineEntry> entries = store.readByMessageIDs("00001", Arrays.asList("msg_2", "msg_3", "msg_1"));
+        assertEquals(Arrays.asList("msg_2", "msg_1"), new ArrayList<String>(entries.keySet()));
+        store.close();
+    }
+
+    @Test
+    public void testDeleteNotSupported() {
+        IStore store = new LocalTimelineStore(config);
+        store.create();
+        try {
+            store.deleteTimeline("00001");
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        } finally {
+            store.close();
+        }
+    }
+
+    private void assertScan(Iterator<TimelineEntry> iterator, int start, int count, boolean isForward) {
+        int expected = start;
+        int actual = 0;
+        Long last = null;
+        while (iterator.hasNext()) {
+            TimelineEntry entry = iterator.next();
+            assertEquals(String.valueOf(expected), ((StringMessage) entry.getMessage()).getContent());
+            if (last != null) {
+                assertTrue(isForward ? entry.getSequenceID() > last : entry.getSequenceID() < last);
+            }
+            last = entry.getSequenceID();
+            expected += isForward ? 1 : -1;
+            actual++;
+        }
+        assertEquals(count, actual);
+    }
+}
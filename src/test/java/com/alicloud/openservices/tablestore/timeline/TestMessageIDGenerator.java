@@ -0,0 +1,95 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TestMessageIDGenerator {
+    @Test
+    public void testLayout() {
+        MessageIDGenerator generator = new MessageIDGenerator(5);
+        long before = System.currentTimeMillis();
+        long id = generator.nextID();
+        long after = System.currentTimeMillis();
+
+        assertTrue(id > 0);
+        assertEquals(5, MessageIDGenerator.nodeIDOf(id));
+        assertTrue(MessageIDGenerator.timestampOf(id) >= before);
+        assertTrue(MessageIDGenerator.timestampOf(id) <= after);
+    }
+
+    @Test
+    public void testInvalidNodeID() {
+        try {
+            new MessageIDGenerator(MessageIDGenerator.MAX_NODE_ID + 1);
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+    }
+
+    @Test
+    public void testIncreasing() {
+        MessageIDGenerator generator = new MessageIDGenerator(MessageIDGenerator.MAX_NODE_ID);
+        long last = 0;
+        // 超过单毫秒的序号上限，会借用后面的毫秒。
+        for (int i = 0; i < 100000; i++) {
+            long id = generator.nextID();
+            assertTrue(id > last);
+            assertEquals(MessageIDGenerator.MAX_NODE_ID, MessageIDGenerator.nodeIDOf(id));
+            last = id;
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final MessageIDGenerator generator = new MessageIDGenerator(1);
+        final int perThread = 50000;
+        final List<long[]> results = new ArrayList<long[]>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final long[] ids = new long[perThread];
+            results.add(ids);
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < perThread; j++) {
+                        ids[j] = generator.nextID();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Long> unique = new HashSet<Long>();
+        for (long[] ids : results) {
+            for (int j = 0; j < ids.length; j++) {
+                assertTrue(unique.add(ids[j]));
+                if (j > 0) {
+                    assertTrue(ids[j] > ids[j - 1]);
+                }
+            }
+        }
+        assertEquals(8 * perThread, unique.size());
+    }
+
+    @Test
+    public void testDistinctMessage() {
+        StringMessage message = new StringMessage("content");
+        String messageID = message.getMessageID();
+        assertSame(messageID, message.getMessageID());
+        assertTrue(Utils.isCanonicalLong(messageID));
+        assertEquals(MessageIDGenerator.getDefault().getNodeID(), MessageIDGenerator.nodeIDOf(Long.parseLong(messageID)));
+        assertFalse(messageID.equals(new StringMessage("content").getMessageID()));
+    }
+}
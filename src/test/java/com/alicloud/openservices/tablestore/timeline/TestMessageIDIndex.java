@@ -0,0 +1,122 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.model.DeleteTableRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TestMessageIDIndex {
+    private LocalTableStoreServer server = null;
+    private DistributeTimelineConfig config = null;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalTableStoreServer();
+        config = new DistributeTimelineConfig("<local>", "", "", "local", "__timelinetest_index");
+        config.setMessageInstance(new StringMessage());
+        config.setMessageIDIndexEnabled(true);
+    }
+
+    @After
+    public void after() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testReadByMessageID() {
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        Map<String, Long> sequenceIDs = new HashMap<String, Long>();
+        for (int i = 0; i < 10; i++) {
+            TimelineEntry entry = store.write("00001", new StringMessage("msg_" + i, "content " + i));
+            sequenceIDs.put("msg_" + i, entry.getSequenceID());
+        }
+        store.write("00002", new StringMessage("msg_0", "other"));
+
+        TimelineEntry entry = store.readByMessageID("00001", "msg_3");
+        assertEquals(sequenceIDs.get("msg_3"), entry.getSequenceID());
+        assertEquals("content 3", ((StringMessage) entry.getMessage()).getContent());
+        assertEquals("other", ((StringMessage) store.readByMessageID("00002", "msg_0").getMessage()).getContent());
+        assertNull(store.readByMessageID("00001", "msg_100"));
+        assertNull(store.readByMessageID("00003", "msg_0"));
+
+        Map<String, TimelineEntry> entries = store.readByMessageIDs("00001",
+                Arrays.asList("msg_7", "msg_100", "msg_1", "msg_7"));
+        assertEquals(Arrays.asList("msg_7", "msg_1"), new ArrayList<String>(entries.keySet()));
+        assertEquals(sequenceIDs.get("msg_7"), entries.get("msg_7").getSequenceID());
+        assertEquals(sequenceIDs.get("msg_1"), entries.get("msg_1").getSequenceID());
+        assertEquals(0L, store.getMetrics().snapshot().get("messageIndex.failures"));
+
+        store.drop();
+        store.close();
+    }
+
+    @Test
+    public void testBulkAcrossBatches() {
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        List<String> messageIDs = new ArrayList<String>();
+        for (int i = 0; i < 250; i++) {
+            store.write("00001", new StringMessage(String.valueOf(i), "content " + i));
+            messageIDs.add(String.valueOf(i));
+        }
+
+        Map<String, TimelineEntry> entries = store.readByMessageIDs("00001", messageIDs);
+        assertEquals(250, entries.size());
+        for (String messageID : messageIDs) {
+            assertEquals("content " + messageID, ((StringMessage) entries.get(messageID).getMessage()).getContent());
+        }
+        store.close();
+    }
+
+    @Test
+    public void testDeletedMessage() throws Exception {
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        TimelineEntry entry = store.write("00001", new StringMessage("msg_1", "content"));
+
+        // 删除消息后索引还在，读取时不返回。
+        store.delete("00001", entry.getSequenceID(), entry.getSequenceID() + 1).get();
+        assertNull(store.readByMessageID("00001", "msg_1"));
+        assertTrue(store.readByMessageIDs("00001", Arrays.asList("msg_1")).isEmpty());
+        store.close();
+    }
+
+    @Test
+    public void testCreateAndDropWithExistingStore() {
+        config.setMessageIDIndexEnabled(false);
+        new DistributeTimelineStore(config, server.asyncClient()).create();
+
+        // 主表已经存在时也要创建索引表。
+        config.setMessageIDIndexEnabled(true);
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        store.write("00001", new StringMessage("msg_1", "content"));
+        assertEquals("content", ((StringMessage) store.readByMessageID("00001", "msg_1").getMessage()).getContent());
+
+        // 主表已经不存在时也要删除索引表。
+        server.syncClient().deleteTable(new DeleteTableRequest(config.getTableName()));
+        store.drop();
+        assertFalse(server.syncClient().listTable().getTableNames().contains(config.getMessageIDIndexTableName()));
+        store.close();
+    }
+
+    @Test
+    public void testDisabled() {
+        config.setMessageIDIndexEnabled(false);
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        store.write("00001", new StringMessage("msg_1", "content"));
+        try {
+            store.readByMessageID("00001", "msg_1");
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+        store.close();
+    }
+}
@@ -0,0 +1,100 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class TestRawMessage {
+    private File directory = null;
+    private LocalTimelineStore store = null;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("__timelinetest_raw_", "");
+        directory.delete();
+
+        store = new LocalTimelineStore(new LocalTimelineConfig(directory.getPath()));
+        store.create();
+    }
+
+    @After
+    public void after() throws Exception {
+        store.drop();
+    }
+
+    @Test
+    public void testRawMessage() {
+        byte[] content = "hello".getBytes();
+        RawMessage message = new RawMessage("id_1", content);
+        assertSame(content, message.serialize());
+        assertEquals(5, message.getLength());
+
+        ByteBuffer buffer = ByteBuffer.wrap("xxhelloyy".getBytes());
+        buffer.position(2);
+        buffer.limit(7);
+        message = new RawMessage("id_1", buffer);
+        assertArrayEquals(content, message.serialize());
+        assertEquals(2, buffer.position());
+        assertEquals(ByteBuffer.wrap(content), message.getContent());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(5);
+        direct.put(content).flip();
+        assertArrayEquals(content, new RawMessage("id_1", direct).serialize());
+        assertEquals(0, direct.position());
+
+        RawMessage read = (RawMessage) message.newInstance();
+        read.deserialize(content);
+        assertSame(content, read.serialize());
+    }
+
+    @Test
+    public void testWriteAndScanRaw() {
+        TimelineEntry entry = store.write("00001", "id_1", "hello".getBytes());
+        assertEquals("id_1", entry.getMessage().getMessageID());
+
+        ByteBuffer buffer = ByteBuffer.wrap("xxworld".getBytes());
+        buffer.position(2);
+        store.write("00001", "id_2", buffer);
+        store.batch("00001", "id_3", "!".getBytes());
+
+        // 默认模式按配置的消息类反序列化。
+        TimelineEntry decoded = store.read("00001", entry.getSequenceID());
+        assertEquals("hello", ((StringMessage) decoded.getMessage()).getContent());
+        assertEquals("id_1", decoded.getMessage().getMessageID());
+
+        ScanParameter parameter = ScanParameterBuilder.scanForward()
+                .from(0).to(Long.MAX_VALUE).maxCount(10).raw().build();
+        Iterator<TimelineEntry> iterator = store.scan("00001", parameter);
+        for (String expected : Arrays.asList("id_1:hello", "id_2:world", "id_3:!")) {
+            RawMessage message = (RawMessage) iterator.next().getMessage();
+            assertEquals(expected, message.getMessageID() + ":" + new String(message.serialize()));
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testTieredBypassesLocal() {
+        TieredTimelineConfig config = new TieredTimelineConfig();
+        TieredTimelineStore tiered = new TieredTimelineStore(store, config);
+        tiered.write("00001", new StringMessage("id_1", "hello"));
+        assertTrue(tiered.isResident("00001"));
+
+        tiered.write("00001", "id_2", "world".getBytes());
+        assertFalse(tiered.isResident("00001"));
+
+        ScanParameter parameter = ScanParameterBuilder.scanBackward()
+                .from(Long.MAX_VALUE).to(0).maxCount(10).raw().build();
+        Iterator<TimelineEntry> iterator = tiered.scan("00001", parameter);
+        assertTrue(iterator.next().getMessage() instanceof RawMessage);
+        assertTrue(iterator.next().getMessage() instanceof RawMessage);
+        assertFalse(iterator.hasNext());
+        assertFalse(tiered.isResident("00001"));
+    }
+}
@@ -177,4 +177,30 @@ public class TestScanParameterBuilder {
             fail();
         }
     }
+
+    @Test
+    public void testTimeRange() {
+        ScanParameter forward = ScanParameterBuilder.scanForward().timeRange(1000, 2000).maxCount(100).build();
+        assertEquals(Long.valueOf(0), forward.getFrom());
+        assertEquals(Long.valueOf(Long.MAX_VALUE), forward.getTo());
+        assertEquals(Long.valueOf(1000), forward.getStartTime());
+        assertEquals(Long.valueOf(2000), forward.getEndTime());
+
+        ScanParameter backward = ScanParameterBuilder.scanBackward().timeRange(1000, 2000).to(5).maxCount(100).build();
+        assertEquals(Long.valueOf(Long.MAX_VALUE), backward.getFrom());
+        assertEquals(Long.valueOf(5), backward.getTo());
+
+        ScanParameter copy = backward.withSequenceRange(100, 10);
+        assertEquals(Long.valueOf(100), copy.getFrom());
+        assertEquals(Long.valueOf(10), copy.getTo());
+        assertEquals(Long.valueOf(1000), copy.getStartTime());
+        assertEquals(Long.valueOf(Long.MAX_VALUE), backward.getFrom());
+
+        try {
+            ScanParameterBuilder.scanForward().timeRange(2000, 1000);
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, e.getType());
+        }
+    }
 }
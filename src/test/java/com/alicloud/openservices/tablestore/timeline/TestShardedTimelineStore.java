@@ -0,0 +1,76 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TestShardedTimelineStore {
+    private Map<String, IStore> shards = null;
+    private ShardedTimelineStore store = null;
+
+    @Before
+    public void setUp() throws Exception {
+        shards = new LinkedHashMap<String, IStore>();
+        for (String name : Arrays.asList("shard_a", "shard_b", "shard_c")) {
+            File directory = File.createTempFile("__timelinetest_sharded_", "");
+            directory.delete();
+            shards.put(name, new LocalTimelineStore(new LocalTimelineConfig(directory.getPath())));
+        }
+        store = new ShardedTimelineStore(shards, ShardedTimelineStore.DEFAULT_VIRTUAL_NODE_COUNT);
+    }
+
+    @After
+    public void after() throws Exception {
+        store.drop();
+    }
+
+    @Test
+    public void testCreateAndExist() {
+        assertTrue(!store.exist());
+        store.create();
+        assertTrue(store.exist());
+        for (IStore shard : shards.values()) {
+            assertTrue(shard.exist());
+        }
+    }
+
+    @Test
+    public void testRouting() {
+        store.create();
+        for (int i = 0; i < 30; i++) {
+            String timelineID = "user_" + i;
+            TimelineEntry entry = store.write(timelineID, new StringMessage(timelineID));
+
+            IStore shard = shards.get(store.locate(timelineID));
+            assertEquals(timelineID, ((StringMessage) shard.read(timelineID, entry.getSequenceID()).getMessage()).getContent());
+            assertEquals(timelineID, ((StringMessage) store.read(timelineID, entry.getSequenceID()).getMessage()).getContent());
+        }
+    }
+
+    @Test
+    public void testFanOut() {
+        store.create();
+        List<String> receivers = new ArrayList<String>();
+        for (int i = 0; i < 30; i++) {
+            receivers.add("user_" + i);
+        }
+
+        Map<String, TimelineEntry> entries = store.write(receivers, new StringMessage("hello"));
+        assertEquals(30, entries.size());
+
+        store.batch(receivers, new StringMessage("world"));
+
+        ScanParameter parameter = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(10).build();
+        for (String receiver : receivers) {
+            Iterator<TimelineEntry> iterator = store.scan(receiver, parameter);
+            assertEquals("hello", ((StringMessage) iterator.next().getMessage()).getContent());
+            assertEquals("world", ((StringMessage) iterator.next().getMessage()).getContent());
+            assertTrue(!iterator.hasNext());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestTieredTimelineStore {
+    private File directory = null;
+    private CountingStore durable = null;
+    private TieredTimelineConfig config = null;
+
+    /**
+     * 统计持久层被访问的次数，持久层使用LocalTimelineStore，不需要网络。
+     */
+    class CountingStore extends LocalTimelineStore {
+        AtomicInteger readCount = new AtomicInteger();
+        AtomicInteger scanCount = new AtomicInteger();
+
+        /**
+         * 不为null时writeAsync的回调不立即执行，先完成Future，由测试调用时再执行，和DistributeTimelineStore的顺序一样。
+         */
+        List<Runnable> delayedCallbacks = null;
+
+        CountingStore(LocalTimelineConfig config) {
+            super(config);
+        }
+
+        @Override
+        public TimelineEntry read(String timelineID, Long sequenceID) {
+            readCount.incrementAndGet();
+            return super.read(timelineID, sequenceID);
+        }
+
+        @Override
+        public Iterator<TimelineEntry> scan(String timelineID, ScanParameter parameter) {
+            scanCount.incrementAndGet();
+            return super.scan(timelineID, parameter);
+        }
+
+        @Override
+        public Future<TimelineEntry> writeAsync(final String timelineID, final IMessage message,
+                                                final TimelineCallback<IMessage> callback) {
+            if (delayedCallbacks == null) {
+                return super.writeAsync(timelineID, message, callback);
+            }
+
+            final Future<TimelineEntry> future = super.writeAsync(timelineID, message, null);
+            delayedCallbacks.add(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        callback.onCompleted(timelineID, message, future.get());
+                    } catch (Exception ex) {
+                        callback.onFailed(timelineID, message, ex);
+                    }
+                }
+            });
+            return future;
+        }
+
+        /**
+         * LocalTimelineStore不支持删除，返回一个由测试控制何时结束的任务。
+         */
+        @Override
+        public TimelineDeleteJob delete(String timelineID, long fromSequenceID, long toSequenceID) {
+            return new TimelineDeleteJob(timelineID, fromSequenceID, toSequenceID);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("__timelinetest_tiered_", "");
+        directory.delete();
+
+        durable = new CountingStore(new LocalTimelineConfig(directory.getPath()));
+        durable.create();
+
+        config = new TieredTimelineConfig();
+        config.setMaxEntriesPerTimeline(10);
+    }
+
+    @After
+    public void after() throws Exception {
+        durable.drop();
+    }
+
+    @Test
+    public void testReadAndScanServedLocally() throws Exception {
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+
+        TimelineEntry first = store.write("00001", new StringMessage("0"));
+        for (int i = 1; i < 5; i++) {
+            store.write("00001", new StringMessage(String.valueOf(i)));
+        }
+        Future<TimelineEntry> future = store.writeAsync("00001", new StringMessage("5"), null);
+        TimelineEntry last = future.get();
+
+        assertEquals("0", ((StringMessage) store.read("00001", first.getSequenceID()).getMessage()).getContent());
+        assertEquals(0, durable.readCount.get());
+
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(3).build();
+        assertScan(store.scan("00001", backward), 5, 3, false);
+
+        ScanParameter forward = ScanParameterBuilder.scanForward()
+                .from(first.getSequenceID()).to(Long.MAX_VALUE).maxCount(100).build();
+        assertScan(store.scan("00001", forward), 0, 6, true);
+
+        ScanParameter tail = ScanParameterBuilder.scanForward()
+                .from(last.getSequenceID()).to(Long.MAX_VALUE).maxCount(100).build();
+        assertScan(store.scan("00001", tail), 5, 1, true);
+
+        assertEquals(0, durable.scanCount.get());
+        assertEquals(3, store.getLocalHitCount());
+    }
+
+    @Test
+    public void testReadYourWritesBeforeCallback() throws Exception {
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+        for (int i = 0; i < 3; i++) {
+            store.write("00001", new StringMessage(String.valueOf(i)));
+        }
+
+        // 持久层的Future已经完成、回调还没有执行时，范围读取读持久层，能读到刚写入的消息。
+        durable.delayedCallbacks = new ArrayList<Runnable>();
+        store.writeAsync("00001", new StringMessage("3"), null).get();
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(2).build();
+        assertScan(store.scan("00001", backward), 3, 2, false);
+        assertEquals(1, durable.scanCount.get());
+
+        for (Runnable callback : durable.delayedCallbacks) {
+            callback.run();
+        }
+        assertScan(store.scan("00001", backward), 3, 2, false);
+        assertEquals(1, durable.scanCount.get());
+    }
+
+    @Test
+    public void testFallThrough() {
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+
+        for (int i = 0; i < 20; i++) {
+            store.write("00001", new StringMessage(String.valueOf(i)));
+        }
+
+        // 本地层只保存最近10条，读取全部消息需要访问持久层。
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(15).build();
+        assertScan(store.scan("00001", backward), 19, 15, false);
+        assertEquals(1, durable.scanCount.get());
+
+        ScanParameter forward = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).build();
+        assertScan(store.scan("00001", forward), 0, 20, true);
+        assertEquals(2, durable.scanCount.get());
+
+        // 没有写过的Timeline也需要访问持久层。
+        assertTrue(!store.scan("00002", forward).hasNext());
+        assertEquals(3, durable.scanCount.get());
+    }
+
+    @Test
+    public void testPopulateFromScan() {
+        for (int i = 0; i < 5; i++) {
+            durable.write("00001", new StringMessage(String.valueOf(i)));
+        }
+
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(100).build();
+        assertScan(store.scan("00001", backward), 4, 5, false);
+        assertEquals(1, durable.scanCount.get());
+
+        assertScan(store.scan("00001", backward), 4, 5, false);
+        assertEquals(1, durable.scanCount.get());
+    }
+
+    @Test
+    public void testBatchInvalidate() {
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+        store.write("00001", new StringMessage("0"));
+        assertTrue(store.isResident("00001"));
+
+        store.batch("00001", new StringMessage("1"));
+        assertTrue(!store.isResident("00001"));
+
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(100).build();
+        assertScan(store.scan("00001", backward), 1, 2, false);
+        assertEquals(1, durable.scanCount.get());
+    }
+
+    @Test
+    public void testPopulateBeyondLimit() {
+        config.setMaxEntriesPerTimeline(100);
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+        for (int i = 0; i < 150; i++) {
+            durable.write("00001", new StringMessage(String.valueOf(i)));
+        }
+
+        // 逆序读填充本地层时最早的50条被淘汰，本地层只完整保存最近的100条。
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(200).build();
+        assertScan(store.scan("00001", backward), 149, 150, false);
+        assertEquals(1, durable.scanCount.get());
+
+        ScanParameter forward = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(200).build();
+        assertScan(store.scan("00001", forward), 0, 150, true);
+        assertEquals(2, durable.scanCount.get());
+
+        assertScan(store.scan("00001", backward), 149, 150, false);
+        assertEquals(3, durable.scanCount.get());
+
+        ScanParameter recent = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(100).build();
+        assertScan(store.scan("00001", recent), 149, 100, false);
+        assertEquals(3, durable.scanCount.get());
+    }
+
+    @Test
+    public void testPopulateAfterEviction() {
+        config.setMaxEntriesPerTimeline(100);
+        config.setMemoryBudget(1024);
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+        for (int i = 0; i < 20; i++) {
+            durable.write("00001", new StringMessage(String.valueOf(i)));
+        }
+
+        // 内存预算只够保存几条消息，填充过程中该Timeline会被整个淘汰，重新创建后不能当作完整的。
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(100).build();
+        assertScan(store.scan("00001", backward), 19, 20, false);
+        assertScan(store.scan("00001", backward), 19, 20, false);
+        assertEquals(2, durable.scanCount.get());
+    }
+
+    @Test
+    public void testClosedScanDoesNotPopulate() throws Exception {
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+        for (int i = 0; i < 3; i++) {
+            store.batch("00001", new StringMessage(String.valueOf(i)));
+        }
+        assertTrue(!store.isResident("00001"));
+
+        ScanParameter backward = ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(100).build();
+        Iterator<TimelineEntry> iterator = store.scan("00001", backward);
+        assertEquals("2", ((StringMessage) iterator.next().getMessage()).getContent());
+        ((Closeable) iterator).close();
+        assertTrue(!iterator.hasNext());
+
+        // 关闭时没有读完的范围不能当作持久层已经没有更多数据。
+        assertScan(store.scan("00001", backward), 2, 3, false);
+        assertEquals(2, durable.scanCount.get());
+    }
+
+    @Test
+    public void testDeleteInvalidate() {
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+        store.write("00001", new StringMessage("0"));
+        assertTrue(store.isResident("00001"));
+
+        TimelineDeleteJob job = store.deleteTimeline("00001");
+        assertTrue(!store.isResident("00001"));
+
+        // 删除结束前写入不会填充本地层。
+        store.write("00001", new StringMessage("1"));
+        assertTrue(!store.isResident("00001"));
+
+        job.complete();
+        store.write("00001", new StringMessage("2"));
+        assertTrue(store.isResident("00001"));
+    }
+
+    @Test
+    public void testEvictUnderMemoryBudget() {
+        config.setMemoryBudget(1024);
+        TieredTimelineStore store = new TieredTimelineStore(durable, config);
+
+        for (int i = 0; i < 20; i++) {
+            store.write(String.valueOf(i), new StringMessage("content"));
+        }
+
+        assertTrue(store.getUsedBytes() <= 1024);
+        assertTrue(!store.isResident("0"));
+        assertTrue(store.isResident("19"));
+    }
+
+    private void assertScan(Iterator<TimelineEntry> iterator, int start, int count, boolean isForward) {
+        int expected = start;
+        int actual = 0;
+        while (iterator.hasNext()) {
+            TimelineEntry entry = iterator.next();
+            assertEquals(String.valueOf(expected), ((StringMessage) entry.getMessage()).getContent());
+            expected += isForward ? 1 : -1;
+            actual++;
+        }
+        assertEquals(count, actual);
+    }
+}
@@ -2,7 +2,10 @@ package com.alicloud.openservices.tablestore.timeline;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
@@ -31,6 +34,26 @@ public class TestTimeline {
             this.message = message;
         }
 
+        @Override
+        public TimelineEntry write(String timelineID, String messageID, byte[] content) {
+            return write(timelineID, new RawMessage(messageID, content));
+        }
+
+        @Override
+        public TimelineEntry write(String timelineID, String messageID, ByteBuffer content) {
+            return write(timelineID, new RawMessage(messageID, content));
+        }
+
+        @Override
+        public void batch(String timelineID, String messageID, byte[] content) {
+            batch(timelineID, new RawMessage(messageID, content));
+        }
+
+        @Override
+        public void batch(String timelineID, String messageID, ByteBuffer content) {
+            batch(timelineID, new RawMessage(messageID, content));
+        }
+
         @Override
         public Future<TimelineEntry> writeAsync(String timelineID, IMessage message, TimelineCallback<IMessage> callback) {
             this.timelineID = timelineID;
@@ -61,6 +84,26 @@ public class TestTimeline {
             return null;
         }
 
+        @Override
+        public TimelineEntry readByMessageID(String timelineID, String messageID) {
+            return null;
+        }
+
+        @Override
+        public Map<String, TimelineEntry> readByMessageIDs(String timelineID, Collection<String> messageIDs) {
+            return null;
+        }
+
+        @Override
+        public TimelineDeleteJob delete(String timelineID, long fromSequenceID, long toSequenceID) {
+            return null;
+        }
+
+        @Override
+        public TimelineDeleteJob deleteTimeline(String timelineID) {
+            return null;
+        }
+
         @Override
         public void create() {
         }
@@ -0,0 +1,147 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineArchive {
+    private final static List<Column> NO_COLUMNS = Collections.emptyList();
+
+    private File file = null;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("__timelinetest_archive_", ".tla");
+    }
+
+    @After
+    public void after() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testBlockRoundTrip() throws Exception {
+        TimelineArchive.BlockBuilder builder = new TimelineArchive.BlockBuilder("\u7528\u62370001");
+        byte[] content = "0123456789".getBytes("UTF-8");
+        List<Column> columns = Arrays.asList(new Column("type", ColumnValue.fromString("\u7cfb\u7edf")),
+                new Column("priority", ColumnValue.fromLong(-3)), new Column("read", ColumnValue.fromBoolean(true)),
+                new Column("score", ColumnValue.fromDouble(-0.5)), new Column("tag", ColumnValue.fromBinary(new byte[]{1, 2})));
+        builder.add(100, "id_0", content, 0, 10, columns);
+        builder.add(100, null, content, 2, 3, NO_COLUMNS);
+        builder.add(1L << 40, "", content, 10, 0, NO_COLUMNS);
+        assertEquals(3, builder.getCount());
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        Inflater inflater = new Inflater();
+        TimelineArchive.Block block = readFrame(builder.encode(TimelineArchive.TYPE_DATA, deflater)).decode(inflater);
+        assertEquals(TimelineArchive.TYPE_DATA, block.type);
+        assertEquals("\u7528\u62370001", block.timelineID);
+        assertEquals(3, block.count);
+        assertArrayEquals(new long[]{100, 100, 1L << 40}, block.sequenceIDs);
+        assertArrayEquals(new String[]{"id_0", null, ""}, block.messageIDs);
+        assertEquals("0123456789", new String(block.data, block.offsets[0], block.lengths[0], "UTF-8"));
+        assertEquals("234", new String(block.data, block.offsets[1], block.lengths[1], "UTF-8"));
+        assertEquals(0, block.lengths[2]);
+        assertEquals(columns, block.columns.get(0));
+        assertTrue(block.columns.get(1).isEmpty());
+
+        // encode后重新开始，顺序ID的差值从0计算。
+        assertEquals(0, builder.getCount());
+        builder.add(5, "id_5", content, 0, 1, NO_COLUMNS);
+        block = readFrame(builder.encode(TimelineArchive.TYPE_DATA, deflater)).decode(inflater);
+        assertArrayEquals(new long[]{5}, block.sequenceIDs);
+
+        block = readFrame(builder.encode(TimelineArchive.TYPE_END, deflater)).decode(inflater);
+        assertEquals(TimelineArchive.TYPE_END, block.type);
+        assertEquals("\u7528\u62370001", block.timelineID);
+        deflater.end();
+        inflater.end();
+    }
+
+    @Test
+    public void testCompressed() throws Exception {
+        TimelineArchive.BlockBuilder builder = new TimelineArchive.BlockBuilder("00001");
+        byte[] content = new byte[1000];
+        for (int i = 0; i < 1000; i++) {
+            builder.add(1546300800000000L + i, String.valueOf(i), content, 0, content.length, NO_COLUMNS);
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        TimelineArchive.Buffer frame = builder.encode(TimelineArchive.TYPE_DATA, deflater);
+        assertTrue(frame.size < 1000 * 1000 / 10);
+        deflater.end();
+    }
+
+    @Test
+    public void testCorrupted() throws Exception {
+        TimelineArchive.BlockBuilder builder = new TimelineArchive.BlockBuilder("00001");
+        builder.add(1, "id_1", new byte[100], 0, 100, NO_COLUMNS);
+        Deflater deflater = new Deflater();
+        TimelineArchive.Buffer frame = builder.encode(TimelineArchive.TYPE_DATA, deflater);
+        deflater.end();
+
+        // 改动原始内容的crc32。
+        frame.array[TimelineArchive.FRAME_HEADER_SIZE - 1] ^= 1;
+        Inflater inflater = new Inflater();
+        try {
+            readFrame(frame).decode(inflater);
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Test
+    public void testRecoverTruncated() throws Exception {
+        Deflater deflater = new Deflater();
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+        TimelineArchive.writeHeader(output);
+
+        TimelineArchive.BlockBuilder first = new TimelineArchive.BlockBuilder("00001");
+        first.add(10, "a", new byte[1], 0, 1, NO_COLUMNS);
+        first.add(20, "b", new byte[1], 0, 1, NO_COLUMNS);
+        write(output, first.encode(TimelineArchive.TYPE_DATA, deflater));
+        write(output, first.encode(TimelineArchive.TYPE_END, deflater));
+
+        TimelineArchive.BlockBuilder second = new TimelineArchive.BlockBuilder("00002");
+        second.add(30, "c", new byte[1], 0, 1, NO_COLUMNS);
+        write(output, second.encode(TimelineArchive.TYPE_DATA, deflater));
+        long complete = output.size();
+
+        // 最后一块只写了一半。
+        second.add(40, "d", new byte[1], 0, 1, NO_COLUMNS);
+        TimelineArchive.Buffer partial = second.encode(TimelineArchive.TYPE_DATA, deflater);
+        output.write(partial.array, 0, partial.size / 2);
+        output.close();
+        deflater.end();
+
+        Map<String, Long> lastSequenceIDs = new HashMap<String, Long>();
+        Set<String> finished = new HashSet<String>();
+        assertEquals(complete, TimelineExporter.recover(file, lastSequenceIDs, finished));
+        assertEquals(Long.valueOf(20), lastSequenceIDs.get("00001"));
+        assertEquals(Long.valueOf(30), lastSequenceIDs.get("00002"));
+        assertTrue(finished.contains("00001"));
+        assertFalse(finished.contains("00002"));
+
+        file.delete();
+        assertEquals(0, TimelineExporter.recover(file, lastSequenceIDs, finished));
+    }
+
+    private static void write(DataOutputStream output, TimelineArchive.Buffer frame) throws IOException {
+        output.write(frame.array, 0, frame.size);
+    }
+
+    private static TimelineArchive.Frame readFrame(TimelineArchive.Buffer frame) throws IOException {
+        return TimelineArchive.readFrame(new DataInputStream(new ByteArrayInputStream(frame.array, 0, frame.size)));
+    }
+}
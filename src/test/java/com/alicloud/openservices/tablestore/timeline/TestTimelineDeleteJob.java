@@ -0,0 +1,129 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineDeleteJob {
+    private LocalTableStoreServer server = null;
+    private DistributeTimelineConfig config = null;
+    private DistributeTimelineStore store = null;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalTableStoreServer();
+        config = new DistributeTimelineConfig("<local>", "", "", "local", "__timelinetest_delete");
+        config.setMessageInstance(new StringMessage());
+        store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+    }
+
+    @After
+    public void after() throws Exception {
+        store.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void testDeleteRange() throws Exception {
+        List<Long> sequenceIDs = write("00001", 500);
+
+        TimelineDeleteJob job = store.delete("00001", sequenceIDs.get(100), sequenceIDs.get(400));
+        assertEquals(300L, job.get().longValue());
+        assertEquals(300, job.getDeletedCount());
+        assertEquals(sequenceIDs.get(400).longValue(), job.getCheckpoint());
+
+        List<Long> remaining = scan("00001");
+        assertEquals(200, remaining.size());
+        assertEquals(sequenceIDs.subList(0, 100), remaining.subList(0, 100));
+        assertEquals(sequenceIDs.subList(400, 500), remaining.subList(100, 200));
+    }
+
+    @Test
+    public void testDeleteTimeline() throws Exception {
+        config.setDeleteConcurrency(8);
+        write("00001", 1000);
+        write("00002", 10);
+
+        Timeline timeline = new Timeline("00001", store);
+        TimelineDeleteJob job = timeline.deleteAll();
+        assertEquals(1000L, job.get().longValue());
+        assertEquals(Long.MAX_VALUE, job.getCheckpoint());
+        assertTrue(scan("00001").isEmpty());
+        assertEquals(10, scan("00002").size());
+
+        assertEquals(0L, store.deleteTimeline("00003").get().longValue());
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        config.setDeleteConcurrency(1);
+        List<Long> sequenceIDs = write("00001", 1000);
+
+        // 前两批删除成功后，之后的BatchWriteRow都失败。
+        final AtomicInteger batches = new AtomicInteger();
+        server.setErrors(new LocalTableStoreServer.ErrorDistribution() {
+            @Override
+            public TableStoreException nextError(String operation, Random random) {
+                if (operation.equals("batchWriteRow") && batches.incrementAndGet() > 2) {
+                    return new TableStoreException("Injected error", null, "OTSServerBusy", "", 503);
+                }
+                return null;
+            }
+        });
+
+        TimelineDeleteJob job = store.deleteTimeline("00001");
+        try {
+            job.get();
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_RETRY, ex.getType());
+        }
+        assertEquals(400, job.getDeletedCount());
+        assertEquals(sequenceIDs.get(399) + 1, job.getCheckpoint());
+        assertEquals(sequenceIDs.subList(400, 1000), scan("00001"));
+
+        server.setErrors(null);
+        TimelineDeleteJob resumed = store.delete("00001", job.getCheckpoint(), job.getToSequenceID());
+        assertEquals(600L, resumed.get().longValue());
+        assertTrue(scan("00001").isEmpty());
+    }
+
+    @Test
+    public void testInvalidRange() {
+        try {
+            store.delete("00001", 10, 5);
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+    }
+
+    private List<Long> write(String timelineID, int count) {
+        List<Long> sequenceIDs = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            sequenceIDs.add(store.write(timelineID, new StringMessage(String.valueOf(i))).getSequenceID());
+        }
+        return sequenceIDs;
+    }
+
+    private List<Long> scan(String timelineID) {
+        ScanParameter parameter = ScanParameterBuilder.scanForward()
+                .from(0).to(Long.MAX_VALUE).maxCount(Integer.MAX_VALUE).build();
+        List<Long> sequenceIDs = new ArrayList<Long>();
+        Iterator<TimelineEntry> iterator = store.scan(timelineID, parameter);
+        while (iterator.hasNext()) {
+            sequenceIDs.add(iterator.next().getSequenceID());
+        }
+        return sequenceIDs;
+    }
+}
@@ -0,0 +1,79 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineEntryFuture {
+    @Test
+    public void testComplete() throws Exception {
+        final TimelineEntryFuture future = new TimelineEntryFuture();
+        assertTrue(!future.isDone());
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                future.complete(new TimelineEntry(1L, new StringMessage("content")));
+            }
+        }).start();
+
+        assertEquals(Long.valueOf(1), future.get().getSequenceID());
+        assertTrue(future.isDone());
+
+        future.fail(new RuntimeException("ignored"));
+        assertEquals(Long.valueOf(1), future.get(1, TimeUnit.SECONDS).getSequenceID());
+    }
+
+    @Test
+    public void testFail() throws Exception {
+        TimelineEntryFuture future = new TimelineEntryFuture();
+        future.fail(new TimelineException(TimelineExceptionType.TET_RETRY, "retry"));
+        try {
+            future.get();
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_RETRY, ex.getType());
+        }
+    }
+
+    @Test
+    public void testTimeoutAndCancel() throws Exception {
+        TimelineEntryFuture future = new TimelineEntryFuture();
+        try {
+            future.get(10, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException ex) {
+            // expected
+        }
+
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail();
+        } catch (CancellationException ex) {
+            // expected
+        }
+
+        future.complete(new TimelineEntry(1L, new StringMessage("content")));
+        assertFalse(future.cancel(true));
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (CancellationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCancelAfterComplete() throws Exception {
+        TimelineEntryFuture future = new TimelineEntryFuture();
+        future.complete(new TimelineEntry(1L, new StringMessage("content")));
+        assertFalse(future.cancel(true));
+        assertFalse(future.isCancelled());
+        assertEquals(Long.valueOf(1), future.get().getSequenceID());
+    }
+}
@@ -0,0 +1,305 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineExporter {
+    private LocalTableStoreServer server = null;
+    private DistributeTimelineStore source = null;
+    private DistributeTimelineStore target = null;
+    private TimelineArchiveConfig config = null;
+    private File file = null;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalTableStoreServer();
+        source = createStore("__timelinetest_export_source");
+        target = createStore("__timelinetest_export_target");
+
+        config = new TimelineArchiveConfig();
+        config.setConcurrency(4);
+        config.setBlockSize(4096);
+        file = File.createTempFile("__timelinetest_export_", ".tla");
+        file.delete();
+    }
+
+    @After
+    public void after() throws Exception {
+        source.close();
+        target.close();
+        server.shutdown();
+        file.delete();
+        new File(file.getPath() + TimelineImporter.CHECKPOINT_SUFFIX).delete();
+    }
+
+    @Test
+    public void testExportAndImport() {
+        Map<String, List<TimelineEntry>> expected = new LinkedHashMap<String, List<TimelineEntry>>();
+        for (int i = 0; i < 5; i++) {
+            String timelineID = "user_" + i;
+            for (int j = 0; j < 300 * i; j++) {
+                source.write(timelineID, new StringMessage(String.valueOf(j), "message " + j));
+            }
+            expected.put(timelineID, scan(source, timelineID));
+        }
+
+        assertEquals(3000, new TimelineExporter(source, config).export(expected.keySet(), file));
+        assertEquals(3000, new TimelineImporter(target, config).importFrom(file));
+        assertFalse(new File(file.getPath() + TimelineImporter.CHECKPOINT_SUFFIX).exists());
+
+        for (Map.Entry<String, List<TimelineEntry>> entry : expected.entrySet()) {
+            List<TimelineEntry> actual = scan(target, entry.getKey());
+            assertEquals(entry.getValue().size(), actual.size());
+            for (int i = 0; i < actual.size(); i++) {
+                TimelineEntry left = entry.getValue().get(i);
+                TimelineEntry right = actual.get(i);
+                assertEquals(left.getSequenceID(), right.getSequenceID());
+                assertEquals(left.getMessage().getMessageID(), right.getMessage().getMessageID());
+                assertEquals(((StringMessage) left.getMessage()).getContent(),
+                        ((StringMessage) right.getMessage()).getContent());
+            }
+        }
+    }
+
+    @Test
+    public void testResumeExport() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            source.write("user_1", new StringMessage(String.valueOf(i), "message " + i));
+        }
+        List<String> timelineIDs = Arrays.asList("user_1");
+        assertEquals(500, new TimelineExporter(source, config).export(timelineIDs, file));
+
+        // 模拟导出中断：截掉最后的结束块和半个数据块。
+        long length = file.length();
+        RandomAccessFile truncate = new RandomAccessFile(file, "rw");
+        truncate.setLength(length - 100);
+        truncate.close();
+
+        for (int i = 500; i < 600; i++) {
+            source.write("user_1", new StringMessage(String.valueOf(i), "message " + i));
+        }
+        long resumed = new TimelineExporter(source, config).export(timelineIDs, file);
+        assertTrue(resumed > 100 && resumed < 600);
+
+        // 已经导出完的Timeline不会再次导出。
+        assertEquals(0, new TimelineExporter(source, config).export(timelineIDs, file));
+
+        assertEquals(600, new TimelineImporter(target, config).importFrom(file));
+        assertEquals(600, scan(target, "user_1").size());
+    }
+
+    @Test
+    public void testExportFailure() {
+        List<String> timelineIDs = new ArrayList<String>();
+        for (int i = 0; i < 8; i++) {
+            timelineIDs.add("user_" + i);
+            for (int j = 0; j < 200; j++) {
+                source.write("user_" + i, new StringMessage(String.valueOf(j), "message " + j));
+            }
+        }
+
+        server.setMaxRowsPerPage(50);
+        final AtomicInteger pages = new AtomicInteger();
+        server.setErrors(new LocalTableStoreServer.ErrorDistribution() {
+            @Override
+            public TableStoreException nextError(String operation, Random random) {
+                if (operation.equals("getRange") && pages.incrementAndGet() == 10) {
+                    return new TableStoreException("Injected error", null, "OTSServerBusy", "", 503);
+                }
+                return null;
+            }
+        });
+        try {
+            new TimelineExporter(source, config).export(timelineIDs, file);
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_RETRY, ex.getType());
+        }
+
+        // 出错时其他线程已经退出，文件中只有完整的块，可以继续导出。
+        server.setErrors(null);
+        new TimelineExporter(source, config).export(timelineIDs, file);
+        assertEquals(1600, new TimelineImporter(target, config).importFrom(file));
+    }
+
+    @Test
+    public void testImportRejected() {
+        for (int i = 0; i < 10; i++) {
+            source.write("user_1", new StringMessage(String.valueOf(i), "message " + i));
+        }
+        new TimelineExporter(source, config).export(Arrays.asList("user_1"), file);
+
+        server.setErrors(new LocalTableStoreServer.ErrorDistribution() {
+            @Override
+            public TableStoreException nextError(String operation, Random random) {
+                if (operation.equals("batchWriteRow")) {
+                    return new TableStoreException("Injected error", null, "OTSParameterInvalid", "", 400);
+                }
+                return null;
+            }
+        });
+        try {
+            new TimelineImporter(target, config).importFrom(file);
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+            assertTrue(ex.getMessage().contains("auto-increment"));
+        }
+    }
+
+    @Test
+    public void testResumeImport() {
+        for (int i = 0; i < 1000; i++) {
+            source.write("user_1", new StringMessage(String.valueOf(i), "message " + i));
+        }
+        config.setConcurrency(1);
+        new TimelineExporter(source, config).export(Arrays.asList("user_1"), file);
+
+        final AtomicInteger batches = new AtomicInteger();
+        server.setErrors(new LocalTableStoreServer.ErrorDistribution() {
+            @Override
+            public TableStoreException nextError(String operation, Random random) {
+                if (operation.equals("batchWriteRow") && batches.incrementAndGet() > 3) {
+                    return new TableStoreException("Injected error", null, "OTSServerBusy", "", 503);
+                }
+                return null;
+            }
+        });
+        try {
+            new TimelineImporter(target, config).importFrom(file);
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_RETRY, ex.getType());
+        }
+        assertTrue(new File(file.getPath() + TimelineImporter.CHECKPOINT_SUFFIX).exists());
+        int imported = scan(target, "user_1").size();
+        assertTrue(imported > 0 && imported < 1000);
+
+        server.setErrors(null);
+        long resumed = new TimelineImporter(target, config).importFrom(file);
+        assertTrue(resumed < 1000);
+        assertEquals(1000, scan(target, "user_1").size());
+    }
+
+    @Test
+    public void testImportMessageIDIndex() {
+        DistributeTimelineStore indexed = createStore("__timelinetest_export_indexed", true);
+        for (int i = 0; i < 250; i++) {
+            source.write("user_1", new StringMessage("msg_" + i, "message " + i));
+        }
+        List<TimelineEntry> expected = scan(source, "user_1");
+
+        new TimelineExporter(source, config).export(Arrays.asList("user_1"), file);
+        assertEquals(250, new TimelineImporter(indexed, config).importFrom(file));
+
+        TimelineEntry entry = indexed.readByMessageID("user_1", "msg_199");
+        assertEquals(expected.get(199).getSequenceID(), entry.getSequenceID());
+        assertEquals("message 199", ((StringMessage) entry.getMessage()).getContent());
+        assertEquals(250, indexed.readByMessageIDs("user_1", messageIDs(expected)).size());
+        indexed.close();
+    }
+
+    @Test
+    public void testExportAttributesAndTimestamp() throws Exception {
+        DistributeTimelineStore timedSource = createTimeIndexedStore("__timelinetest_export_timed_source");
+        DistributeTimelineStore timedTarget = createTimeIndexedStore("__timelinetest_export_timed_target");
+        for (int i = 0; i < 10; i++) {
+            timedSource.write("user_1", new StringMessage("before " + i));
+        }
+        Thread.sleep(50);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < 20; i++) {
+            timedSource.write("user_1", new AttributedMessage(new StringMessage("in " + i))
+                    .setAttribute("type", i % 4 == 0 ? "system" : "user").setAttribute("priority", (long) (i % 5))
+                    .setAttribute("read", i % 2 == 0).setAttribute("score", i / 2.0)
+                    .setAttribute("tag", new byte[]{(byte) i}));
+        }
+        long endTime = System.currentTimeMillis() + 1;
+
+        new TimelineExporter(timedSource, config).export(Arrays.asList("user_1"), file);
+        assertEquals(30, new TimelineImporter(timedTarget, config).importFrom(file));
+
+        // 属性列和写入时间列导入后仍然可以用于过滤。
+        List<ScanParameter> parameters = Arrays.asList(
+                ScanParameterBuilder.scanForward().timeRange(startTime, endTime).maxCount(100).build(),
+                ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100)
+                        .filter(AttributeFilter.equal("type", "system")).build(),
+                ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100)
+                        .filter(AttributeFilter.equal("priority", 3L)).build(),
+                ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100)
+                        .filter(AttributeFilter.equal("read", true)).build(),
+                ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100)
+                        .filter(AttributeFilter.greaterEqual("score", 8.0)).build(),
+                ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100)
+                        .filter(AttributeFilter.equal("tag", new byte[]{5})).build());
+        int[] counts = new int[]{20, 5, 4, 10, 4, 1};
+        for (int i = 0; i < parameters.size(); i++) {
+            List<TimelineEntry> expected = scan(timedSource, "user_1", parameters.get(i));
+            assertEquals(counts[i], expected.size());
+            assertEquals(sequenceIDs(expected), sequenceIDs(scan(timedTarget, "user_1", parameters.get(i))));
+        }
+        timedSource.close();
+        timedTarget.close();
+    }
+
+    private DistributeTimelineStore createStore(String tableName) {
+        return createStore(tableName, false);
+    }
+
+    private DistributeTimelineStore createStore(String tableName, boolean messageIDIndexEnabled) {
+        DistributeTimelineConfig storeConfig = new DistributeTimelineConfig("<local>", "", "", "local", tableName);
+        storeConfig.setMessageInstance(new StringMessage());
+        storeConfig.setMessageIDIndexEnabled(messageIDIndexEnabled);
+        DistributeTimelineStore store = new DistributeTimelineStore(storeConfig, server.asyncClient());
+        store.create();
+        return store;
+    }
+
+    private DistributeTimelineStore createTimeIndexedStore(String tableName) {
+        DistributeTimelineConfig storeConfig = new DistributeTimelineConfig("<local>", "", "", "local", tableName);
+        storeConfig.setMessageInstance(new StringMessage());
+        storeConfig.setTimeIndexEnabled(true);
+        DistributeTimelineStore store = new DistributeTimelineStore(storeConfig, server.asyncClient());
+        store.create();
+        return store;
+    }
+
+    private static List<Long> sequenceIDs(List<TimelineEntry> entries) {
+        List<Long> sequenceIDs = new ArrayList<Long>();
+        for (TimelineEntry entry : entries) {
+            sequenceIDs.add(entry.getSequenceID());
+        }
+        return sequenceIDs;
+    }
+
+    private static List<String> messageIDs(List<TimelineEntry> entries) {
+        List<String> messageIDs = new ArrayList<String>();
+        for (TimelineEntry entry : entries) {
+            messageIDs.add(entry.getMessage().getMessageID());
+        }
+        return messageIDs;
+    }
+
+    private static List<TimelineEntry> scan(IStore store, String timelineID) {
+        return scan(store, timelineID, ScanParameterBuilder.scanForward()
+                .from(0).to(Long.MAX_VALUE).maxCount(Integer.MAX_VALUE).build());
+    }
+
+    private static List<TimelineEntry> scan(IStore store, String timelineID, ScanParameter parameter) {
+        List<TimelineEntry> entries = new ArrayList<TimelineEntry>();
+        Iterator<TimelineEntry> iterator = store.scan(timelineID, parameter);
+        while (iterator.hasNext()) {
+            entries.add(iterator.next());
+        }
+        return entries;
+    }
+}
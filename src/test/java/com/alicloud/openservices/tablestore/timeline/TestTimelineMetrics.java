@@ -0,0 +1,95 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineMetrics {
+    @Test
+    public void testHistogramBuckets() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 100, 1000, 123456789L, Long.MAX_VALUE}) {
+            int index = LogLinearHistogram.indexOf(value);
+            long upper = LogLinearHistogram.upperBoundOf(index);
+            assertTrue(upper >= value);
+            assertTrue(upper - value <= value / 8);
+            if (index > 0) {
+                assertTrue(LogLinearHistogram.upperBoundOf(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testHistogramPercentile() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        assertTrue(Math.abs(histogram.getValueAtPercentile(50) - 500) <= 500 / 8);
+        assertTrue(Math.abs(histogram.getValueAtPercentile(99) - 990) <= 990 / 8);
+        assertTrue(histogram.getMax() >= 1000);
+    }
+
+    @Test
+    public void testStripedCounter() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.increment();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80000, counter.sum());
+    }
+
+    @Test
+    public void testSnapshot() {
+        TimelineMetrics metrics = new TimelineMetrics("instance/table");
+        metrics.write.recordSuccess(System.nanoTime());
+        metrics.write.recordFailure(new TimelineException(TimelineExceptionType.TET_RETRY, "retry"));
+        metrics.write.recordFailure(new RuntimeException("unknown"));
+        metrics.recordBytesWritten(100);
+        metrics.recordScanPage(20);
+
+        Map<String, Number> snapshot = metrics.snapshot();
+        assertEquals(1L, snapshot.get("write.count"));
+        assertEquals(2L, snapshot.get("write.errors"));
+        assertEquals(1L, snapshot.get("write.errors.TET_RETRY"));
+        assertEquals(1L, snapshot.get("write.errors.TET_UNKNOWN"));
+        assertEquals(100L, snapshot.get("bytesWritten"));
+        assertEquals(1L, snapshot.get("scan.pages"));
+        assertEquals(0L, snapshot.get("writer.bufferedRows"));
+    }
+
+    @Test
+    public void testJmxRegistry() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        JmxTimelineMetricsRegistry registry = new JmxTimelineMetricsRegistry(server);
+        TimelineMetrics metrics = new TimelineMetrics("instance/table");
+        registry.register(metrics);
+
+        metrics.read.recordSuccess(System.nanoTime());
+        assertEquals(1L, server.getAttribute(JmxTimelineMetricsRegistry.objectName(metrics), "read.count"));
+
+        registry.unregister(metrics);
+        assertTrue(!server.isRegistered(JmxTimelineMetricsRegistry.objectName(metrics)));
+    }
+}
@@ -0,0 +1,123 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineParallelScanner {
+    private LocalTableStoreServer server = null;
+    private DistributeTimelineStore store = null;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalTableStoreServer();
+        DistributeTimelineConfig config = new DistributeTimelineConfig("<local>", "", "", "local", "__timelinetest_parallel");
+        config.setMessageInstance(new StringMessage());
+        store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        for (int i = 0; i < 3000; i++) {
+            store.write("00001", new StringMessage("message " + i));
+        }
+    }
+
+    @After
+    public void after() throws Exception {
+        store.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void testOrdered() {
+        ScanParameter parameter = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(10000).build();
+        List<Long> expected = sequenceIDs(store.scan("00001", parameter));
+        assertEquals(3000, expected.size());
+
+        TimelineParallelScanConfig config = new TimelineParallelScanConfig();
+        config.setConcurrency(3);
+        TimelineParallelScanner scanner = new TimelineParallelScanner(store, "00001", parameter, config);
+        assertEquals(expected, sequenceIDs(scanner));
+        assertEquals(12, scanner.getCheckpoint().size());
+        for (TimelineScanSplit split : scanner.getCheckpoint()) {
+            assertTrue(split.isFinished());
+        }
+
+        parameter = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).build();
+        assertEquals(expected.subList(0, 100), sequenceIDs(new TimelineParallelScanner(store, "00001", parameter, config)));
+
+        // 一批比maxCount多时也只返回maxCount条。
+        config.setOrdered(false);
+        assertEquals(100, sequenceIDs(new TimelineParallelScanner(store, "00001", parameter, config)).size());
+    }
+
+    @Test
+    public void testUnordered() {
+        ScanParameter parameter = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(10000).build();
+        List<Long> expected = sequenceIDs(store.scan("00001", parameter));
+
+        TimelineParallelScanConfig config = new TimelineParallelScanConfig();
+        config.setConcurrency(4);
+        config.setSplitCount(7);
+        config.setOrdered(false);
+        List<Long> actual = sequenceIDs(new TimelineParallelScanner(store, "00001", parameter, config));
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<Long>(expected), new HashSet<Long>(actual));
+    }
+
+    @Test
+    public void testResume() {
+        ScanParameter parameter = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(10000).build();
+        List<Long> expected = sequenceIDs(store.scan("00001", parameter));
+
+        TimelineParallelScanConfig config = new TimelineParallelScanConfig();
+        config.setConcurrency(2);
+        TimelineParallelScanner scanner = new TimelineParallelScanner(store, "00001", parameter, config);
+        List<Long> actual = new ArrayList<Long>();
+        for (int i = 0; i < 1234; i++) {
+            actual.add(scanner.next().getSequenceID());
+        }
+        scanner.close();
+
+        // 检查点保存成字符串后恢复。
+        List<TimelineScanSplit> checkpoint = new ArrayList<TimelineScanSplit>();
+        for (TimelineScanSplit split : scanner.getCheckpoint()) {
+            checkpoint.add(TimelineScanSplit.parse(split.toString()));
+        }
+        actual.addAll(sequenceIDs(new TimelineParallelScanner(store, "00001", parameter, config, checkpoint)));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testEmptyAndInvalid() {
+        ScanParameter parameter = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).build();
+        assertTrue(sequenceIDs(new TimelineParallelScanner(store, "00002", parameter,
+                new TimelineParallelScanConfig())).isEmpty());
+
+        try {
+            new TimelineParallelScanner(store, "00001",
+                    ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(100).build(),
+                    new TimelineParallelScanConfig());
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+
+        try {
+            TimelineScanSplit.parse("1,2");
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+    }
+
+    private static List<Long> sequenceIDs(Iterator<TimelineEntry> iterator) {
+        List<Long> sequenceIDs = new ArrayList<Long>();
+        while (iterator.hasNext()) {
+            sequenceIDs.add(iterator.next().getSequenceID());
+        }
+        return sequenceIDs;
+    }
+}
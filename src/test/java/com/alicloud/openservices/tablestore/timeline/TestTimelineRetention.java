@@ -0,0 +1,80 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineRetention {
+    private LocalTableStoreServer server = null;
+    private DistributeTimelineConfig config = null;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalTableStoreServer();
+        config = new DistributeTimelineConfig("<local>", "", "", "local", "__timelinetest_retention");
+        config.setMessageInstance(new StringMessage());
+        config.setLimit(5);
+        config.setRetentionEnabled(true);
+        // 测试中手动执行清理。
+        config.setRetentionInterval(3600 * 1000);
+    }
+
+    @After
+    public void after() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testKeepLastN() {
+        config.setRetentionBatchSize(3);
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        for (int i = 0; i < 20; i++) {
+            store.write("00001", new StringMessage(String.valueOf(i)));
+        }
+        store.write("00002", new StringMessage("other"));
+        assertEquals(2L, store.getMetrics().snapshot().get("retention.backlog"));
+
+        assertEquals(15, store.getRetention().runOnce());
+        assertEquals(0L, store.getMetrics().snapshot().get("retention.backlog"));
+        assertEquals(15L, store.getMetrics().snapshot().get("retention.trimmedRows"));
+
+        ScanParameter forward = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(100).build();
+        Iterator<TimelineEntry> iterator = store.scan("00001", forward);
+        for (int i = 15; i < 20; i++) {
+            assertEquals(String.valueOf(i), ((StringMessage) iterator.next().getMessage()).getContent());
+        }
+        assertFalse(iterator.hasNext());
+        assertTrue(store.scan("00002", forward).hasNext());
+        store.close();
+    }
+
+    @Test
+    public void testRateLimited() {
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        for (int i = 0; i < 20; i++) {
+            store.write("00001", new StringMessage(String.valueOf(i)));
+        }
+
+        // 每轮最多删除8行，没有删完的Timeline重新加入待清理集合。
+        assertEquals(8, store.getRetention().runOnce(8));
+        assertEquals(1L, store.getMetrics().snapshot().get("retention.backlog"));
+        assertEquals(7, store.getRetention().runOnce(8));
+        assertEquals(0L, store.getMetrics().snapshot().get("retention.backlog"));
+        assertEquals(0, store.getRetention().runOnce(8));
+        store.close();
+    }
+
+    @Test
+    public void testDisabled() {
+        config.setRetentionEnabled(false);
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        assertNull(store.getRetention());
+        store.close();
+    }
+}
@@ -0,0 +1,122 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import com.alicloud.openservices.tablestore.model.DeleteTableRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineTimeIndex {
+    private LocalTableStoreServer server = null;
+    private DistributeTimelineConfig config = null;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new LocalTableStoreServer();
+        config = new DistributeTimelineConfig("<local>", "", "", "local", "__timelinetest_time_index");
+        config.setMessageInstance(new StringMessage());
+        config.setTimeIndexEnabled(true);
+        config.setTimeIndexInterval(10);
+    }
+
+    @After
+    public void after() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testScanTimeRange() throws Exception {
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        for (int i = 0; i < 10; i++) {
+            store.write("00001", new StringMessage("before " + i));
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            store.write("00001", new StringMessage("in " + i));
+            Thread.sleep(5);
+        }
+        long endTime = System.currentTimeMillis();
+        Thread.sleep(50);
+        for (int i = 0; i < 10; i++) {
+            store.write("00001", new StringMessage("after " + i));
+            store.write("00001", new StringMessage("after " + i));
+            Thread.sleep(5);
+        }
+        store.write("00002", new StringMessage("in other"));
+
+        ScanParameter forward = ScanParameterBuilder.scanForward().timeRange(startTime, endTime).maxCount(100).build();
+        assertEquals(Arrays.asList("in 0", "in 1", "in 2", "in 3", "in 4", "in 5", "in 6", "in 7", "in 8", "in 9"),
+                scan(store, forward));
+
+        ScanParameter backward = ScanParameterBuilder.scanBackward().timeRange(startTime, endTime).maxCount(3).build();
+        assertEquals(Arrays.asList("in 9", "in 8", "in 7"), scan(store, backward));
+
+        // 时间范围和顺序ID范围同时生效。
+        List<TimelineEntry> entries = new ArrayList<TimelineEntry>();
+        Iterator<TimelineEntry> iterator = store.scan("00001", forward);
+        while (iterator.hasNext()) {
+            entries.add(iterator.next());
+        }
+        ScanParameter bounded = ScanParameterBuilder.scanForward().timeRange(startTime, endTime)
+                .from(entries.get(5).getSequenceID()).maxCount(100).build();
+        assertEquals(Arrays.asList("in 5", "in 6", "in 7", "in 8", "in 9"), scan(store, bounded));
+
+        ScanParameter after = ScanParameterBuilder.scanForward().timeRange(endTime, Long.MAX_VALUE).maxCount(100).build();
+        assertEquals(20, scan(store, after).size());
+
+        ScanParameter empty = ScanParameterBuilder.scanForward().timeRange(0, startTime - 60000).maxCount(100).build();
+        assertTrue(scan(store, empty).isEmpty());
+        assertEquals(0L, store.getMetrics().snapshot().get("timeIndex.failures"));
+
+        store.drop();
+        store.close();
+    }
+
+    @Test
+    public void testCreateAndDropWithExistingStore() {
+        config.setTimeIndexEnabled(false);
+        new DistributeTimelineStore(config, server.asyncClient()).create();
+
+        // 主表已经存在时也要创建索引表。
+        config.setTimeIndexEnabled(true);
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        assertTrue(server.syncClient().listTable().getTableNames().contains(config.getTimeIndexTableName()));
+
+        // 主表已经不存在时也要删除索引表。
+        server.syncClient().deleteTable(new DeleteTableRequest(config.getTableName()));
+        store.drop();
+        assertFalse(server.syncClient().listTable().getTableNames().contains(config.getTimeIndexTableName()));
+        store.close();
+    }
+
+    @Test
+    public void testDisabled() {
+        config.setTimeIndexEnabled(false);
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        store.create();
+        store.write("00001", new StringMessage("content"));
+        try {
+            store.scan("00001", ScanParameterBuilder.scanForward().timeRange(0, Long.MAX_VALUE).maxCount(100).build());
+            fail();
+        } catch (TimelineException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ex.getType());
+        }
+        store.close();
+    }
+
+    private static List<String> scan(IStore store, ScanParameter parameter) {
+        List<String> contents = new ArrayList<String>();
+        Iterator<TimelineEntry> iterator = store.scan("00001", parameter);
+        while (iterator.hasNext()) {
+            contents.add(((StringMessage) iterator.next().getMessage()).getContent());
+        }
+        return contents;
+    }
+}
@@ -3,6 +3,9 @@ package com.alicloud.openservices.tablestore.timeline;
 import com.alicloud.openservices.tablestore.model.*;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -82,6 +85,48 @@ public class TestUtils {
         assertEquals("10000000001", entry.getMessage().getMessageID());
     }
 
+    @Test
+    public void testMessageIDValue() {
+        assertEquals(ColumnType.INTEGER, Utils.toMessageIDValue("10000000001").getType());
+        assertEquals(10000000001L, Utils.toMessageIDValue("10000000001").asLong());
+        assertEquals(ColumnType.INTEGER, Utils.toMessageIDValue("0").getType());
+        assertEquals(ColumnType.INTEGER, Utils.toMessageIDValue(String.valueOf(Long.MAX_VALUE)).getType());
+
+        assertEquals(ColumnType.STRING, Utils.toMessageIDValue("9223372036854775808").getType());
+        assertEquals(ColumnType.STRING, Utils.toMessageIDValue("0123").getType());
+        assertEquals(ColumnType.STRING, Utils.toMessageIDValue("-1").getType());
+        assertEquals(ColumnType.STRING, Utils.toMessageIDValue("1234@10.0.0.1:1").getType());
+
+        assertEquals("10000000001", Utils.toMessageID(ColumnValue.fromLong(10000000001L)));
+        assertEquals("10000000001", Utils.toMessageID(ColumnValue.fromString("10000000001")));
+        assertEquals("0123", Utils.toMessageID(Utils.toMessageIDValue("0123")));
+    }
+
+    @Test
+    public void testSaltTimelineID() {
+        assertEquals("user_1", Utils.saltTimelineID("user_1", 0));
+
+        String salted = Utils.saltTimelineID("user_1", 2);
+        assertEquals(8, salted.length());
+        assertTrue(salted.endsWith("user_1"));
+        assertEquals(salted, Utils.saltTimelineID("user_1", 2));
+        assertEquals("user_1", Utils.unsaltTimelineID(salted, 2));
+    }
+
+    @Test
+    public void testSaltSplitPoints() {
+        assertEquals(0, Utils.saltSplitPoints(0, 16).size());
+        assertEquals(0, Utils.saltSplitPoints(2, 1).size());
+
+        List<String> points = Utils.saltSplitPoints(1, 32);
+        assertEquals(15, points.size());
+        assertEquals("1", points.get(0));
+        assertEquals("f", points.get(14));
+
+        points = Utils.saltSplitPoints(2, 4);
+        assertEquals(Arrays.asList("40", "80", "c0"), points);
+    }
+
     @Test
     public void testGetLocalIP() {
         String ip = Utils.getLocalIP();
@@ -41,6 +41,7 @@ public class SimpleIM {
                 "Your table name");
         syncConfig.setTtl(30 * 24 * 3600); // one Month
         syncConfig.setLimit(100);
+        syncConfig.setRetentionEnabled(true); // keep the last 100 messages of each sync timeline
 
         store = new DistributeTimelineStore(storeConfig);
         sync = new DistributeTimelineStore(syncConfig);
@@ -118,12 +119,14 @@ public class SimpleIM {
     }
 
     private void sendGroupMessage(String groupName, IMessage message, List<String> groupMembers) {
+        // 只序列化一次，所有接收者复用同一份编码结果。
+        EncodedMessage encoded = new EncodedMessage(message);
         Timeline sender = new Timeline(groupName, store);
-        sender.store(message);
+        sender.store(encoded);
 
         for (String user : groupMembers) {
             Timeline receiver = new Timeline(user, sync);
-            receiver.store(message);
+            receiver.store(encoded);
         }
     }
 
@@ -0,0 +1,80 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class TestCompletableTimelineStore {
+    private File directory = null;
+    private LocalTimelineStore local = null;
+    private CompletableTimelineStore store = null;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("__timelinetest_completable_", "");
+        directory.delete();
+
+        local = new LocalTimelineStore(new LocalTimelineConfig(directory.getPath()));
+        local.create();
+        store = new CompletableTimelineStore(local);
+    }
+
+    @After
+    public void after() throws Exception {
+        local.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testWriteThenRead() {
+        TimelineEntry entry = store.writeAsync("00001", new StringMessage("content"))
+                .thenCompose(written -> store.readAsync("00001", written.getSequenceID()))
+                .join();
+        assertEquals("content", ((StringMessage) entry.getMessage()).getContent());
+    }
+
+    @Test
+    public void testFanoutAndMultiGet() {
+        Map<String, TimelineEntry> entries = store.writeAsync(Arrays.asList("00001", "00002", "00003"),
+                new StringMessage("content")).join();
+        assertEquals(Arrays.asList("00001", "00002", "00003"), Arrays.asList(entries.keySet().toArray()));
+
+        store.writeAsync("00001", new StringMessage("second")).join();
+        Iterator<TimelineEntry> iterator = store.scanAsync("00001",
+                ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(10).build())
+                .toCompletableFuture().join();
+        Long first = iterator.next().getSequenceID();
+        Long second = iterator.next().getSequenceID();
+        assertFalse(iterator.hasNext());
+
+        List<TimelineEntry> result = store.readAsync("00001", Arrays.asList(second, first)).join();
+        assertEquals("second", ((StringMessage) result.get(0).getMessage()).getContent());
+        assertEquals("content", ((StringMessage) result.get(1).getMessage()).getContent());
+    }
+
+    @Test
+    public void testFailure() {
+        local.drop();
+        try {
+            store.writeAsync("00001", new StringMessage("content")).join();
+            fail();
+        } catch (CompletionException ex) {
+            assertEquals(TimelineExceptionType.TET_INVALID_USE, ((TimelineException) ex.getCause()).getType());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.alicloud.openservices.tablestore.timeline;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineStreams {
+    @Test
+    public void testDistributeStore() throws Exception {
+        LocalTableStoreServer server = new LocalTableStoreServer();
+        DistributeTimelineConfig config = new DistributeTimelineConfig("<local>", "", "", "local", "__timelinetest_stream");
+        config.setMessageInstance(new StringMessage());
+        DistributeTimelineStore store = new DistributeTimelineStore(config, server.asyncClient());
+        try {
+            store.create();
+            for (int i = 0; i < 3000; i++) {
+                store.write("00001", new StringMessage("message " + i));
+            }
+            Timeline timeline = new Timeline("00001", store);
+            ScanParameter parameter = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(10000).build();
+            List<Long> expected = sequenceIDs(timeline.scan(parameter));
+            assertEquals(3000, expected.size());
+
+            assertEquals(expected, TimelineStreams.stream(timeline, parameter)
+                    .map(TimelineEntry::getSequenceID).collect(Collectors.toList()));
+            assertEquals(expected, TimelineStreams.stream(timeline, parameter).parallel()
+                    .map(TimelineEntry::getSequenceID).collect(Collectors.toList()));
+
+            Set<Long> unordered = TimelineStreams.stream(timeline, parameter, false).parallel()
+                    .map(TimelineEntry::getSequenceID).collect(Collectors.toSet());
+            assertEquals(new HashSet<>(expected), unordered);
+
+            List<String> contents = TimelineStreams.stream(timeline,
+                    ScanParameterBuilder.scanBackward().from(Long.MAX_VALUE).to(0).maxCount(3).build()).parallel()
+                    .map(entry -> ((StringMessage) entry.getMessage()).getContent()).collect(Collectors.toList());
+            assertEquals(3, contents.size());
+            assertEquals("message 2999", contents.get(0));
+            assertEquals("message 2997", contents.get(2));
+        } finally {
+            store.close();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testLocalStore() throws Exception {
+        File directory = File.createTempFile("__timelinetest_stream_", "");
+        directory.delete();
+        LocalTimelineStore store = new LocalTimelineStore(new LocalTimelineConfig(directory.getPath()));
+        try {
+            store.create();
+            for (int i = 0; i < 100; i++) {
+                store.write("00001", new StringMessage("message " + i));
+            }
+            Timeline timeline = new Timeline("00001", store);
+            ScanParameter parameter = ScanParameterBuilder.scanForward().from(0).to(Long.MAX_VALUE).maxCount(1000).build();
+            assertEquals(sequenceIDs(timeline.scan(parameter)), TimelineStreams.stream(timeline, parameter).parallel()
+                    .map(TimelineEntry::getSequenceID).collect(Collectors.toList()));
+            assertEquals(100, TimelineStreams.stream(timeline, parameter, false).parallel().count());
+        } finally {
+            store.close();
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    private static List<Long> sequenceIDs(Iterator<TimelineEntry> iterator) {
+        List<Long> sequenceIDs = new ArrayList<>();
+        while (iterator.hasNext()) {
+            sequenceIDs.add(iterator.next().getSequenceID());
+        }
+        return sequenceIDs;
+    }
+}